@@ -0,0 +1,194 @@
+package metadata.home.school.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of the JSON rendered for single students and courses, keyed by id in a cache of each tenant's own,
+ * so the maximum size applies to every tenant separately.
+ * Entries are the serialized response bytes so a hit skips both the database and Jackson.
+ * Services evict the affected ids on every write, including the other side of an enrollment.
+ */
+@Component
+public class EntityResponseCache implements MeterBinder {
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final TenantCaches<Integer, byte[]> students;
+    private final TenantCaches<Integer, byte[]> courses;
+    // eviction counters by id stripe, shared by the tenants; a collision only leaves a loaded entry uncached
+    private final AtomicLongArray studentGenerations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLongArray courseGenerations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @Autowired
+    public EntityResponseCache(ObjectMapper objectMapper,
+                               @Value("${school.cache.entity.maximum-size:10000}") long maximumSize,
+                               @Value("${school.cache.entity.ttl:PT10M}") Duration ttl){
+        this.objectMapper = objectMapper;
+        this.students = new TenantCaches<>("students", () -> build(maximumSize, ttl));
+        this.courses = new TenantCaches<>("courses", () -> build(maximumSize, ttl));
+    }
+
+    /**
+     * Returns the rendered student, loading and serializing it on a miss. Returns null when the loader finds nothing;
+     * misses are not cached so a later insert is visible immediately.
+     */
+    public byte[] getStudent(Integer id, Function<Integer, Optional<Student>> loader){
+        return students.current().get(id, key -> render(loader.apply(key)));
+    }
+
+    public byte[] getCourse(Integer id, Function<Integer, Optional<Course>> loader){
+        return courses.current().get(id, key -> render(loader.apply(key)));
+    }
+
+    /**
+     * Rendered students for the given ids, loading every miss with one call to the loader. Ids the loader doesn't
+     * return are left out of the result.
+     */
+    public Map<Integer, byte[]> getStudents(Collection<Integer> ids, Function<Collection<Integer>, List<Student>> loader){
+        return getAll(students, studentGenerations, ids, loader, Student::getId);
+    }
+
+    public Map<Integer, byte[]> getCourses(Collection<Integer> ids, Function<Collection<Integer>, List<Course>> loader){
+        return getAll(courses, courseGenerations, ids, loader, Course::getId);
+    }
+
+    public void evictStudent(Integer id){
+        if(id != null){
+            evict(students.current(), studentGenerations, id);
+        }
+    }
+
+    public void evictStudents(Collection<Student> evicted){
+        for (var student: evicted) {
+            evictStudent(student.getId());
+        }
+    }
+
+    public void evictCourse(Integer id){
+        if(id != null){
+            evict(courses.current(), courseGenerations, id);
+        }
+    }
+
+    public void evictCourses(Collection<Course> evicted){
+        for (var course: evicted) {
+            evictCourse(course.getId());
+        }
+    }
+
+    public CacheStats studentStats(){
+        return students.stats();
+    }
+
+    public CacheStats courseStats(){
+        return courses.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry){
+        students.bindTo(registry);
+        courses.bindTo(registry);
+    }
+
+    private byte[] render(Optional<?> entity){
+        if(entity == null || entity.isEmpty()){
+            return null;
+        }
+        try{
+            return objectMapper.writeValueAsBytes(entity.get());
+        }catch (JsonProcessingException ex){
+            throw new IllegalStateException("Cannot serialize " + entity.get().getClass().getSimpleName(), ex);
+        }
+    }
+
+    /**
+     * Serves the cached ids and loads the rest with one call. A loaded entry is only installed if its id was not
+     * evicted since the load began: a write committed during the load evicts nothing yet cached, and installing the
+     * JSON read before it would serve the old state until the TTL. Installing under compute keeps the check and the
+     * put atomic with invalidate.
+     */
+    private <T> Map<Integer, byte[]> getAll(TenantCaches<Integer, byte[]> cache, AtomicLongArray generations,
+                                            Collection<Integer> ids, Function<Collection<Integer>, List<T>> loader,
+                                            Function<T, Integer> id){
+        var current = cache.current();
+        var present = current.getAllPresent(ids);
+        var missing = new LinkedHashSet<Integer>();
+        for (var key: ids) {
+            if(!present.containsKey(key)){
+                missing.add(key);
+            }
+        }
+        Map<Integer, byte[]> loaded = Map.of();
+        if(!missing.isEmpty()){
+            var started = new HashMap<Integer, Long>();
+            for (var key: missing) {
+                started.put(key, generations.get(stripe(key)));
+            }
+            loaded = renderAll(loader.apply(missing), id);
+            for (var entry: loaded.entrySet()) {
+                current.asMap().compute(entry.getKey(), (key, cached) -> {
+                    if(cached != null || generations.get(stripe(key)) != started.get(key)){
+                        return cached;
+                    }
+                    return entry.getValue();
+                });
+            }
+        }
+        var found = new LinkedHashMap<Integer, byte[]>();
+        for (var key: ids) {
+            var json = present.containsKey(key) ? present.get(key) : loaded.get(key);
+            if(json != null){
+                found.put(key, json);
+            }
+        }
+        return found;
+    }
+
+    private <T> Map<Integer, byte[]> renderAll(List<T> entities, Function<T, Integer> id){
+        var rendered = new HashMap<Integer, byte[]>();
+        for (var entity: entities) {
+            rendered.put(id.apply(entity), render(Optional.of(entity)));
+        }
+        return rendered;
+    }
+
+    private static void evict(Cache<Integer, byte[]> cache, AtomicLongArray generations, Integer id){
+        // bumped before the invalidate, so a bulk load that already read the old row won't install it afterwards
+        generations.incrementAndGet(stripe(id));
+        cache.invalidate(id);
+    }
+
+    private static int stripe(Integer id){
+        return Math.floorMod(id, GENERATION_STRIPES);
+    }
+
+    private static Cache<Integer, byte[]> build(long maximumSize, Duration ttl){
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package metadata.home.school.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one: the first caller runs the work and callers arriving while it
+ * runs wait for it and share its result, or its exception. Nothing is kept once the work is done, the next call for
+ * the key runs it again. Results are shared between threads, so they must not be tied to the caller's session.
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    public V run(K key, Supplier<V> work){
+        var call = new CompletableFuture<V>();
+        var running = calls.putIfAbsent(key, call);
+        if(running != null){
+            return join(running);
+        }
+        try{
+            var result = work.get();
+            call.complete(result);
+            return result;
+        }catch (RuntimeException | Error e){
+            call.completeExceptionally(e);
+            throw e;
+        }finally {
+            calls.remove(key, call);
+        }
+    }
+
+    /**
+     * Number of keys whose work is running right now.
+     */
+    public int inFlight(){
+        return calls.size();
+    }
+
+    private static <V> V join(CompletableFuture<V> call){
+        try{
+            return call.join();
+        }catch (CompletionException e){
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            if(e.getCause() instanceof Error){
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
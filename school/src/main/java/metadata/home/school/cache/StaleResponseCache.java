@@ -0,0 +1,223 @@
+package metadata.home.school.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import metadata.home.school.tenancy.TenantContext;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Stale-while-revalidate cache of whole read responses, for endpoints that should keep answering while the database is
+ * slow. A response older than {@code refresh-after} is still served right away and reloaded in the background, one
+ * reload per response at a time; only once it is older than {@code max-staleness} does a request wait for the database
+ * again. Every cached response carries an Age header with its age in seconds, plus a Warning once it is stale.
+ * Writes don't evict anything, so a client may not see its own change until the next reload. When disabled the
+ * responses are computed on every request, as if there were no cache.
+ * With {@code school.cache.coalesce.enabled} concurrent requests for the same response that has to be loaded share one
+ * load and one rendered body, whether or not stale responses are served.
+ */
+@Component
+public class StaleResponseCache implements MeterBinder, DisposableBean {
+    static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final boolean enabled;
+    private final boolean coalesce;
+    private final long refreshAfterNanos;
+    private final Cache<String, CachedResponse> responses;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final SingleFlight<String, CachedResponse> loads = new SingleFlight<>();
+    private final ExecutorService refresher;
+
+    @Autowired
+    public StaleResponseCache(ObjectMapper objectMapper, ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                              @Value("${school.cache.stale.enabled:false}") boolean enabled,
+                              @Value("${school.cache.stale.maximum-size:1000}") long maximumSize,
+                              @Value("${school.cache.stale.refresh-after:PT5S}") Duration refreshAfter,
+                              @Value("${school.cache.stale.max-staleness:PT10M}") Duration maxStaleness,
+                              @Value("${school.cache.stale.refresh-threads:2}") int refreshThreads,
+                              @Value("${school.cache.coalesce.enabled:false}") boolean coalesce){
+        this.objectMapper = objectMapper;
+        this.entityManagerFactory = entityManagerFactory;
+        this.enabled = enabled;
+        this.coalesce = coalesce;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxStaleness)
+                .recordStats()
+                .build();
+        var threads = new AtomicInteger();
+        this.refresher = Executors.newFixedThreadPool(refreshThreads, task -> {
+            var thread = new Thread(task, "stale-response-refresh-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     * The cached response for the key under the current tenant, loading it on a miss. Only successful responses are
+     * cached; anything else is returned as the loader made it and drops the cached copy when a reload gets it.
+     */
+    public ResponseEntity<?> get(String key, Supplier<ResponseEntity<?>> loader){
+        if(!enabled && !coalesce){
+            return loader.get();
+        }
+        var tenantKey = TenantContext.current() + "/" + key;
+        var cached = enabled ? responses.getIfPresent(tenantKey) : null;
+        if(cached == null){
+            cached = coalesce ? loads.run(tenantKey, () -> load(tenantKey, loader)) : load(tenantKey, loader);
+            // only cached responses have an age
+            if(!enabled || !cached.isOk()){
+                return cached.response;
+            }
+        }else if(System.nanoTime() - cached.loadedAt > refreshAfterNanos){
+            refresh(tenantKey, loader);
+        }
+        return cached.toResponseEntity(refreshAfterNanos);
+    }
+
+    /**
+     * Number of responses being loaded for requests right now, each possibly waited on by several of them.
+     */
+    public int loadsInFlight(){
+        return loads.inFlight();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry){
+        CaffeineCacheMetrics.monitor(registry, responses, "stale_responses");
+        Gauge.builder("school.responses.loads.in.flight", this, StaleResponseCache::loadsInFlight).register(registry);
+    }
+
+    @Override
+    public void destroy(){
+        refresher.shutdownNow();
+    }
+
+    private void refresh(String tenantKey, Supplier<ResponseEntity<?>> loader){
+        if(!refreshing.add(tenantKey)){
+            return;
+        }
+        var tenant = TenantContext.current();
+        try{
+            refresher.execute(() -> {
+                try{
+                    TenantContext.runAs(tenant, () -> reload(tenantKey, loader));
+                }catch (RuntimeException e){
+                    // the database is still struggling, the stale copy is served until max-staleness
+                }finally {
+                    refreshing.remove(tenantKey);
+                }
+            });
+        }catch (RejectedExecutionException e){
+            refreshing.remove(tenantKey);
+        }
+    }
+
+    /**
+     * Runs the loader with an entity manager open around it, like a request has, so lazy associations render.
+     */
+    private void reload(String tenantKey, Supplier<ResponseEntity<?>> loader){
+        var factory = entityManagerFactory.getIfAvailable();
+        var entityManager = factory == null ? null : factory.createEntityManager();
+        if(entityManager != null){
+            TransactionSynchronizationManager.bindResource(factory, new EntityManagerHolder(entityManager));
+        }
+        try{
+            if(!load(tenantKey, loader).isOk()){
+                responses.invalidate(tenantKey);
+            }
+        }finally {
+            if(entityManager != null){
+                TransactionSynchronizationManager.unbindResource(factory);
+                EntityManagerFactoryUtils.closeEntityManager(entityManager);
+            }
+        }
+    }
+
+    /**
+     * Runs the loader and renders a successful response, caching it when stale responses are served. Other responses
+     * are kept as the loader made them.
+     */
+    private CachedResponse load(String tenantKey, Supplier<ResponseEntity<?>> loader){
+        var response = loader.get();
+        if(response.getStatusCode() != HttpStatus.OK){
+            return new CachedResponse(response, null, System.nanoTime());
+        }
+        var body = response.getBody();
+        byte[] bytes;
+        try{
+            bytes = body instanceof byte[] ? (byte[]) body : objectMapper.writeValueAsBytes(body);
+        }catch (JsonProcessingException ex){
+            throw new IllegalStateException("Cannot serialize " + body.getClass().getSimpleName(), ex);
+        }
+        var rendered = ResponseEntity.ok().headers(response.getHeaders()).contentType(MediaType.APPLICATION_JSON).body(bytes);
+        var cached = new CachedResponse(rendered, bytes, System.nanoTime());
+        if(enabled){
+            responses.put(tenantKey, cached);
+        }
+        return cached;
+    }
+
+    private static final class CachedResponse {
+        private final ResponseEntity<?> response;
+        private final byte[] body;
+        private final HttpHeaders headers;
+        private final long loadedAt;
+
+        CachedResponse(ResponseEntity<?> response, byte[] body, long loadedAt){
+            this.response = response;
+            this.body = body;
+            this.headers = HttpHeaders.readOnlyHttpHeaders(response.getHeaders());
+            this.loadedAt = loadedAt;
+        }
+
+        boolean isOk(){
+            return body != null;
+        }
+
+        ResponseEntity<byte[]> toResponseEntity(long refreshAfterNanos){
+            var age = System.nanoTime() - loadedAt;
+            var response = ResponseEntity.ok()
+                    .headers(headers)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.AGE, String.valueOf(Duration.ofNanos(age).getSeconds()));
+            if(age > refreshAfterNanos){
+                response.header(HttpHeaders.WARNING, STALE_WARNING);
+            }
+            return response.body(body);
+        }
+    }
+}
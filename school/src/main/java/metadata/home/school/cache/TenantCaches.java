@@ -0,0 +1,78 @@
+package metadata.home.school.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import metadata.home.school.tenancy.TenantContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * One Caffeine cache per tenant, built from the same settings on the tenant's first use. Each tenant gets the whole
+ * maximum size to itself, so a busy tenant only ever evicts its own entries; memory grows with the number of tenants,
+ * which are fixed in the configuration. Without tenancy there is a single cache. Metrics carry the tenant as a tag.
+ */
+public final class TenantCaches<K, V> {
+    private final String name;
+    private final Supplier<Cache<K, V>> builder;
+    private final Map<String, Cache<K, V>> caches = new ConcurrentHashMap<>();
+    private MeterRegistry registry;
+
+    public TenantCaches(String name, Supplier<Cache<K, V>> builder){
+        this.name = name;
+        this.builder = builder;
+    }
+
+    /**
+     * The cache of the current thread's tenant.
+     */
+    public Cache<K, V> current(){
+        return of(TenantContext.current());
+    }
+
+    public Cache<K, V> of(String tenant){
+        var cache = caches.get(tenant);
+        return cache != null ? cache : create(tenant);
+    }
+
+    public void invalidateAll(){
+        for (var cache: caches.values()) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Stats of every tenant's cache added up.
+     */
+    public CacheStats stats(){
+        var stats = CacheStats.empty();
+        for (var cache: caches.values()) {
+            stats = stats.plus(cache.stats());
+        }
+        return stats;
+    }
+
+    public synchronized void bindTo(MeterRegistry registry){
+        this.registry = registry;
+        caches.forEach(this::monitor);
+    }
+
+    private synchronized Cache<K, V> create(String tenant){
+        var cache = caches.get(tenant);
+        if(cache == null){
+            cache = builder.get();
+            caches.put(tenant, cache);
+            if(registry != null){
+                monitor(tenant, cache);
+            }
+        }
+        return cache;
+    }
+
+    private void monitor(String tenant, Cache<K, V> cache){
+        CaffeineCacheMetrics.monitor(registry, cache, name, "tenant", tenant.equals(TenantContext.NONE) ? "none" : tenant);
+    }
+}
@@ -0,0 +1,31 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.service.ChangeFeedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api")
+public class ChangeController {
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    public ChangeController(ChangeFeedService changeFeedService){
+        this.changeFeedService = changeFeedService;
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam(value = "since", required = false) Long since,
+                                        @RequestParam(value = "limit", required = false) Integer limit) {
+        if(since == null){
+            return ServiceResponses.toResponseEntity(changeFeedService.findCursor(), HttpStatus.OK);
+        }
+        var pageSize = limit == null ? ChangeFeedService.DEFAULT_LIMIT : Math.max(1, Math.min(limit, ChangeFeedService.MAX_LIMIT));
+        return ServiceResponses.toResponseEntity(changeFeedService.findChanges(Math.max(0, since), pageSize), HttpStatus.OK);
+    }
+}
@@ -1,11 +1,16 @@
 package metadata.home.school.controller;
 
-import metadata.home.school.exception.ResourceNotFoundException;
+import metadata.home.school.cache.EntityResponseCache;
+import metadata.home.school.cache.StaleResponseCache;
 import metadata.home.school.model.Course;
-import metadata.home.school.model.ServiceResponse;
+import metadata.home.school.model.CourseFilter;
+import metadata.home.school.model.CoursePatch;
+import metadata.home.school.model.ErrorCode;
 import metadata.home.school.service.CourseService;
+import metadata.home.school.service.RelatedCoursesService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -16,33 +21,80 @@ import java.util.Set;
 @RequestMapping("/api")
 public class CourseController {
     private CourseService courseService;
+    private EntityResponseCache responseCache;
+    private RelatedCoursesService relatedCoursesService;
+    private StaleResponseCache staleCache;
 
     @Autowired
-    public CourseController(CourseService courseService){
+    public CourseController(CourseService courseService, EntityResponseCache responseCache, RelatedCoursesService relatedCoursesService,
+                            StaleResponseCache staleCache){
         this.courseService = courseService;
+        this.responseCache = responseCache;
+        this.relatedCoursesService = relatedCoursesService;
+        this.staleCache = staleCache;
     }
 
     @GetMapping("/courses")
-    public List<Course> getAllCourses() {
-        return courseService.findAll();
+    public ResponseEntity<?> getAllCourses(CourseFilter filter,
+                                           @RequestParam(value = "page", required = false) Integer page,
+                                           @RequestParam(value = "size", required = false) Integer size) {
+        var key = "courses?name=" + filter.getName() + "&minStudents=" + filter.getMinStudents() + "&maxStudents=" + filter.getMaxStudents()
+                + "&page=" + page + "&size=" + size;
+        return staleCache.get(key, () -> {
+            if(filter.isEmpty() && page == null && size == null){
+                return ResponseEntity.ok(courseService.findAll());
+            }
+            return Pagination.toResponseEntity(courseService.find(filter, Pagination.pageable(page, size)));
+        });
+    }
+
+    @GetMapping(value = "/courses", params = "ids")
+    public ResponseEntity<?> getCoursesById(@RequestParam(value = "ids") List<Integer> ids) {
+        return MultiGet.toResponseEntity(ids, requested -> responseCache.getCourses(requested, courseService::findAllById));
     }
 
     @GetMapping("/courses/{id}")
     public ResponseEntity<?> getCourseById(@PathVariable(value = "id") Integer id) {
-        var course = courseService.findById(id);
+        var course = responseCache.getCourse(id, courseService::findWithStudents);
         if (course != null){
-            return new ResponseEntity<>(course.get(), HttpStatus.OK);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(course);
         }
-        return new ResponseEntity<>("Course with id: " + id +  " was not found", HttpStatus.NOT_FOUND);
+        return ServiceResponses.notFound(ErrorCode.COURSE_NOT_FOUND, id);
     }
 
     @GetMapping("/courses/{id}/students")
     public ResponseEntity<?> getStudentsFromCourse(@PathVariable(value = "id") Integer id) {
-        var cuorse = courseService.findById(id);
-        if (cuorse != null){
-            return new ResponseEntity<>(cuorse.get().getStudents(), HttpStatus.OK);
+        return staleCache.get("courses/" + id + "/students", () -> {
+            var cuorse = courseService.findById(id);
+            if (cuorse != null && cuorse.isPresent()){
+                return new ResponseEntity<>(courseService.findStudents(cuorse.get()), HttpStatus.OK);
+            }
+            return ServiceResponses.notFound(ErrorCode.COURSE_NOT_FOUND, id);
+        });
+    }
+
+    @GetMapping("/courses/{id}/waitlist")
+    public ResponseEntity<?> getCourseWaitlist(@PathVariable(value = "id") Integer id) {
+        var course = courseService.findById(id);
+        if (course != null && course.isPresent()){
+            return new ResponseEntity<>(courseService.findWaitlist(course.get()), HttpStatus.OK);
         }
-        return new ResponseEntity<>("Course with id: " + id +  " was not found", HttpStatus.NOT_FOUND);
+        return ServiceResponses.notFound(ErrorCode.COURSE_NOT_FOUND, id);
+    }
+
+    @GetMapping("/courses/{id}/related")
+    public ResponseEntity<?> getRelatedCourses(@PathVariable(value = "id") Integer id,
+                                               @RequestParam(value = "limit", required = false) Integer limit) {
+        var max = limit == null ? relatedCoursesService.getTopK() : Math.max(0, limit);
+        if(relatedCoursesService.isRanked(id)){
+            return ResponseEntity.ok(relatedCoursesService.findRelated(id, max));
+        }
+        // created since the last refresh, or not a course at all
+        var course = courseService.findById(id);
+        if(course != null && course.isPresent()){
+            return ResponseEntity.ok(List.of());
+        }
+        return ServiceResponses.notFound(ErrorCode.COURSE_NOT_FOUND, id);
     }
 
     @GetMapping("/courses/noStudents")
@@ -52,34 +104,47 @@ public class CourseController {
 
     @PostMapping("/courses")
     public ResponseEntity<?> createCourse(@RequestBody Course course) {
-        var savedCourse = courseService.save(course);
-
-        if(savedCourse.getResult() != null){
-            return new ResponseEntity<>(savedCourse.getResult(), HttpStatus.CREATED);
-        }
-        return new ResponseEntity<>(savedCourse.getMessage(), HttpStatus.CONFLICT);
+        return ServiceResponses.toResponseEntity(courseService.save(course), HttpStatus.CREATED);
     }
 
     @PutMapping("/courses/{id}")
     public ResponseEntity<?> updateCourse(@PathVariable(value = "id") Integer id, @RequestBody Course course) {
-        ServiceResponse updatedCourse;
-        try{
-            updatedCourse = courseService.update(id, course);
-        }catch (ResourceNotFoundException ex){
-            return new ResponseEntity<>("Student with id: " + id +  " was not found", HttpStatus.NOT_FOUND);
-        }
+        return ServiceResponses.toResponseEntity(courseService.update(id, course), HttpStatus.OK);
+    }
 
-        if(updatedCourse.getResult() != null){
-            return new ResponseEntity<>(updatedCourse.getResult(), HttpStatus.OK);
-        }
-        return new ResponseEntity<>(updatedCourse.getMessage(), HttpStatus.CONFLICT);
+    @PatchMapping(value = "/courses/{id}", consumes = "application/merge-patch+json")
+    public ResponseEntity<?> patchCourse(@PathVariable(value = "id") Integer id, @RequestBody CoursePatch patch) {
+        return ServiceResponses.toResponseEntity(courseService.patch(id, patch), HttpStatus.OK);
     }
 
     @DeleteMapping("/courses/{id}")
     public ResponseEntity<?> deleteCourse(@PathVariable(value = "id") Integer id) {
-        Course course = courseService.findById(id).orElseThrow(() -> new ResourceNotFoundException("Course", "id", id));
-        courseService.delete(course);
+        var course = courseService.findById(id);
+        if(course != null && course.isPresent()){
+            courseService.delete(course.get());
+            return ResponseEntity.ok().build();
+        }
+
+        return ServiceResponses.notFound(ErrorCode.COURSE_NOT_FOUND, id);
+    }
+
+    @DeleteMapping(value = "/courses", params = "ids")
+    public ResponseEntity<?> deleteCourses(@RequestParam(value = "ids") List<Integer> ids) {
+        return ServiceResponses.toResponseEntity(courseService.deleteAll(ids), HttpStatus.OK);
+    }
+
+    @DeleteMapping("/courses")
+    public ResponseEntity<?> deleteCourses(CourseFilter filter) {
+        return ServiceResponses.toResponseEntity(courseService.deleteAll(filter), HttpStatus.OK);
+    }
+
+    @PostMapping("/courses/{id}/students:batchAdd")
+    public ResponseEntity<?> batchAddStudents(@PathVariable(value = "id") Integer id, @RequestBody List<String> schoolIds) {
+        return ServiceResponses.toResponseEntity(courseService.batchAdd(id, schoolIds), HttpStatus.OK);
+    }
 
-        return ResponseEntity.ok().build();
+    @PostMapping("/courses/{id}/students:batchRemove")
+    public ResponseEntity<?> batchRemoveStudents(@PathVariable(value = "id") Integer id, @RequestBody List<String> schoolIds) {
+        return ServiceResponses.toResponseEntity(courseService.batchRemove(id, schoolIds), HttpStatus.OK);
     }
 }
@@ -0,0 +1,65 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.model.ErrorCode;
+import metadata.home.school.profiling.FlightRecordings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+/**
+ * Starts, downloads and discards the in-app flight recording. Only mapped with school.profiling.endpoint-enabled=true.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@ConditionalOnProperty(name = "school.profiling.endpoint-enabled", havingValue = "true")
+public class FlightRecordingController {
+    private FlightRecordings flightRecordings;
+
+    @Autowired
+    public FlightRecordingController(FlightRecordings flightRecordings){
+        this.flightRecordings = flightRecordings;
+    }
+
+    @PostMapping("/recording")
+    public ResponseEntity<?> startRecording(@RequestParam(value = "duration", defaultValue = "PT1M") Duration duration) {
+        return ServiceResponses.toResponseEntity(flightRecordings.start(duration), HttpStatus.CREATED);
+    }
+
+    @GetMapping("/recording")
+    public ResponseEntity<?> getRecording() {
+        var recording = flightRecordings.find();
+        if(recording.isPresent()){
+            return ResponseEntity.ok(recording.get());
+        }
+        return ServiceResponses.notFound(ErrorCode.RECORDING_NOT_FOUND, null);
+    }
+
+    @GetMapping("/recording/file")
+    public ResponseEntity<?> downloadRecording() throws IOException {
+        var dump = flightRecordings.dump();
+        if(dump.getResult() == null){
+            return ServiceResponses.toResponseEntity(dump, HttpStatus.OK);
+        }
+        // the dump is deleted once the response has been written and the stream closed
+        var body = new InputStreamResource(Files.newInputStream(dump.getResult(), StandardOpenOption.DELETE_ON_CLOSE));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + FlightRecordings.NAME + ".jfr\"")
+                .body(body);
+    }
+
+    @DeleteMapping("/recording")
+    public ResponseEntity<?> discardRecording() {
+        return ServiceResponses.toResponseEntity(flightRecordings.discard(), HttpStatus.OK);
+    }
+}
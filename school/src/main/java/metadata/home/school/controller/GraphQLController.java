@@ -0,0 +1,33 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class GraphQLController {
+    private SchoolGraphQL schoolGraphQL;
+
+    @Autowired
+    public GraphQLController(StudentService studentService, CourseService courseService){
+        this.schoolGraphQL = new SchoolGraphQL(studentService, courseService);
+    }
+
+    /**
+     * Errors are reported in the body next to whatever data could be resolved, as GraphQL clients expect.
+     */
+    @PostMapping("/graphql")
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> query(@RequestBody Map<String, Object> request) {
+        var result = schoolGraphQL.execute((String) request.get("query"), (String) request.get("operationName"),
+                (Map<String, Object>) request.get("variables"));
+        return result.toSpecification();
+    }
+}
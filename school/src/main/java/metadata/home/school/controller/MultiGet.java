@@ -0,0 +1,53 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.model.ErrorCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * GET of many entities by id. The rendered entities come from the response cache, misses are loaded together,
+ * and the body is their JSON joined into one array in the order the ids were asked for. Ids that don't exist are
+ * listed in a header instead of failing the request.
+ */
+final class MultiGet {
+    static final String MISSING_IDS_HEADER = "X-Missing-Ids";
+    static final int MAX_IDS = 1000;
+
+    private MultiGet(){
+    }
+
+    static ResponseEntity<?> toResponseEntity(List<Integer> ids, Function<Collection<Integer>, Map<Integer, byte[]>> lookup){
+        var requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if(requested.size() > MAX_IDS){
+            return ServiceResponses.invalid(ErrorCode.TOO_MANY_IDS, MAX_IDS);
+        }
+
+        var found = lookup.apply(requested);
+        var body = new ByteArrayOutputStream();
+        var missing = new StringJoiner(",");
+        body.write('[');
+        for (var id: requested) {
+            var rendered = found.get(id);
+            if(rendered == null){
+                missing.add(id.toString());
+                continue;
+            }
+            if(body.size() > 1){
+                body.write(',');
+            }
+            body.writeBytes(rendered);
+        }
+        body.write(']');
+
+        var response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if(missing.length() > 0){
+            response.header(MISSING_IDS_HEADER, missing.toString());
+        }
+        return response.body(body.toByteArray());
+    }
+}
@@ -0,0 +1,30 @@
+package metadata.home.school.controller;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+/**
+ * Paging of the list endpoints. The body stays a plain JSON array, the total number of matches goes in a header.
+ */
+final class Pagination {
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    static final int DEFAULT_SIZE = 20;
+    static final int MAX_SIZE = 500;
+
+    private Pagination(){
+    }
+
+    static Pageable pageable(Integer page, Integer size){
+        var pageSize = size == null ? DEFAULT_SIZE : Math.max(1, Math.min(size, MAX_SIZE));
+        return PageRequest.of(page == null ? 0 : Math.max(0, page), pageSize, Sort.by("id"));
+    }
+
+    static <T> ResponseEntity<List<T>> toResponseEntity(Page<T> page){
+        return ResponseEntity.ok().header(TOTAL_COUNT_HEADER, String.valueOf(page.getTotalElements())).body(page.getContent());
+    }
+}
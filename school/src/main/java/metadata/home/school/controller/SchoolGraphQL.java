@@ -0,0 +1,151 @@
+package metadata.home.school.controller;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.instrumentation.dataloader.DataLoaderDispatcherInstrumentation;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeDefinitionRegistry;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.CourseFilter;
+import metadata.home.school.model.Student;
+import metadata.home.school.model.StudentFilter;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.dataloader.BatchLoader;
+import org.dataloader.DataLoaderFactory;
+import org.dataloader.DataLoaderRegistry;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * The GraphQL schema over students and courses. The courses of a student and the students of a course are resolved
+ * through per-request data loaders, so every nesting level of a query costs one batched load (one query per shard)
+ * however many entities it returns, and an entity reached twice in the same request is only loaded once.
+ */
+final class SchoolGraphQL {
+    static final String SCHEMA = "graphql/schema.graphqls";
+    static final String COURSES_OF_STUDENT = "coursesOfStudent";
+    static final String STUDENTS_OF_COURSE = "studentsOfCourse";
+    static final int MAX_DEPTH = 10;
+
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final GraphQL graphQL;
+
+    SchoolGraphQL(StudentService studentService, CourseService courseService){
+        this.studentService = studentService;
+        this.courseService = courseService;
+        var instrumentation = new ChainedInstrumentation(List.of(
+                new DataLoaderDispatcherInstrumentation(), new MaxQueryDepthInstrumentation(MAX_DEPTH)));
+        this.graphQL = GraphQL.newGraphQL(new SchemaGenerator().makeExecutableSchema(readSchema(), wiring()))
+                .instrumentation(instrumentation)
+                .build();
+    }
+
+    ExecutionResult execute(String query, String operationName, Map<String, Object> variables){
+        var input = ExecutionInput.newExecutionInput()
+                .query(query)
+                .operationName(operationName)
+                .variables(variables == null ? Map.of() : variables)
+                .dataLoaderRegistry(dataLoaders())
+                .build();
+        return graphQL.execute(input);
+    }
+
+    private RuntimeWiring wiring(){
+        return RuntimeWiring.newRuntimeWiring()
+                .type("Query", type -> type
+                        .dataFetcher("student", env -> byId(env, studentService::findById))
+                        .dataFetcher("students", this::students)
+                        .dataFetcher("course", env -> byId(env, courseService::findById))
+                        .dataFetcher("courses", this::courses))
+                .type("Student", type -> type.dataFetcher("courses",
+                        related(COURSES_OF_STUDENT, (Student student) -> student.getId())))
+                .type("Course", type -> type.dataFetcher("students",
+                        related(STUDENTS_OF_COURSE, (Course course) -> course.getId())))
+                .build();
+    }
+
+    private List<Student> students(DataFetchingEnvironment env){
+        var filter = new StudentFilter();
+        filter.setName(env.getArgument("name"));
+        filter.setCourse(env.getArgument("course"));
+        filter.setMinCourses(env.getArgument("minCourses"));
+        filter.setMaxCourses(env.getArgument("maxCourses"));
+        return studentService.find(filter, Pagination.pageable(env.getArgument("page"), env.getArgument("size"))).getContent();
+    }
+
+    private List<Course> courses(DataFetchingEnvironment env){
+        var filter = new CourseFilter();
+        filter.setName(env.getArgument("name"));
+        filter.setMinStudents(env.getArgument("minStudents"));
+        filter.setMaxStudents(env.getArgument("maxStudents"));
+        return courseService.find(filter, Pagination.pageable(env.getArgument("page"), env.getArgument("size"))).getContent();
+    }
+
+    private DataLoaderRegistry dataLoaders(){
+        var registry = new DataLoaderRegistry();
+        registry.register(COURSES_OF_STUDENT, DataLoaderFactory.newDataLoader(batch(studentService::findCourses)));
+        registry.register(STUDENTS_OF_COURSE, DataLoaderFactory.newDataLoader(batch(courseService::findStudents)));
+        return registry;
+    }
+
+    private static <T, V> DataFetcher<CompletableFuture<List<V>>> related(String loader, Function<T, Integer> key){
+        return env -> env.<Integer, List<V>>getDataLoader(loader).load(key.apply(env.getSource()));
+    }
+
+    /**
+     * Runs the load on the request thread, which keeps the request's persistence context, and answers in key order.
+     */
+    private static <V> BatchLoader<Integer, List<V>> batch(Function<List<Integer>, Map<Integer, List<V>>> load){
+        return keys -> {
+            var loaded = load.apply(keys);
+            var values = new ArrayList<List<V>>(keys.size());
+            for (var key: keys) {
+                values.add(loaded.getOrDefault(key, List.of()));
+            }
+            return CompletableFuture.completedFuture(values);
+        };
+    }
+
+    private static <T> T byId(DataFetchingEnvironment env, Function<Integer, Optional<T>> find){
+        var id = id(env);
+        return id == null ? null : find.apply(id).orElse(null);
+    }
+
+    /**
+     * The id argument, or null when it isn't a number: nothing has such an id, so it reads like any other unknown one.
+     */
+    private static Integer id(DataFetchingEnvironment env){
+        try{
+            return Integer.valueOf(env.<String>getArgument("id"));
+        }catch (NumberFormatException ex){
+            return null;
+        }
+    }
+
+    private static TypeDefinitionRegistry readSchema(){
+        try(var reader = new InputStreamReader(new ClassPathResource(SCHEMA).getInputStream(), StandardCharsets.UTF_8)){
+            return new SchemaParser().parse(reader);
+        }catch (IOException e){
+            throw new UncheckedIOException("Cannot read " + SCHEMA, e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.model.ErrorCode;
+import metadata.home.school.model.ServiceResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Maps service results to HTTP responses. Errors keep the plain text message as body and add the error code as a header.
+ */
+final class ServiceResponses {
+    static final String ERROR_CODE_HEADER = "X-Error-Code";
+
+    private ServiceResponses(){
+    }
+
+    static ResponseEntity<?> toResponseEntity(ServiceResponse<?> response, HttpStatus successStatus){
+        switch (response.getStatus()){
+            case SUCCESS:
+                return new ResponseEntity<>(response.getResult(), successStatus);
+            case ACCEPTED:
+                return new ResponseEntity<>(response.getResult(), HttpStatus.ACCEPTED);
+            case INVALID:
+                return error(response.getErrorCode(), response.getMessage(), HttpStatus.BAD_REQUEST);
+            case NOT_FOUND:
+                return error(response.getErrorCode(), response.getMessage(), HttpStatus.NOT_FOUND);
+            default:
+                return error(response.getErrorCode(), response.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    static ResponseEntity<?> notFound(ErrorCode errorCode, Object argument){
+        return error(errorCode, errorCode.message(argument), HttpStatus.NOT_FOUND);
+    }
+
+    static ResponseEntity<?> invalid(ErrorCode errorCode, Object argument){
+        return error(errorCode, errorCode.message(argument), HttpStatus.BAD_REQUEST);
+    }
+
+    private static ResponseEntity<?> error(ErrorCode errorCode, String message, HttpStatus status){
+        return ResponseEntity.status(status).header(ERROR_CODE_HEADER, errorCode.name()).body(message);
+    }
+}
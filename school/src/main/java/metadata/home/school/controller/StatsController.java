@@ -0,0 +1,24 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.model.EnrollmentStats;
+import metadata.home.school.service.StatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api")
+public class StatsController {
+    private StatsService statsService;
+
+    @Autowired
+    public StatsController(StatsService statsService){
+        this.statsService = statsService;
+    }
+
+    @GetMapping("/stats")
+    public EnrollmentStats getStats() {
+        return statsService.getStats();
+    }
+}
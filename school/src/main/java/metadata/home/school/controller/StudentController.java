@@ -1,12 +1,15 @@
 package metadata.home.school.controller;
 
-import metadata.home.school.exception.ResourceNotFoundException;
+import metadata.home.school.cache.EntityResponseCache;
 import metadata.home.school.model.Course;
-import metadata.home.school.model.ServiceResponse;
+import metadata.home.school.model.ErrorCode;
 import metadata.home.school.model.Student;
+import metadata.home.school.model.StudentFilter;
+import metadata.home.school.model.StudentPatch;
 import metadata.home.school.service.StudentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,33 +20,45 @@ import java.util.List;
 public class StudentController {
 
     private StudentService studentService;
+    private EntityResponseCache responseCache;
 
     @Autowired
-    public StudentController(StudentService studentService){
+    public StudentController(StudentService studentService, EntityResponseCache responseCache){
         this.studentService = studentService;
+        this.responseCache = responseCache;
     }
 
     @GetMapping("/students")
-    public List<Student> getAllStudents() {
-        return studentService.findAll();
+    public ResponseEntity<List<Student>> getAllStudents(StudentFilter filter,
+                                                        @RequestParam(value = "page", required = false) Integer page,
+                                                        @RequestParam(value = "size", required = false) Integer size) {
+        if(filter.isEmpty() && page == null && size == null){
+            return ResponseEntity.ok(studentService.findAll());
+        }
+        return Pagination.toResponseEntity(studentService.find(filter, Pagination.pageable(page, size)));
+    }
+
+    @GetMapping(value = "/students", params = "ids")
+    public ResponseEntity<?> getStudentsById(@RequestParam(value = "ids") List<Integer> ids) {
+        return MultiGet.toResponseEntity(ids, requested -> responseCache.getStudents(requested, studentService::findAllById));
     }
 
     @GetMapping("/students/{id}")
     public ResponseEntity<?> getStudentById(@PathVariable(value = "id") Integer id) {
-        var student = studentService.findById(id);
+        var student = responseCache.getStudent(id, studentService::findById);
         if (student != null){
-            return new ResponseEntity<>(student.get(), HttpStatus.OK);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(student);
         }
-        return new ResponseEntity<>("Student with id: " + id +  " was not found", HttpStatus.NOT_FOUND);
+        return ServiceResponses.notFound(ErrorCode.STUDENT_NOT_FOUND, id);
     }
 
     @GetMapping("/students/{id}/courses")
     public ResponseEntity<?> getCoursesFromStudent(@PathVariable(value = "id") Integer id) {
         var student = studentService.findById(id);
-        if (student != null){
+        if (student != null && student.isPresent()){
             return new ResponseEntity<>(student.get().getCourses(), HttpStatus.OK);
         }
-        return new ResponseEntity<>("Student with id: " + id +  " was not found", HttpStatus.NOT_FOUND);
+        return ServiceResponses.notFound(ErrorCode.STUDENT_NOT_FOUND, id);
     }
 
     @GetMapping("/students/noCourses")
@@ -53,51 +68,42 @@ public class StudentController {
 
     @PostMapping("/students")
     public ResponseEntity<?> createStudent(@RequestBody Student student) {
-        var savedStudent = studentService.save(student);
-
-        if(savedStudent.getResult() != null){
-            return new ResponseEntity<>(savedStudent.getResult(), HttpStatus.CREATED);
-        }
-        return new ResponseEntity<>(savedStudent.getMessage(), HttpStatus.CONFLICT);
+        return ServiceResponses.toResponseEntity(studentService.save(student), HttpStatus.CREATED);
     }
 
     @PutMapping("/students/{id}")
     public ResponseEntity<?> updateStudent(@PathVariable(value = "id") Integer id, @RequestBody Student student) {
-        ServiceResponse updatedStudent;
-        try{
-            updatedStudent = studentService.update(id, student);
-        }catch (ResourceNotFoundException ex){
-            return new ResponseEntity<>("Student with id: " + id +  " was not found", HttpStatus.NOT_FOUND);
-        }
+        return ServiceResponses.toResponseEntity(studentService.update(id, student), HttpStatus.OK);
+    }
 
-        if(updatedStudent.getResult() != null){
-            return new ResponseEntity<>(updatedStudent.getResult(), HttpStatus.OK);
-        }
-        return new ResponseEntity<>(updatedStudent.getMessage(), HttpStatus.CONFLICT);
+    @PatchMapping(value = "/students/{id}", consumes = "application/merge-patch+json")
+    public ResponseEntity<?> patchStudent(@PathVariable(value = "id") Integer id, @RequestBody StudentPatch patch) {
+        return ServiceResponses.toResponseEntity(studentService.patch(id, patch), HttpStatus.OK);
     }
 
     @DeleteMapping("/students/{id}")
     public ResponseEntity<?> deleteStudent(@PathVariable(value = "id") Integer id) {
         var student = studentService.findById(id);
-        if(student.get() != null){
+        if(student != null && student.isPresent()){
             studentService.delete(student.get());
             return ResponseEntity.ok().build();
         }
 
-        return new ResponseEntity<>("Student with id: " + id +  " was not found", HttpStatus.NOT_FOUND);
+        return ServiceResponses.notFound(ErrorCode.STUDENT_NOT_FOUND, id);
+    }
+
+    @DeleteMapping(value = "/students", params = "ids")
+    public ResponseEntity<?> deleteStudents(@RequestParam(value = "ids") List<Integer> ids) {
+        return ServiceResponses.toResponseEntity(studentService.deleteAll(ids), HttpStatus.OK);
+    }
+
+    @DeleteMapping("/students")
+    public ResponseEntity<?> deleteStudents(StudentFilter filter) {
+        return ServiceResponses.toResponseEntity(studentService.deleteAll(filter), HttpStatus.OK);
     }
 
     @PostMapping("/students/{id}/register")
     public ResponseEntity<?> register(@PathVariable(value = "id") Integer id, @RequestBody List<Course> courses) {
-        try{
-            var updatedStudent = studentService.register(id, courses);
-
-            if(updatedStudent.getResult() != null){
-                return new ResponseEntity<>(updatedStudent.getResult(), HttpStatus.OK);
-            }
-            return new ResponseEntity<>(updatedStudent.getMessage(), HttpStatus.CONFLICT);
-        }catch (ResourceNotFoundException ex){
-            return new ResponseEntity<>("Student with id: " + id +  " was not found", HttpStatus.NOT_FOUND);
-        }
+        return ServiceResponses.toResponseEntity(studentService.register(id, courses), HttpStatus.OK);
     }
 }
@@ -0,0 +1,34 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.model.TraceSpan;
+import metadata.home.school.tracing.RecentSpans;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * The traces kept in memory. Only mapped with both school.tracing.enabled and school.profiling.endpoint-enabled.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@ConditionalOnProperty(name = { "school.tracing.enabled", "school.profiling.endpoint-enabled" }, havingValue = "true")
+public class TraceController {
+    private RecentSpans recentSpans;
+
+    @Autowired
+    public TraceController(RecentSpans recentSpans){
+        this.recentSpans = recentSpans;
+    }
+
+    @GetMapping("/traces")
+    public List<TraceSpan> getRecentTraces(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return recentSpans.findRecentTraces(limit);
+    }
+
+    @GetMapping("/traces/{traceId}")
+    public List<TraceSpan> getTrace(@PathVariable(value = "traceId") String traceId) {
+        return recentSpans.findTrace(traceId);
+    }
+}
@@ -0,0 +1,120 @@
+package metadata.home.school.embedded;
+
+import metadata.home.school.model.CourseFilter;
+import metadata.home.school.model.StudentFilter;
+import metadata.home.school.repository.BulkDeleteRepository;
+import metadata.home.school.repository.CourseRepository;
+import metadata.home.school.repository.StudentRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BulkDeleteRepository answered from the {@link EmbeddedStore}. The matches are found with the same filters as the
+ * lists; each student or course is then deleted with its own record.
+ */
+public class EmbeddedBulkDeleteRepository implements BulkDeleteRepository {
+    private EmbeddedStore store;
+    private StudentRepository studentRepository;
+    private CourseRepository courseRepository;
+
+    public EmbeddedBulkDeleteRepository(EmbeddedStore store, StudentRepository studentRepository, CourseRepository courseRepository){
+        this.store = store;
+        this.studentRepository = studentRepository;
+        this.courseRepository = courseRepository;
+    }
+
+    @Override
+    public List<Integer> findStudentIds(StudentFilter filter, int limit){
+        var ids = new ArrayList<Integer>();
+        for (var student: studentRepository.findAll(filter, PageRequest.of(0, limit, Sort.by("id")))) {
+            ids.add(student.getId());
+        }
+        return ids;
+    }
+
+    @Override
+    public List<Integer> findCourseIds(CourseFilter filter, int limit){
+        var ids = new ArrayList<Integer>();
+        for (var course: courseRepository.findAll(filter, PageRequest.of(0, limit, Sort.by("id")))) {
+            ids.add(course.getId());
+        }
+        return ids;
+    }
+
+    @Override
+    public Map<Integer, Integer> lockStudents(Collection<Integer> ids){
+        var courseCounts = new HashMap<Integer, Integer>();
+        for (var id: ids) {
+            var student = store.findStudent(id);
+            if(student != null){
+                courseCounts.put(id, student.getCourseIds().length);
+            }
+        }
+        return courseCounts;
+    }
+
+    @Override
+    public List<Integer> lockCourses(Collection<Integer> ids){
+        var found = new ArrayList<Integer>();
+        for (var id: new LinkedHashSet<>(ids)) {
+            if(store.findCourse(id) != null){
+                found.add(id);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Map<Integer, Integer> countSeatsOfStudents(Collection<Integer> studentIds){
+        var seats = new HashMap<Integer, Integer>();
+        for (var id: studentIds) {
+            var student = store.findStudent(id);
+            if(student != null){
+                for (var courseId: student.getCourseIds()) {
+                    seats.merge(courseId, 1, Integer::sum);
+                }
+            }
+        }
+        return seats;
+    }
+
+    @Override
+    public List<Integer> findStudentsOfCourses(Collection<Integer> courseIds){
+        var students = new LinkedHashSet<Integer>();
+        for (var courseId: courseIds) {
+            for (var studentId: store.findStudentIds(courseId)) {
+                students.add(studentId);
+            }
+        }
+        return new ArrayList<>(students);
+    }
+
+    @Override
+    public int deleteStudents(Collection<Integer> ids){
+        var deleted = 0;
+        for (var id: ids) {
+            if(store.deleteStudent(id)){
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public int deleteCourses(Collection<Integer> ids){
+        var deleted = 0;
+        for (var id: ids) {
+            if(store.deleteCourse(id)){
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,58 @@
+package metadata.home.school.embedded;
+
+import metadata.home.school.model.Change;
+import metadata.home.school.repository.ChangeLogRepository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The embedded store keeps no change log: the "embedded" profile requires {@code school.changes.enabled} off, so the
+ * change log and the feed never get this far.
+ */
+public class EmbeddedChangeLogRepository implements ChangeLogRepository {
+    @Override
+    public void insert(List<Change> changes, Instant recordedAt){
+        throw unsupported();
+    }
+
+    @Override
+    public List<Change> findAfter(long seq, int limit){
+        throw unsupported();
+    }
+
+    @Override
+    public List<Change> lockFirst(int limit){
+        throw unsupported();
+    }
+
+    @Override
+    public Long findFirstSeq(){
+        throw unsupported();
+    }
+
+    @Override
+    public long findLastSeq(){
+        throw unsupported();
+    }
+
+    @Override
+    public Long findLastSeqBefore(Instant recordedAt){
+        throw unsupported();
+    }
+
+    @Override
+    public void delete(Collection<Long> seqs){
+        throw unsupported();
+    }
+
+    @Override
+    public int deleteBefore(Instant recordedAt){
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported(){
+        return new UnsupportedOperationException("The embedded store keeps no change log");
+    }
+}
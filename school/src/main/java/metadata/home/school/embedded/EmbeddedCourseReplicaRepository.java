@@ -0,0 +1,24 @@
+package metadata.home.school.embedded;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.repository.CourseReplicaRepository;
+
+/**
+ * The embedded store isn't sharded, so there are no copies of the courses to write: the "embedded" profile requires
+ * {@code school.sharding.enabled} off and the services never replicate.
+ */
+public class EmbeddedCourseReplicaRepository implements CourseReplicaRepository {
+    @Override
+    public void upsert(Course course){
+        throw unsupported();
+    }
+
+    @Override
+    public void delete(Integer id){
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported(){
+        return new UnsupportedOperationException("The embedded store has no shards to replicate courses to");
+    }
+}
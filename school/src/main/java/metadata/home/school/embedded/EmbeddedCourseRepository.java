@@ -0,0 +1,165 @@
+package metadata.home.school.embedded;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.CourseFilter;
+import metadata.home.school.model.Student;
+import metadata.home.school.model.TimeSlotsConverter;
+import metadata.home.school.repository.CourseRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * CourseRepository answered from the {@link EmbeddedStore}. Courses come back detached with their students loaded;
+ * saving one leaves its students alone, they belong to the students' side. The student count is the number of
+ * students taking the course.
+ */
+public class EmbeddedCourseRepository implements CourseRepository {
+    private static final TimeSlotsConverter SCHEDULE = new TimeSlotsConverter();
+    private static final Map<String, Comparator<Course>> SORTABLE = Map.of(
+            "id", Comparator.comparing(Course::getId),
+            "name", Comparator.comparing(Course::getName, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "studentCount", Comparator.comparingInt(Course::getStudentCount));
+
+    private EmbeddedStore store;
+
+    public EmbeddedCourseRepository(EmbeddedStore store){
+        this.store = store;
+    }
+
+    @Override
+    public Optional<Course> findById(Integer id){
+        return Optional.ofNullable(withStudents(store.findCourse(id)));
+    }
+
+    @Override
+    public boolean existsById(Integer id){
+        return store.findCourse(id) != null;
+    }
+
+    @Override
+    public List<Course> findAll(){
+        var courses = new ArrayList<Course>();
+        for (var row: store.findCourses()) {
+            courses.add(withStudents(row));
+        }
+        return courses;
+    }
+
+    @Override
+    public Page<Course> findAll(CourseFilter filter, Pageable pageable){
+        var matching = new ArrayList<Course>();
+        for (var row: store.findCourses()) {
+            var course = toCourse(store, row);
+            if(matches(course, filter)){
+                matching.add(course);
+            }
+        }
+        var page = EmbeddedPages.page(matching, pageable, SORTABLE);
+        // students only for the page that is returned
+        return page.map(course -> withStudents(store.findCourse(course.getId())));
+    }
+
+    @Override
+    public List<Course> findByIdIn(Collection<Integer> ids){
+        var courses = new ArrayList<Course>();
+        for (var id: ids) {
+            var course = withStudents(store.findCourse(id));
+            if(course != null){
+                courses.add(course);
+            }
+        }
+        return courses;
+    }
+
+    @Override
+    public Course findByName(String name){
+        return withStudents(store.findCourseByName(name));
+    }
+
+    @Override
+    public boolean existsByNameAndIdNot(String name, Integer id){
+        var course = store.findCourseByName(name);
+        return course != null && !Integer.valueOf(course.getId()).equals(id);
+    }
+
+    @Override
+    public List<Course> findByStudentsIsEmpty(){
+        var courses = new ArrayList<Course>();
+        for (var row: store.findCourses()) {
+            if(store.findStudentIds(row.getId()).length == 0){
+                courses.add(toCourse(store, row));
+            }
+        }
+        return courses;
+    }
+
+    /**
+     * Writes the course and sets the id it was given on it, as persisting a new entity does.
+     */
+    @Override
+    public <S extends Course> S save(S course){
+        var row = store.putCourse(course.getId(), course.getName(), SCHEDULE.convertToDatabaseColumn(course.getSchedule()));
+        course.setId(row.getId());
+        course.setStudentCount(store.findStudentIds(row.getId()).length);
+        return course;
+    }
+
+    @Override
+    public void delete(Course course){
+        store.deleteCourse(course.getId());
+    }
+
+    /**
+     * Same conditions as FilterSpecifications.forCourses.
+     */
+    private static boolean matches(Course course, CourseFilter filter){
+        if(filter.getName() != null && !filter.getName().isEmpty() && (course.getName() == null || !course.getName().startsWith(filter.getName()))){
+            return false;
+        }
+        if(filter.getMinStudents() != null && course.getStudentCount() < filter.getMinStudents()){
+            return false;
+        }
+        return filter.getMaxStudents() == null || course.getStudentCount() <= filter.getMaxStudents();
+    }
+
+    /**
+     * The course without its students.
+     */
+    static Course toCourse(EmbeddedStore store, EmbeddedStore.CourseRow row){
+        if(row == null){
+            return null;
+        }
+        var course = new Course();
+        course.setId(row.getId());
+        course.setName(row.getName());
+        course.setSchedule(SCHEDULE.convertToEntityAttribute(row.getSchedule()));
+        course.setStudentCount(store.findStudentIds(row.getId()).length);
+        return course;
+    }
+
+    private Course withStudents(EmbeddedStore.CourseRow row){
+        var course = toCourse(store, row);
+        if(course == null){
+            return null;
+        }
+        for (var studentId: store.findStudentIds(row.getId())) {
+            var student = store.findStudent(studentId);
+            if(student != null){
+                var enrolled = new Student();
+                enrolled.setId(student.getId());
+                enrolled.setSchoolId(student.getSchoolId());
+                enrolled.setName(student.getName());
+                enrolled.setCourseCount(student.getCourseIds().length);
+                course.getStudents().add(enrolled);
+            }
+        }
+        return course;
+    }
+}
@@ -0,0 +1,171 @@
+package metadata.home.school.embedded;
+
+import metadata.home.school.repository.EnrollmentRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * EnrollmentRepository answered from the {@link EmbeddedStore}. The counts are read from the enrollments whenever they
+ * are needed rather than kept in columns, so there is nothing to refresh. Courses aren't locked row by row, the
+ * {@link EmbeddedTransactionManager} runs one transaction at a time.
+ */
+public class EmbeddedEnrollmentRepository implements EnrollmentRepository {
+    private EmbeddedStore store;
+
+    public EmbeddedEnrollmentRepository(EmbeddedStore store){
+        this.store = store;
+    }
+
+    @Override
+    public boolean lockCourse(Integer courseId){
+        return store.findCourse(courseId) != null;
+    }
+
+    @Override
+    public int countStudents(Integer courseId){
+        return store.findStudentIds(courseId).length;
+    }
+
+    @Override
+    public List<EnrollmentCandidate> findCandidates(Integer courseId, Collection<String> schoolIds){
+        var candidates = new ArrayList<EnrollmentCandidate>();
+        for (var schoolId: schoolIds) {
+            var student = store.findStudentBySchoolId(schoolId);
+            if(student != null){
+                candidates.add(toCandidate(courseId, student));
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    public List<EnrollmentCandidate> findCandidatesById(Integer courseId, Collection<Integer> studentIds){
+        var candidates = new ArrayList<EnrollmentCandidate>();
+        for (var studentId: studentIds) {
+            var student = store.findStudent(studentId);
+            if(student != null){
+                candidates.add(toCandidate(courseId, student));
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    public List<Integer> findCourseIds(Integer studentId){
+        var courseIds = new ArrayList<Integer>();
+        var student = store.findStudent(studentId);
+        if(student != null){
+            for (var courseId: student.getCourseIds()) {
+                courseIds.add(courseId);
+            }
+        }
+        return courseIds;
+    }
+
+    @Override
+    public Map<Integer, List<Integer>> findCourseIds(Collection<Integer> studentIds){
+        var courseIds = new HashMap<Integer, List<Integer>>();
+        for (var studentId: studentIds) {
+            var courses = findCourseIds(studentId);
+            if(!courses.isEmpty()){
+                courseIds.put(studentId, courses);
+            }
+        }
+        return courseIds;
+    }
+
+    @Override
+    public Map<Integer, String> findSchoolIds(Integer courseId){
+        var schoolIds = new HashMap<Integer, String>();
+        for (var studentId: store.findStudentIds(courseId)) {
+            var student = store.findStudent(studentId);
+            if(student != null){
+                schoolIds.put(studentId, student.getSchoolId());
+            }
+        }
+        return schoolIds;
+    }
+
+    @Override
+    public void insert(Integer courseId, List<Integer> studentIds){
+        store.enroll(courseId, toArray(studentIds));
+    }
+
+    @Override
+    public int delete(Integer courseId, Collection<Integer> studentIds){
+        return store.unenroll(courseId, toArray(studentIds));
+    }
+
+    @Override
+    public Map<Integer, Integer> refreshCourseCounts(Collection<Integer> studentIds){
+        return new HashMap<>();
+    }
+
+    @Override
+    public void refreshAllCourseCounts(){
+    }
+
+    @Override
+    public void refreshStudentCounts(Collection<Integer> courseIds){
+    }
+
+    @Override
+    public void refreshAllStudentCounts(){
+    }
+
+    @Override
+    public Map<Integer, Integer> countStudents(Collection<Integer> courseIds){
+        var counts = new HashMap<Integer, Integer>();
+        for (var courseId: courseIds) {
+            var students = store.findStudentIds(courseId).length;
+            if(students > 0){
+                counts.put(courseId, students);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<Integer, Integer> countAllStudents(){
+        var counts = new HashMap<Integer, Integer>();
+        for (var course: store.findCourses()) {
+            var students = store.findStudentIds(course.getId()).length;
+            if(students > 0){
+                counts.put(course.getId(), students);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public void forEachEnrollment(BiConsumer<Integer, Integer> enrollment){
+        for (var student: store.findStudents()) {
+            for (var courseId: student.getCourseIds()) {
+                enrollment.accept(student.getId(), courseId);
+            }
+        }
+    }
+
+    @Override
+    public void resetStudentCounts(){
+    }
+
+    @Override
+    public void updateStudentCounts(Map<Integer, Integer> counts){
+    }
+
+    private static EnrollmentCandidate toCandidate(Integer courseId, EmbeddedStore.StudentRow student){
+        var courseIds = student.getCourseIds();
+        return new EnrollmentCandidate(student.getId(), student.getSchoolId(), courseIds.length, Arrays.binarySearch(courseIds, courseId) >= 0);
+    }
+
+    static int[] toArray(Collection<Integer> ids){
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,47 @@
+package metadata.home.school.embedded;
+
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sorts and pages rows that were filtered in memory, the way the database would have for a paged query.
+ */
+final class EmbeddedPages {
+    private EmbeddedPages(){
+    }
+
+    /**
+     * The requested page of the matching rows, sorted by the pageable's order. Only the properties with a comparator
+     * can be sorted on; ties keep the id order the rows come in.
+     */
+    static <T> Page<T> page(List<T> matching, Pageable pageable, Map<String, Comparator<T>> sortable){
+        Comparator<T> order = null;
+        for (var sort: pageable.getSort()) {
+            var comparator = sortable.get(sort.getProperty());
+            if(comparator == null){
+                throw new InvalidDataAccessApiUsageException("Cannot sort by " + sort.getProperty());
+            }
+            if(sort.isDescending()){
+                comparator = comparator.reversed();
+            }
+            order = order == null ? comparator : order.thenComparing(comparator);
+        }
+        var sorted = new ArrayList<>(matching);
+        if(order != null){
+            sorted.sort(order);
+        }
+        if(pageable.isUnpaged()){
+            return new PageImpl<>(sorted, pageable, sorted.size());
+        }
+        var from = (int) Math.min(pageable.getOffset(), sorted.size());
+        var to = Math.min(from + pageable.getPageSize(), sorted.size());
+        return new PageImpl<>(new ArrayList<>(sorted.subList(from, to)), pageable, sorted.size());
+    }
+}
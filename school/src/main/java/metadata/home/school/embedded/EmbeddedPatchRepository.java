@@ -0,0 +1,43 @@
+package metadata.home.school.embedded;
+
+import metadata.home.school.model.CoursePatch;
+import metadata.home.school.model.StudentPatch;
+import metadata.home.school.model.TimeSlotsConverter;
+import metadata.home.school.repository.PatchRepository;
+
+/**
+ * PatchRepository answered from the {@link EmbeddedStore}: the row is rewritten with the members the patch names
+ * and its other fields as they are when the write lock is held.
+ */
+public class EmbeddedPatchRepository implements PatchRepository {
+    private static final TimeSlotsConverter SCHEDULE_CONVERTER = new TimeSlotsConverter();
+
+    private EmbeddedStore store;
+
+    public EmbeddedPatchRepository(EmbeddedStore store){
+        this.store = store;
+    }
+
+    @Override
+    public int updateStudent(Integer id, StudentPatch patch){
+        if(!patch.hasSchoolId() && !patch.hasName()){
+            return -1;
+        }
+        var updated = store.updateStudent(id, student -> new EmbeddedStore.StudentRow(student.getId(),
+                patch.hasSchoolId() ? patch.getSchoolId() : student.getSchoolId(),
+                patch.hasName() ? patch.getName() : student.getName(),
+                student.getCourseIds()));
+        return updated == null ? 0 : 1;
+    }
+
+    @Override
+    public int updateCourse(Integer id, CoursePatch patch){
+        if(!patch.hasName() && !patch.hasSchedule()){
+            return -1;
+        }
+        var updated = store.updateCourse(id, course -> new EmbeddedStore.CourseRow(course.getId(),
+                patch.hasName() ? patch.getName() : course.getName(),
+                patch.hasSchedule() ? SCHEDULE_CONVERTER.convertToDatabaseColumn(patch.getSchedule()) : course.getSchedule()));
+        return updated == null ? 0 : 1;
+    }
+}
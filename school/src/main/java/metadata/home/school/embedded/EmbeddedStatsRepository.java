@@ -0,0 +1,47 @@
+package metadata.home.school.embedded;
+
+import metadata.home.school.model.CourseFill;
+import metadata.home.school.repository.StatsRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * StatsRepository answered from the {@link EmbeddedStore}. The buckets are counted from the students on every read
+ * instead of being kept in a summary table, so adjusting or rebuilding them does nothing.
+ */
+public class EmbeddedStatsRepository implements StatsRepository {
+    private EmbeddedStore store;
+
+    public EmbeddedStatsRepository(EmbeddedStore store){
+        this.store = store;
+    }
+
+    @Override
+    public void adjustBuckets(Map<Integer, Integer> deltas){
+    }
+
+    @Override
+    public void rebuildBuckets(){
+    }
+
+    @Override
+    public Map<Integer, Integer> findBuckets(){
+        var buckets = new TreeMap<Integer, Integer>();
+        for (var student: store.findStudents()) {
+            buckets.merge(student.getCourseIds().length, 1, Integer::sum);
+        }
+        return buckets;
+    }
+
+    @Override
+    public List<CourseFill> findCourseFills(int capacity){
+        var fills = new ArrayList<CourseFill>();
+        for (var course: store.findCourses()) {
+            fills.add(new CourseFill(course.getId(), course.getName(), store.findStudentIds(course.getId()).length, capacity));
+        }
+        return fills;
+    }
+}
@@ -0,0 +1,883 @@
+package metadata.home.school.embedded;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+/**
+ * Students, courses, their enrollments and the waitlists kept in memory, keyed by int id, for running without a
+ * database. Every change is one record in a {@link WriteAheadLog} before it is applied, so a student and the courses
+ * it takes, or a batch of enrollments, are saved or lost together. A snapshot of the whole state is written to a
+ * memory-mapped file every so often and whenever the log is full, after which the log starts over; opening the store
+ * loads the snapshot and replays the log on top of it. Reads share a read lock, changes and snapshots take the write
+ * lock.
+ */
+public class EmbeddedStore implements Closeable {
+    static final String LOG_FILE = "wal.log";
+    static final String SNAPSHOT_FILE = "snapshot.dat";
+
+    private static final int SNAPSHOT_MAGIC = 0x5343484c;
+    // version 1 had no waitlist
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int SNAPSHOT_HEADER = Integer.BYTES * 2 + Long.BYTES + Integer.BYTES * 2;
+
+    private static final byte PUT_STUDENT = 1;
+    private static final byte DELETE_STUDENT = 2;
+    private static final byte PUT_COURSE = 3;
+    private static final byte DELETE_COURSE = 4;
+    private static final byte ENROLL = 5;
+    private static final byte UNENROLL = 6;
+    private static final byte PUT_WAITLIST = 7;
+    private static final byte DELETE_WAITLIST = 8;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IntMap<StudentRow> students = new IntMap<>();
+    private final IntMap<CourseRow> courses = new IntMap<>();
+    // the other side of StudentRow.courseIds, sorted student ids per course
+    private final IntMap<int[]> studentsByCourse = new IntMap<>();
+    private final IntMap<WaitlistRow> waitlist = new IntMap<>();
+    private final Map<String, Integer> studentIdsBySchoolId = new HashMap<>();
+    private final Map<String, Integer> courseIdsByName = new HashMap<>();
+    // the undo log of the transaction running on each thread, if any
+    private final ThreadLocal<Undo> undo = new ThreadLocal<>();
+    private final Path directory;
+    private final WriteAheadLog log;
+    private int lastStudentId;
+    private int lastCourseId;
+    private int lastWaitlistId;
+    private long lsn;
+
+    private EmbeddedStore(Path directory, int logSize, boolean forceOnWrite) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        lsn = loadSnapshot();
+        log = new WriteAheadLog(directory.resolve(LOG_FILE), logSize, forceOnWrite);
+        lsn = log.replay(lsn, this::apply);
+    }
+
+    /**
+     * Opens the store kept in the directory, creating it if needed, and recovers whatever was written before a crash.
+     * With forceOnWrite every change is forced to disk before it returns, otherwise only when {@link #sync()} runs.
+     */
+    public static EmbeddedStore open(Path directory, int logSize, boolean forceOnWrite) throws IOException {
+        return new EmbeddedStore(directory, logSize, forceOnWrite);
+    }
+
+    public StudentRow findStudent(int id){
+        lock.readLock().lock();
+        try{
+            return students.get(id);
+        }finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public StudentRow findStudentBySchoolId(String schoolId){
+        lock.readLock().lock();
+        try{
+            var id = studentIdsBySchoolId.get(schoolId);
+            return id == null ? null : students.get(id);
+        }finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Every student, by id.
+     */
+    public List<StudentRow> findStudents(){
+        List<StudentRow> rows;
+        lock.readLock().lock();
+        try{
+            rows = students.values();
+        }finally {
+            lock.readLock().unlock();
+        }
+        rows.sort(Comparator.comparingInt(StudentRow::getId));
+        return rows;
+    }
+
+    public int countStudents(){
+        lock.readLock().lock();
+        try{
+            return students.size();
+        }finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the students taking the course, sorted.
+     */
+    public int[] findStudentIds(int courseId){
+        lock.readLock().lock();
+        try{
+            var ids = studentsByCourse.get(courseId);
+            return ids == null ? new int[0] : ids.clone();
+        }finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public CourseRow findCourse(int id){
+        lock.readLock().lock();
+        try{
+            return courses.get(id);
+        }finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public CourseRow findCourseByName(String name){
+        lock.readLock().lock();
+        try{
+            var id = courseIdsByName.get(name);
+            return id == null ? null : courses.get(id);
+        }finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Every course, by id.
+     */
+    public List<CourseRow> findCourses(){
+        List<CourseRow> rows;
+        lock.readLock().lock();
+        try{
+            rows = courses.values();
+        }finally {
+            lock.readLock().unlock();
+        }
+        rows.sort(Comparator.comparingInt(CourseRow::getId));
+        return rows;
+    }
+
+    public int countCourses(){
+        lock.readLock().lock();
+        try{
+            return courses.size();
+        }finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts the student, or replaces it when the id is one of an existing student, together with the courses it
+     * takes. A school id taken by another student or a course that doesn't exist is rejected as the database would.
+     */
+    public StudentRow putStudent(Integer id, String schoolId, String name, int[] courseIds){
+        lock.writeLock().lock();
+        try{
+            return writeStudent(id != null && students.get(id) != null ? id : lastStudentId + 1, schoolId, name, courseIds);
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the school id and name of an existing student with the ones of the row the change returns for it, in
+     * one step so nothing written in between is lost; the courses it takes stay as they are. Returns null if there is
+     * no such student.
+     */
+    public StudentRow updateStudent(int id, UnaryOperator<StudentRow> change){
+        lock.writeLock().lock();
+        try{
+            var student = students.get(id);
+            if(student == null){
+                return null;
+            }
+            var changed = change.apply(student);
+            return writeStudent(id, changed.getSchoolId(), changed.getName(), student.courseIds);
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean deleteStudent(int id){
+        lock.writeLock().lock();
+        try{
+            if(students.get(id) == null){
+                return false;
+            }
+            write(new RecordBuffer().putByte(DELETE_STUDENT).putInt(id));
+            return true;
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts the course, or replaces it when the id is one of an existing course. Its students aren't touched, they
+     * are set from the students' side as with the join table.
+     */
+    public CourseRow putCourse(Integer id, String name, String schedule){
+        lock.writeLock().lock();
+        try{
+            return writeCourse(id != null && courses.get(id) != null ? id : lastCourseId + 1, name, schedule);
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Same as {@link #updateStudent(int, UnaryOperator)} for the name and schedule of a course.
+     */
+    public CourseRow updateCourse(int id, UnaryOperator<CourseRow> change){
+        lock.writeLock().lock();
+        try{
+            var course = courses.get(id);
+            if(course == null){
+                return null;
+            }
+            var changed = change.apply(course);
+            return writeCourse(id, changed.getName(), changed.getSchedule());
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the course and drops it from its students.
+     */
+    public boolean deleteCourse(int id){
+        lock.writeLock().lock();
+        try{
+            if(courses.get(id) == null){
+                return false;
+            }
+            write(new RecordBuffer().putByte(DELETE_COURSE).putInt(id));
+            return true;
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Enrolls the students in the course, skipping the ones already in it, and returns how many were added. A course
+     * or student that doesn't exist is rejected as the database would.
+     */
+    public int enroll(int courseId, int[] studentIds){
+        lock.writeLock().lock();
+        try{
+            if(courses.get(courseId) == null){
+                throw new DataIntegrityViolationException("Course " + courseId + " doesn't exist");
+            }
+            var enrolled = studentsByCourse.get(courseId);
+            var added = Arrays.stream(studentIds).distinct()
+                    .filter(studentId -> enrolled == null || Arrays.binarySearch(enrolled, studentId) < 0)
+                    .sorted().toArray();
+            for (var studentId: added) {
+                if(students.get(studentId) == null){
+                    throw new DataIntegrityViolationException("Student " + studentId + " doesn't exist");
+                }
+            }
+            if(added.length > 0){
+                write(new RecordBuffer().putByte(ENROLL).putInt(courseId).putInts(added));
+            }
+            return added.length;
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the students from the course and returns how many of them were in it.
+     */
+    public int unenroll(int courseId, int[] studentIds){
+        lock.writeLock().lock();
+        try{
+            var enrolled = studentsByCourse.get(courseId);
+            if(enrolled == null){
+                return 0;
+            }
+            var removed = Arrays.stream(studentIds).distinct()
+                    .filter(studentId -> Arrays.binarySearch(enrolled, studentId) >= 0)
+                    .sorted().toArray();
+            if(removed.length > 0){
+                write(new RecordBuffer().putByte(UNENROLL).putInt(courseId).putInts(removed));
+            }
+            return removed.length;
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The waitlist entries of every course, by id, which is the order they were added in.
+     */
+    public List<WaitlistRow> findWaitlistEntries(){
+        List<WaitlistRow> rows;
+        lock.readLock().lock();
+        try{
+            rows = waitlist.values();
+        }finally {
+            lock.readLock().unlock();
+        }
+        rows.sort(Comparator.comparingInt(WaitlistRow::getId));
+        return rows;
+    }
+
+    /**
+     * Adds the student to the end of the course's waitlist. A student already waiting for the course is rejected as
+     * the unique key would.
+     */
+    public WaitlistRow putWaitlistEntry(int courseId, int studentId){
+        lock.writeLock().lock();
+        try{
+            for (var entry: waitlist.values()) {
+                if(entry.getCourseId() == courseId && entry.getStudentId() == studentId){
+                    throw new DataIntegrityViolationException("Student " + studentId + " is already waiting for course " + courseId);
+                }
+            }
+            var id = lastWaitlistId + 1;
+            write(new RecordBuffer().putByte(PUT_WAITLIST).putInt(id).putInt(courseId).putInt(studentId));
+            return waitlist.get(id);
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the waitlist entries the filter accepts and returns how many there were.
+     */
+    public int deleteWaitlistEntries(Predicate<WaitlistRow> filter){
+        lock.writeLock().lock();
+        try{
+            var ids = waitlist.values().stream().filter(filter).mapToInt(WaitlistRow::getId).sorted().toArray();
+            if(ids.length > 0){
+                write(new RecordBuffer().putByte(DELETE_WAITLIST).putInts(ids));
+            }
+            return ids.length;
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Keeps the inverse of every change the current thread makes in the given undo log from now on, or stops keeping
+     * them when it is null.
+     */
+    void undoInto(Undo undo){
+        if(undo == null){
+            this.undo.remove();
+        }else{
+            this.undo.set(undo);
+        }
+    }
+
+    /**
+     * Undoes the changes kept in the undo log, newest first. The undoing changes are logged as any other, so the log
+     * replays the rollback too.
+     */
+    void rollback(Undo rolledBack){
+        var current = undo.get();
+        undo.remove();
+        lock.writeLock().lock();
+        try{
+            while(!rolledBack.records.isEmpty()){
+                write(rolledBack.records.pop());
+            }
+        }finally {
+            lock.writeLock().unlock();
+            undoInto(current);
+        }
+    }
+
+    /**
+     * Writes the whole state to a new snapshot and empties the log. The snapshot is written next to the current one and
+     * moved over it, so a crash in between leaves the previous snapshot and the full log, and a crash before the log is
+     * emptied leaves the new snapshot and the full log.
+     */
+    public void snapshot(){
+        lock.writeLock().lock();
+        try{
+            writeSnapshot();
+            log.reset();
+        }catch (IOException e){
+            throw new UncheckedIOException("Cannot write snapshot in " + directory, e);
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the log to disk, for when it isn't forced on every change.
+     */
+    public void sync(){
+        lock.writeLock().lock();
+        try{
+            log.force();
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long getLsn(){
+        lock.readLock().lock();
+        try{
+            return lsn;
+        }finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes a last snapshot so the next start has no log to replay.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try{
+            writeSnapshot();
+            log.reset();
+            log.close();
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private StudentRow writeStudent(int id, String schoolId, String name, int[] courseIds){
+        var owner = studentIdsBySchoolId.get(schoolId);
+        if(owner != null && owner != id){
+            throw new DataIntegrityViolationException("School id " + schoolId + " belongs to student " + owner);
+        }
+        var sorted = Arrays.stream(courseIds).distinct().sorted().toArray();
+        for (var courseId: sorted) {
+            if(courses.get(courseId) == null){
+                throw new DataIntegrityViolationException("Course " + courseId + " doesn't exist");
+            }
+        }
+        write(new RecordBuffer().putByte(PUT_STUDENT).putInt(id).putString(schoolId).putString(name).putInts(sorted));
+        return students.get(id);
+    }
+
+    private CourseRow writeCourse(int id, String name, String schedule){
+        var owner = courseIdsByName.get(name);
+        if(owner != null && owner != id){
+            throw new DataIntegrityViolationException("Course name " + name + " belongs to course " + owner);
+        }
+        write(new RecordBuffer().putByte(PUT_COURSE).putInt(id).putString(name).putString(schedule));
+        return courses.get(id);
+    }
+
+    private void write(RecordBuffer record){
+        var payload = record.flip();
+        if(!log.fits(payload.remaining())){
+            if(payload.remaining() > log.capacity()){
+                throw new IllegalArgumentException("A record of " + payload.remaining() + " bytes doesn't fit the write-ahead log");
+            }
+            snapshot();
+        }
+        lsn = log.append(payload.duplicate());
+        var current = undo.get();
+        if(current != null){
+            current.keep(inverse(payload.duplicate()));
+        }
+        apply(payload);
+    }
+
+    /**
+     * The changes that undo the record, in the order they are to be applied, read before the record is applied.
+     */
+    private List<RecordBuffer> inverse(ByteBuffer record){
+        var type = record.get();
+        if(type == DELETE_WAITLIST){
+            var entries = new ArrayList<RecordBuffer>();
+            for (var id: RecordBuffer.getInts(record)) {
+                var entry = waitlist.get(id);
+                entries.add(new RecordBuffer().putByte(PUT_WAITLIST).putInt(id).putInt(entry.getCourseId()).putInt(entry.getStudentId()));
+            }
+            return entries;
+        }
+        var id = record.getInt();
+        switch (type) {
+            case PUT_STUDENT:
+            case DELETE_STUDENT:
+                return List.of(restoreStudent(id));
+            case PUT_COURSE:
+                return List.of(restoreCourse(id));
+            case DELETE_COURSE:
+                // the course takes its students back with it
+                var studentIds = studentsByCourse.get(id);
+                if(studentIds == null){
+                    return List.of(restoreCourse(id));
+                }
+                return List.of(restoreCourse(id), new RecordBuffer().putByte(ENROLL).putInt(id).putInts(studentIds));
+            case ENROLL:
+                return List.of(new RecordBuffer().putByte(UNENROLL).putInt(id).putInts(RecordBuffer.getInts(record)));
+            case UNENROLL:
+                return List.of(new RecordBuffer().putByte(ENROLL).putInt(id).putInts(RecordBuffer.getInts(record)));
+            case PUT_WAITLIST:
+                return List.of(new RecordBuffer().putByte(DELETE_WAITLIST).putInts(new int[] { id }));
+            default:
+                throw new IllegalStateException("Unknown record type " + type);
+        }
+    }
+
+    /**
+     * The change that puts the student back as it is now, or deletes it if there is none.
+     */
+    private RecordBuffer restoreStudent(int id){
+        var student = students.get(id);
+        if(student == null){
+            return new RecordBuffer().putByte(DELETE_STUDENT).putInt(id);
+        }
+        return new RecordBuffer().putByte(PUT_STUDENT).putInt(id).putString(student.getSchoolId())
+                .putString(student.getName()).putInts(student.courseIds);
+    }
+
+    private RecordBuffer restoreCourse(int id){
+        var course = courses.get(id);
+        if(course == null){
+            return new RecordBuffer().putByte(DELETE_COURSE).putInt(id);
+        }
+        return new RecordBuffer().putByte(PUT_COURSE).putInt(id).putString(course.getName()).putString(course.getSchedule());
+    }
+
+    private void apply(ByteBuffer record){
+        var type = record.get();
+        switch (type) {
+            case PUT_STUDENT:
+                applyPutStudent(record.getInt(), RecordBuffer.getString(record), RecordBuffer.getString(record), RecordBuffer.getInts(record));
+                break;
+            case DELETE_STUDENT:
+                applyDeleteStudent(record.getInt());
+                break;
+            case PUT_COURSE:
+                applyPutCourse(record.getInt(), RecordBuffer.getString(record), RecordBuffer.getString(record));
+                break;
+            case DELETE_COURSE:
+                applyDeleteCourse(record.getInt());
+                break;
+            case ENROLL:
+                applyEnroll(record.getInt(), RecordBuffer.getInts(record));
+                break;
+            case UNENROLL:
+                applyUnenroll(record.getInt(), RecordBuffer.getInts(record));
+                break;
+            case PUT_WAITLIST:
+                applyPutWaitlist(record.getInt(), record.getInt(), record.getInt());
+                break;
+            case DELETE_WAITLIST:
+                for (var id: RecordBuffer.getInts(record)) {
+                    waitlist.remove(id);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown record type " + type);
+        }
+    }
+
+    private void applyPutStudent(int id, String schoolId, String name, int[] courseIds){
+        applyDeleteStudent(id);
+        students.put(id, new StudentRow(id, schoolId, name, courseIds));
+        if(schoolId != null){
+            studentIdsBySchoolId.put(schoolId, id);
+        }
+        for (var courseId: courseIds) {
+            studentsByCourse.put(courseId, with(studentsByCourse.get(courseId), id));
+        }
+        lastStudentId = Math.max(lastStudentId, id);
+    }
+
+    private void applyDeleteStudent(int id){
+        var student = students.remove(id);
+        if(student == null){
+            return;
+        }
+        if(student.getSchoolId() != null){
+            studentIdsBySchoolId.remove(student.getSchoolId());
+        }
+        for (var courseId: student.courseIds) {
+            var remaining = without(studentsByCourse.get(courseId), id);
+            if(remaining.length == 0){
+                studentsByCourse.remove(courseId);
+            }else{
+                studentsByCourse.put(courseId, remaining);
+            }
+        }
+    }
+
+    private void applyPutCourse(int id, String name, String schedule){
+        var previous = courses.put(id, new CourseRow(id, name, schedule));
+        if(previous != null && previous.getName() != null){
+            courseIdsByName.remove(previous.getName());
+        }
+        if(name != null){
+            courseIdsByName.put(name, id);
+        }
+        lastCourseId = Math.max(lastCourseId, id);
+    }
+
+    private void applyDeleteCourse(int id){
+        var course = courses.remove(id);
+        if(course == null){
+            return;
+        }
+        if(course.getName() != null){
+            courseIdsByName.remove(course.getName());
+        }
+        var studentIds = studentsByCourse.remove(id);
+        if(studentIds != null){
+            for (var studentId: studentIds) {
+                var student = students.get(studentId);
+                students.put(studentId, new StudentRow(studentId, student.getSchoolId(), student.getName(), without(student.courseIds, id)));
+            }
+        }
+    }
+
+    private void applyEnroll(int courseId, int[] studentIds){
+        for (var studentId: studentIds) {
+            var student = students.get(studentId);
+            students.put(studentId, new StudentRow(studentId, student.getSchoolId(), student.getName(), with(student.courseIds, courseId)));
+            studentsByCourse.put(courseId, with(studentsByCourse.get(courseId), studentId));
+        }
+    }
+
+    private void applyUnenroll(int courseId, int[] studentIds){
+        for (var studentId: studentIds) {
+            var student = students.get(studentId);
+            students.put(studentId, new StudentRow(studentId, student.getSchoolId(), student.getName(), without(student.courseIds, courseId)));
+            var remaining = without(studentsByCourse.get(courseId), studentId);
+            if(remaining.length == 0){
+                studentsByCourse.remove(courseId);
+            }else{
+                studentsByCourse.put(courseId, remaining);
+            }
+        }
+    }
+
+    private void applyPutWaitlist(int id, int courseId, int studentId){
+        waitlist.put(id, new WaitlistRow(id, courseId, studentId));
+        lastWaitlistId = Math.max(lastWaitlistId, id);
+    }
+
+    private long loadSnapshot() throws IOException {
+        var file = directory.resolve(SNAPSHOT_FILE);
+        if(!Files.exists(file)){
+            return 0;
+        }
+        try(var channel = FileChannel.open(file, StandardOpenOption.READ)){
+            var snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(snapshot.capacity() < SNAPSHOT_HEADER || snapshot.getInt() != SNAPSHOT_MAGIC){
+                throw new IllegalStateException(file + " isn't a snapshot of this store");
+            }
+            var version = snapshot.getInt();
+            if(version < 1 || version > SNAPSHOT_VERSION){
+                throw new IllegalStateException(file + " is a snapshot of version " + version + " of this store");
+            }
+            var snapshotLsn = snapshot.getLong();
+            var length = snapshot.getInt();
+            var checksum = snapshot.getInt();
+            if(length != snapshot.remaining() || checksum != checksum(snapshot.duplicate())){
+                throw new IllegalStateException(file + " is damaged");
+            }
+            var lastStudent = snapshot.getInt();
+            var lastCourse = snapshot.getInt();
+            for(var i = snapshot.getInt(); i > 0; i--){
+                applyPutCourse(snapshot.getInt(), RecordBuffer.getString(snapshot), RecordBuffer.getString(snapshot));
+            }
+            for(var i = snapshot.getInt(); i > 0; i--){
+                applyPutStudent(snapshot.getInt(), RecordBuffer.getString(snapshot), RecordBuffer.getString(snapshot), RecordBuffer.getInts(snapshot));
+            }
+            if(version >= 2){
+                var lastWaitlist = snapshot.getInt();
+                for(var i = snapshot.getInt(); i > 0; i--){
+                    applyPutWaitlist(snapshot.getInt(), snapshot.getInt(), snapshot.getInt());
+                }
+                lastWaitlistId = Math.max(lastWaitlistId, lastWaitlist);
+            }
+            // ids of deleted rows aren't handed out again
+            lastStudentId = Math.max(lastStudentId, lastStudent);
+            lastCourseId = Math.max(lastCourseId, lastCourse);
+            return snapshotLsn;
+        }
+    }
+
+    /**
+     * Writes the snapshot and makes its rename durable; until the log is reset the log still holds what the snapshot
+     * does, and replay skips those records.
+     */
+    void writeSnapshot() throws IOException {
+        var body = new RecordBuffer(4096).putInt(lastStudentId).putInt(lastCourseId).putInt(courses.size());
+        for (var course: courses.values()) {
+            body.putInt(course.getId()).putString(course.getName()).putString(course.getSchedule());
+        }
+        body.putInt(students.size());
+        for (var student: students.values()) {
+            body.putInt(student.getId()).putString(student.getSchoolId()).putString(student.getName()).putInts(student.courseIds);
+        }
+        body.putInt(lastWaitlistId).putInt(waitlist.size());
+        for (var entry: waitlist.values()) {
+            body.putInt(entry.getId()).putInt(entry.getCourseId()).putInt(entry.getStudentId());
+        }
+        var bytes = body.flip();
+
+        var file = directory.resolve(SNAPSHOT_FILE);
+        var next = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try(var channel = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            var snapshot = channel.map(FileChannel.MapMode.READ_WRITE, 0, SNAPSHOT_HEADER + bytes.remaining());
+            snapshot.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(lsn).putInt(bytes.remaining())
+                    .putInt(checksum(bytes.duplicate())).put(bytes);
+            snapshot.force();
+        }
+        Files.move(next, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // the rename is only on disk once the directory is; emptying the log before that could pair the previous
+        // snapshot with an empty log after a crash
+        try(var channel = FileChannel.open(directory, StandardOpenOption.READ)){
+            channel.force(true);
+        }
+    }
+
+    private static int checksum(ByteBuffer bytes){
+        var crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static int[] with(int[] sorted, int value){
+        if(sorted == null){
+            return new int[] { value };
+        }
+        var at = Arrays.binarySearch(sorted, value);
+        if(at >= 0){
+            return sorted;
+        }
+        at = -at - 1;
+        var result = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(sorted, at, result, at + 1, sorted.length - at);
+        return result;
+    }
+
+    private static int[] without(int[] sorted, int value){
+        var at = Arrays.binarySearch(sorted, value);
+        if(at < 0){
+            return sorted;
+        }
+        var result = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, result, 0, at);
+        System.arraycopy(sorted, at + 1, result, at, sorted.length - at - 1);
+        return result;
+    }
+
+    public static final class StudentRow {
+        private final int id;
+        private final String schoolId;
+        private final String name;
+        private final int[] courseIds;
+
+        StudentRow(int id, String schoolId, String name, int[] courseIds){
+            this.id = id;
+            this.schoolId = schoolId;
+            this.name = name;
+            this.courseIds = courseIds;
+        }
+
+        public int getId(){
+            return id;
+        }
+
+        public String getSchoolId(){
+            return schoolId;
+        }
+
+        public String getName(){
+            return name;
+        }
+
+        /**
+         * Ids of the courses the student takes, sorted.
+         */
+        public int[] getCourseIds(){
+            return courseIds.clone();
+        }
+    }
+
+    public static final class CourseRow {
+        private final int id;
+        private final String name;
+        private final String schedule;
+
+        CourseRow(int id, String name, String schedule){
+            this.id = id;
+            this.name = name;
+            this.schedule = schedule;
+        }
+
+        public int getId(){
+            return id;
+        }
+
+        public String getName(){
+            return name;
+        }
+
+        /**
+         * The time slots as the schedule column holds them, see TimeSlotsConverter.
+         */
+        public String getSchedule(){
+            return schedule;
+        }
+    }
+
+    /**
+     * The inverse of every change a transaction made, the next one to undo on top.
+     */
+    static final class Undo {
+        private final Deque<RecordBuffer> records = new ArrayDeque<>();
+
+        private void keep(List<RecordBuffer> inverse){
+            for(var i = inverse.size() - 1; i >= 0; i--){
+                records.push(inverse.get(i));
+            }
+        }
+    }
+
+    public static final class WaitlistRow {
+        private final int id;
+        private final int courseId;
+        private final int studentId;
+
+        WaitlistRow(int id, int courseId, int studentId){
+            this.id = id;
+            this.courseId = courseId;
+            this.studentId = studentId;
+        }
+
+        public int getId(){
+            return id;
+        }
+
+        public int getCourseId(){
+            return courseId;
+        }
+
+        public int getStudentId(){
+            return studentId;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package metadata.home.school.embedded;
+
+import metadata.home.school.repository.BulkDeleteRepository;
+import metadata.home.school.repository.ChangeLogRepository;
+import metadata.home.school.repository.CourseReplicaRepository;
+import metadata.home.school.repository.CourseRepository;
+import metadata.home.school.repository.EnrollmentRepository;
+import metadata.home.school.repository.PatchRepository;
+import metadata.home.school.repository.StatsRepository;
+import metadata.home.school.repository.StudentRepository;
+import metadata.home.school.repository.WaitlistRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The "embedded" profile: the repositories the services use are answered from the embedded store instead of the
+ * database, and application-embedded.properties leaves the datasource and JPA out, so the application runs without
+ * MySQL. The store serves a single school on a single node, so sharding, tenancy and the change feed have to be off.
+ * Unless every change is forced, the log is forced every {@code school.embedded.sync-interval}; a snapshot is taken
+ * every {@code school.embedded.snapshot-interval} and on shutdown.
+ */
+@Configuration
+@Profile("embedded")
+public class EmbeddedStoreConfiguration {
+    @Bean(destroyMethod = "close")
+    public EmbeddedStore embeddedStore(EmbeddedStoreProperties properties,
+                                       @Value("${school.sharding.enabled:false}") boolean sharding,
+                                       @Value("${school.tenancy.enabled:false}") boolean tenancy,
+                                       @Value("${school.changes.enabled:false}") boolean changes) throws IOException {
+        if(sharding || tenancy || changes){
+            throw new IllegalStateException("The embedded store needs school.sharding.enabled, school.tenancy.enabled and school.changes.enabled off");
+        }
+        return EmbeddedStore.open(Path.of(properties.getDirectory()), (int) properties.getLogSize().toBytes(), properties.isForceOnWrite());
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(EmbeddedStore store){
+        return new EmbeddedTransactionManager(store);
+    }
+
+    @Bean
+    public StudentRepository embeddedStudentRepository(EmbeddedStore store){
+        return new EmbeddedStudentRepository(store);
+    }
+
+    @Bean
+    public CourseRepository embeddedCourseRepository(EmbeddedStore store){
+        return new EmbeddedCourseRepository(store);
+    }
+
+    @Bean
+    public WaitlistRepository embeddedWaitlistRepository(EmbeddedStore store){
+        return new EmbeddedWaitlistRepository(store);
+    }
+
+    @Bean
+    public EnrollmentRepository embeddedEnrollmentRepository(EmbeddedStore store){
+        return new EmbeddedEnrollmentRepository(store);
+    }
+
+    @Bean
+    public BulkDeleteRepository embeddedBulkDeleteRepository(EmbeddedStore store, StudentRepository studentRepository,
+                                                             CourseRepository courseRepository){
+        return new EmbeddedBulkDeleteRepository(store, studentRepository, courseRepository);
+    }
+
+    @Bean
+    public PatchRepository embeddedPatchRepository(EmbeddedStore store){
+        return new EmbeddedPatchRepository(store);
+    }
+
+    @Bean
+    public StatsRepository embeddedStatsRepository(EmbeddedStore store){
+        return new EmbeddedStatsRepository(store);
+    }
+
+    @Bean
+    public CourseReplicaRepository embeddedCourseReplicaRepository(){
+        return new EmbeddedCourseReplicaRepository();
+    }
+
+    @Bean
+    public ChangeLogRepository embeddedChangeLogRepository(){
+        return new EmbeddedChangeLogRepository();
+    }
+
+    @Bean
+    public Maintenance embeddedStoreMaintenance(EmbeddedStore store){
+        return new Maintenance(store);
+    }
+
+    public static class Maintenance {
+        private EmbeddedStore store;
+
+        Maintenance(EmbeddedStore store){
+            this.store = store;
+        }
+
+        @Scheduled(fixedDelayString = "${school.embedded.sync-interval:PT1S}")
+        public void sync(){
+            store.sync();
+        }
+
+        @Scheduled(fixedDelayString = "${school.embedded.snapshot-interval:PT5M}")
+        public void snapshot(){
+            store.snapshot();
+        }
+    }
+}
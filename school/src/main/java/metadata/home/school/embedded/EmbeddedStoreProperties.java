@@ -0,0 +1,37 @@
+package metadata.home.school.embedded;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "school.embedded")
+public class EmbeddedStoreProperties {
+    private String directory = "data/embedded";
+
+    private DataSize logSize = DataSize.ofMegabytes(16);
+
+    private boolean forceOnWrite;
+
+    public String getDirectory(){
+        return directory;
+    }
+
+    public void setDirectory(String directory){
+        this.directory = directory;
+    }
+
+    public DataSize getLogSize(){
+        return logSize;
+    }
+
+    public void setLogSize(DataSize logSize){
+        this.logSize = logSize;
+    }
+
+    public boolean isForceOnWrite(){
+        return forceOnWrite;
+    }
+
+    public void setForceOnWrite(boolean forceOnWrite){
+        this.forceOnWrite = forceOnWrite;
+    }
+}
@@ -0,0 +1,176 @@
+package metadata.home.school.embedded;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import metadata.home.school.model.StudentFilter;
+import metadata.home.school.repository.StudentRepository;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * StudentRepository answered from the {@link EmbeddedStore}. Students come back detached with their courses loaded,
+ * and saving one also sets the courses it takes, as saving the owning side of the join table does. Filters are
+ * evaluated over every student; the course count is the number of courses the row holds.
+ */
+public class EmbeddedStudentRepository implements StudentRepository {
+    private static final Map<String, Comparator<Student>> SORTABLE = Map.of(
+            "id", Comparator.comparing(Student::getId),
+            "schoolId", Comparator.comparing(Student::getSchoolId, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "name", Comparator.comparing(Student::getName, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "courseCount", Comparator.comparingInt(Student::getCourseCount));
+
+    private EmbeddedStore store;
+
+    public EmbeddedStudentRepository(EmbeddedStore store){
+        this.store = store;
+    }
+
+    @Override
+    public Optional<Student> findById(Integer id){
+        return Optional.ofNullable(toStudent(store.findStudent(id)));
+    }
+
+    @Override
+    public boolean existsById(Integer id){
+        return store.findStudent(id) != null;
+    }
+
+    @Override
+    public List<Student> findAll(){
+        var students = new ArrayList<Student>();
+        for (var row: store.findStudents()) {
+            students.add(toStudent(row));
+        }
+        return students;
+    }
+
+    @Override
+    public Page<Student> findAll(StudentFilter filter, Pageable pageable){
+        var course = filter.getCourse() == null || filter.getCourse().isEmpty() ? null : store.findCourseByName(filter.getCourse());
+        if(course == null && filter.getCourse() != null && !filter.getCourse().isEmpty()){
+            return EmbeddedPages.page(List.of(), pageable, SORTABLE);
+        }
+        var matching = new ArrayList<Student>();
+        for (var row: store.findStudents()) {
+            if(matches(row, filter, course)){
+                matching.add(toStudent(row));
+            }
+        }
+        return EmbeddedPages.page(matching, pageable, SORTABLE);
+    }
+
+    @Override
+    public List<Student> findByIdIn(Collection<Integer> ids){
+        var students = new ArrayList<Student>();
+        for (var id: ids) {
+            var student = toStudent(store.findStudent(id));
+            if(student != null){
+                students.add(student);
+            }
+        }
+        return students;
+    }
+
+    @Override
+    public Student findBySchoolId(String schoolId){
+        return toStudent(store.findStudentBySchoolId(schoolId));
+    }
+
+    @Override
+    public boolean existsBySchoolIdAndIdNot(String schoolId, Integer id){
+        var student = store.findStudentBySchoolId(schoolId);
+        return student != null && !Integer.valueOf(student.getId()).equals(id);
+    }
+
+    @Override
+    public List<Student> findByCoursesIsEmpty(){
+        var students = new ArrayList<Student>();
+        for (var row: store.findStudents()) {
+            if(row.getCourseIds().length == 0){
+                students.add(toStudent(row));
+            }
+        }
+        return students;
+    }
+
+    @Override
+    public List<Student> findDistinctByCoursesId(Integer courseId){
+        var students = new ArrayList<Student>();
+        for (var id: store.findStudentIds(courseId)) {
+            var student = toStudent(store.findStudent(id));
+            if(student != null){
+                students.add(student);
+            }
+        }
+        return students;
+    }
+
+    /**
+     * Writes the student and sets the id it was given on it, as persisting a new entity does.
+     */
+    @Override
+    public <S extends Student> S save(S student){
+        var courseIds = new int[student.getCourses().size()];
+        var i = 0;
+        for (var course: student.getCourses()) {
+            if(course.getId() == null){
+                throw new InvalidDataAccessApiUsageException("Course " + course.getName() + " has to be saved before its students");
+            }
+            courseIds[i++] = course.getId();
+        }
+        var row = store.putStudent(student.getId(), student.getSchoolId(), student.getName(), courseIds);
+        student.setId(row.getId());
+        student.setCourseCount(row.getCourseIds().length);
+        return student;
+    }
+
+    @Override
+    public void delete(Student student){
+        store.deleteStudent(student.getId());
+    }
+
+    /**
+     * Same conditions as FilterSpecifications.forStudents, the course already resolved from its name.
+     */
+    private static boolean matches(EmbeddedStore.StudentRow row, StudentFilter filter, EmbeddedStore.CourseRow course){
+        if(filter.getName() != null && !filter.getName().isEmpty() && (row.getName() == null || !row.getName().startsWith(filter.getName()))){
+            return false;
+        }
+        var courseIds = row.getCourseIds();
+        if(course != null && Arrays.binarySearch(courseIds, course.getId()) < 0){
+            return false;
+        }
+        if(filter.getMinCourses() != null && courseIds.length < filter.getMinCourses()){
+            return false;
+        }
+        return filter.getMaxCourses() == null || courseIds.length <= filter.getMaxCourses();
+    }
+
+    private Student toStudent(EmbeddedStore.StudentRow row){
+        if(row == null){
+            return null;
+        }
+        var student = new Student();
+        student.setId(row.getId());
+        student.setSchoolId(row.getSchoolId());
+        student.setName(row.getName());
+        for (var courseId: row.getCourseIds()) {
+            // a course deleted since the row was read is left out
+            Course course = EmbeddedCourseRepository.toCourse(store, store.findCourse(courseId));
+            if(course != null){
+                student.getCourses().add(course);
+            }
+        }
+        student.setCourseCount(student.getCourses().size());
+        return student;
+    }
+}
@@ -0,0 +1,95 @@
+package metadata.home.school.embedded;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Transactions over the {@link EmbeddedStore}: they run one at a time, which stands in for the row locks the services
+ * take in the database, and give the services their transaction synchronization. The store applies every change as it
+ * is written and keeps its inverse in the transaction's undo log; a rollback writes the inverses, newest first, and a
+ * commit drops them. Reads outside a transaction see changes not committed yet, and a crash in the middle of a
+ * transaction keeps what it wrote so far, as the log is replayed without the rollback that never ran.
+ */
+public class EmbeddedTransactionManager extends AbstractPlatformTransactionManager {
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final EmbeddedStore store;
+
+    public EmbeddedTransactionManager(EmbeddedStore store){
+        this.store = store;
+    }
+
+    @Override
+    protected Object doGetTransaction(){
+        return new Transaction((Transaction) TransactionSynchronizationManager.getResource(this));
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction){
+        return ((Transaction) transaction).outer != null;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition){
+        lock.lock();
+        TransactionSynchronizationManager.bindResource(this, transaction);
+        store.undoInto(((Transaction) transaction).undo);
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction){
+        store.undoInto(null);
+        return TransactionSynchronizationManager.unbindResource(this);
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources){
+        TransactionSynchronizationManager.bindResource(this, suspendedResources);
+        store.undoInto(((Transaction) suspendedResources).undo);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status){
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status){
+        store.rollback(((Transaction) status.getTransaction()).undo);
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status){
+        ((Transaction) status.getTransaction()).outer.rollbackOnly = true;
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction){
+        store.undoInto(null);
+        TransactionSynchronizationManager.unbindResource(this);
+        lock.unlock();
+    }
+
+    private static final class Transaction implements SmartTransactionObject {
+        // the transaction bound to the thread when this one was requested, which it joins
+        private final Transaction outer;
+        private final EmbeddedStore.Undo undo = new EmbeddedStore.Undo();
+        private boolean rollbackOnly;
+
+        Transaction(Transaction outer){
+            this.outer = outer;
+        }
+
+        @Override
+        public boolean isRollbackOnly(){
+            return outer != null ? outer.rollbackOnly : rollbackOnly;
+        }
+
+        @Override
+        public void flush(){
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package metadata.home.school.embedded;
+
+import metadata.home.school.model.WaitlistEntry;
+import metadata.home.school.repository.WaitlistRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * WaitlistRepository answered from the {@link EmbeddedStore}. Entries are returned as new objects; an entry that is
+ * saved gets no id of its own, it is found again by course and student.
+ */
+public class EmbeddedWaitlistRepository implements WaitlistRepository {
+    private EmbeddedStore store;
+
+    public EmbeddedWaitlistRepository(EmbeddedStore store){
+        this.store = store;
+    }
+
+    @Override
+    public List<WaitlistEntry> findByCourseIdOrderByIdAsc(Integer courseId){
+        var entries = new ArrayList<WaitlistEntry>();
+        for (var row: store.findWaitlistEntries()) {
+            if(row.getCourseId() == courseId){
+                entries.add(new WaitlistEntry(row.getCourseId(), row.getStudentId()));
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public boolean existsByCourseIdAndStudentId(Integer courseId, Integer studentId){
+        for (var row: store.findWaitlistEntries()) {
+            if(row.getCourseId() == courseId && row.getStudentId() == studentId){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public <S extends WaitlistEntry> S save(S entry){
+        store.putWaitlistEntry(entry.getCourseId(), entry.getStudentId());
+        return entry;
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<WaitlistEntry> entries){
+        var keys = new HashSet<List<Integer>>();
+        for (var entry: entries) {
+            keys.add(List.of(entry.getCourseId(), entry.getStudentId()));
+        }
+        store.deleteWaitlistEntries(row -> keys.contains(List.of(row.getCourseId(), row.getStudentId())));
+    }
+
+    @Override
+    public void deleteByCourseId(Integer courseId){
+        store.deleteWaitlistEntries(row -> row.getCourseId() == courseId);
+    }
+
+    @Override
+    public void deleteByStudentId(Integer studentId){
+        store.deleteWaitlistEntries(row -> row.getStudentId() == studentId);
+    }
+
+    @Override
+    public void deleteByStudentIdIn(Collection<Integer> studentIds){
+        var ids = new HashSet<>(studentIds);
+        store.deleteWaitlistEntries(row -> ids.contains(row.getStudentId()));
+    }
+
+    @Override
+    public void deleteByCourseIdIn(Collection<Integer> courseIds){
+        var ids = new HashSet<>(courseIds);
+        store.deleteWaitlistEntries(row -> ids.contains(row.getCourseId()));
+    }
+}
@@ -0,0 +1,120 @@
+package metadata.home.school.embedded;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash map from int keys to values without boxing the keys: open addressing with linear probing over two parallel
+ * arrays, and backward shift on removal so no tombstones pile up. Not thread safe, the store guards it with its lock.
+ */
+final class IntMap<V> {
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    IntMap(){
+        allocate(16);
+    }
+
+    int size(){
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key){
+        for(var slot = slot(key); values[slot] != null; slot = (slot + 1) & mask){
+            if(keys[slot] == key){
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(int key, V value){
+        var slot = slot(key);
+        for(; values[slot] != null; slot = (slot + 1) & mask){
+            if(keys[slot] == key){
+                var previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if(++size > keys.length * LOAD_FACTOR){
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(int key){
+        var slot = slot(key);
+        for(; values[slot] != null; slot = (slot + 1) & mask){
+            if(keys[slot] == key){
+                break;
+            }
+        }
+        var removed = (V) values[slot];
+        if(removed == null){
+            return null;
+        }
+        values[slot] = null;
+        size--;
+        // pull back the entries after the hole that would no longer be found from their own slot
+        for(var next = (slot + 1) & mask; values[next] != null; next = (next + 1) & mask){
+            var home = slot(keys[next]);
+            var stays = slot <= next ? slot < home && home <= next : slot < home || home <= next;
+            if(!stays){
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                values[next] = null;
+                slot = next;
+            }
+        }
+        return removed;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<V> values(){
+        var result = new ArrayList<V>(size);
+        for (var value: values) {
+            if(value != null){
+                result.add((V) value);
+            }
+        }
+        return result;
+    }
+
+    void clear(){
+        allocate(16);
+    }
+
+    private int slot(int key){
+        var hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity){
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rehash(int capacity){
+        var oldKeys = keys;
+        var oldValues = values;
+        allocate(capacity);
+        for(var i = 0; i < oldKeys.length; i++){
+            if(oldValues[i] != null){
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package metadata.home.school.embedded;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Growable buffer the store encodes its log records and snapshots into, with the matching readers. Strings are written
+ * as their UTF-8 length and bytes (-1 for null), int arrays as their length and elements.
+ */
+final class RecordBuffer {
+    private ByteBuffer buffer;
+
+    RecordBuffer(){
+        this(128);
+    }
+
+    RecordBuffer(int capacity){
+        buffer = ByteBuffer.allocate(capacity);
+    }
+
+    RecordBuffer putByte(byte value){
+        ensure(1).put(value);
+        return this;
+    }
+
+    RecordBuffer putInt(int value){
+        ensure(Integer.BYTES).putInt(value);
+        return this;
+    }
+
+    RecordBuffer putString(String value){
+        if(value == null){
+            return putInt(-1);
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes);
+        return this;
+    }
+
+    RecordBuffer putInts(int[] values){
+        ensure(Integer.BYTES * (values.length + 1)).putInt(values.length);
+        for (var value: values) {
+            buffer.putInt(value);
+        }
+        return this;
+    }
+
+    /**
+     * What was written so far, ready to be read.
+     */
+    ByteBuffer flip(){
+        return buffer.duplicate().flip();
+    }
+
+    static String getString(ByteBuffer source){
+        var length = source.getInt();
+        if(length < 0){
+            return null;
+        }
+        var bytes = new byte[length];
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int[] getInts(ByteBuffer source){
+        var values = new int[source.getInt()];
+        for(var i = 0; i < values.length; i++){
+            values[i] = source.getInt();
+        }
+        return values;
+    }
+
+    private ByteBuffer ensure(int bytes){
+        if(buffer.remaining() < bytes){
+            var grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            grown.put(buffer.flip());
+            buffer = grown;
+        }
+        return buffer;
+    }
+}
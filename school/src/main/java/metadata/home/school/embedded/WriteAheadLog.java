@@ -0,0 +1,134 @@
+package metadata.home.school.embedded;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the store's changes on a memory-mapped file of fixed size. Each record is framed as
+ * [payload length][lsn][crc32 of lsn and payload][payload] and its length is written last, so a record cut short by a
+ * crash reads as the end of the log. Appending is a copy into the mapping: the page cache keeps it if the process dies,
+ * and it reaches the disk when the mapping is forced, after every append or on {@link #force()}. Once a snapshot holds
+ * everything the log is {@link #reset()} and filled again from the start.
+ */
+final class WriteAheadLog implements Closeable {
+    static final int HEADER = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean forceOnWrite;
+    private int position;
+    private long lastLsn;
+
+    WriteAheadLog(Path file, int size, boolean forceOnWrite) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+        this.forceOnWrite = forceOnWrite;
+    }
+
+    /**
+     * Reads the log from the start and hands the payload of every record after the given lsn to apply; earlier ones
+     * are already in the snapshot. Stops at the first record that is missing, torn or out of sequence, and clears
+     * whatever is left after it so it can't be mistaken for a record later. Returns the last lsn applied.
+     */
+    long replay(long snapshotLsn, Consumer<ByteBuffer> apply){
+        position = 0;
+        lastLsn = snapshotLsn;
+        var expected = -1L;
+        while(position + HEADER <= buffer.capacity()){
+            var length = buffer.getInt(position);
+            if(length <= 0 || length > buffer.capacity() - position - HEADER){
+                break;
+            }
+            var lsn = buffer.getLong(position + Integer.BYTES);
+            if(buffer.getInt(position + Integer.BYTES + Long.BYTES) != checksum(position, length) || (expected >= 0 && lsn != expected)){
+                break;
+            }
+            if(expected < 0 && lsn > snapshotLsn + 1){
+                throw new IllegalStateException("The write-ahead log starts at lsn " + lsn + " but the snapshot ends at " + snapshotLsn);
+            }
+            if(lsn > snapshotLsn){
+                var payload = buffer.duplicate();
+                payload.limit(position + HEADER + length).position(position + HEADER);
+                apply.accept(payload.slice().asReadOnlyBuffer());
+                lastLsn = lsn;
+            }
+            expected = lsn + 1;
+            position += HEADER + length;
+        }
+        if(position + Integer.BYTES <= buffer.capacity() && buffer.getInt(position) != 0){
+            clear(position, buffer.capacity());
+            buffer.force();
+        }
+        return lastLsn;
+    }
+
+    boolean fits(int length){
+        return position + HEADER + length <= buffer.capacity();
+    }
+
+    int capacity(){
+        return buffer.capacity() - HEADER;
+    }
+
+    /**
+     * Appends the payload as the next lsn and returns it. The caller checks it {@link #fits(int)} first.
+     */
+    long append(ByteBuffer payload){
+        var length = payload.remaining();
+        var lsn = lastLsn + 1;
+        var view = buffer.duplicate();
+        view.position(position + HEADER);
+        view.put(payload);
+        buffer.putLong(position + Integer.BYTES, lsn);
+        buffer.putInt(position + Integer.BYTES + Long.BYTES, checksum(position, length));
+        buffer.putInt(position, length);
+        if(forceOnWrite){
+            buffer.force();
+        }
+        position += HEADER + length;
+        lastLsn = lsn;
+        return lsn;
+    }
+
+    /**
+     * Empties the log; the lsn keeps counting from where it was.
+     */
+    void reset(){
+        clear(0, position);
+        buffer.force();
+        position = 0;
+    }
+
+    void force(){
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private int checksum(int at, int length){
+        var crc = new CRC32();
+        var view = buffer.duplicate();
+        view.limit(at + HEADER - Integer.BYTES).position(at + Integer.BYTES);
+        crc.update(view);
+        view.limit(at + HEADER + length).position(at + HEADER);
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    private void clear(int from, int to){
+        for(var i = from; i < to; i++){
+            buffer.put(i, (byte) 0);
+        }
+    }
+}
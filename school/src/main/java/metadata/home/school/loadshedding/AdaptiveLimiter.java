@@ -0,0 +1,110 @@
+package metadata.home.school.loadshedding;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrency limit that follows the latency it observes, after TCP Vegas. The fastest response seen is taken as the
+ * time a request needs when nothing queues; a slower one means about limit * (1 - fastest / latency) requests were
+ * queued. The limit grows while that queue is short and shrinks once it gets long, and falls by a tenth on every
+ * failed request. Requests over the limit are turned away instead of queueing.
+ * The fastest response is forgotten every so often so the limit follows a baseline that drifts upwards too.
+ */
+public class AdaptiveLimiter {
+    static final int PROBE_SAMPLES = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int limit;
+
+    // guarded by this
+    private double estimatedLimit;
+    private long noLoadRttNanos;
+    private long samples;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit){
+        if(minLimit < 1 || minLimit > maxLimit){
+            throw new IllegalArgumentException("Limits need 1 <= min <= max, got " + minLimit + " and " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Takes a slot, or returns null when the limit is reached.
+     */
+    public Permit tryAcquire(){
+        while(true){
+            var current = inFlight.get();
+            if(current >= limit){
+                rejected.incrementAndGet();
+                return null;
+            }
+            if(inFlight.compareAndSet(current, current + 1)){
+                return new Permit(System.nanoTime(), current + 1);
+            }
+        }
+    }
+
+    /**
+     * Gives the slot back and adjusts the limit with the request's latency; a failed request only lowers it.
+     */
+    public void release(Permit permit, boolean failed){
+        inFlight.decrementAndGet();
+        onSample(System.nanoTime() - permit.startNanos, permit.inFlight, failed);
+    }
+
+    synchronized void onSample(long rttNanos, int inFlightAtStart, boolean failed){
+        if(++samples % PROBE_SAMPLES == 0){
+            noLoadRttNanos = 0;
+        }
+        if(noLoadRttNanos == 0 || rttNanos < noLoadRttNanos){
+            noLoadRttNanos = Math.max(1, rttNanos);
+        }
+
+        var step = Math.max(1, Math.log10(estimatedLimit));
+        if(failed){
+            estimatedLimit = estimatedLimit * 0.9;
+        }else if(inFlightAtStart * 2 < estimatedLimit){
+            // too little traffic to say anything about the limit
+            return;
+        }else{
+            var queued = estimatedLimit * (1 - (double) noLoadRttNanos / Math.max(rttNanos, 1));
+            if(queued <= step){
+                estimatedLimit += 3 * step;
+            }else if(queued < 3 * step){
+                estimatedLimit += step;
+            }else if(queued > 6 * step){
+                estimatedLimit -= step;
+            }
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(estimatedLimit, maxLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit(){
+        return limit;
+    }
+
+    public int getInFlight(){
+        return inFlight.get();
+    }
+
+    public long getRejected(){
+        return rejected.get();
+    }
+
+    public static final class Permit {
+        private final long startNanos;
+        private final int inFlight;
+
+        Permit(long startNanos, int inFlight){
+            this.startNanos = startNanos;
+            this.inFlight = inFlight;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package metadata.home.school.loadshedding;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One {@link AdaptiveLimiter} per endpoint group. The current limit, the requests in flight and the rejections of each
+ * group are published tagged with the group.
+ */
+public class Bulkheads implements MeterBinder {
+    private final Map<EndpointGroup, AdaptiveLimiter> limiters = new EnumMap<>(EndpointGroup.class);
+
+    public Bulkheads(LoadSheddingProperties properties){
+        for (var group: EndpointGroup.values()) {
+            var limits = properties.limitsOf(group);
+            limiters.put(group, new AdaptiveLimiter(limits.getInitialLimit(), limits.getMinLimit(), limits.getMaxLimit()));
+        }
+    }
+
+    public AdaptiveLimiter limiterOf(EndpointGroup group){
+        return limiters.get(group);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry){
+        for (var limiter: limiters.entrySet()) {
+            var group = limiter.getKey().name().toLowerCase();
+            Gauge.builder("school.requests.limit", limiter.getValue(), AdaptiveLimiter::getLimit).tag("group", group).register(registry);
+            Gauge.builder("school.requests.in.flight", limiter.getValue(), AdaptiveLimiter::getInFlight).tag("group", group).register(registry);
+            FunctionCounter.builder("school.requests.rejected", limiter.getValue(), AdaptiveLimiter::getRejected).tag("group", group).register(registry);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package metadata.home.school.loadshedding;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+/**
+ * Bulkheads the API is split into, each with its own concurrency limit so one kind of traffic can't take every thread
+ * and connection from the others. Enrollments are the critical path; exports are the unpaged full lists.
+ */
+public enum EndpointGroup {
+    ENROLLMENT,
+    READ,
+    WRITE,
+    EXPORT;
+
+    // what the controllers read into StudentFilter, CourseFilter and the page, empty values are read as absent
+    private static final List<String> STUDENT_LIST_PARAMETERS = List.of("name", "course", "minCourses", "maxCourses", "page", "size");
+    private static final List<String> COURSE_LIST_PARAMETERS = List.of("name", "minStudents", "maxStudents", "page", "size");
+
+    public static EndpointGroup of(HttpServletRequest request){
+        var path = request.getRequestURI().substring(request.getContextPath().length());
+        var method = request.getMethod();
+        if(method.equals("POST") && (path.endsWith("/register") || path.endsWith("/students:batchAdd") || path.endsWith("/students:batchRemove"))){
+            return ENROLLMENT;
+        }
+        if(method.equals("GET")){
+            var fullList = path.equals("/api/students") && isFullList(request, STUDENT_LIST_PARAMETERS)
+                    || path.equals("/api/courses") && isFullList(request, COURSE_LIST_PARAMETERS);
+            if(fullList || path.endsWith("/noCourses") || path.endsWith("/noStudents")){
+                return EXPORT;
+            }
+            return READ;
+        }
+        // GraphQL only reads
+        if(path.equals("/api/graphql")){
+            return READ;
+        }
+        return WRITE;
+    }
+
+    /**
+     * Whether the controller answers with the full list, as it does when there are no ids, filter or page to apply;
+     * any other parameter is ignored there and so here.
+     */
+    private static boolean isFullList(HttpServletRequest request, List<String> listParameters){
+        if(request.getParameter("ids") != null){
+            return false;
+        }
+        for (var parameter: listParameters) {
+            var value = request.getParameter(parameter);
+            if(value != null && !value.isEmpty()){
+                return false;
+            }
+        }
+        return true;
+    }
+}
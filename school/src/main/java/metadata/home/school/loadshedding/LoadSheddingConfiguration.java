@@ -0,0 +1,27 @@
+package metadata.home.school.loadshedding;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Per endpoint group concurrency limits, on when school.load-shedding.enabled is true. The filter runs first after the
+ * character encoding one, so a rejected request costs as little as possible.
+ */
+@Configuration
+@ConditionalOnProperty(name = "school.load-shedding.enabled", havingValue = "true")
+public class LoadSheddingConfiguration {
+    @Bean
+    public Bulkheads bulkheads(LoadSheddingProperties properties){
+        return new Bulkheads(properties);
+    }
+
+    @Bean
+    public FilterRegistrationBean<LoadSheddingFilter> loadSheddingFilter(Bulkheads bulkheads, LoadSheddingProperties properties){
+        var registration = new FilterRegistrationBean<>(new LoadSheddingFilter(bulkheads, properties.getRetryAfter()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,61 @@
+package metadata.home.school.loadshedding;
+
+import metadata.home.school.model.ErrorCode;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Admits every API request through the bulkhead of its endpoint group. A request over the group's limit is answered
+ * 503 with a Retry-After right away, before it takes a database connection or waits for one. Requests that fail with
+ * an exception or a 5xx count as drops and lower the limit.
+ */
+public class LoadSheddingFilter extends OncePerRequestFilter {
+    static final String ERROR_CODE_HEADER = "X-Error-Code";
+
+    private final Bulkheads bulkheads;
+    private final String retryAfter;
+
+    public LoadSheddingFilter(Bulkheads bulkheads, Duration retryAfter){
+        this.bulkheads = bulkheads;
+        this.retryAfter = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request){
+        var path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith("/api/") || path.startsWith("/api/admin/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var group = EndpointGroup.of(request);
+        var limiter = bulkheads.limiterOf(group);
+        var permit = limiter.tryAcquire();
+        if(permit == null){
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            response.setHeader(ERROR_CODE_HEADER, ErrorCode.OVERLOADED.name());
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write(ErrorCode.OVERLOADED.message(group.name().toLowerCase()));
+            return;
+        }
+
+        var failed = true;
+        try{
+            chain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        }finally {
+            limiter.release(permit, failed);
+        }
+    }
+}
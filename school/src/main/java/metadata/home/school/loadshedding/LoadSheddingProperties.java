@@ -0,0 +1,106 @@
+package metadata.home.school.loadshedding;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "school.load-shedding")
+public class LoadSheddingProperties {
+    private boolean enabled;
+
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    private Limits enrollment = new Limits(20, 4, 100);
+
+    private Limits read = new Limits(20, 4, 100);
+
+    private Limits write = new Limits(10, 2, 50);
+
+    private Limits export = new Limits(2, 1, 4);
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled){
+        this.enabled = enabled;
+    }
+
+    public Duration getRetryAfter(){
+        return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter){
+        this.retryAfter = retryAfter;
+    }
+
+    public Limits getEnrollment(){
+        return enrollment;
+    }
+
+    public Limits getRead(){
+        return read;
+    }
+
+    public Limits getWrite(){
+        return write;
+    }
+
+    public Limits getExport(){
+        return export;
+    }
+
+    public Limits limitsOf(EndpointGroup group){
+        switch(group){
+            case ENROLLMENT:
+                return enrollment;
+            case READ:
+                return read;
+            case WRITE:
+                return write;
+            default:
+                return export;
+        }
+    }
+
+    public static class Limits {
+        private int initialLimit;
+
+        private int minLimit;
+
+        private int maxLimit;
+
+        public Limits(){
+        }
+
+        public Limits(int initialLimit, int minLimit, int maxLimit){
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+        }
+
+        public int getInitialLimit(){
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit){
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit(){
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit){
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit(){
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit){
+            this.maxLimit = maxLimit;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package metadata.home.school.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of adding or removing a batch of students to a course, by school id.
+ * applied: enrollments created or removed. skipped: already in the requested state.
+ * overLimit: students left out because they already take 5 courses. conflicting: students left out because one of
+ * their courses overlaps the course's schedule. missing: school ids with no student.
+ */
+public class BatchEnrollmentResult {
+    private List<String> applied = new ArrayList<>();
+
+    private List<String> skipped = new ArrayList<>();
+
+    private List<String> overLimit = new ArrayList<>();
+
+    private List<String> conflicting = new ArrayList<>();
+
+    private List<String> missing = new ArrayList<>();
+
+    public List<String> getApplied(){
+        return applied;
+    }
+
+    public List<String> getSkipped(){
+        return skipped;
+    }
+
+    public List<String> getOverLimit(){
+        return overLimit;
+    }
+
+    public List<String> getConflicting(){
+        return conflicting;
+    }
+
+    public List<String> getMissing(){
+        return missing;
+    }
+}
@@ -0,0 +1,22 @@
+package metadata.home.school.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of deleting many students or courses at once.
+ * deleted: ids that were removed together with their enrollments. missing: requested ids that didn't exist.
+ */
+public class BulkDeleteResult {
+    private List<Integer> deleted = new ArrayList<>();
+
+    private List<Integer> missing = new ArrayList<>();
+
+    public List<Integer> getDeleted(){
+        return deleted;
+    }
+
+    public List<Integer> getMissing(){
+        return missing;
+    }
+}
@@ -0,0 +1,92 @@
+package metadata.home.school.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * One entry of the change log: a student, course or enrollment was written or deleted. The sequence only grows, so it
+ * is the cursor of GET /api/changes. The entity's current state is attached when the feed is read, a deleted entry
+ * (tombstone) has none. Deleting a student or course deletes its enrollments without an entry for each of them.
+ */
+@Entity
+@Table(name = "change_log", indexes = @Index(name = "idx_change_log_recorded_at", columnList = "recorded_at"))
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Change {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ChangeType type;
+
+    @Column(name = "entity_id", nullable = false)
+    private Integer id;
+
+    @Column(name = "course_id")
+    private Integer courseId;
+
+    @Column(nullable = false)
+    private boolean deleted;
+
+    @Column(name = "recorded_at", nullable = false)
+    @JsonIgnore
+    private Instant recordedAt;
+
+    @Transient
+    private Object entity;
+
+    public Change(){
+    }
+
+    public Change(Long seq, ChangeType type, Integer id, Integer courseId, boolean deleted){
+        this.seq = seq;
+        this.type = type;
+        this.id = id;
+        this.courseId = courseId;
+        this.deleted = deleted;
+    }
+
+    public Long getSeq(){
+        return seq;
+    }
+
+    public ChangeType getType(){
+        return type;
+    }
+
+    public Integer getId(){
+        return id;
+    }
+
+    public Integer getCourseId(){
+        return courseId;
+    }
+
+    public boolean isDeleted(){
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted){
+        this.deleted = deleted;
+    }
+
+    public Instant getRecordedAt(){
+        return recordedAt;
+    }
+
+    public void setRecordedAt(Instant recordedAt){
+        this.recordedAt = recordedAt;
+    }
+
+    public Object getEntity(){
+        return entity;
+    }
+
+    public void setEntity(Object entity){
+        this.entity = entity;
+    }
+}
@@ -0,0 +1,37 @@
+package metadata.home.school.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answer of GET /api/changes: the changes after the requested cursor in sequence order, the cursor to ask with next
+ * time and whether more changes were left out by the limit.
+ */
+public class ChangePage {
+    private List<Change> changes = new ArrayList<>();
+
+    private long cursor;
+
+    private boolean hasMore;
+
+    public ChangePage(){
+    }
+
+    public ChangePage(List<Change> changes, long cursor, boolean hasMore){
+        this.changes = changes;
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<Change> getChanges(){
+        return changes;
+    }
+
+    public long getCursor(){
+        return cursor;
+    }
+
+    public boolean isHasMore(){
+        return hasMore;
+    }
+}
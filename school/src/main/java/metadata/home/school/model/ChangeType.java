@@ -0,0 +1,10 @@
+package metadata.home.school.model;
+
+/**
+ * What a change log entry is about. Enrollment entries name the student as their id and the course separately.
+ */
+public enum ChangeType {
+    STUDENT,
+    COURSE,
+    ENROLLMENT
+}
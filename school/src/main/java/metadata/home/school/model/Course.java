@@ -10,7 +10,7 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "course")
+@Table(name = "course", indexes = @Index(name = "idx_course_student_count", columnList = "student_count"))
 public class Course {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -19,9 +19,18 @@ public class Course {
     @Column(unique = true)
     private String name;
 
-    @ManyToMany(fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST, CascadeType.MERGE }, mappedBy = "courses")
+    @ManyToMany(fetch = FetchType.LAZY, mappedBy = "courses")
     @JsonIgnoreProperties("courses")
-    Set<Student> students = new HashSet<>();;
+    private Set<Student> students = new HashSet<>();
+
+    // maintained by EnrollmentCountService from the join table, so the enrollment count filter can use an index
+    @Column(name = "student_count", nullable = false, insertable = false, updatable = false, columnDefinition = "integer default 0")
+    @JsonIgnore
+    private int studentCount;
+
+    @Convert(converter = TimeSlotsConverter.class)
+    @Column(name = "schedule", length = TimeSlotsConverter.COLUMN_LENGTH)
+    private List<TimeSlot> schedule = new ArrayList<>();
 
     public Integer getId(){
         return id;
@@ -46,4 +55,20 @@ public class Course {
     public void setStudents(Set<Student> students){
         this.students = students;
     }
+
+    public int getStudentCount(){
+        return studentCount;
+    }
+
+    public void setStudentCount(int studentCount){
+        this.studentCount = studentCount;
+    }
+
+    public List<TimeSlot> getSchedule(){
+        return schedule;
+    }
+
+    public void setSchedule(List<TimeSlot> schedule){
+        this.schedule = schedule == null ? new ArrayList<>() : schedule;
+    }
 }
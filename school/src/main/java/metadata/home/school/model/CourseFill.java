@@ -0,0 +1,35 @@
+package metadata.home.school.model;
+
+public class CourseFill {
+    private final Integer id;
+    private final String name;
+    private final int students;
+    private final int capacity;
+
+    public CourseFill(Integer id, String name, int students, int capacity){
+        this.id = id;
+        this.name = name;
+        this.students = students;
+        this.capacity = capacity;
+    }
+
+    public Integer getId(){
+        return id;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public int getStudents(){
+        return students;
+    }
+
+    public int getCapacity(){
+        return capacity;
+    }
+
+    public double getFillRate(){
+        return (double) students / capacity;
+    }
+}
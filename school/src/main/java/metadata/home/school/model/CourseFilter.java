@@ -0,0 +1,40 @@
+package metadata.home.school.model;
+
+/**
+ * Query parameters of GET /api/courses. Every filter is optional, name matches as a prefix.
+ */
+public class CourseFilter {
+    private String name;
+
+    private Integer minStudents;
+
+    private Integer maxStudents;
+
+    public String getName(){
+        return name;
+    }
+
+    public void setName(String name){
+        this.name = name;
+    }
+
+    public Integer getMinStudents(){
+        return minStudents;
+    }
+
+    public void setMinStudents(Integer minStudents){
+        this.minStudents = minStudents;
+    }
+
+    public Integer getMaxStudents(){
+        return maxStudents;
+    }
+
+    public void setMaxStudents(Integer maxStudents){
+        this.maxStudents = maxStudents;
+    }
+
+    public boolean isEmpty(){
+        return (name == null || name.isEmpty()) && minStudents == null && maxStudents == null;
+    }
+}
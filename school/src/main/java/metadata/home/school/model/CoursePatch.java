@@ -0,0 +1,54 @@
+package metadata.home.school.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A JSON merge patch (RFC 7396) of a course. Only the members present in the document are changed: an explicit null
+ * clears the field, students replaces the course's students as a whole and null leaves it without any.
+ */
+public class CoursePatch {
+    private String name;
+    private boolean nameSet;
+
+    private List<TimeSlot> schedule;
+
+    private List<Student> students;
+
+    public String getName(){
+        return name;
+    }
+
+    public void setName(String name){
+        this.name = name;
+        this.nameSet = true;
+    }
+
+    public boolean hasName(){
+        return nameSet;
+    }
+
+    public List<TimeSlot> getSchedule(){
+        return schedule;
+    }
+
+    public void setSchedule(List<TimeSlot> schedule){
+        this.schedule = schedule == null ? new ArrayList<>() : schedule;
+    }
+
+    public boolean hasSchedule(){
+        return schedule != null;
+    }
+
+    public List<Student> getStudents(){
+        return students;
+    }
+
+    public void setStudents(List<Student> students){
+        this.students = students == null ? new ArrayList<>() : students;
+    }
+
+    public boolean hasStudents(){
+        return students != null;
+    }
+}
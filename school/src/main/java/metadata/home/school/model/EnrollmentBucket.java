@@ -0,0 +1,29 @@
+package metadata.home.school.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Summary row with how many students take a given number of courses. Kept up to date with deltas by
+ * EnrollmentCountService, so the stats don't need to look at every student.
+ */
+@Entity
+@Table(name = "enrollment_bucket")
+public class EnrollmentBucket {
+    @Id
+    @Column(name = "course_count")
+    private Integer courseCount;
+
+    @Column(nullable = false)
+    private int students;
+
+    public Integer getCourseCount(){
+        return courseCount;
+    }
+
+    public int getStudents(){
+        return students;
+    }
+}
@@ -0,0 +1,34 @@
+package metadata.home.school.model;
+
+import java.util.List;
+import java.util.Map;
+
+public class EnrollmentStats {
+    private final long totalEnrollments;
+    private final long totalStudents;
+    private final Map<Integer, Integer> studentsByCourseCount;
+    private final List<CourseFill> courses;
+
+    public EnrollmentStats(long totalEnrollments, long totalStudents, Map<Integer, Integer> studentsByCourseCount, List<CourseFill> courses){
+        this.totalEnrollments = totalEnrollments;
+        this.totalStudents = totalStudents;
+        this.studentsByCourseCount = studentsByCourseCount;
+        this.courses = courses;
+    }
+
+    public long getTotalEnrollments(){
+        return totalEnrollments;
+    }
+
+    public long getTotalStudents(){
+        return totalStudents;
+    }
+
+    public Map<Integer, Integer> getStudentsByCourseCount(){
+        return studentsByCourseCount;
+    }
+
+    public List<CourseFill> getCourses(){
+        return courses;
+    }
+}
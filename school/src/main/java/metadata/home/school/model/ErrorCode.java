@@ -0,0 +1,47 @@
+package metadata.home.school.model;
+
+/**
+ * Reasons a service call can fail. The message is only built when someone asks for it,
+ * by concatenating the fixed text around the single argument.
+ */
+public enum ErrorCode {
+    STUDENT_NOT_FOUND("Student with id: ", " was not found"),
+    STUDENT_SCHOOL_ID_EXISTS("A student with school id: ", " already exists"),
+    STUDENT_COURSE_LIMIT("A student cannot register to more than 5 courses", ""),
+    STUDENT_ALREADY_REGISTERED("Student was already registered to course: ", ""),
+    STUDENT_SHARD_CHANGE("A student cannot change to school id: ", " because it belongs to another shard"),
+    COURSE_NOT_FOUND("Course with id: ", " was not found"),
+    COURSE_NAME_NOT_FOUND("Cannot find course: ", ""),
+    COURSE_NAME_EXISTS("A course with name: ", " already exists"),
+    COURSE_CAPACITY("A course cannot have to more than 50 students", ""),
+    COURSE_SCHEDULE_INVALID("The schedule of course: ", " has a slot that ends before it starts or overlaps another"),
+    COURSE_SCHEDULE_TOO_LONG("The schedule of course: ", " has too many slots to be stored"),
+    STUDENT_SCHEDULE_CONFLICT("Course: ", " overlaps the schedule of another course of the student"),
+    BATCH_TOO_LARGE("A batch cannot have more than ", " school ids"),
+    TOO_MANY_IDS("Cannot get more than ", " ids at once"),
+    BULK_DELETE_TOO_LARGE("Cannot delete more than ", " records at once"),
+    BULK_DELETE_UNFILTERED("A bulk delete needs a list of ids or at least one filter", ""),
+    RECORDING_IN_PROGRESS("A flight recording is already running", ""),
+    RECORDING_NOT_FOUND("No flight recording was started", ""),
+    RECORDING_TOO_LONG("A flight recording cannot last more than ", ""),
+    TENANT_REQUIRED("Requests must name their tenant in the header: ", ""),
+    TENANT_NOT_FOUND("Tenant: ", " was not found"),
+    CHANGES_DISABLED("The change log is turned off", ""),
+    CHANGES_CURSOR_EXPIRED("Changes after cursor: ", " were pruned, download the full lists and start from a new cursor"),
+    OVERLOADED("Too many ", " requests right now, retry later");
+
+    private final String prefix;
+    private final String suffix;
+
+    ErrorCode(String prefix, String suffix){
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    public String message(Object argument){
+        if(argument == null){
+            return prefix + suffix;
+        }
+        return prefix + argument + suffix;
+    }
+}
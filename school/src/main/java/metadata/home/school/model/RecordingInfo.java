@@ -0,0 +1,40 @@
+package metadata.home.school.model;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public class RecordingInfo {
+    private final String name;
+    private final String state;
+    private final Instant startTime;
+    private final Duration duration;
+    private final long size;
+
+    public RecordingInfo(String name, String state, Instant startTime, Duration duration, long size){
+        this.name = name;
+        this.state = state;
+        this.startTime = startTime;
+        this.duration = duration;
+        this.size = size;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public String getState(){
+        return state;
+    }
+
+    public Instant getStartTime(){
+        return startTime;
+    }
+
+    public Duration getDuration(){
+        return duration;
+    }
+
+    public long getSize(){
+        return size;
+    }
+}
@@ -0,0 +1,25 @@
+package metadata.home.school.model;
+
+public class RelatedCourse {
+    private final Integer id;
+    private final String name;
+    private final int sharedStudents;
+
+    public RelatedCourse(Integer id, String name, int sharedStudents){
+        this.id = id;
+        this.name = name;
+        this.sharedStudents = sharedStudents;
+    }
+
+    public Integer getId(){
+        return id;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public int getSharedStudents(){
+        return sharedStudents;
+    }
+}
@@ -1,22 +1,80 @@
 package metadata.home.school.model;
 
-public class ServiceResponse {
-    private Object result;
+public class ServiceResponse<T> {
+    public enum Status { SUCCESS, ACCEPTED, INVALID, NOT_FOUND, CONFLICT }
 
-    private String message;
+    private static final ServiceResponse<?> STUDENT_COURSE_LIMIT = new ServiceResponse<>(Status.CONFLICT, null, ErrorCode.STUDENT_COURSE_LIMIT, null);
+    private static final ServiceResponse<?> COURSE_CAPACITY = new ServiceResponse<>(Status.CONFLICT, null, ErrorCode.COURSE_CAPACITY, null);
 
-    public ServiceResponse(Object result, String message){
+    private final Status status;
+
+    private final T result;
+
+    private final ErrorCode errorCode;
+
+    private final Object argument;
+
+    private ServiceResponse(Status status, T result, ErrorCode errorCode, Object argument){
+        this.status = status;
         this.result = result;
-        this.message = message;
+        this.errorCode = errorCode;
+        this.argument = argument;
     }
 
-    public Object getResult(){
-        return result;
+    public static <T> ServiceResponse<T> success(T result){
+        return new ServiceResponse<>(Status.SUCCESS, result, null, null);
     }
 
-    public String getMessage(){
-        return message;
+    /**
+     * The request was taken but part of it is still pending, like a registration waiting for a seat.
+     */
+    public static <T> ServiceResponse<T> accepted(T result){
+        return new ServiceResponse<>(Status.ACCEPTED, result, null, null);
+    }
+
+    public static <T> ServiceResponse<T> invalid(ErrorCode errorCode, Object argument){
+        return new ServiceResponse<>(Status.INVALID, null, errorCode, argument);
+    }
+
+    public static <T> ServiceResponse<T> notFound(ErrorCode errorCode, Object argument){
+        return new ServiceResponse<>(Status.NOT_FOUND, null, errorCode, argument);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ServiceResponse<T> conflict(ErrorCode errorCode){
+        if(errorCode == ErrorCode.STUDENT_COURSE_LIMIT){
+            return (ServiceResponse<T>) STUDENT_COURSE_LIMIT;
+        }
+        if(errorCode == ErrorCode.COURSE_CAPACITY){
+            return (ServiceResponse<T>) COURSE_CAPACITY;
+        }
+        return new ServiceResponse<>(Status.CONFLICT, null, errorCode, null);
     }
 
+    public static <T> ServiceResponse<T> conflict(ErrorCode errorCode, Object argument){
+        return new ServiceResponse<>(Status.CONFLICT, null, errorCode, argument);
+    }
+
+    public Status getStatus(){
+        return status;
+    }
+
+    public boolean isSuccess(){
+        return status == Status.SUCCESS;
+    }
+
+    public T getResult(){
+        return result;
+    }
+
+    public ErrorCode getErrorCode(){
+        return errorCode;
+    }
 
+    public String getMessage(){
+        if(errorCode == null){
+            return "";
+        }
+        return errorCode.message(argument);
+    }
 }
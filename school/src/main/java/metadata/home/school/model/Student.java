@@ -1,6 +1,9 @@
 package metadata.home.school.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -9,10 +12,14 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "student")
+@Table(name = "student", indexes = {
+        @Index(name = "idx_student_name", columnList = "name"),
+        @Index(name = "idx_student_course_count", columnList = "course_count") })
 public class Student {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "student_id")
+    @GenericGenerator(name = "student_id", strategy = "metadata.home.school.sharding.ShardAwareIdGenerator",
+            parameters = @Parameter(name = "sequence_name", value = "hibernate_sequence"))
     private Integer id;
 
     @Column(unique = true)
@@ -23,9 +30,15 @@ public class Student {
     @ManyToMany(fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST, CascadeType.MERGE})
     @JoinTable(name = "student_course",
             joinColumns = { @JoinColumn(name = "student_id") },
-            inverseJoinColumns = { @JoinColumn(name = "course_id") })
+            inverseJoinColumns = { @JoinColumn(name = "course_id") },
+            indexes = @Index(name = "idx_student_course_course", columnList = "course_id"))
     @JsonIgnoreProperties("students")
-    Set<Course> courses = new HashSet<>();
+    private Set<Course> courses = new HashSet<>();
+
+    // maintained by EnrollmentCountService from the join table, so the course count filter can use an index
+    @Column(name = "course_count", nullable = false, insertable = false, updatable = false, columnDefinition = "integer default 0")
+    @JsonIgnore
+    private int courseCount;
 
     public Integer getId(){
         return id;
@@ -58,4 +71,12 @@ public class Student {
     public void setCourses(Set<Course> courses){
         this.courses = courses;
     }
+
+    public int getCourseCount(){
+        return courseCount;
+    }
+
+    public void setCourseCount(int courseCount){
+        this.courseCount = courseCount;
+    }
 }
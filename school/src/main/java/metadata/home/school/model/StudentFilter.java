@@ -0,0 +1,50 @@
+package metadata.home.school.model;
+
+/**
+ * Query parameters of GET /api/students. Every filter is optional, name matches as a prefix.
+ */
+public class StudentFilter {
+    private String name;
+
+    private String course;
+
+    private Integer minCourses;
+
+    private Integer maxCourses;
+
+    public String getName(){
+        return name;
+    }
+
+    public void setName(String name){
+        this.name = name;
+    }
+
+    public String getCourse(){
+        return course;
+    }
+
+    public void setCourse(String course){
+        this.course = course;
+    }
+
+    public Integer getMinCourses(){
+        return minCourses;
+    }
+
+    public void setMinCourses(Integer minCourses){
+        this.minCourses = minCourses;
+    }
+
+    public Integer getMaxCourses(){
+        return maxCourses;
+    }
+
+    public void setMaxCourses(Integer maxCourses){
+        this.maxCourses = maxCourses;
+    }
+
+    public boolean isEmpty(){
+        return (name == null || name.isEmpty()) && (course == null || course.isEmpty()) && minCourses == null && maxCourses == null;
+    }
+}
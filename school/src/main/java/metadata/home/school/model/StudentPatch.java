@@ -0,0 +1,56 @@
+package metadata.home.school.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A JSON merge patch (RFC 7396) of a student. Only the members present in the document are changed: an explicit null
+ * clears the field, courses replaces the student's courses as a whole and null leaves it without any.
+ */
+public class StudentPatch {
+    private String schoolId;
+    private boolean schoolIdSet;
+
+    private String name;
+    private boolean nameSet;
+
+    private List<Course> courses;
+
+    public String getSchoolId(){
+        return schoolId;
+    }
+
+    public void setSchoolId(String schoolId){
+        this.schoolId = schoolId;
+        this.schoolIdSet = true;
+    }
+
+    public boolean hasSchoolId(){
+        return schoolIdSet;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public void setName(String name){
+        this.name = name;
+        this.nameSet = true;
+    }
+
+    public boolean hasName(){
+        return nameSet;
+    }
+
+    public List<Course> getCourses(){
+        return courses;
+    }
+
+    public void setCourses(List<Course> courses){
+        this.courses = courses == null ? new ArrayList<>() : courses;
+    }
+
+    public boolean hasCourses(){
+        return courses != null;
+    }
+}
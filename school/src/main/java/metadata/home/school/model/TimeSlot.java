@@ -0,0 +1,83 @@
+package metadata.home.school.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Objects;
+
+/**
+ * One weekly meeting of a course, from start to end on the same day.
+ */
+public class TimeSlot {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private DayOfWeek day;
+
+    private LocalTime start;
+
+    private LocalTime end;
+
+    public TimeSlot(){
+    }
+
+    public TimeSlot(DayOfWeek day, LocalTime start, LocalTime end){
+        this.day = day;
+        this.start = start;
+        this.end = end;
+    }
+
+    public DayOfWeek getDay(){
+        return day;
+    }
+
+    public void setDay(DayOfWeek day){
+        this.day = day;
+    }
+
+    public LocalTime getStart(){
+        return start;
+    }
+
+    public void setStart(LocalTime start){
+        this.start = start;
+    }
+
+    public LocalTime getEnd(){
+        return end;
+    }
+
+    public void setEnd(LocalTime end){
+        this.end = end;
+    }
+
+    public boolean isValid(){
+        return day != null && start != null && end != null && start.isBefore(end);
+    }
+
+    /**
+     * Minutes from Monday 00:00 to the start of the slot.
+     */
+    public int startMinute(){
+        return day.ordinal() * MINUTES_PER_DAY + start.toSecondOfDay() / 60;
+    }
+
+    public int endMinute(){
+        return day.ordinal() * MINUTES_PER_DAY + end.toSecondOfDay() / 60;
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if(this == o){
+            return true;
+        }
+        if(!(o instanceof TimeSlot)){
+            return false;
+        }
+        var other = (TimeSlot) o;
+        return day == other.day && Objects.equals(start, other.start) && Objects.equals(end, other.end);
+    }
+
+    @Override
+    public int hashCode(){
+        return Objects.hash(day, start, end);
+    }
+}
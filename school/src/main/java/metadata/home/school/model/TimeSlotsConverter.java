@@ -0,0 +1,56 @@
+package metadata.home.school.model;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores a course's time slots in a single column as "MONDAY 09:00-10:30;WEDNESDAY 09:00-10:30", so the schedule
+ * loads, caches and replicates with the course row instead of needing a table of its own.
+ */
+@Converter
+public class TimeSlotsConverter implements AttributeConverter<List<TimeSlot>, String> {
+    public static final int COLUMN_LENGTH = 1000;
+    private static final char SLOT_SEPARATOR = ';';
+
+    /**
+     * Whether the slots fit in the schedule column, so a long schedule is refused instead of failing the insert.
+     */
+    public static boolean fits(List<TimeSlot> slots){
+        var column = new TimeSlotsConverter().convertToDatabaseColumn(slots);
+        return column == null || column.length() <= COLUMN_LENGTH;
+    }
+
+    @Override
+    public String convertToDatabaseColumn(List<TimeSlot> slots){
+        if(slots == null || slots.isEmpty()){
+            return null;
+        }
+        var column = new StringBuilder();
+        for (var slot: slots) {
+            if(column.length() > 0){
+                column.append(SLOT_SEPARATOR);
+            }
+            column.append(slot.getDay()).append(' ').append(slot.getStart()).append('-').append(slot.getEnd());
+        }
+        return column.toString();
+    }
+
+    @Override
+    public List<TimeSlot> convertToEntityAttribute(String column){
+        var slots = new ArrayList<TimeSlot>();
+        if(column == null || column.isEmpty()){
+            return slots;
+        }
+        for (var slot: column.split(String.valueOf(SLOT_SEPARATOR))) {
+            var space = slot.indexOf(' ');
+            var dash = slot.indexOf('-', space);
+            slots.add(new TimeSlot(DayOfWeek.valueOf(slot.substring(0, space)),
+                    LocalTime.parse(slot.substring(space + 1, dash)), LocalTime.parse(slot.substring(dash + 1))));
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,65 @@
+package metadata.home.school.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+public class TraceSpan {
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String name;
+    private final String kind;
+    private final Instant startTime;
+    private final long durationMicros;
+    private final boolean error;
+    private final Map<String, Object> attributes;
+
+    public TraceSpan(String traceId, String spanId, String parentSpanId, String name, String kind, Instant startTime,
+                     long durationMicros, boolean error, Map<String, Object> attributes){
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        this.startTime = startTime;
+        this.durationMicros = durationMicros;
+        this.error = error;
+        this.attributes = attributes;
+    }
+
+    public String getTraceId(){
+        return traceId;
+    }
+
+    public String getSpanId(){
+        return spanId;
+    }
+
+    public String getParentSpanId(){
+        return parentSpanId;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public String getKind(){
+        return kind;
+    }
+
+    public Instant getStartTime(){
+        return startTime;
+    }
+
+    public long getDurationMicros(){
+        return durationMicros;
+    }
+
+    public boolean isError(){
+        return error;
+    }
+
+    public Map<String, Object> getAttributes(){
+        return attributes;
+    }
+}
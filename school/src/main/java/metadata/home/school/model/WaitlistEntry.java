@@ -0,0 +1,39 @@
+package metadata.home.school.model;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = "course_waitlist",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "course_id", "student_id" }),
+        indexes = @Index(name = "idx_course_waitlist_course", columnList = "course_id, id"))
+public class WaitlistEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Integer id;
+
+    @Column(name = "course_id", nullable = false)
+    private Integer courseId;
+
+    @Column(name = "student_id", nullable = false)
+    private Integer studentId;
+
+    public WaitlistEntry(){
+    }
+
+    public WaitlistEntry(Integer courseId, Integer studentId){
+        this.courseId = courseId;
+        this.studentId = studentId;
+    }
+
+    public Integer getId(){
+        return id;
+    }
+
+    public Integer getCourseId(){
+        return courseId;
+    }
+
+    public Integer getStudentId(){
+        return studentId;
+    }
+}
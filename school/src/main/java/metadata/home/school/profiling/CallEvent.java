@@ -0,0 +1,25 @@
+package metadata.home.school.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * A timed call into the application, recorded only while a flight recording is running.
+ */
+@Category("School")
+@StackTrace(false)
+abstract class CallEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Entity Id")
+    String entityId;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Failed")
+    boolean failed;
+}
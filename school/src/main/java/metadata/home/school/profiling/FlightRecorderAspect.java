@@ -0,0 +1,118 @@
+package metadata.home.school.profiling;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.ServiceResponse;
+import metadata.home.school.model.Student;
+import metadata.home.school.repository.StudentRepository;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Emits a JFR event around every service and repository call, with the entity id it was given and the number of rows
+ * it returned. Outside a recording the events are disabled and a call costs one enabled check. Runs outside the
+ * transaction advice so a service event includes the flush and commit.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class FlightRecorderAspect {
+    @Around("within(metadata.home.school.service..*)")
+    public Object recordService(ProceedingJoinPoint call) throws Throwable {
+        return record(new ServiceCallEvent(), call);
+    }
+
+    @Around("within(metadata.home.school.repository..*) || this(org.springframework.data.repository.Repository)")
+    public Object recordRepository(ProceedingJoinPoint call) throws Throwable {
+        return record(new RepositoryCallEvent(), call);
+    }
+
+    private static Object record(CallEvent event, ProceedingJoinPoint call) throws Throwable {
+        if(!event.isEnabled()){
+            return call.proceed();
+        }
+        event.begin();
+        try{
+            var result = call.proceed();
+            event.rows = rows(result);
+            return result;
+        }catch (Throwable e){
+            event.failed = true;
+            throw e;
+        }finally{
+            event.end();
+            if(event.shouldCommit()){
+                event.operation = typeName(call.getThis()) + "." + call.getSignature().getName();
+                event.entityId = entityId(call.getArgs());
+                event.commit();
+            }
+        }
+    }
+
+    private static String typeName(Object proxy){
+        // name repositories after the contract they implement, not the JPA proxy or JDBC class behind it
+        var type = ClassUtils.getUserClass(proxy);
+        var interfaces = proxy instanceof Repository ? AopProxyUtils.proxiedUserInterfaces(proxy) : type.getInterfaces();
+        for (var contract: interfaces) {
+            if(contract.getPackage() == StudentRepository.class.getPackage()){
+                for (var parent: contract.getInterfaces()) {
+                    if(parent.getPackage() == StudentRepository.class.getPackage() && !Repository.class.isAssignableFrom(parent)){
+                        return parent.getSimpleName();
+                    }
+                }
+                return contract.getSimpleName();
+            }
+        }
+        return type.getSimpleName();
+    }
+
+    private static String entityId(Object[] args){
+        if(args.length == 0){
+            return null;
+        }
+        var first = args[0];
+        if(first instanceof Integer || first instanceof String){
+            return first.toString();
+        }
+        if(first instanceof Student){
+            return String.valueOf(((Student) first).getId());
+        }
+        if(first instanceof Course){
+            return String.valueOf(((Course) first).getId());
+        }
+        return null;
+    }
+
+    private static int rows(Object result){
+        if(result instanceof ServiceResponse){
+            return rows(((ServiceResponse<?>) result).getResult());
+        }
+        if(result instanceof Collection){
+            return ((Collection<?>) result).size();
+        }
+        if(result instanceof Map){
+            return ((Map<?, ?>) result).size();
+        }
+        if(result instanceof Slice){
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if(result instanceof Optional){
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if(result instanceof Number){
+            return ((Number) result).intValue();
+        }
+        return result instanceof Student || result instanceof Course ? 1 : 0;
+    }
+}
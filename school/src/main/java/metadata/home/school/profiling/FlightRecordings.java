@@ -0,0 +1,107 @@
+package metadata.home.school.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import metadata.home.school.model.ErrorCode;
+import metadata.home.school.model.RecordingInfo;
+import metadata.home.school.model.ServiceResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * One in-app flight recording at a time, with the JDK's low overhead "default" settings plus the application events.
+ * A recording stops by itself after its duration and never keeps more than {@code school.profiling.max-size} bytes;
+ * it can be downloaded while running or once stopped, until it is discarded or a new one starts.
+ */
+@Service
+public class FlightRecordings {
+    public static final String NAME = "school";
+    public static final Duration MAX_DURATION = Duration.ofMinutes(10);
+
+    private long maxSize;
+    private Recording recording;
+
+    @Autowired
+    public FlightRecordings(@Value("${school.profiling.max-size:104857600}") long maxSize){
+        this.maxSize = maxSize;
+    }
+
+    public synchronized ServiceResponse<RecordingInfo> start(Duration duration){
+        if(duration.isNegative() || duration.isZero() || duration.compareTo(MAX_DURATION) > 0){
+            return ServiceResponse.invalid(ErrorCode.RECORDING_TOO_LONG, MAX_DURATION);
+        }
+        if(recording != null && recording.getState() == RecordingState.RUNNING){
+            return ServiceResponse.conflict(ErrorCode.RECORDING_IN_PROGRESS);
+        }
+        discard();
+
+        recording = new Recording(defaultConfiguration());
+        recording.setName(NAME);
+        recording.setDuration(duration);
+        recording.setMaxSize(maxSize);
+        recording.setToDisk(true);
+        recording.enable(ServiceCallEvent.NAME);
+        recording.enable(RepositoryCallEvent.NAME);
+        recording.enable(FlushEvent.NAME);
+        recording.start();
+        return ServiceResponse.success(info(recording));
+    }
+
+    public synchronized Optional<RecordingInfo> find(){
+        return recording == null ? Optional.empty() : Optional.of(info(recording));
+    }
+
+    /**
+     * Writes what was recorded so far to a temporary file, which the caller deletes.
+     */
+    public synchronized ServiceResponse<Path> dump(){
+        if(recording == null){
+            return ServiceResponse.notFound(ErrorCode.RECORDING_NOT_FOUND, null);
+        }
+        try{
+            var file = Files.createTempFile("school-", ".jfr");
+            recording.dump(file);
+            return ServiceResponse.success(file);
+        }catch (IOException e){
+            throw new UncheckedIOException("Cannot dump flight recording", e);
+        }
+    }
+
+    /**
+     * Stops the recording and throws its data away.
+     */
+    public synchronized ServiceResponse<RecordingInfo> discard(){
+        if(recording == null){
+            return ServiceResponse.notFound(ErrorCode.RECORDING_NOT_FOUND, null);
+        }
+        var discarded = info(recording);
+        recording.close();
+        recording = null;
+        return ServiceResponse.success(discarded);
+    }
+
+    private static RecordingInfo info(Recording recording){
+        return new RecordingInfo(recording.getName(), recording.getState().name(), recording.getStartTime(),
+                recording.getDuration(), recording.getSize());
+    }
+
+    private static Configuration defaultConfiguration(){
+        try{
+            return Configuration.getConfiguration("default");
+        }catch (IOException e){
+            throw new UncheckedIOException("Cannot read the default flight recorder settings", e);
+        }catch (ParseException e){
+            throw new IllegalStateException("Cannot parse the default flight recorder settings", e);
+        }
+    }
+}
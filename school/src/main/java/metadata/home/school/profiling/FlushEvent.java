@@ -0,0 +1,23 @@
+package metadata.home.school.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name(FlushEvent.NAME)
+@Label("Hibernate Flush")
+@Description("A flush of the persistence context and how much it had to look at")
+@Category("School")
+@StackTrace(false)
+class FlushEvent extends Event {
+    static final String NAME = "metadata.school.Flush";
+
+    @Label("Entities")
+    int entities;
+
+    @Label("Collections")
+    int collections;
+}
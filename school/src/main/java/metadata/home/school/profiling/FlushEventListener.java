@@ -0,0 +1,30 @@
+package metadata.home.school.profiling;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Records every flush of a Hibernate session as a JFR event. Hibernate creates one listener per session.
+ */
+public class FlushEventListener extends BaseSessionEventListener {
+    private FlushEvent flush;
+
+    @Override
+    public void flushStart(){
+        var event = new FlushEvent();
+        if(event.isEnabled()){
+            event.begin();
+            flush = event;
+        }
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections){
+        if(flush == null){
+            return;
+        }
+        flush.entities = numberOfEntities;
+        flush.collections = numberOfCollections;
+        flush.commit();
+        flush = null;
+    }
+}
@@ -0,0 +1,14 @@
+package metadata.home.school.profiling;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ProfilingConfiguration {
+    @Bean
+    public HibernatePropertiesCustomizer flushEvents(){
+        return properties -> properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, FlushEventListener.class.getName());
+    }
+}
@@ -0,0 +1,12 @@
+package metadata.home.school.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(RepositoryCallEvent.NAME)
+@Label("Repository Call")
+@Description("A query or write through one of the repositories")
+class RepositoryCallEvent extends CallEvent {
+    static final String NAME = "metadata.school.RepositoryCall";
+}
@@ -0,0 +1,12 @@
+package metadata.home.school.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(ServiceCallEvent.NAME)
+@Label("Service Call")
+@Description("A call to a StudentService, CourseService or other service method")
+class ServiceCallEvent extends CallEvent {
+    static final String NAME = "metadata.school.ServiceCall";
+}
@@ -0,0 +1,44 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.CourseFilter;
+import metadata.home.school.model.StudentFilter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes students and courses together with their enrollments without loading them.
+ */
+public interface BulkDeleteRepository {
+    /**
+     * Ids of the first students matching the filter, in id order.
+     */
+    List<Integer> findStudentIds(StudentFilter filter, int limit);
+
+    /**
+     * Ids of the first courses matching the filter, in id order.
+     */
+    List<Integer> findCourseIds(CourseFilter filter, int limit);
+
+    /**
+     * Locks the students among the given ids and returns how many courses each one takes.
+     */
+    Map<Integer, Integer> lockStudents(Collection<Integer> ids);
+
+    /**
+     * Locks the courses among the given ids and returns the ones found.
+     */
+    List<Integer> lockCourses(Collection<Integer> ids);
+
+    /**
+     * Number of the given students enrolled in each course, which is the number of seats their removal frees.
+     */
+    Map<Integer, Integer> countSeatsOfStudents(Collection<Integer> studentIds);
+
+    List<Integer> findStudentsOfCourses(Collection<Integer> courseIds);
+
+    int deleteStudents(Collection<Integer> ids);
+
+    int deleteCourses(Collection<Integer> ids);
+}
@@ -0,0 +1,47 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.Change;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Appends to and reads the change log. The sequence is assigned as entries are inserted.
+ */
+public interface ChangeLogRepository {
+    void insert(List<Change> changes, Instant recordedAt);
+
+    /**
+     * Up to limit entries after the given sequence number, in sequence order.
+     */
+    List<Change> findAfter(long seq, int limit);
+
+    /**
+     * The first entries of the log up to limit, locked until the transaction ends so only one relay moves them.
+     */
+    List<Change> lockFirst(int limit);
+
+    /**
+     * The lowest sequence number still in the log, null if nothing was ever recorded.
+     */
+    Long findFirstSeq();
+
+    /**
+     * The sequence number of the latest entry, 0 if nothing was ever recorded.
+     */
+    long findLastSeq();
+
+    /**
+     * The sequence number of the latest entry recorded before the given instant, null if there is none.
+     */
+    Long findLastSeqBefore(Instant recordedAt);
+
+    void delete(Collection<Long> seqs);
+
+    /**
+     * Deletes the entries recorded before the given instant, always keeping the latest one so the log never looks
+     * like it was never written to.
+     */
+    int deleteBefore(Instant recordedAt);
+}
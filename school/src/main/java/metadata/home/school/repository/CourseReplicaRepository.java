@@ -0,0 +1,12 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.Course;
+
+/**
+ * Writes course rows verbatim, keeping the id assigned by the default shard, on whichever shard the caller is routed to.
+ */
+public interface CourseReplicaRepository {
+    void upsert(Course course);
+
+    void delete(Integer id);
+}
@@ -1,12 +1,37 @@
 package metadata.home.school.repository;
 
 import metadata.home.school.model.Course;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
+import metadata.home.school.model.CourseFilter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
+/**
+ * The course queries the services use, answered from the database by {@link JpaCourseRepository} and from the
+ * embedded store by EmbeddedCourseRepository with the "embedded" profile.
+ */
+public interface CourseRepository {
+    Optional<Course> findById(Integer id);
+    boolean existsById(Integer id);
+    List<Course> findAll();
+
+    /**
+     * One page of the courses matching the filter, see {@link FilterSpecifications#forCourses(CourseFilter)}.
+     */
+    Page<Course> findAll(CourseFilter filter, Pageable pageable);
 
-@Repository
-public interface CourseRepository extends JpaRepository<Course, Integer> {
     Course findByName(String name);
+    boolean existsByNameAndIdNot(String name, Integer id);
     List<Course> findByStudentsIsEmpty();
+    List<Course> findByIdIn(Collection<Integer> ids);
+
+    /**
+     * Saves the course; its students are the inverse side of the enrollments and aren't written.
+     */
+    <S extends Course> S save(S course);
+
+    void delete(Course course);
 }
@@ -0,0 +1,109 @@
+package metadata.home.school.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Set-based access to the enrollments for operations that touch many of them at once, and to the enrollment counts
+ * kept on the students and courses.
+ */
+public interface EnrollmentRepository {
+    /**
+     * Takes a row lock on the course so concurrent batches against it run one after the other.
+     */
+    boolean lockCourse(Integer courseId);
+
+    int countStudents(Integer courseId);
+
+    /**
+     * Resolves school ids to students together with how many courses each one has and whether it already takes the course.
+     */
+    List<EnrollmentCandidate> findCandidates(Integer courseId, Collection<String> schoolIds);
+
+    /**
+     * Same as {@link #findCandidates(Integer, Collection)} for students already known by id.
+     */
+    List<EnrollmentCandidate> findCandidatesById(Integer courseId, Collection<Integer> studentIds);
+
+    List<Integer> findCourseIds(Integer studentId);
+
+    /**
+     * The ids of the courses each of the students takes, by student id; students without courses are left out.
+     */
+    Map<Integer, List<Integer>> findCourseIds(Collection<Integer> studentIds);
+
+    /**
+     * The students of the course as id to school id.
+     */
+    Map<Integer, String> findSchoolIds(Integer courseId);
+
+    void insert(Integer courseId, List<Integer> studentIds);
+
+    int delete(Integer courseId, Collection<Integer> studentIds);
+
+    /**
+     * Recomputes the course count of the given students from their enrollments. Returns how many of them moved in or
+     * out of each course count; concurrent refreshes of a student can't both report it.
+     */
+    Map<Integer, Integer> refreshCourseCounts(Collection<Integer> studentIds);
+
+    void refreshAllCourseCounts();
+
+    /**
+     * Recomputes the student count of the given courses from their enrollments.
+     */
+    void refreshStudentCounts(Collection<Integer> courseIds);
+
+    void refreshAllStudentCounts();
+
+    /**
+     * Number of students enrolled in each of the given courses, courses without any are left out.
+     */
+    Map<Integer, Integer> countStudents(Collection<Integer> courseIds);
+
+    Map<Integer, Integer> countAllStudents();
+
+    /**
+     * Streams every enrollment as (student id, course id) without collecting them into a list.
+     */
+    void forEachEnrollment(BiConsumer<Integer, Integer> enrollment);
+
+    void resetStudentCounts();
+
+    /**
+     * Writes the student counts of the courses as given, for totals that were added up across shards.
+     */
+    void updateStudentCounts(Map<Integer, Integer> counts);
+
+    class EnrollmentCandidate {
+        private final Integer studentId;
+        private final String schoolId;
+        private final int courseCount;
+        private final boolean enrolled;
+
+        public EnrollmentCandidate(Integer studentId, String schoolId, int courseCount, boolean enrolled){
+            this.studentId = studentId;
+            this.schoolId = schoolId;
+            this.courseCount = courseCount;
+            this.enrolled = enrolled;
+        }
+
+        public Integer getStudentId(){
+            return studentId;
+        }
+
+        public String getSchoolId(){
+            return schoolId;
+        }
+
+        public int getCourseCount(){
+            return courseCount;
+        }
+
+        public boolean isEnrolled(){
+            return enrolled;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.CourseFilter;
+import metadata.home.school.model.Student;
+import metadata.home.school.model.StudentFilter;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.JoinType;
+
+/**
+ * Builds the queries behind the list filters. Each filter maps to a condition an index can answer: names by prefix
+ * range, counts on the denormalized count columns and courses of a student through the join table.
+ */
+public final class FilterSpecifications {
+    private FilterSpecifications(){
+    }
+
+    public static Specification<Student> forStudents(StudentFilter filter){
+        Specification<Student> specification = Specification.where(null);
+        if(filter.getName() != null && !filter.getName().isEmpty()){
+            specification = specification.and(startsWith("name", filter.getName()));
+        }
+        if(filter.getCourse() != null && !filter.getCourse().isEmpty()){
+            specification = specification.and((root, query, builder) ->
+                    builder.equal(root.join("courses", JoinType.INNER).get("name"), filter.getCourse()));
+        }
+        if(filter.getMinCourses() != null){
+            specification = specification.and((root, query, builder) ->
+                    builder.greaterThanOrEqualTo(root.<Integer>get("courseCount"), filter.getMinCourses()));
+        }
+        if(filter.getMaxCourses() != null){
+            specification = specification.and((root, query, builder) ->
+                    builder.lessThanOrEqualTo(root.<Integer>get("courseCount"), filter.getMaxCourses()));
+        }
+        return specification;
+    }
+
+    public static Specification<Course> forCourses(CourseFilter filter){
+        Specification<Course> specification = Specification.where(null);
+        if(filter.getName() != null && !filter.getName().isEmpty()){
+            specification = specification.and(startsWith("name", filter.getName()));
+        }
+        if(filter.getMinStudents() != null){
+            specification = specification.and((root, query, builder) ->
+                    builder.greaterThanOrEqualTo(root.<Integer>get("studentCount"), filter.getMinStudents()));
+        }
+        if(filter.getMaxStudents() != null){
+            specification = specification.and((root, query, builder) ->
+                    builder.lessThanOrEqualTo(root.<Integer>get("studentCount"), filter.getMaxStudents()));
+        }
+        return specification;
+    }
+
+    /**
+     * A prefix as the range [prefix, next prefix). Unlike a bound LIKE pattern, every database can run it on the index.
+     */
+    private static <T> Specification<T> startsWith(String attribute, String prefix){
+        var last = prefix.charAt(prefix.length() - 1);
+        if(last == Character.MAX_VALUE){
+            return (root, query, builder) -> builder.greaterThanOrEqualTo(root.<String>get(attribute), prefix);
+        }
+        var next = prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+        return (root, query, builder) -> builder.and(
+                builder.greaterThanOrEqualTo(root.<String>get(attribute), prefix),
+                builder.lessThan(root.<String>get(attribute), next));
+    }
+}
@@ -0,0 +1,125 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.CourseFilter;
+import metadata.home.school.model.Student;
+import metadata.home.school.model.StudentFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes with set-based statements. Nothing is loaded into the persistence context: the rows are locked and read as
+ * plain values, then removed a chunk of ids at a time.
+ */
+@Repository
+@Profile("!embedded")
+public class JdbcBulkDeleteRepository implements BulkDeleteRepository {
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public JdbcBulkDeleteRepository(NamedParameterJdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Integer> findStudentIds(StudentFilter filter, int limit){
+        return findIds(Student.class, FilterSpecifications.forStudents(filter), limit);
+    }
+
+    @Override
+    public List<Integer> findCourseIds(CourseFilter filter, int limit){
+        return findIds(Course.class, FilterSpecifications.forCourses(filter), limit);
+    }
+
+    /**
+     * Only the id column is selected.
+     */
+    private <T> List<Integer> findIds(Class<T> type, Specification<T> specification, int limit){
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(Integer.class);
+        var root = query.from(type);
+        query.select(root.<Integer>get("id"))
+                .where(specification.toPredicate(root, query, builder))
+                .orderBy(builder.asc(root.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Map<Integer, Integer> lockStudents(Collection<Integer> ids){
+        var courseCounts = new HashMap<Integer, Integer>();
+        for (var chunk: JdbcEnrollmentRepository.chunks(ids)) {
+            jdbcTemplate.query("select id, course_count from student where id in (:ids) for update",
+                    new MapSqlParameterSource("ids", chunk),
+                    rs -> { courseCounts.put(rs.getInt("id"), rs.getInt("course_count")); });
+        }
+        return courseCounts;
+    }
+
+    @Override
+    public List<Integer> lockCourses(Collection<Integer> ids){
+        var found = new ArrayList<Integer>();
+        for (var chunk: JdbcEnrollmentRepository.chunks(ids)) {
+            found.addAll(jdbcTemplate.queryForList("select id from course where id in (:ids) for update",
+                    new MapSqlParameterSource("ids", chunk), Integer.class));
+        }
+        return found;
+    }
+
+    @Override
+    public Map<Integer, Integer> countSeatsOfStudents(Collection<Integer> studentIds){
+        var seats = new HashMap<Integer, Integer>();
+        for (var chunk: JdbcEnrollmentRepository.chunks(studentIds)) {
+            jdbcTemplate.query("select course_id, count(*) as students from student_course where student_id in (:ids) group by course_id",
+                    new MapSqlParameterSource("ids", chunk),
+                    rs -> { seats.merge(rs.getInt("course_id"), rs.getInt("students"), Integer::sum); });
+        }
+        return seats;
+    }
+
+    @Override
+    public List<Integer> findStudentsOfCourses(Collection<Integer> courseIds){
+        var students = new ArrayList<Integer>();
+        for (var chunk: JdbcEnrollmentRepository.chunks(courseIds)) {
+            students.addAll(jdbcTemplate.queryForList("select distinct student_id from student_course where course_id in (:ids)",
+                    new MapSqlParameterSource("ids", chunk), Integer.class));
+        }
+        return students;
+    }
+
+    @Override
+    public int deleteStudents(Collection<Integer> ids){
+        var deleted = 0;
+        for (var chunk: JdbcEnrollmentRepository.chunks(ids)) {
+            var parameters = new MapSqlParameterSource("ids", chunk);
+            jdbcTemplate.update("delete from student_course where student_id in (:ids)", parameters);
+            deleted += jdbcTemplate.update("delete from student where id in (:ids)", parameters);
+        }
+        return deleted;
+    }
+
+    @Override
+    public int deleteCourses(Collection<Integer> ids){
+        var deleted = 0;
+        for (var chunk: JdbcEnrollmentRepository.chunks(ids)) {
+            var parameters = new MapSqlParameterSource("ids", chunk);
+            jdbcTemplate.update("delete from student_course where course_id in (:ids)", parameters);
+            deleted += jdbcTemplate.update("delete from course where id in (:ids)", parameters);
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,93 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.Change;
+import metadata.home.school.model.ChangeType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the change log in the change_log table, whose sequence is assigned by the database as rows are inserted.
+ */
+@Repository
+@Profile("!embedded")
+public class JdbcChangeLogRepository implements ChangeLogRepository {
+    private static final RowMapper<Change> CHANGE_MAPPER = (rs, row) -> {
+        var change = new Change(rs.getLong("seq"), ChangeType.valueOf(rs.getString("type")), rs.getInt("entity_id"),
+                (Integer) rs.getObject("course_id"), rs.getBoolean("deleted"));
+        change.setRecordedAt(rs.getTimestamp("recorded_at").toInstant());
+        return change;
+    };
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcChangeLogRepository(NamedParameterJdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insert(List<Change> changes, Instant recordedAt){
+        var batch = new MapSqlParameterSource[changes.size()];
+        for(var i = 0; i < batch.length; i++){
+            var change = changes.get(i);
+            batch[i] = new MapSqlParameterSource("type", change.getType().name())
+                    .addValue("id", change.getId())
+                    .addValue("courseId", change.getCourseId())
+                    .addValue("deleted", change.isDeleted())
+                    .addValue("recordedAt", Timestamp.from(recordedAt));
+        }
+        jdbcTemplate.batchUpdate("insert into change_log (type, entity_id, course_id, deleted, recorded_at) " +
+                "values (:type, :id, :courseId, :deleted, :recordedAt)", batch);
+    }
+
+    @Override
+    public List<Change> findAfter(long seq, int limit){
+        return jdbcTemplate.query("select seq, type, entity_id, course_id, deleted, recorded_at from change_log where seq > :seq order by seq limit :limit",
+                new MapSqlParameterSource("seq", seq).addValue("limit", limit), CHANGE_MAPPER);
+    }
+
+    @Override
+    public List<Change> lockFirst(int limit){
+        return jdbcTemplate.query("select seq, type, entity_id, course_id, deleted, recorded_at from change_log order by seq limit :limit for update",
+                new MapSqlParameterSource("limit", limit), CHANGE_MAPPER);
+    }
+
+    @Override
+    public Long findFirstSeq(){
+        return jdbcTemplate.getJdbcTemplate().queryForObject("select min(seq) from change_log", Long.class);
+    }
+
+    @Override
+    public long findLastSeq(){
+        var last = jdbcTemplate.getJdbcTemplate().queryForObject("select max(seq) from change_log", Long.class);
+        return last == null ? 0 : last;
+    }
+
+    @Override
+    public Long findLastSeqBefore(Instant recordedAt){
+        return jdbcTemplate.queryForObject("select max(seq) from change_log where recorded_at < :recordedAt",
+                new MapSqlParameterSource("recordedAt", Timestamp.from(recordedAt)), Long.class);
+    }
+
+    @Override
+    public void delete(Collection<Long> seqs){
+        jdbcTemplate.update("delete from change_log where seq in (:seqs)", new MapSqlParameterSource("seqs", seqs));
+    }
+
+    @Override
+    public int deleteBefore(Instant recordedAt){
+        // MySQL can't read the table it deletes from in a subquery, so the latest entry is looked up first
+        var last = findLastSeq();
+        return jdbcTemplate.update("delete from change_log where recorded_at < :recordedAt and seq < :last",
+                new MapSqlParameterSource("recordedAt", Timestamp.from(recordedAt)).addValue("last", last));
+    }
+}
@@ -0,0 +1,37 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.TimeSlotsConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@Profile("!embedded")
+public class JdbcCourseReplicaRepository implements CourseReplicaRepository {
+    private static final TimeSlotsConverter SCHEDULE_CONVERTER = new TimeSlotsConverter();
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcCourseReplicaRepository(JdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void upsert(Course course){
+        var schedule = SCHEDULE_CONVERTER.convertToDatabaseColumn(course.getSchedule());
+        var updated = jdbcTemplate.update("update course set name = ?, schedule = ? where id = ?",
+                course.getName(), schedule, course.getId());
+        if(updated == 0){
+            jdbcTemplate.update("insert into course (id, name, schedule) values (?, ?, ?)", course.getId(), course.getName(), schedule);
+        }
+    }
+
+    @Override
+    public void delete(Integer id){
+        jdbcTemplate.update("delete from student_course where course_id = ?", id);
+        jdbcTemplate.update("delete from course where id = ?", id);
+    }
+}
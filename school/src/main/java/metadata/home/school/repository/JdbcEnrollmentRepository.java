@@ -0,0 +1,213 @@
+package metadata.home.school.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs the enrollment operations on the student_course join table. Id lists are sent in chunks so very large batches
+ * don't exceed the database's parameter limits.
+ */
+@Repository
+@Profile("!embedded")
+public class JdbcEnrollmentRepository implements EnrollmentRepository {
+    static final int CHUNK_SIZE = 1000;
+
+    private static final String CANDIDATES = "select s.id, s.school_id, " +
+            "(select count(*) from student_course sc where sc.student_id = s.id) as course_count, " +
+            "(select count(*) from student_course sc where sc.student_id = s.id and sc.course_id = :courseId) as enrolled " +
+            "from student s ";
+
+    private static final RowMapper<EnrollmentCandidate> CANDIDATE_MAPPER = (rs, row) ->
+            new EnrollmentCandidate(rs.getInt("id"), rs.getString("school_id"), rs.getInt("course_count"), rs.getInt("enrolled") > 0);
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcEnrollmentRepository(NamedParameterJdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean lockCourse(Integer courseId){
+        var ids = jdbcTemplate.queryForList("select id from course where id = :courseId for update",
+                new MapSqlParameterSource("courseId", courseId), Integer.class);
+        return !ids.isEmpty();
+    }
+
+    @Override
+    public int countStudents(Integer courseId){
+        return jdbcTemplate.queryForObject("select count(*) from student_course where course_id = :courseId",
+                new MapSqlParameterSource("courseId", courseId), Integer.class);
+    }
+
+    @Override
+    public List<EnrollmentCandidate> findCandidates(Integer courseId, Collection<String> schoolIds){
+        var candidates = new ArrayList<EnrollmentCandidate>();
+        for (var chunk: chunks(schoolIds)) {
+            var parameters = new MapSqlParameterSource("courseId", courseId).addValue("schoolIds", chunk);
+            candidates.addAll(jdbcTemplate.query(CANDIDATES + "where s.school_id in (:schoolIds)", parameters, CANDIDATE_MAPPER));
+        }
+        return candidates;
+    }
+
+    @Override
+    public List<EnrollmentCandidate> findCandidatesById(Integer courseId, Collection<Integer> studentIds){
+        var candidates = new ArrayList<EnrollmentCandidate>();
+        for (var chunk: chunks(studentIds)) {
+            var parameters = new MapSqlParameterSource("courseId", courseId).addValue("studentIds", chunk);
+            candidates.addAll(jdbcTemplate.query(CANDIDATES + "where s.id in (:studentIds)", parameters, CANDIDATE_MAPPER));
+        }
+        return candidates;
+    }
+
+    @Override
+    public List<Integer> findCourseIds(Integer studentId){
+        return jdbcTemplate.queryForList("select course_id from student_course where student_id = :studentId",
+                new MapSqlParameterSource("studentId", studentId), Integer.class);
+    }
+
+    @Override
+    public Map<Integer, List<Integer>> findCourseIds(Collection<Integer> studentIds){
+        var courseIds = new HashMap<Integer, List<Integer>>();
+        for (var chunk: chunks(studentIds)) {
+            jdbcTemplate.query("select student_id, course_id from student_course where student_id in (:studentIds)",
+                    new MapSqlParameterSource("studentIds", chunk),
+                    rs -> { courseIds.computeIfAbsent(rs.getInt("student_id"), student -> new ArrayList<>()).add(rs.getInt("course_id")); });
+        }
+        return courseIds;
+    }
+
+    @Override
+    public Map<Integer, String> findSchoolIds(Integer courseId){
+        var schoolIds = new HashMap<Integer, String>();
+        jdbcTemplate.query("select s.id, s.school_id from student s join student_course sc on sc.student_id = s.id where sc.course_id = :courseId",
+                new MapSqlParameterSource("courseId", courseId),
+                rs -> { schoolIds.put(rs.getInt("id"), rs.getString("school_id")); });
+        return schoolIds;
+    }
+
+    @Override
+    public void insert(Integer courseId, List<Integer> studentIds){
+        var batch = new MapSqlParameterSource[studentIds.size()];
+        for(var i = 0; i < batch.length; i++){
+            batch[i] = new MapSqlParameterSource("studentId", studentIds.get(i)).addValue("courseId", courseId);
+        }
+        jdbcTemplate.batchUpdate("insert into student_course (student_id, course_id) values (:studentId, :courseId)", batch);
+    }
+
+    @Override
+    public int delete(Integer courseId, Collection<Integer> studentIds){
+        var deleted = 0;
+        for (var chunk: chunks(studentIds)) {
+            deleted += jdbcTemplate.update("delete from student_course where course_id = :courseId and student_id in (:studentIds)",
+                    new MapSqlParameterSource("courseId", courseId).addValue("studentIds", chunk));
+        }
+        return deleted;
+    }
+
+    @Override
+    public Map<Integer, Integer> refreshCourseCounts(Collection<Integer> studentIds){
+        var moved = new HashMap<Integer, Integer>();
+        for (var chunk: chunks(studentIds)) {
+            var parameters = new MapSqlParameterSource("studentIds", chunk);
+            jdbcTemplate.query("select course_count from student where id in (:studentIds) for update", parameters,
+                    rs -> { moved.merge(rs.getInt("course_count"), -1, Integer::sum); });
+            jdbcTemplate.update("update student set course_count = " +
+                    "(select count(*) from student_course sc where sc.student_id = student.id) where id in (:studentIds)",
+                    parameters);
+            jdbcTemplate.query("select course_count from student where id in (:studentIds)", parameters,
+                    rs -> { moved.merge(rs.getInt("course_count"), 1, Integer::sum); });
+        }
+        moved.values().removeIf(count -> count == 0);
+        return moved;
+    }
+
+    @Override
+    public void refreshAllCourseCounts(){
+        jdbcTemplate.getJdbcTemplate().update("update student set course_count = " +
+                "(select count(*) from student_course sc where sc.student_id = student.id)");
+    }
+
+    @Override
+    public void refreshStudentCounts(Collection<Integer> courseIds){
+        for (var chunk: chunks(courseIds)) {
+            jdbcTemplate.update("update course set student_count = " +
+                    "(select count(*) from student_course sc where sc.course_id = course.id) where id in (:courseIds)",
+                    new MapSqlParameterSource("courseIds", chunk));
+        }
+    }
+
+    @Override
+    public void refreshAllStudentCounts(){
+        jdbcTemplate.getJdbcTemplate().update("update course set student_count = " +
+                "(select count(*) from student_course sc where sc.course_id = course.id)");
+    }
+
+    @Override
+    public Map<Integer, Integer> countStudents(Collection<Integer> courseIds){
+        var counts = new HashMap<Integer, Integer>();
+        for (var chunk: chunks(courseIds)) {
+            jdbcTemplate.query("select course_id, count(*) as students from student_course where course_id in (:courseIds) group by course_id",
+                    new MapSqlParameterSource("courseIds", chunk),
+                    rs -> { counts.put(rs.getInt("course_id"), rs.getInt("students")); });
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<Integer, Integer> countAllStudents(){
+        var counts = new HashMap<Integer, Integer>();
+        jdbcTemplate.getJdbcTemplate().query("select course_id, count(*) as students from student_course group by course_id",
+                rs -> { counts.put(rs.getInt("course_id"), rs.getInt("students")); });
+        return counts;
+    }
+
+    @Override
+    public void forEachEnrollment(BiConsumer<Integer, Integer> enrollment){
+        jdbcTemplate.getJdbcTemplate().query("select student_id, course_id from student_course",
+                rs -> { enrollment.accept(rs.getInt("student_id"), rs.getInt("course_id")); });
+    }
+
+    @Override
+    public void resetStudentCounts(){
+        jdbcTemplate.getJdbcTemplate().update("update course set student_count = 0");
+    }
+
+    @Override
+    public void updateStudentCounts(Map<Integer, Integer> counts){
+        var batch = new MapSqlParameterSource[counts.size()];
+        var i = 0;
+        for (var count: counts.entrySet()) {
+            batch[i++] = new MapSqlParameterSource("courseId", count.getKey()).addValue("students", count.getValue());
+        }
+        jdbcTemplate.batchUpdate("update course set student_count = :students where id = :courseId", batch);
+    }
+
+    static <T> List<List<T>> chunks(Collection<T> values){
+        var chunks = new ArrayList<List<T>>();
+        var current = new ArrayList<T>(Math.min(values.size(), CHUNK_SIZE));
+        for (var value: values) {
+            current.add(value);
+            if(current.size() == CHUNK_SIZE){
+                chunks.add(current);
+                current = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if(!current.isEmpty()){
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+}
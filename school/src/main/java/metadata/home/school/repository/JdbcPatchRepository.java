@@ -0,0 +1,67 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.CoursePatch;
+import metadata.home.school.model.StudentPatch;
+import metadata.home.school.model.TimeSlotsConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a patch with one update setting only the columns the patch names, so a rename is a single statement on the
+ * entity's own table.
+ */
+@Repository
+@Profile("!embedded")
+public class JdbcPatchRepository implements PatchRepository {
+    private static final TimeSlotsConverter SCHEDULE_CONVERTER = new TimeSlotsConverter();
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcPatchRepository(NamedParameterJdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int updateStudent(Integer id, StudentPatch patch){
+        var columns = new ArrayList<String>();
+        var parameters = new MapSqlParameterSource("id", id);
+        if(patch.hasSchoolId()){
+            columns.add("school_id = :schoolId");
+            parameters.addValue("schoolId", patch.getSchoolId());
+        }
+        if(patch.hasName()){
+            columns.add("name = :name");
+            parameters.addValue("name", patch.getName());
+        }
+        return update("student", columns, parameters);
+    }
+
+    @Override
+    public int updateCourse(Integer id, CoursePatch patch){
+        var columns = new ArrayList<String>();
+        var parameters = new MapSqlParameterSource("id", id);
+        if(patch.hasName()){
+            columns.add("name = :name");
+            parameters.addValue("name", patch.getName());
+        }
+        if(patch.hasSchedule()){
+            columns.add("schedule = :schedule");
+            parameters.addValue("schedule", SCHEDULE_CONVERTER.convertToDatabaseColumn(patch.getSchedule()));
+        }
+        return update("course", columns, parameters);
+    }
+
+    private int update(String table, List<String> columns, MapSqlParameterSource parameters){
+        if(columns.isEmpty()){
+            return -1;
+        }
+        return jdbcTemplate.update("update " + table + " set " + String.join(", ", columns) + " where id = :id", parameters);
+    }
+}
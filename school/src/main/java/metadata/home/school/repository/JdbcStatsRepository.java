@@ -0,0 +1,57 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.CourseFill;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the buckets in the enrollment_bucket summary table and reads the per-course counts from course.student_count.
+ */
+@Repository
+@Profile("!embedded")
+public class JdbcStatsRepository implements StatsRepository {
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcStatsRepository(JdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void adjustBuckets(Map<Integer, Integer> deltas){
+        for (var delta: deltas.entrySet()) {
+            var updated = jdbcTemplate.update("update enrollment_bucket set students = students + ? where course_count = ?",
+                    delta.getValue(), delta.getKey());
+            if(updated == 0){
+                jdbcTemplate.update("insert into enrollment_bucket (course_count, students) values (?, ?)", delta.getKey(), delta.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void rebuildBuckets(){
+        jdbcTemplate.update("delete from enrollment_bucket");
+        jdbcTemplate.update("insert into enrollment_bucket (course_count, students) " +
+                "select course_count, count(*) from student group by course_count");
+    }
+
+    @Override
+    public Map<Integer, Integer> findBuckets(){
+        var buckets = new TreeMap<Integer, Integer>();
+        jdbcTemplate.query("select course_count, students from enrollment_bucket",
+                rs -> { buckets.put(rs.getInt("course_count"), rs.getInt("students")); });
+        return buckets;
+    }
+
+    @Override
+    public List<CourseFill> findCourseFills(int capacity){
+        return jdbcTemplate.query("select id, name, student_count from course order by id",
+                (rs, row) -> new CourseFill(rs.getInt("id"), rs.getString("name"), rs.getInt("student_count"), capacity));
+    }
+}
@@ -0,0 +1,26 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.CourseFilter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Profile("!embedded")
+public interface JpaCourseRepository extends CourseRepository, JpaRepository<Course, Integer>, JpaSpecificationExecutor<Course> {
+    @Override
+    default Page<Course> findAll(CourseFilter filter, Pageable pageable){
+        return findAll(FilterSpecifications.forCourses(filter), pageable);
+    }
+
+    @Override
+    @EntityGraph(attributePaths = "students")
+    List<Course> findByIdIn(Collection<Integer> ids);
+}
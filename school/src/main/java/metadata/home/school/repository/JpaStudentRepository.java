@@ -0,0 +1,30 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.Student;
+import metadata.home.school.model.StudentFilter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Profile("!embedded")
+public interface JpaStudentRepository extends StudentRepository, JpaRepository<Student, Integer>, JpaSpecificationExecutor<Student> {
+    @Override
+    default Page<Student> findAll(StudentFilter filter, Pageable pageable){
+        return findAll(FilterSpecifications.forStudents(filter), pageable);
+    }
+
+    @Override
+    @EntityGraph(attributePaths = "courses")
+    List<Student> findDistinctByCoursesId(Integer courseId);
+
+    @Override
+    @EntityGraph(attributePaths = "courses")
+    List<Student> findByIdIn(Collection<Integer> ids);
+}
@@ -0,0 +1,39 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.WaitlistEntry;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+@Repository
+@Profile("!embedded")
+public interface JpaWaitlistRepository extends WaitlistRepository, JpaRepository<WaitlistEntry, Integer> {
+    @Override
+    @Transactional
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.courseId = ?1")
+    void deleteByCourseId(Integer courseId);
+
+    @Override
+    @Transactional
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.studentId = ?1")
+    void deleteByStudentId(Integer studentId);
+
+    @Override
+    @Transactional
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.studentId in ?1")
+    void deleteByStudentIdIn(Collection<Integer> studentIds);
+
+    @Override
+    @Transactional
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.courseId in ?1")
+    void deleteByCourseIdIn(Collection<Integer> courseIds);
+}
@@ -0,0 +1,19 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.CoursePatch;
+import metadata.home.school.model.StudentPatch;
+
+/**
+ * Applies the scalar members of a merge patch without loading the row or touching its collections.
+ */
+public interface PatchRepository {
+    /**
+     * Returns how many rows were updated, or -1 when the patch has no scalar members and nothing was sent.
+     */
+    int updateStudent(Integer id, StudentPatch patch);
+
+    /**
+     * Same as {@link #updateStudent(Integer, StudentPatch)} for a course, on whichever shard the caller is routed to.
+     */
+    int updateCourse(Integer id, CoursePatch patch);
+}
@@ -0,0 +1,25 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.CourseFill;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and maintains the enrollment buckets and the per-course counts behind GET /api/stats.
+ */
+public interface StatsRepository {
+    /**
+     * Adds the given number of students to each bucket, negative to take them out.
+     */
+    void adjustBuckets(Map<Integer, Integer> deltas);
+
+    /**
+     * Recomputes every bucket from the students' course counts.
+     */
+    void rebuildBuckets();
+
+    Map<Integer, Integer> findBuckets();
+
+    List<CourseFill> findCourseFills(int capacity);
+}
@@ -1,12 +1,38 @@
 package metadata.home.school.repository;
 
 import metadata.home.school.model.Student;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
+import metadata.home.school.model.StudentFilter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
+/**
+ * The student queries the services use, answered from the database by {@link JpaStudentRepository} and from the
+ * embedded store by EmbeddedStudentRepository with the "embedded" profile.
+ */
+public interface StudentRepository {
+    Optional<Student> findById(Integer id);
+    boolean existsById(Integer id);
+    List<Student> findAll();
+
+    /**
+     * One page of the students matching the filter, see {@link FilterSpecifications#forStudents(StudentFilter)}.
+     */
+    Page<Student> findAll(StudentFilter filter, Pageable pageable);
 
-@Repository
-public interface StudentRepository extends JpaRepository<Student, Integer> {
     Student findBySchoolId(String name);
+    boolean existsBySchoolIdAndIdNot(String schoolId, Integer id);
     List<Student> findByCoursesIsEmpty();
+    List<Student> findDistinctByCoursesId(Integer courseId);
+    List<Student> findByIdIn(Collection<Integer> ids);
+
+    /**
+     * Saves the student together with the courses it takes, which is the owning side of the enrollments.
+     */
+    <S extends Student> S save(S student);
+
+    void delete(Student student);
 }
@@ -0,0 +1,21 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.WaitlistEntry;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The waitlist entries of full courses, answered from the database by {@link JpaWaitlistRepository} or from the
+ * embedded store.
+ */
+public interface WaitlistRepository {
+    List<WaitlistEntry> findByCourseIdOrderByIdAsc(Integer courseId);
+    boolean existsByCourseIdAndStudentId(Integer courseId, Integer studentId);
+    <S extends WaitlistEntry> S save(S entry);
+    void deleteAllInBatch(Iterable<WaitlistEntry> entries);
+    void deleteByCourseId(Integer courseId);
+    void deleteByStudentId(Integer studentId);
+    void deleteByStudentIdIn(Collection<Integer> studentIds);
+    void deleteByCourseIdIn(Collection<Integer> courseIds);
+}
@@ -0,0 +1,172 @@
+package metadata.home.school.service;
+
+import metadata.home.school.model.Change;
+import metadata.home.school.model.ChangePage;
+import metadata.home.school.model.ChangeType;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.ErrorCode;
+import metadata.home.school.model.ServiceResponse;
+import metadata.home.school.model.Student;
+import metadata.home.school.repository.ChangeLogRepository;
+import metadata.home.school.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Reads the change log for mirrors. A page keeps only the latest entry of each student, course and enrollment and
+ * attaches the current state of the students and courses written, loaded with one query per shard; entities deleted
+ * since are reported as tombstones right away.
+ * <p>
+ * Entries are numbered when inserted but visible once their transaction commits, so a reader can see a sequence number
+ * while an earlier one is still uncommitted. A page therefore ends at the first gap followed by an entry recorded less
+ * than {@code school.changes.commit-lag} ago; an older gap is taken for a rolled back write, so the lag has to outlast
+ * the longest write transaction.
+ */
+@Service
+public class ChangeFeedService {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private ChangeLog changeLog;
+    private ChangeLogRepository changeLogRepository;
+    private StudentService studentService;
+    private CourseService courseService;
+    private ShardRouter shardRouter;
+    private Duration commitLag;
+
+    @Autowired
+    public ChangeFeedService(ChangeLog changeLog, ChangeLogRepository changeLogRepository, StudentService studentService,
+                             CourseService courseService, ShardRouter shardRouter,
+                             @Value("${school.changes.commit-lag:PT5S}") Duration commitLag){
+        this.changeLog = changeLog;
+        this.changeLogRepository = changeLogRepository;
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.shardRouter = shardRouter;
+        this.commitLag = commitLag;
+    }
+
+    /**
+     * No changes, only the cursor of the latest one with no uncommitted entry before it: a new mirror takes it before
+     * downloading the full lists.
+     */
+    public ServiceResponse<ChangePage> findCursor(){
+        if(!changeLog.isEnabled()){
+            return ServiceResponse.conflict(ErrorCode.CHANGES_DISABLED);
+        }
+        var cursor = shardRouter.onShard(0, () -> {
+            var settled = changeLogRepository.findLastSeqBefore(Instant.now().minus(commitLag));
+            if(settled == null){
+                var first = changeLogRepository.findFirstSeq();
+                settled = first == null ? 0 : first - 1;
+            }
+            // only the entries younger than the lag can follow a gap that may still fill
+            while(true){
+                var changes = changeLogRepository.findAfter(settled, MAX_LIMIT);
+                var committed = committed(changes, settled);
+                if(committed > 0){
+                    settled = changes.get(committed - 1).getSeq();
+                }
+                if(committed < MAX_LIMIT){
+                    return settled;
+                }
+            }
+        });
+        return ServiceResponse.success(new ChangePage(new ArrayList<>(), cursor, false));
+    }
+
+    /**
+     * Up to limit changes after the cursor. A cursor older than the oldest entry kept is rejected, the changes in
+     * between were pruned.
+     */
+    public ServiceResponse<ChangePage> findChanges(long since, int limit){
+        if(!changeLog.isEnabled()){
+            return ServiceResponse.conflict(ErrorCode.CHANGES_DISABLED);
+        }
+        var first = shardRouter.onShard(0, changeLogRepository::findFirstSeq);
+        if(first != null && since < first - 1){
+            return ServiceResponse.conflict(ErrorCode.CHANGES_CURSOR_EXPIRED, since);
+        }
+
+        var changes = shardRouter.onShard(0, () -> changeLogRepository.findAfter(since, limit + 1));
+        var hasMore = changes.size() > limit;
+        if(hasMore){
+            changes = changes.subList(0, limit);
+        }
+        var committed = committed(changes, since);
+        if(committed < changes.size()){
+            // the rest waits for the gap to fill, polling again right away wouldn't help
+            changes = changes.subList(0, committed);
+            hasMore = false;
+        }
+        var cursor = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq();
+        var latest = latest(changes);
+        attachEntities(latest);
+        return ServiceResponse.success(new ChangePage(latest, cursor, hasMore));
+    }
+
+    /**
+     * How many of the changes, read in sequence order after since, come before a gap that may still fill.
+     */
+    private int committed(List<Change> changes, long since){
+        var settled = Instant.now().minus(commitLag);
+        var previous = since;
+        for(var i = 0; i < changes.size(); i++){
+            var change = changes.get(i);
+            if(change.getSeq() != previous + 1 && change.getRecordedAt().isAfter(settled)){
+                return i;
+            }
+            previous = change.getSeq();
+        }
+        return changes.size();
+    }
+
+    private static List<Change> latest(List<Change> changes){
+        var seen = new HashSet<List<Object>>();
+        var latest = new ArrayList<Change>();
+        for(var i = changes.size() - 1; i >= 0; i--){
+            var change = changes.get(i);
+            if(seen.add(Arrays.asList(change.getType(), change.getId(), change.getCourseId()))){
+                latest.add(change);
+            }
+        }
+        Collections.reverse(latest);
+        return latest;
+    }
+
+    private void attachEntities(List<Change> changes){
+        var studentIds = new HashSet<Integer>();
+        var courseIds = new HashSet<Integer>();
+        for (var change: changes) {
+            if(!change.isDeleted() && change.getType() == ChangeType.STUDENT){
+                studentIds.add(change.getId());
+            }else if(!change.isDeleted() && change.getType() == ChangeType.COURSE){
+                courseIds.add(change.getId());
+            }
+        }
+        var students = new HashMap<Integer, Student>();
+        if(!studentIds.isEmpty()){
+            studentService.findAllById(studentIds).forEach(student -> students.put(student.getId(), student));
+        }
+        var courses = new HashMap<Integer, Course>();
+        if(!courseIds.isEmpty()){
+            shardRouter.onShard(0, () -> courseService.findAllById(courseIds)).forEach(course -> courses.put(course.getId(), course));
+        }
+
+        for (var change: changes) {
+            if(change.isDeleted() || change.getType() == ChangeType.ENROLLMENT){
+                continue;
+            }
+            var entity = change.getType() == ChangeType.STUDENT ? students.get(change.getId()) : courses.get(change.getId());
+            if(entity == null){
+                change.setDeleted(true);
+            }
+            change.setEntity(entity);
+        }
+    }
+}
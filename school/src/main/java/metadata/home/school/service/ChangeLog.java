@@ -0,0 +1,167 @@
+package metadata.home.school.service;
+
+import metadata.home.school.model.Change;
+import metadata.home.school.model.ChangeType;
+import metadata.home.school.repository.ChangeLogRepository;
+import metadata.home.school.sharding.ShardRouter;
+import metadata.home.school.tenancy.Tenants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Appends every write of students, courses and enrollments to the change log read by GET /api/changes. Services record
+ * inside the transaction of the write, and the entry is inserted by that same transaction: the write and its entry
+ * commit together or not at all, so neither a rollback nor a crash right after the commit can make them disagree.
+ * With sharding that transaction is on the shard of the write; a scheduled relay moves the entries of the other shards
+ * to the log on the default shard, which is the one read. Sequence numbers are taken at insert but become visible at
+ * commit, so readers wait for gaps to fill (see {@link ChangeFeedService}). Entries older than
+ * {@code school.changes.retention} are pruned.
+ */
+@Service
+public class ChangeLog {
+    static final int RELAY_BATCH = 500;
+
+    private ChangeLogRepository changeLogRepository;
+    private ShardRouter shardRouter;
+    private Tenants tenants;
+    private boolean enabled;
+    private Duration retention;
+
+    @Autowired
+    public ChangeLog(ChangeLogRepository changeLogRepository, ShardRouter shardRouter, Tenants tenants,
+                     @Value("${school.changes.enabled:false}") boolean enabled,
+                     @Value("${school.changes.retention:P7D}") Duration retention){
+        this.changeLogRepository = changeLogRepository;
+        this.shardRouter = shardRouter;
+        this.tenants = tenants;
+        this.enabled = enabled;
+        this.retention = retention;
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     * The student or course was created or its own columns changed.
+     */
+    public void recordWritten(ChangeType type, Integer id){
+        record(List.of(new Change(null, type, id, null, false)));
+    }
+
+    /**
+     * Tombstones for students or courses; their enrollments went with them.
+     */
+    public void recordDeleted(ChangeType type, Collection<Integer> ids){
+        var changes = new ArrayList<Change>();
+        for (var id: ids) {
+            changes.add(new Change(null, type, id, null, true));
+        }
+        record(changes);
+    }
+
+    /**
+     * Enrollments of one student added to and removed from the given courses.
+     */
+    public void recordCoursesOf(Integer studentId, Collection<Integer> addedCourses, Collection<Integer> removedCourses){
+        var changes = new ArrayList<Change>();
+        for (var courseId: addedCourses) {
+            changes.add(new Change(null, ChangeType.ENROLLMENT, studentId, courseId, false));
+        }
+        for (var courseId: removedCourses) {
+            changes.add(new Change(null, ChangeType.ENROLLMENT, studentId, courseId, true));
+        }
+        record(changes);
+    }
+
+    /**
+     * Enrollments of one course added for and removed from the given students.
+     */
+    public void recordStudentsOf(Integer courseId, Collection<Integer> addedStudents, Collection<Integer> removedStudents){
+        var changes = new ArrayList<Change>();
+        for (var studentId: addedStudents) {
+            changes.add(new Change(null, ChangeType.ENROLLMENT, studentId, courseId, false));
+        }
+        for (var studentId: removedStudents) {
+            changes.add(new Change(null, ChangeType.ENROLLMENT, studentId, courseId, true));
+        }
+        record(changes);
+    }
+
+    private void record(List<Change> changes){
+        if(!enabled || changes.isEmpty()){
+            return;
+        }
+        if(TransactionSynchronizationManager.isActualTransactionActive()){
+            changeLogRepository.insert(changes, Instant.now());
+            return;
+        }
+        // a write that already committed on its own
+        shardRouter.inTransaction(0, () -> {
+            changeLogRepository.insert(changes, Instant.now());
+            return null;
+        });
+    }
+
+    /**
+     * Moves the entries written on the other shards to the default one, in every tenant. An entry is deleted from its
+     * shard after the default shard committed it, so one is copied twice at worst, which readers can't tell from two
+     * writes.
+     */
+    @Scheduled(fixedDelayString = "${school.changes.relay-interval:PT1S}")
+    public void relay(){
+        if(!enabled || !shardRouter.isEnabled()){
+            return;
+        }
+        tenants.forEach(() -> {
+            for(var shard = 1; shard < shardRouter.getShardCount(); shard++){
+                relay(shard);
+            }
+        });
+    }
+
+    private void relay(int shard){
+        var relayed = RELAY_BATCH;
+        while(relayed == RELAY_BATCH){
+            relayed = shardRouter.inTransaction(shard, () -> {
+                // locked, so a relay running elsewhere waits and then finds them gone
+                var changes = changeLogRepository.lockFirst(RELAY_BATCH);
+                if(changes.isEmpty()){
+                    return 0;
+                }
+                shardRouter.inTransaction(0, () -> {
+                    changeLogRepository.insert(changes, Instant.now());
+                    return null;
+                });
+                var seqs = new ArrayList<Long>();
+                for (var change: changes) {
+                    seqs.add(change.getSeq());
+                }
+                changeLogRepository.delete(seqs);
+                return changes.size();
+            });
+        }
+    }
+
+    /**
+     * Deletes the entries older than the retention in every tenant. Mirrors whose cursor falls behind them are told to
+     * download everything again.
+     */
+    @Scheduled(fixedDelayString = "${school.changes.prune-interval:PT1H}")
+    public void prune(){
+        if(!enabled){
+            return;
+        }
+        var cutoff = Instant.now().minus(retention);
+        tenants.forEach(() -> shardRouter.onShard(0, () -> changeLogRepository.deleteBefore(cutoff)));
+    }
+}
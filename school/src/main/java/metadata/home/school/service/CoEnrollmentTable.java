@@ -0,0 +1,154 @@
+package metadata.home.school.service;
+
+import metadata.home.school.model.RelatedCourse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * For every course, the k courses sharing the most students with it. Built from one bitset of students per course:
+ * each pair of courses costs one AND and popcount per 64 students, and the rows of the table are ranked in parallel
+ * on a fork-join pool. The result is kept in flat arrays, k slots per course, and never changes once built.
+ */
+public final class CoEnrollmentTable {
+    static final int ROWS_PER_TASK = 16;
+
+    public static final CoEnrollmentTable EMPTY = new CoEnrollmentTable(new int[0], new String[0], 0, new int[0], new int[0]);
+
+    private final int[] courseIds;
+    private final String[] names;
+    private final int k;
+    private final int[] related;
+    private final int[] shared;
+
+    private CoEnrollmentTable(int[] courseIds, String[] names, int k, int[] related, int[] shared){
+        this.courseIds = courseIds;
+        this.names = names;
+        this.k = k;
+        this.related = related;
+        this.shared = shared;
+    }
+
+    /**
+     * Ranks the courses given as id to name, with their students as a bitset of dense student indexes. Courses without
+     * a bitset have no students; ties are broken by course id.
+     */
+    public static CoEnrollmentTable build(SortedMap<Integer, String> courses, Map<Integer, BitSet> students, int k, ForkJoinPool pool){
+        var n = courses.size();
+        var courseIds = new int[n];
+        var names = new String[n];
+        var words = new long[n][];
+        var i = 0;
+        for (var course: courses.entrySet()) {
+            courseIds[i] = course.getKey();
+            names[i] = course.getValue();
+            var bits = students.get(course.getKey());
+            words[i] = bits == null ? new long[0] : bits.toLongArray();
+            i++;
+        }
+        var related = new int[n * k];
+        var shared = new int[n * k];
+        Arrays.fill(related, -1);
+        pool.invoke(new RankRows(words, k, related, shared, 0, n));
+        return new CoEnrollmentTable(courseIds, names, k, related, shared);
+    }
+
+    public boolean contains(Integer courseId){
+        return Arrays.binarySearch(courseIds, courseId) >= 0;
+    }
+
+    public int size(){
+        return courseIds.length;
+    }
+
+    /**
+     * Up to limit courses sharing students with the given one, most shared first; empty if the course isn't in the table.
+     */
+    public List<RelatedCourse> findRelated(Integer courseId, int limit){
+        var row = Arrays.binarySearch(courseIds, courseId);
+        if(row < 0){
+            return List.of();
+        }
+        var result = new ArrayList<RelatedCourse>(Math.min(limit, k));
+        for(var slot = row * k; slot < row * k + Math.min(limit, k) && related[slot] >= 0; slot++){
+            var other = related[slot];
+            result.add(new RelatedCourse(courseIds[other], names[other], shared[slot]));
+        }
+        return result;
+    }
+
+    /**
+     * Fills the top k slots of a range of rows, splitting it until it's small enough to run on one thread. Every task
+     * writes only its own rows, so no synchronization is needed beyond the fork-join.
+     */
+    private static final class RankRows extends RecursiveAction {
+        private final long[][] words;
+        private final int k;
+        private final int[] related;
+        private final int[] shared;
+        private final int from;
+        private final int to;
+
+        RankRows(long[][] words, int k, int[] related, int[] shared, int from, int to){
+            this.words = words;
+            this.k = k;
+            this.related = related;
+            this.shared = shared;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from > ROWS_PER_TASK){
+                var middle = (from + to) >>> 1;
+                invokeAll(new RankRows(words, k, related, shared, from, middle),
+                        new RankRows(words, k, related, shared, middle, to));
+                return;
+            }
+            for(var row = from; row < to; row++){
+                rank(row);
+            }
+        }
+
+        private void rank(int row){
+            var mine = words[row];
+            if(mine.length == 0 || k == 0){
+                return;
+            }
+            var base = row * k;
+            for(var other = 0; other < words.length; other++){
+                if(other == row){
+                    continue;
+                }
+                var count = intersection(mine, words[other]);
+                // the last slot holds the weakest kept course; courses are visited in id order so ties keep the lower id
+                if(count == 0 || (related[base + k - 1] >= 0 && count <= shared[base + k - 1])){
+                    continue;
+                }
+                var slot = base + k - 1;
+                while(slot > base && (related[slot - 1] < 0 || shared[slot - 1] < count)){
+                    related[slot] = related[slot - 1];
+                    shared[slot] = shared[slot - 1];
+                    slot--;
+                }
+                related[slot] = other;
+                shared[slot] = count;
+            }
+        }
+
+        private static int intersection(long[] a, long[] b){
+            var count = 0;
+            for(var w = Math.min(a.length, b.length) - 1; w >= 0; w--){
+                count += Long.bitCount(a[w] & b[w]);
+            }
+            return count;
+        }
+    }
+}
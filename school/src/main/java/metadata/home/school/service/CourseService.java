@@ -1,90 +1,667 @@
 package metadata.home.school.service;
 
-import metadata.home.school.exception.ResourceNotFoundException;
+import metadata.home.school.cache.EntityResponseCache;
+import metadata.home.school.model.BulkDeleteResult;
+import metadata.home.school.model.ChangeType;
 import metadata.home.school.model.Course;
+import metadata.home.school.model.CourseFilter;
+import metadata.home.school.model.CoursePatch;
+import metadata.home.school.model.ErrorCode;
 import metadata.home.school.model.ServiceResponse;
 import metadata.home.school.model.Student;
+import metadata.home.school.model.TimeSlotsConverter;
+import metadata.home.school.model.BatchEnrollmentResult;
+import metadata.home.school.repository.BulkDeleteRepository;
+import metadata.home.school.repository.CourseReplicaRepository;
 import metadata.home.school.repository.CourseRepository;
+import metadata.home.school.repository.EnrollmentRepository;
+import metadata.home.school.repository.EnrollmentRepository.EnrollmentCandidate;
+import metadata.home.school.repository.PatchRepository;
 import metadata.home.school.repository.StudentRepository;
+import metadata.home.school.sharding.ShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 
 @Service
 public class CourseService {
+    public static final int MAX_STUDENTS = 50;
+    public static final int MAX_BATCH_SIZE = 5000;
+    public static final int MAX_BULK_DELETE = 5000;
+
     private CourseRepository courseRepository;
     private StudentRepository studentRepository;
+    private EntityResponseCache responseCache;
+    private ShardRouter shardRouter;
+    private CourseReplicaRepository courseReplicaRepository;
+    private EnrollmentRepository enrollmentRepository;
+    private WaitlistService waitlistService;
+    private SeatLedger seatLedger;
+    private EnrollmentCountService enrollmentCountService;
+    private BulkDeleteRepository bulkDeleteRepository;
+    private ScheduleIndex scheduleIndex;
+    private PatchRepository patchRepository;
+    private ChangeLog changeLog;
 
     @Autowired
-    public CourseService(CourseRepository courseRepository, StudentRepository studentRepository){
+    public CourseService(CourseRepository courseRepository, StudentRepository studentRepository, EntityResponseCache responseCache,
+                         ShardRouter shardRouter, CourseReplicaRepository courseReplicaRepository, EnrollmentRepository enrollmentRepository,
+                         WaitlistService waitlistService, SeatLedger seatLedger, EnrollmentCountService enrollmentCountService,
+                         BulkDeleteRepository bulkDeleteRepository, ScheduleIndex scheduleIndex, PatchRepository patchRepository,
+                         ChangeLog changeLog){
         this.courseRepository = courseRepository;
         this.studentRepository = studentRepository;
+        this.responseCache = responseCache;
+        this.shardRouter = shardRouter;
+        this.courseReplicaRepository = courseReplicaRepository;
+        this.enrollmentRepository = enrollmentRepository;
+        this.waitlistService = waitlistService;
+        this.seatLedger = seatLedger;
+        this.enrollmentCountService = enrollmentCountService;
+        this.bulkDeleteRepository = bulkDeleteRepository;
+        this.scheduleIndex = scheduleIndex;
+        this.patchRepository = patchRepository;
+        this.changeLog = changeLog;
     }
 
     public List<Course> findAll(){
-        return courseRepository.findAll();
+        return withAllStudents(courseRepository.findAll());
+    }
+
+    /**
+     * One page of the courses matching the filter, ordered by id. Every shard has all courses, so the default one answers.
+     */
+    public Page<Course> find(CourseFilter filter, Pageable pageable){
+        var page = courseRepository.findAll(filter, pageable);
+        if(!shardRouter.isEnabled()){
+            return page;
+        }
+        return new PageImpl<>(withAllStudents(page.getContent()), pageable, page.getTotalElements());
     }
 
     public Optional<Course> findById(Integer id){
         return courseRepository.findById(id);
     }
 
+    /**
+     * The course to be rendered, with its students from every shard.
+     */
+    public Optional<Course> findWithStudents(Integer id){
+        return courseRepository.findById(id).map(course -> withAllStudents(List.of(course)).get(0));
+    }
+
+    /**
+     * The courses with the given ids and their students in one query. Ids not found are left out.
+     */
+    public List<Course> findAllById(Collection<Integer> ids){
+        return withAllStudents(courseRepository.findByIdIn(ids));
+    }
+
+    /**
+     * With sharding a course row is copied to every shard but its students are spread over them, so the course's own
+     * collection only holds the default shard's. Courses read to be rendered are then copies carrying the students
+     * gathered from every shard.
+     */
+    private List<Course> withAllStudents(List<Course> courses){
+        if(!shardRouter.isEnabled() || courses.isEmpty()){
+            return courses;
+        }
+        var ids = new ArrayList<Integer>();
+        for (var course: courses) {
+            ids.add(course.getId());
+        }
+        var students = findStudents(ids);
+        var result = new ArrayList<Course>();
+        for (var course: courses) {
+            var copy = new Course();
+            copy.setId(course.getId());
+            copy.setName(course.getName());
+            copy.setSchedule(new ArrayList<>(course.getSchedule()));
+            copy.setStudents(new LinkedHashSet<>(students.getOrDefault(course.getId(), List.of())));
+            result.add(copy);
+        }
+        return result;
+    }
+
+    /**
+     * Students of each of the given courses ordered by id, loaded together with one query per shard.
+     */
+    public Map<Integer, List<Student>> findStudents(Collection<Integer> courseIds){
+        var students = new HashMap<Integer, List<Student>>();
+        for (var course: shardRouter.scatter(() -> courseRepository.findByIdIn(courseIds))) {
+            students.computeIfAbsent(course.getId(), id -> new ArrayList<>()).addAll(course.getStudents());
+        }
+        for (var ofCourse: students.values()) {
+            ofCourse.sort(Comparator.comparing(Student::getId));
+        }
+        return students;
+    }
+
     public List<Course> findWithNoStudents(){
-        return courseRepository.findByStudentsIsEmpty();
+        if(!shardRouter.isEnabled()){
+            return courseRepository.findByStudentsIsEmpty();
+        }
+
+        // every shard holds a copy of each course, it is empty only if it is empty on all of them
+        var emptyOnShards = new HashMap<Integer, Integer>();
+        var courses = new LinkedHashMap<Integer, Course>();
+        for (var course: shardRouter.scatter(() -> courseRepository.findByStudentsIsEmpty())) {
+            courses.putIfAbsent(course.getId(), course);
+            emptyOnShards.merge(course.getId(), 1, Integer::sum);
+        }
+        var result = new ArrayList<Course>();
+        for (var course: courses.values()) {
+            if(emptyOnShards.get(course.getId()) == shardRouter.getShardCount()){
+                result.add(course);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The students come with their own courses, rendering them would otherwise load those one student at a time.
+     */
+    public Set<Student> findStudents(Course course){
+        return new HashSet<>(shardRouter.scatter(() -> studentRepository.findDistinctByCoursesId(course.getId())));
     }
 
-    public ServiceResponse save(Course course){
+    /**
+     * Ids of the students waiting for a seat in the course, first in line first.
+     */
+    public List<Integer> findWaitlist(Course course){
+        return waitlistService.findWaitlist(course.getId());
+    }
+
+    public ServiceResponse<Course> save(Course course){
         if(courseRepository.findByName(course.getName()) != null){
-            return new ServiceResponse(null, "A course with name: " + course.getName() + " already exists");
+            return ServiceResponse.conflict(ErrorCode.COURSE_NAME_EXISTS, course.getName());
+        }
+
+        if(course.getStudents().size() > MAX_STUDENTS){
+            return ServiceResponse.conflict(ErrorCode.COURSE_CAPACITY);
         }
 
-        if(course.getStudents().size() > 50){
-            return new ServiceResponse(null, "A course cannot have to more than 50 students");
+        if(!ScheduleIndex.isValid(course.getSchedule())){
+            return ServiceResponse.invalid(ErrorCode.COURSE_SCHEDULE_INVALID, course.getName());
+        }
+        if(!TimeSlotsConverter.fits(course.getSchedule())){
+            return ServiceResponse.invalid(ErrorCode.COURSE_SCHEDULE_TOO_LONG, course.getName());
         }
 
         Set<Student> students = new HashSet<>();
         for (var student: course.getStudents()) {
-            var newStudent = studentRepository.findBySchoolId(student.getSchoolId());
+            var newStudent = shardRouter.onShard(shardRouter.shardFor(student.getSchoolId()),
+                    () -> studentRepository.findBySchoolId(student.getSchoolId()));
             if(newStudent != null){
                 students.add(newStudent);
             }
         }
-        course.setStudents(students);
+        // students on other shards cannot be attached to the copy written on the default shard
+        course.setStudents(shardRouter.isEnabled() ? new HashSet<>() : students);
 
-        return new ServiceResponse(courseRepository.save(course), "");
+        var savedCourse = shardRouter.withinTransaction(0, () -> {
+            var saved = courseRepository.save(course);
+            // Course.students is the inverse side, the students of the request are never written as enrollments
+            changeLog.recordWritten(ChangeType.COURSE, saved.getId());
+            return saved;
+        });
+        if(shardRouter.isEnabled()){
+            shardRouter.replicate(() -> courseReplicaRepository.upsert(savedCourse));
+        }
+        enrollmentCountService.refresh(studentIds(students), List.of(savedCourse.getId()));
+        responseCache.evictStudents(students);
+        return ServiceResponse.success(savedCourse);
     }
 
-    public ServiceResponse update(Integer id, Course course){
-        Course currentCourse = courseRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Course", "id", id));
+    public ServiceResponse<Course> update(Integer id, Course course){
+        Course currentCourse = courseRepository.findById(id).orElse(null);
+        if(currentCourse == null){
+            return ServiceResponse.notFound(ErrorCode.COURSE_NOT_FOUND, id);
+        }
         var existingCourse = courseRepository.findByName(course.getName());
-        if(existingCourse != null && existingCourse.getId() != currentCourse.getId()){
-            return new ServiceResponse(null, "A course with name: " + course.getName() + " already exists");
+        if(existingCourse != null && !existingCourse.getId().equals(currentCourse.getId())){
+            return ServiceResponse.conflict(ErrorCode.COURSE_NAME_EXISTS, course.getName());
         }
 
-        if(course.getStudents().size() > 50){
-            return new ServiceResponse(null, "A course cannot have to more than 50 students");
+        if(course.getStudents().size() > MAX_STUDENTS){
+            return ServiceResponse.conflict(ErrorCode.COURSE_CAPACITY);
         }
 
+        if(!ScheduleIndex.isValid(course.getSchedule())){
+            return ServiceResponse.invalid(ErrorCode.COURSE_SCHEDULE_INVALID, course.getName());
+        }
+        if(!TimeSlotsConverter.fits(course.getSchedule())){
+            return ServiceResponse.invalid(ErrorCode.COURSE_SCHEDULE_TOO_LONG, course.getName());
+        }
+
+        var previousStudents = findStudents(currentCourse);
         currentCourse.setName(course.getName());
+        currentCourse.setSchedule(course.getSchedule());
         currentCourse.setStudents(new HashSet<>());
         for (var student: course.getStudents()) {
             addStudent(currentCourse, student);
         }
+        var students = currentCourse.getStudents();
+        if(shardRouter.isEnabled()){
+            currentCourse.setStudents(new HashSet<>());
+        }
 
-        return new ServiceResponse(courseRepository.save(currentCourse), "");
+        var savedCourse = shardRouter.withinTransaction(0, () -> {
+            var saved = courseRepository.save(currentCourse);
+            // as in save, the enrollments are left as they were whatever the request's students
+            changeLog.recordWritten(ChangeType.COURSE, id);
+            return saved;
+        });
+        if(shardRouter.isEnabled()){
+            shardRouter.replicate(() -> courseReplicaRepository.upsert(savedCourse));
+        }
+        seatLedger.invalidate(id);
+        scheduleIndex.invalidate(id);
+        waitlistService.seatsReleased(id);
+        var changedStudents = studentIds(previousStudents);
+        changedStudents.addAll(studentIds(students));
+        enrollmentCountService.refresh(changedStudents, List.of(id));
+        responseCache.evictCourse(id);
+        responseCache.evictStudents(previousStudents);
+        responseCache.evictStudents(students);
+        return ServiceResponse.success(savedCourse);
+    }
+
+    /**
+     * Applies a merge patch without loading the course: the name and schedule go in one update of the course row on every
+     * shard, and only when the patch has students is the join table read, to remove the students left out and add the
+     * new ones as the batch endpoints do. As with PUT, school ids with no student or whose student already takes the
+     * maximum are left out; the removals are kept if the additions are then rejected.
+     */
+    public ServiceResponse<Course> patch(Integer id, CoursePatch patch){
+        if(!shardRouter.onShard(0, () -> courseRepository.existsById(id))){
+            return ServiceResponse.notFound(ErrorCode.COURSE_NOT_FOUND, id);
+        }
+        if(patch.hasName() && shardRouter.onShard(0, () -> courseRepository.existsByNameAndIdNot(patch.getName(), id))){
+            return ServiceResponse.conflict(ErrorCode.COURSE_NAME_EXISTS, patch.getName());
+        }
+        if(patch.hasSchedule() && !ScheduleIndex.isValid(patch.getSchedule())){
+            return ServiceResponse.invalid(ErrorCode.COURSE_SCHEDULE_INVALID, patch.hasName() ? patch.getName() : id);
+        }
+        if(patch.hasSchedule() && !TimeSlotsConverter.fits(patch.getSchedule())){
+            return ServiceResponse.invalid(ErrorCode.COURSE_SCHEDULE_TOO_LONG, patch.hasName() ? patch.getName() : id);
+        }
+        if(patch.hasStudents() && patch.getStudents().size() > MAX_STUDENTS){
+            return ServiceResponse.conflict(ErrorCode.COURSE_CAPACITY);
+        }
+
+        // students embed their courses, so a rename has to reach their cached responses too
+        var scalars = patch.hasName() || patch.hasSchedule();
+        var students = new HashMap<Integer, String>();
+        if(scalars || patch.hasStudents()){
+            for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+                students.putAll(shardRouter.onShard(shard, () -> enrollmentRepository.findSchoolIds(id)));
+            }
+        }
+        if(scalars){
+            shardRouter.withinTransaction(0, () -> {
+                patchRepository.updateCourse(id, patch);
+                changeLog.recordWritten(ChangeType.COURSE, id);
+                return null;
+            });
+            if(shardRouter.isEnabled()){
+                shardRouter.replicate(() -> patchRepository.updateCourse(id, patch));
+            }
+            if(patch.hasSchedule()){
+                scheduleIndex.invalidate(id);
+            }
+            responseCache.evictCourse(id);
+            students.keySet().forEach(responseCache::evictStudent);
+        }
+
+        if(patch.hasStudents()){
+            var requested = new LinkedHashSet<String>();
+            for (var student: patch.getStudents()) {
+                requested.add(student.getSchoolId());
+            }
+            var removed = new ArrayList<String>();
+            for (var schoolId: students.values()) {
+                if(!requested.remove(schoolId)){
+                    removed.add(schoolId);
+                }
+            }
+            if(!removed.isEmpty()){
+                batchRemove(id, removed);
+            }
+            if(!requested.isEmpty()){
+                var added = batchAdd(id, new ArrayList<>(requested));
+                if(added.getStatus() == ServiceResponse.Status.NOT_FOUND){
+                    return ServiceResponse.notFound(ErrorCode.COURSE_NOT_FOUND, id);
+                }
+                if(!added.isSuccess()){
+                    return ServiceResponse.conflict(added.getErrorCode());
+                }
+            }
+        }
+        return ServiceResponse.success(shardRouter.onShard(0, () -> courseRepository.findById(id)).orElse(null));
     }
 
     public void delete(Course course){
-        courseRepository.delete(course);
+        var students = findStudents(course);
+        shardRouter.withinTransaction(0, () -> {
+            courseRepository.delete(course);
+            changeLog.recordDeleted(ChangeType.COURSE, List.of(course.getId()));
+            return null;
+        });
+        if(shardRouter.isEnabled()){
+            shardRouter.replicate(() -> courseReplicaRepository.delete(course.getId()));
+        }
+        seatLedger.invalidate(course.getId());
+        scheduleIndex.invalidate(course.getId());
+        waitlistService.removeCourse(course.getId());
+        enrollmentCountService.refresh(studentIds(students), List.of());
+        responseCache.evictCourse(course.getId());
+        responseCache.evictStudents(students);
+    }
+
+    /**
+     * Deletes the courses with the given ids, their enrollments and waitlists with set-based statements, without loading
+     * them. The courses are removed from every shard, each one in its own transaction.
+     */
+    public ServiceResponse<BulkDeleteResult> deleteAll(Collection<Integer> ids){
+        var requested = new LinkedHashSet<>(ids);
+        if(requested.size() > MAX_BULK_DELETE){
+            return ServiceResponse.invalid(ErrorCode.BULK_DELETE_TOO_LARGE, MAX_BULK_DELETE);
+        }
+
+        var deleted = new HashSet<Integer>();
+        var students = new HashSet<Integer>();
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            var onDefaultShard = shard == 0;
+            shardRouter.inTransaction(shard, () -> {
+                var found = bulkDeleteRepository.lockCourses(requested);
+                if(found.isEmpty()){
+                    return null;
+                }
+                students.addAll(bulkDeleteRepository.findStudentsOfCourses(found));
+                bulkDeleteRepository.deleteCourses(found);
+                if(onDefaultShard){
+                    waitlistService.removeCourses(found);
+                    changeLog.recordDeleted(ChangeType.COURSE, found);
+                }
+                deleted.addAll(found);
+                return null;
+            });
+        }
+
+        for (var id: deleted) {
+            seatLedger.invalidate(id);
+            responseCache.evictCourse(id);
+        }
+        scheduleIndex.invalidateAll(deleted);
+        enrollmentCountService.refresh(students, List.of());
+        for (var studentId: students) {
+            responseCache.evictStudent(studentId);
+        }
+
+        var result = new BulkDeleteResult();
+        for (var id: requested) {
+            (deleted.contains(id) ? result.getDeleted() : result.getMissing()).add(id);
+        }
+        return ServiceResponse.success(result);
+    }
+
+    /**
+     * Deletes every course matching the filter, refusing an empty filter and more than {@link #MAX_BULK_DELETE} matches.
+     */
+    public ServiceResponse<BulkDeleteResult> deleteAll(CourseFilter filter){
+        if(filter.isEmpty()){
+            return ServiceResponse.invalid(ErrorCode.BULK_DELETE_UNFILTERED, null);
+        }
+        var ids = shardRouter.onShard(0, () -> bulkDeleteRepository.findCourseIds(filter, MAX_BULK_DELETE + 1));
+        if(ids.size() > MAX_BULK_DELETE){
+            return ServiceResponse.invalid(ErrorCode.BULK_DELETE_TOO_LARGE, MAX_BULK_DELETE);
+        }
+        return deleteAll(ids);
     }
 
     public boolean addStudent(Course course, Student student){
-        var newStudent = studentRepository.findBySchoolId(student.getSchoolId());
+        var newStudent = shardRouter.onShard(shardRouter.shardFor(student.getSchoolId()),
+                () -> studentRepository.findBySchoolId(student.getSchoolId()));
         if(newStudent != null){
             course.getStudents().add(newStudent);
             return true;
         }
         return false;
     }
+
+    /**
+     * Enrolls the students with the given school ids. Students already in the course are skipped, students already taking
+     * the maximum number of courses or a course overlapping this one's schedule are left out, and the whole batch is
+     * rejected if the rest doesn't fit in the course.
+     * Without sharding everything runs in one transaction holding a lock on the course row. With sharding each shard has
+     * its own course row and no transaction spans them, so the seats are reserved in the {@link SeatLedger} before
+     * anything is inserted, and each shard's students are checked again and inserted under that shard's lock.
+     */
+    public ServiceResponse<BatchEnrollmentResult> batchAdd(Integer id, List<String> schoolIds){
+        if(schoolIds.size() > MAX_BATCH_SIZE){
+            return ServiceResponse.invalid(ErrorCode.BATCH_TOO_LARGE, MAX_BATCH_SIZE);
+        }
+        if(shardRouter.isEnabled()){
+            return batchAddOnShards(id, groupByShard(schoolIds));
+        }
+        return shardRouter.inTransaction(0, () -> batchAddOnShards(id, groupByShard(schoolIds)));
+    }
+
+    private ServiceResponse<BatchEnrollmentResult> batchAddOnShards(Integer id, Map<Integer, List<String>> byShard){
+        var result = new BatchEnrollmentResult();
+        var toEnroll = new HashMap<Integer, List<String>>();
+        var candidateIds = new HashMap<Integer, List<Integer>>();
+        var enrolled = 0;
+        var added = 0;
+        for (var shard: byShard.entrySet()) {
+            var candidates = shardRouter.onShard(shard.getKey(), () -> enrollmentRepository.lockCourse(id)
+                    ? new AbstractMap.SimpleEntry<>(enrollmentRepository.countStudents(id), enrollmentRepository.findCandidates(id, shard.getValue()))
+                    : null);
+            if(candidates == null){
+                return ServiceResponse.notFound(ErrorCode.COURSE_NOT_FOUND, id);
+            }
+
+            enrolled += candidates.getKey();
+            var conflicts = shardRouter.onShard(shard.getKey(), () -> findScheduleConflicts(id, candidates.getValue()));
+            var sorted = new BatchEnrollmentResult();
+            candidateIds.put(shard.getKey(), classify(candidates.getValue(), conflicts, shard.getValue(), sorted));
+            result.getSkipped().addAll(sorted.getSkipped());
+            result.getOverLimit().addAll(sorted.getOverLimit());
+            result.getConflicting().addAll(sorted.getConflicting());
+            result.getMissing().addAll(sorted.getMissing());
+            toEnroll.put(shard.getKey(), sorted.getApplied());
+            added += sorted.getApplied().size();
+        }
+
+        if(enrolled + added > MAX_STUDENTS){
+            return ServiceResponse.conflict(ErrorCode.COURSE_CAPACITY);
+        }
+        // registrations, and with sharding the other shards of this batch, hold no course lock; their seats are only visible in the ledger
+        var lease = seatLedger.reserve(id, added);
+        if(lease == null){
+            return ServiceResponse.conflict(ErrorCode.COURSE_CAPACITY);
+        }
+        var inserted = new HashMap<Integer, List<Integer>>();
+        try{
+            for (var shard: toEnroll.entrySet()) {
+                if(shard.getValue().isEmpty()){
+                    continue;
+                }
+                if(shardRouter.isEnabled()){
+                    inserted.put(shard.getKey(), shardRouter.onShard(shard.getKey(), () -> insertCandidates(id, shard.getValue(), result)));
+                }else{
+                    // still under the lock taken above
+                    enrollmentRepository.insert(id, candidateIds.get(shard.getKey()));
+                    changeLog.recordStudentsOf(id, candidateIds.get(shard.getKey()), List.of());
+                    result.getApplied().addAll(shard.getValue());
+                    inserted.put(shard.getKey(), candidateIds.get(shard.getKey()));
+                }
+            }
+        }catch (RuntimeException ex){
+            // with sharding the shards done so far are committed and keep their seats
+            seatLedger.release(lease, shardRouter.isEnabled() ? added - count(inserted.values()) : added);
+            throw ex;
+        }
+        // students that changed since the first look take fewer seats than reserved
+        seatLedger.release(lease, added - count(inserted.values()));
+        evictEnrollments(id, inserted.values());
+        return ServiceResponse.success(result);
+    }
+
+    /**
+     * Checks the students again under the shard's course lock and inserts those still able to enroll.
+     */
+    private List<Integer> insertCandidates(Integer id, List<String> schoolIds, BatchEnrollmentResult result){
+        var candidates = enrollmentRepository.lockCourse(id) ? enrollmentRepository.findCandidates(id, schoolIds) : List.<EnrollmentCandidate>of();
+        var studentIds = classify(candidates, findScheduleConflicts(id, candidates), schoolIds, result);
+        if(!studentIds.isEmpty()){
+            enrollmentRepository.insert(id, studentIds);
+            changeLog.recordStudentsOf(id, studentIds, List.of());
+        }
+        return studentIds;
+    }
+
+    /**
+     * Ids of the candidates otherwise able to enroll whose courses overlap the course's schedule.
+     */
+    private Set<Integer> findScheduleConflicts(Integer id, List<EnrollmentCandidate> candidates){
+        var studentIds = new ArrayList<Integer>();
+        for (var candidate: candidates) {
+            if(!candidate.isEnrolled() && candidate.getCourseCount() < StudentService.MAX_COURSES){
+                studentIds.add(candidate.getStudentId());
+            }
+        }
+        if(studentIds.isEmpty()){
+            return Set.of();
+        }
+        return scheduleIndex.findConflicts(id, () -> enrollmentRepository.findCourseIds(studentIds), courseRepository::findByIdIn);
+    }
+
+    /**
+     * Sorts the candidates into the result and returns the ids of the ones that can enroll.
+     */
+    private List<Integer> classify(List<EnrollmentCandidate> candidates, Set<Integer> conflicts, List<String> schoolIds,
+                                   BatchEnrollmentResult result){
+        var found = new HashSet<String>();
+        var studentIds = new ArrayList<Integer>();
+        for (var candidate: candidates) {
+            found.add(candidate.getSchoolId());
+            if(candidate.isEnrolled()){
+                result.getSkipped().add(candidate.getSchoolId());
+            }else if(candidate.getCourseCount() >= StudentService.MAX_COURSES){
+                result.getOverLimit().add(candidate.getSchoolId());
+            }else if(conflicts.contains(candidate.getStudentId())){
+                result.getConflicting().add(candidate.getSchoolId());
+            }else{
+                result.getApplied().add(candidate.getSchoolId());
+                studentIds.add(candidate.getStudentId());
+            }
+        }
+        addMissing(result, schoolIds, found);
+        return studentIds;
+    }
+
+    private int count(Collection<List<Integer>> studentIds){
+        var count = 0;
+        for (var ids: studentIds) {
+            count += ids.size();
+        }
+        return count;
+    }
+
+    /**
+     * Removes the enrollments of the students with the given school ids. Students not in the course are reported as skipped.
+     */
+    public ServiceResponse<BatchEnrollmentResult> batchRemove(Integer id, List<String> schoolIds){
+        if(schoolIds.size() > MAX_BATCH_SIZE){
+            return ServiceResponse.invalid(ErrorCode.BATCH_TOO_LARGE, MAX_BATCH_SIZE);
+        }
+        if(shardRouter.isEnabled()){
+            return batchRemoveOnShards(id, groupByShard(schoolIds));
+        }
+        return shardRouter.inTransaction(0, () -> batchRemoveOnShards(id, groupByShard(schoolIds)));
+    }
+
+    private ServiceResponse<BatchEnrollmentResult> batchRemoveOnShards(Integer id, Map<Integer, List<String>> byShard){
+        var result = new BatchEnrollmentResult();
+        var removed = new ArrayList<List<Integer>>();
+        for (var shard: byShard.entrySet()) {
+            var schoolIds = shard.getValue();
+            var candidates = shardRouter.onShard(shard.getKey(), () -> enrollmentRepository.lockCourse(id)
+                    ? enrollmentRepository.findCandidates(id, schoolIds)
+                    : null);
+            if(candidates == null){
+                return ServiceResponse.notFound(ErrorCode.COURSE_NOT_FOUND, id);
+            }
+
+            var found = new HashSet<String>();
+            var studentIds = new ArrayList<Integer>();
+            for (var candidate: candidates) {
+                found.add(candidate.getSchoolId());
+                if(candidate.isEnrolled()){
+                    result.getApplied().add(candidate.getSchoolId());
+                    studentIds.add(candidate.getStudentId());
+                }else{
+                    result.getSkipped().add(candidate.getSchoolId());
+                }
+            }
+            addMissing(result, schoolIds, found);
+            if(!studentIds.isEmpty()){
+                shardRouter.onShard(shard.getKey(), () -> {
+                    enrollmentRepository.delete(id, studentIds);
+                    changeLog.recordStudentsOf(id, List.of(), studentIds);
+                });
+            }
+            removed.add(studentIds);
+        }
+
+        if(!result.getApplied().isEmpty()){
+            seatLedger.free(id, result.getApplied().size());
+            waitlistService.seatsReleased(id);
+        }
+        evictEnrollments(id, removed);
+        return ServiceResponse.success(result);
+    }
+
+    private Map<Integer, List<String>> groupByShard(List<String> schoolIds){
+        var byShard = new TreeMap<Integer, List<String>>();
+        for (var schoolId: new LinkedHashSet<>(schoolIds)) {
+            byShard.computeIfAbsent(shardRouter.shardFor(schoolId), shard -> new ArrayList<>()).add(schoolId);
+        }
+        if(byShard.isEmpty()){
+            byShard.put(0, new ArrayList<>());
+        }
+        return byShard;
+    }
+
+    private static List<Integer> studentIds(Collection<Student> students){
+        var ids = new ArrayList<Integer>();
+        for (var student: students) {
+            ids.add(student.getId());
+        }
+        return ids;
+    }
+
+    private void addMissing(BatchEnrollmentResult result, List<String> schoolIds, Set<String> found){
+        for (var schoolId: schoolIds) {
+            if(!found.contains(schoolId)){
+                result.getMissing().add(schoolId);
+            }
+        }
+    }
+
+    private void evictEnrollments(Integer courseId, Collection<List<Integer>> studentIds){
+        var changedStudents = new ArrayList<Integer>();
+        studentIds.forEach(changedStudents::addAll);
+        enrollmentCountService.refresh(changedStudents, List.of(courseId));
+        responseCache.evictCourse(courseId);
+        for (var ids: studentIds) {
+            ids.forEach(responseCache::evictStudent);
+        }
+    }
 }
@@ -0,0 +1,189 @@
+package metadata.home.school.service;
+
+import metadata.home.school.repository.EnrollmentRepository;
+import metadata.home.school.repository.StatsRepository;
+import metadata.home.school.sharding.ShardRouter;
+import metadata.home.school.tenancy.Tenants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+/**
+ * Keeps the denormalized student.course_count and course.student_count columns, used by the count filters, in line
+ * with the join table. Counts are recomputed from the join table rather than incremented, once the write that changed
+ * the enrollments has committed, so concurrent writers can't leave a wrong value behind. Students moving between
+ * course counts are applied as deltas to the enrollment_bucket summary in the same transaction. The full rebuilds run
+ * once per tenant.
+ */
+@Service
+public class EnrollmentCountService {
+    private EnrollmentRepository enrollmentRepository;
+    private StatsRepository statsRepository;
+    private ShardRouter shardRouter;
+    private Tenants tenants;
+
+    @Autowired
+    public EnrollmentCountService(EnrollmentRepository enrollmentRepository, StatsRepository statsRepository, ShardRouter shardRouter,
+                                  Tenants tenants){
+        this.enrollmentRepository = enrollmentRepository;
+        this.statsRepository = statsRepository;
+        this.shardRouter = shardRouter;
+        this.tenants = tenants;
+    }
+
+    /**
+     * A new student starts in the bucket of students without courses, before any refresh moves it.
+     */
+    public void created(Integer studentId){
+        afterCommit(() -> shardRouter.inTransaction(shardRouter.shardForStudentId(studentId), () -> {
+            statsRepository.adjustBuckets(Map.of(0, 1));
+            return null;
+        }));
+    }
+
+    /**
+     * A deleted student leaves the bucket of the course count it had.
+     */
+    public void deleted(Integer studentId, int courseCount){
+        afterCommit(() -> shardRouter.inTransaction(shardRouter.shardForStudentId(studentId), () -> {
+            statsRepository.adjustBuckets(Map.of(courseCount, -1));
+            return null;
+        }));
+    }
+
+    /**
+     * Students deleted together on one shard leave the buckets of the course counts they had, given as the number of
+     * students per course count.
+     */
+    public void deleted(int shard, Map<Integer, Integer> studentsByCourseCount){
+        var deltas = new HashMap<Integer, Integer>();
+        studentsByCourseCount.forEach((courseCount, students) -> deltas.put(courseCount, -students));
+        if(deltas.isEmpty()){
+            return;
+        }
+        afterCommit(() -> shardRouter.inTransaction(shard, () -> {
+            statsRepository.adjustBuckets(deltas);
+            return null;
+        }));
+    }
+
+    /**
+     * Recomputes the counts of the given students and courses after the current transaction commits, or right away
+     * when there is none.
+     */
+    public void refresh(Collection<Integer> studentIds, Collection<Integer> courseIds){
+        var students = new HashSet<>(studentIds);
+        var courses = new HashSet<>(courseIds);
+        students.remove(null);
+        courses.remove(null);
+        if(students.isEmpty() && courses.isEmpty()){
+            return;
+        }
+        afterCommit(() -> refreshNow(students, courses));
+    }
+
+    /**
+     * Recomputes every count and rebuilds the summary from them. The per-write refresh runs after the commit in a
+     * transaction of its own, so a refresh that fails or is lost with the node leaves a count behind until this runs.
+     */
+    @Scheduled(fixedDelayString = "${school.stats.reconcile-interval:PT10M}", initialDelayString = "${school.stats.reconcile-interval:PT10M}")
+    public void reconcile(){
+        tenants.forEach(this::refreshAllNow);
+    }
+
+    /**
+     * Recomputes every count, so rows written before the columns existed start out right.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshAll(){
+        tenants.forEach(this::refreshAllNow);
+    }
+
+    private void refreshAllNow(){
+        if(!shardRouter.isEnabled()){
+            shardRouter.inTransaction(0, () -> {
+                enrollmentRepository.refreshAllCourseCounts();
+                enrollmentRepository.refreshAllStudentCounts();
+                statsRepository.rebuildBuckets();
+                return null;
+            });
+            return;
+        }
+
+        var totals = new HashMap<Integer, Integer>();
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            shardRouter.inTransaction(shard, () -> {
+                enrollmentRepository.refreshAllCourseCounts();
+                statsRepository.rebuildBuckets();
+                enrollmentRepository.countAllStudents().forEach((course, students) -> totals.merge(course, students, Integer::sum));
+                return null;
+            });
+        }
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            shardRouter.inTransaction(shard, () -> {
+                enrollmentRepository.resetStudentCounts();
+                enrollmentRepository.updateStudentCounts(totals);
+                return null;
+            });
+        }
+    }
+
+    private void afterCommit(Runnable work){
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit(){
+                    work.run();
+                }
+            });
+        }else{
+            work.run();
+        }
+    }
+
+    private void refreshNow(Set<Integer> studentIds, Set<Integer> courseIds){
+        // a new transaction each time: after commit the finished one may still be bound to the thread
+        var byShard = new TreeMap<Integer, List<Integer>>();
+        for (var studentId: studentIds) {
+            byShard.computeIfAbsent(shardRouter.shardForStudentId(studentId), shard -> new ArrayList<>()).add(studentId);
+        }
+        for (var shard: byShard.entrySet()) {
+            shardRouter.inTransaction(shard.getKey(), () -> {
+                statsRepository.adjustBuckets(enrollmentRepository.refreshCourseCounts(shard.getValue()));
+                return null;
+            });
+        }
+        if(courseIds.isEmpty()){
+            return;
+        }
+
+        if(!shardRouter.isEnabled()){
+            shardRouter.inTransaction(0, () -> {
+                enrollmentRepository.refreshStudentCounts(courseIds);
+                return null;
+            });
+            return;
+        }
+        // every shard holds part of each course's students, the total is written to every copy of the course
+        var totals = new HashMap<Integer, Integer>();
+        for (var courseId: courseIds) {
+            totals.put(courseId, 0);
+        }
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            shardRouter.inTransaction(shard, () -> enrollmentRepository.countStudents(courseIds))
+                    .forEach((course, students) -> totals.merge(course, students, Integer::sum));
+        }
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            shardRouter.inTransaction(shard, () -> {
+                enrollmentRepository.updateStudentCounts(totals);
+                return null;
+            });
+        }
+    }
+}
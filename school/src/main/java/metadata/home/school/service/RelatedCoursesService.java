@@ -0,0 +1,89 @@
+package metadata.home.school.service;
+
+import metadata.home.school.model.RelatedCourse;
+import metadata.home.school.repository.EnrollmentRepository;
+import metadata.home.school.repository.StatsRepository;
+import metadata.home.school.sharding.ShardRouter;
+import metadata.home.school.tenancy.TenantContext;
+import metadata.home.school.tenancy.Tenants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * "Students who took this also took": courses ranked by how many students they share with a given one. The ranking is
+ * precomputed every {@code school.related.refresh-interval} from a single pass over the enrollments and swapped in
+ * whole, so requests read an in-memory table and never touch the database. Enrollments made since the last refresh
+ * aren't reflected until the next one. Each tenant has its own table.
+ */
+@Service
+public class RelatedCoursesService {
+    private EnrollmentRepository enrollmentRepository;
+    private StatsRepository statsRepository;
+    private ShardRouter shardRouter;
+    private Tenants tenants;
+    private int topK;
+    private final Map<String, CoEnrollmentTable> tables = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RelatedCoursesService(EnrollmentRepository enrollmentRepository, StatsRepository statsRepository, ShardRouter shardRouter,
+                                 Tenants tenants, @Value("${school.related.top-k:10}") int topK){
+        this.enrollmentRepository = enrollmentRepository;
+        this.statsRepository = statsRepository;
+        this.shardRouter = shardRouter;
+        this.tenants = tenants;
+        this.topK = topK;
+    }
+
+    public int getTopK(){
+        return topK;
+    }
+
+    public boolean isRanked(Integer courseId){
+        return table().contains(courseId);
+    }
+
+    public List<RelatedCourse> findRelated(Integer courseId, int limit){
+        return table().findRelated(courseId, limit);
+    }
+
+    private CoEnrollmentTable table(){
+        return tables.getOrDefault(TenantContext.current(), CoEnrollmentTable.EMPTY);
+    }
+
+    /**
+     * Rebuilds the table of every tenant. Refreshes run one at a time so an older snapshot can't replace a newer one.
+     */
+    @Scheduled(fixedDelayString = "${school.related.refresh-interval:PT5M}")
+    public synchronized void refresh(){
+        tenants.forEach(() -> tables.put(TenantContext.current(), build()));
+    }
+
+    private CoEnrollmentTable build(){
+        // every copy of a course has the same id and name, the default shard is enough
+        var courses = new TreeMap<Integer, String>();
+        for (var course: shardRouter.onShard(0, () -> statsRepository.findCourseFills(CourseService.MAX_STUDENTS))) {
+            courses.put(course.getId(), course.getName());
+        }
+
+        // student ids carry their shard in the low bits, so they are numbered densely to keep the bitsets small
+        var studentIndexes = new HashMap<Integer, Integer>();
+        var students = new HashMap<Integer, BitSet>();
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            shardRouter.onShard(shard, () -> enrollmentRepository.forEachEnrollment((studentId, courseId) -> {
+                var index = studentIndexes.computeIfAbsent(studentId, id -> studentIndexes.size());
+                students.computeIfAbsent(courseId, id -> new BitSet()).set(index);
+            }));
+        }
+        return CoEnrollmentTable.build(courses, students, topK, ForkJoinPool.commonPool());
+    }
+}
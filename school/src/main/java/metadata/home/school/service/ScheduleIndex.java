@@ -0,0 +1,152 @@
+package metadata.home.school.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import metadata.home.school.cache.TenantCaches;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.TimeSlot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Checks registrations against the courses' weekly schedules. Each course's slots are kept as sorted minute-of-week
+ * intervals, computed once and evicted when the course changes, so the check on every registration only walks the
+ * student's few courses in memory. Entries also expire after a while to pick up changes made by other instances.
+ * Every tenant has its own cache of at most {@code maximumSize} courses.
+ */
+@Service
+public class ScheduleIndex {
+    private final TenantCaches<Integer, int[]> intervals;
+
+    @Autowired
+    public ScheduleIndex(@Value("${school.schedule.cache-ttl:PT10M}") Duration ttl,
+                         @Value("${school.schedule.cache-maximum-size:10000}") long maximumSize){
+        this.intervals = new TenantCaches<>("schedules", () -> Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).build());
+    }
+
+    /**
+     * A schedule is valid when every slot ends after it starts, on the same day, and no two slots overlap.
+     */
+    public static boolean isValid(List<TimeSlot> slots){
+        if(slots == null){
+            return true;
+        }
+        for (var slot: slots) {
+            if(slot == null || !slot.isValid()){
+                return false;
+            }
+        }
+        return new WeeklySchedule().add(toIntervals(slots));
+    }
+
+    /**
+     * The first of the added courses overlapping one of the existing courses or an added course before it, null if none.
+     */
+    public Course findConflict(Collection<Course> existing, Collection<Course> added){
+        var schedule = new WeeklySchedule();
+        for (var course: existing) {
+            // courses already taken are trusted even if a later schedule change made them overlap
+            schedule.add(intervalsOf(course));
+        }
+        for (var course: added) {
+            if(!schedule.add(intervalsOf(course))){
+                return course;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ids of the students that would take overlapping courses if they took the course as well. The course's schedule
+     * is checked first, a course without slots conflicts with nothing and costs nothing more; otherwise the courses the
+     * students take, by student id, are looked up and the schedules not cached yet are loaded with one call.
+     */
+    public Set<Integer> findConflicts(Integer courseId, Supplier<Map<Integer, List<Integer>>> courseIdsByStudent,
+                                      Function<Collection<Integer>, List<Course>> loader){
+        var cache = intervals.current();
+        var added = cache.getIfPresent(courseId);
+        if(added == null){
+            var course = loader.apply(List.of(courseId));
+            if(course.isEmpty()){
+                return Set.of();
+            }
+            added = intervalsOf(course.get(0));
+        }
+        if(added.length == 0){
+            return Set.of();
+        }
+
+        var byStudent = courseIdsByStudent.get();
+        var schedules = new HashMap<Integer, int[]>();
+        var missing = new HashSet<Integer>();
+        for (var courseIds: byStudent.values()) {
+            for (var id: courseIds) {
+                var cached = cache.getIfPresent(id);
+                if(cached != null){
+                    schedules.put(id, cached);
+                }else{
+                    missing.add(id);
+                }
+            }
+        }
+        if(!missing.isEmpty()){
+            for (var course: loader.apply(missing)) {
+                schedules.put(course.getId(), intervalsOf(course));
+            }
+        }
+
+        var conflicts = new HashSet<Integer>();
+        for (var student: byStudent.entrySet()) {
+            var schedule = new WeeklySchedule();
+            for (var id: student.getValue()) {
+                // courses already taken are trusted, as in findConflict
+                if(!id.equals(courseId) && schedules.containsKey(id)){
+                    schedule.add(schedules.get(id));
+                }
+            }
+            if(!schedule.add(added)){
+                conflicts.add(student.getKey());
+            }
+        }
+        return conflicts;
+    }
+
+    public int[] intervalsOf(Course course){
+        if(course.getId() == null){
+            return toIntervals(course.getSchedule());
+        }
+        return intervals.current().get(course.getId(), key -> toIntervals(course.getSchedule()));
+    }
+
+    public void invalidate(Integer courseId){
+        if(courseId != null){
+            intervals.current().invalidate(courseId);
+        }
+    }
+
+    public void invalidateAll(Collection<Integer> courseIds){
+        intervals.current().invalidateAll(courseIds);
+    }
+
+    static int[] toIntervals(List<TimeSlot> slots){
+        var sorted = new ArrayList<>(slots);
+        sorted.sort((a, b) -> Integer.compare(a.startMinute(), b.startMinute()));
+        var result = new int[sorted.size() * 2];
+        for(var i = 0; i < sorted.size(); i++){
+            result[2 * i] = sorted.get(i).startMinute();
+            result[2 * i + 1] = sorted.get(i).endMinute();
+        }
+        return result;
+    }
+}
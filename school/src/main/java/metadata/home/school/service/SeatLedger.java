@@ -0,0 +1,223 @@
+package metadata.home.school.service;
+
+import metadata.home.school.repository.EnrollmentRepository;
+import metadata.home.school.sharding.ShardRouter;
+import metadata.home.school.tenancy.TenantContext;
+import metadata.home.school.tenancy.TenantKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory count of the taken seats of each course, so registrations don't need to count enrollments in the database.
+ * Counters are seeded from the database on first use and reserved with compare-and-set, so requests for different
+ * courses never contend and requests for the same course never block. A reservation is a lease the caller confirms
+ * once its write is done or releases if it fails; leases that are neither give their seats back when they expire.
+ * The counts are per process, a scheduled job reseeds them from the database to correct any drift. Courses are counted
+ * per tenant, each reseeded as the tenant it belongs to. Counters are never evicted, whichever tenant they belong to:
+ * each is a few bytes per course, and dropping one would lose the reservations open on it.
+ */
+@Service
+public class SeatLedger {
+    private EnrollmentRepository enrollmentRepository;
+    private ShardRouter shardRouter;
+    private long leaseTtlNanos;
+
+    private final Map<TenantKey, Seats> taken = new ConcurrentHashMap<>();
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public SeatLedger(EnrollmentRepository enrollmentRepository, ShardRouter shardRouter,
+                      @Value("${school.seats.lease-ttl:PT30S}") Duration leaseTtl){
+        this.enrollmentRepository = enrollmentRepository;
+        this.shardRouter = shardRouter;
+        this.leaseTtlNanos = leaseTtl.toNanos();
+    }
+
+    public int available(Integer courseId){
+        return Math.max(0, CourseService.MAX_STUDENTS - counter(courseId).get());
+    }
+
+    /**
+     * Reserves the given number of seats, or none of them. Returns null when the course doesn't have that many left.
+     */
+    public Lease reserve(Integer courseId, int seats){
+        var counter = counter(courseId);
+        while(true){
+            var current = counter.get();
+            if(current + seats > CourseService.MAX_STUDENTS){
+                return null;
+            }
+            if(counter.compareAndSet(current, current + seats)){
+                return lease(TenantKey.of(courseId), seats);
+            }
+        }
+    }
+
+    /**
+     * Reserves as many of the given number of seats as are left, possibly none.
+     */
+    public Lease reserveUpTo(Integer courseId, int seats){
+        var counter = counter(courseId);
+        while(true){
+            var current = counter.get();
+            var granted = Math.max(0, Math.min(seats, CourseService.MAX_STUDENTS - current));
+            if(granted == 0 || counter.compareAndSet(current, current + granted)){
+                return lease(TenantKey.of(courseId), granted);
+            }
+        }
+    }
+
+    /**
+     * The write holding the seats succeeded, they stay taken.
+     */
+    public void confirm(Lease lease){
+        if(lease != null && lease.settle()){
+            leases.remove(lease);
+        }
+    }
+
+    /**
+     * The write holding the seats failed or took fewer than reserved, they go back to the course.
+     */
+    public void release(Lease lease){
+        release(lease, lease == null ? 0 : lease.getSeats());
+    }
+
+    public void release(Lease lease, int seats){
+        if(lease != null && lease.settle()){
+            leases.remove(lease);
+            free(lease.course, seats);
+        }
+    }
+
+    /**
+     * Enrollments were removed from the course.
+     */
+    public void free(Integer courseId, int seats){
+        free(TenantKey.of(courseId), seats);
+    }
+
+    private void free(TenantKey course, int seats){
+        var counter = taken.get(course);
+        if(counter != null && seats > 0){
+            counter.taken.updateAndGet(current -> Math.max(0, current - seats));
+        }
+    }
+
+    /**
+     * Enrollments of the course changed in a way the ledger didn't see, it is seeded again on next use. The counter is
+     * kept rather than dropped so reservations being made on it right now aren't lost.
+     */
+    public void invalidate(Integer courseId){
+        if(courseId != null){
+            var counter = taken.get(TenantKey.of(courseId));
+            if(counter != null){
+                counter.stale = true;
+            }
+        }
+    }
+
+    /**
+     * Gives back the seats of expired leases and reseeds every counter from the database plus the leases still open.
+     */
+    @Scheduled(fixedDelayString = "${school.seats.reconcile-interval:PT1M}")
+    public void reconcile(){
+        var now = System.nanoTime();
+        for (var lease: leases) {
+            if(now - lease.expiresAt > 0){
+                release(lease);
+            }
+        }
+        for (var entry: taken.entrySet()) {
+            var course = entry.getKey();
+            TenantContext.callAs(course.getTenant(), () -> seed(course, entry.getValue()));
+        }
+    }
+
+    private AtomicInteger counter(Integer courseId){
+        var course = TenantKey.of(courseId);
+        var counter = taken.computeIfAbsent(course, key -> new Seats());
+        if(counter.stale){
+            // seeded outside of the map so a slow count doesn't block other courses
+            synchronized (counter){
+                if(counter.stale){
+                    seed(course, counter);
+                }
+            }
+        }
+        return counter.taken;
+    }
+
+    /**
+     * Counts the taken seats again without losing the reservations and releases made while counting: the open leases
+     * are read before the enrollments, so one confirmed in between is counted twice rather than not at all, and what
+     * the counter moved since the count started is added to the result. Overcounts only last until the next reseed.
+     */
+    private int seed(TenantKey course, Seats counter){
+        synchronized (counter){
+            var base = counter.taken.get();
+            var open = 0;
+            for (var lease: leases) {
+                if(lease.course.equals(course)){
+                    open += lease.getSeats();
+                }
+            }
+            var enrolled = shardRouter.scatter(() -> List.of(enrollmentRepository.countStudents(course.getId())))
+                    .stream().mapToInt(Integer::intValue).sum();
+            var counted = enrolled + open;
+            counter.stale = false;
+            // a seat freed while counting is both missing from the count and taken off the counter, so never go below the count
+            return counter.taken.updateAndGet(current -> Math.max(counted, current + counted - base));
+        }
+    }
+
+    private Lease lease(TenantKey course, int seats){
+        var lease = new Lease(course, seats, System.nanoTime() + leaseTtlNanos);
+        if(seats > 0){
+            leases.add(lease);
+        }else{
+            lease.settle();
+        }
+        return lease;
+    }
+
+    private static final class Seats {
+        private final AtomicInteger taken = new AtomicInteger();
+        private volatile boolean stale = true;
+    }
+
+    public static final class Lease {
+        private final TenantKey course;
+        private final int seats;
+        private final long expiresAt;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Lease(TenantKey course, int seats, long expiresAt){
+            this.course = course;
+            this.seats = seats;
+            this.expiresAt = expiresAt;
+        }
+
+        public Integer getCourseId(){
+            return course.getId();
+        }
+
+        public int getSeats(){
+            return seats;
+        }
+
+        private boolean settle(){
+            return settled.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package metadata.home.school.service;
+
+import metadata.home.school.model.EnrollmentStats;
+import metadata.home.school.repository.StatsRepository;
+import metadata.home.school.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.TreeMap;
+
+/**
+ * Enrollment statistics read from the maintained counts: one row per course and one per course count bucket,
+ * never the enrollments themselves.
+ */
+@Service
+public class StatsService {
+    private StatsRepository statsRepository;
+    private ShardRouter shardRouter;
+
+    @Autowired
+    public StatsService(StatsRepository statsRepository, ShardRouter shardRouter){
+        this.statsRepository = statsRepository;
+        this.shardRouter = shardRouter;
+    }
+
+    public EnrollmentStats getStats(){
+        var buckets = new TreeMap<Integer, Integer>();
+        for(var courses = 0; courses <= StudentService.MAX_COURSES; courses++){
+            buckets.put(courses, 0);
+        }
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            shardRouter.onShard(shard, () -> statsRepository.findBuckets())
+                    .forEach((courses, students) -> buckets.merge(courses, students, Integer::sum));
+        }
+        var totalStudents = 0L;
+        for (var students: buckets.values()) {
+            totalStudents += students;
+        }
+
+        // every copy of a course carries the total over all shards, the default one is enough
+        var courses = shardRouter.onShard(0, () -> statsRepository.findCourseFills(CourseService.MAX_STUDENTS));
+        var totalEnrollments = 0L;
+        for (var course: courses) {
+            totalEnrollments += course.getStudents();
+        }
+        return new EnrollmentStats(totalEnrollments, totalStudents, buckets, courses);
+    }
+}
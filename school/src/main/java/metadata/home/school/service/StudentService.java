@@ -1,47 +1,151 @@
 package metadata.home.school.service;
 
-import metadata.home.school.exception.ResourceNotFoundException;
+import metadata.home.school.cache.EntityResponseCache;
+import metadata.home.school.model.BulkDeleteResult;
+import metadata.home.school.model.ChangeType;
 import metadata.home.school.model.Course;
+import metadata.home.school.model.ErrorCode;
 import metadata.home.school.model.ServiceResponse;
 import metadata.home.school.model.Student;
+import metadata.home.school.model.StudentFilter;
+import metadata.home.school.model.StudentPatch;
+import metadata.home.school.repository.BulkDeleteRepository;
 import metadata.home.school.repository.CourseRepository;
+import metadata.home.school.repository.EnrollmentRepository;
+import metadata.home.school.repository.PatchRepository;
 import metadata.home.school.repository.StudentRepository;
+import metadata.home.school.sharding.ShardRouter;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 
 @Service
 public class StudentService {
+    public static final int MAX_COURSES = 5;
+    public static final int MAX_BULK_DELETE = 5000;
 
     private StudentRepository studentRepository;
     private CourseRepository courseRepository;
+    private EntityResponseCache responseCache;
+    private ShardRouter shardRouter;
+    private WaitlistService waitlistService;
+    private SeatLedger seatLedger;
+    private EnrollmentCountService enrollmentCountService;
+    private BulkDeleteRepository bulkDeleteRepository;
+    private ScheduleIndex scheduleIndex;
+    private EnrollmentRepository enrollmentRepository;
+    private PatchRepository patchRepository;
+    private ChangeLog changeLog;
 
     @Autowired
-    public StudentService(StudentRepository studentRepository, CourseRepository courseRepository){
+    public StudentService(StudentRepository studentRepository, CourseRepository courseRepository, EntityResponseCache responseCache,
+                          ShardRouter shardRouter, WaitlistService waitlistService, SeatLedger seatLedger,
+                          EnrollmentCountService enrollmentCountService, BulkDeleteRepository bulkDeleteRepository,
+                          ScheduleIndex scheduleIndex, EnrollmentRepository enrollmentRepository, PatchRepository patchRepository,
+                          ChangeLog changeLog){
         this.studentRepository = studentRepository;
         this.courseRepository = courseRepository;
+        this.responseCache = responseCache;
+        this.shardRouter = shardRouter;
+        this.waitlistService = waitlistService;
+        this.seatLedger = seatLedger;
+        this.enrollmentCountService = enrollmentCountService;
+        this.bulkDeleteRepository = bulkDeleteRepository;
+        this.scheduleIndex = scheduleIndex;
+        this.enrollmentRepository = enrollmentRepository;
+        this.patchRepository = patchRepository;
+        this.changeLog = changeLog;
     }
 
     public List<Student> findAll(){
-        return studentRepository.findAll();
+        return shardRouter.scatter(() -> initialized(studentRepository.findAll()));
+    }
+
+    /**
+     * One page of the students matching the filter, ordered by id. With sharding every shard returns its first
+     * pages up to the requested one and they are merged by id.
+     */
+    public Page<Student> find(StudentFilter filter, Pageable pageable){
+        if(!shardRouter.isEnabled()){
+            return studentRepository.findAll(filter, pageable);
+        }
+
+        var window = PageRequest.of(0, (pageable.getPageNumber() + 1) * pageable.getPageSize(), pageable.getSort());
+        var students = new ArrayList<Student>();
+        var total = 0L;
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            var page = shardRouter.onShard(shard, () -> {
+                var found = studentRepository.findAll(filter, window);
+                initialized(found.getContent());
+                return found;
+            });
+            students.addAll(page.getContent());
+            total += page.getTotalElements();
+        }
+        students.sort(Comparator.comparing(Student::getId));
+        var from = Math.min((int) pageable.getOffset(), students.size());
+        var to = Math.min(from + pageable.getPageSize(), students.size());
+        return new PageImpl<>(students.subList(from, to), pageable, total);
     }
 
     public Optional<Student> findById(Integer id){
-        return studentRepository.findById(id);
+        var shard = shardRouter.shardForStudentId(id);
+        if(shard == ShardRouter.NO_SHARD){
+            return Optional.empty();
+        }
+        return shardRouter.onShard(shard, () -> initialized(studentRepository.findById(id)));
+    }
+
+    /**
+     * The students with the given ids and their courses in one query per shard. Ids not found are left out.
+     */
+    public List<Student> findAllById(Collection<Integer> ids){
+        var byShard = new TreeMap<Integer, List<Integer>>();
+        for (var id: ids) {
+            byShard.computeIfAbsent(shardRouter.shardForStudentId(id), shard -> new ArrayList<>()).add(id);
+        }
+        byShard.remove(ShardRouter.NO_SHARD);
+        var students = new ArrayList<Student>();
+        for (var shard: byShard.entrySet()) {
+            students.addAll(shardRouter.onShard(shard.getKey(), () -> studentRepository.findByIdIn(shard.getValue())));
+        }
+        return students;
+    }
+
+    /**
+     * Courses of each of the given students ordered by id, loaded together with one query per shard.
+     */
+    public Map<Integer, List<Course>> findCourses(Collection<Integer> studentIds){
+        var courses = new HashMap<Integer, List<Course>>();
+        for (var student: findAllById(studentIds)) {
+            var ofStudent = new ArrayList<>(student.getCourses());
+            ofStudent.sort(Comparator.comparing(Course::getId));
+            courses.put(student.getId(), ofStudent);
+        }
+        return courses;
     }
 
     public List<Student> findWithNoCourse(){
-        return studentRepository.findByCoursesIsEmpty();
+        return shardRouter.scatter(() -> studentRepository.findByCoursesIsEmpty());
     }
 
-    public ServiceResponse save(Student student){
+    public ServiceResponse<Student> save(Student student){
+        return shardRouter.onShard(shardRouter.shardFor(student.getSchoolId()), () -> saveOnShard(student));
+    }
+
+    private ServiceResponse<Student> saveOnShard(Student student){
         if(studentRepository.findBySchoolId(student.getSchoolId()) != null){
-            return new ServiceResponse(null, "A student with school id: " + student.getSchoolId() + " already exists");
+            return ServiceResponse.conflict(ErrorCode.STUDENT_SCHOOL_ID_EXISTS, student.getSchoolId());
         }
 
-        if(student.getCourses().size() > 5){
-            return new ServiceResponse(null, "A student cannot register to more than 5 courses");
+        if(student.getCourses().size() > MAX_COURSES){
+            return ServiceResponse.conflict(ErrorCode.STUDENT_COURSE_LIMIT);
         }
 
         Set<Course> courses = new HashSet<>();
@@ -51,61 +155,401 @@ public class StudentService {
                 courses.add(newCourse);
             }
         }
+        var conflict = scheduleIndex.findConflict(List.of(), courses);
+        if(conflict != null){
+            return ServiceResponse.conflict(ErrorCode.STUDENT_SCHEDULE_CONFLICT, conflict.getName());
+        }
         student.setCourses(courses);
 
-        return new ServiceResponse(studentRepository.save(student), "");
+        var savedStudent = shardRouter.withinTransaction(shardRouter.shardFor(student.getSchoolId()), () -> {
+            var saved = studentRepository.save(student);
+            changeLog.recordWritten(ChangeType.STUDENT, saved.getId());
+            changeLog.recordCoursesOf(saved.getId(), courseIds(courses), List.of());
+            return saved;
+        });
+        for (var course: courses) {
+            seatLedger.invalidate(course.getId());
+        }
+        enrollmentCountService.created(savedStudent.getId());
+        enrollmentCountService.refresh(List.of(savedStudent.getId()), courseIds(courses));
+        responseCache.evictCourses(courses);
+        return ServiceResponse.success(savedStudent);
     }
 
-    public ServiceResponse update(Integer id, Student student){
-        Student currentStudent = studentRepository.findById(id).get();
+    public ServiceResponse<Student> update(Integer id, Student student){
+        var shard = shardRouter.shardForStudentId(id);
+        if(shard == ShardRouter.NO_SHARD){
+            return ServiceResponse.notFound(ErrorCode.STUDENT_NOT_FOUND, id);
+        }
+        if(shardRouter.shardFor(student.getSchoolId()) != shard){
+            return ServiceResponse.conflict(ErrorCode.STUDENT_SHARD_CHANGE, student.getSchoolId());
+        }
+        return shardRouter.onShard(shard, () -> updateOnShard(id, student));
+    }
+
+    private ServiceResponse<Student> updateOnShard(Integer id, Student student){
+        Student currentStudent = studentRepository.findById(id).orElse(null);
+        if(currentStudent == null){
+            return ServiceResponse.notFound(ErrorCode.STUDENT_NOT_FOUND, id);
+        }
         var existingStudent = studentRepository.findBySchoolId(student.getSchoolId());
-        if(existingStudent != null && existingStudent.getId() != currentStudent.getId()){
-            return new ServiceResponse(null, "A student with school id: " + student.getSchoolId() + " already exists");
+        if(existingStudent != null && !existingStudent.getId().equals(currentStudent.getId())){
+            return ServiceResponse.conflict(ErrorCode.STUDENT_SCHOOL_ID_EXISTS, student.getSchoolId());
         }
 
-        if(student.getCourses().size() > 5){
-            return new ServiceResponse(null, "A student cannot register to more than 5 courses");
+        if(student.getCourses().size() > MAX_COURSES){
+            return ServiceResponse.conflict(ErrorCode.STUDENT_COURSE_LIMIT);
         }
 
+        var newCourses = new HashSet<Course>();
+        for (var course: student.getCourses()) {
+            var newCourse = courseRepository.findByName(course.getName());
+            if(newCourse != null){
+                newCourses.add(newCourse);
+            }
+        }
+        var conflict = scheduleIndex.findConflict(List.of(), newCourses);
+        if(conflict != null){
+            return ServiceResponse.conflict(ErrorCode.STUDENT_SCHEDULE_CONFLICT, conflict.getName());
+        }
+
+        var previousCourses = new HashSet<>(currentStudent.getCourses());
         currentStudent.setName(student.getName());
         currentStudent.setSchoolId(student.getSchoolId());
-        currentStudent.setCourses(new HashSet<>());
-        for (var course: student.getCourses()) {
-            addCourse(currentStudent, course);
+        currentStudent.setCourses(newCourses);
+        var addedCourses = courseIds(newCourses);
+        addedCourses.removeAll(courseIds(previousCourses));
+        var removedCourses = courseIds(previousCourses);
+        removedCourses.removeAll(courseIds(newCourses));
+
+        var savedStudent = shardRouter.withinTransaction(shardRouter.shardForStudentId(id), () -> {
+            var saved = studentRepository.save(currentStudent);
+            changeLog.recordWritten(ChangeType.STUDENT, id);
+            changeLog.recordCoursesOf(id, addedCourses, removedCourses);
+            return saved;
+        });
+        for (var course: previousCourses) {
+            seatLedger.invalidate(course.getId());
+            if(!currentStudent.getCourses().contains(course)){
+                waitlistService.seatsReleased(course.getId());
+            }
+        }
+        for (var course: currentStudent.getCourses()) {
+            seatLedger.invalidate(course.getId());
+        }
+        var changedCourses = courseIds(previousCourses);
+        changedCourses.addAll(courseIds(currentStudent.getCourses()));
+        enrollmentCountService.refresh(List.of(id), changedCourses);
+        responseCache.evictStudent(id);
+        responseCache.evictCourses(previousCourses);
+        responseCache.evictCourses(currentStudent.getCourses());
+        return ServiceResponse.success(savedStudent);
+    }
+
+    /**
+     * Applies a merge patch without loading the student: the school id and name go in one update of the student row, and
+     * only when the patch has courses is the join table read and changed, by deleting the courses left out and inserting
+     * the new ones. Unlike PUT, every course must exist and the added ones must have a free seat.
+     */
+    public ServiceResponse<Student> patch(Integer id, StudentPatch patch){
+        var shard = shardRouter.shardForStudentId(id);
+        if(shard == ShardRouter.NO_SHARD){
+            return ServiceResponse.notFound(ErrorCode.STUDENT_NOT_FOUND, id);
+        }
+        if(patch.hasSchoolId() && shardRouter.shardFor(patch.getSchoolId()) != shard){
+            return ServiceResponse.conflict(ErrorCode.STUDENT_SHARD_CHANGE, patch.getSchoolId());
+        }
+        var removedCourses = new ArrayList<Integer>();
+        var addedCourses = new ArrayList<Integer>();
+        var renderingCourses = new ArrayList<Integer>();
+        ServiceResponse<Student> rejected = shardRouter.inTransaction(shard,
+                () -> patchOnShard(id, patch, removedCourses, addedCourses, renderingCourses));
+        if(rejected != null){
+            return rejected;
         }
 
-        return new ServiceResponse(studentRepository.save(currentStudent), "");
+        for (var courseId: removedCourses) {
+            seatLedger.free(courseId, 1);
+            waitlistService.seatsReleased(courseId);
+        }
+        var changedCourses = new ArrayList<>(removedCourses);
+        changedCourses.addAll(addedCourses);
+        if(!changedCourses.isEmpty()){
+            enrollmentCountService.refresh(List.of(id), changedCourses);
+        }
+        responseCache.evictStudent(id);
+        changedCourses.forEach(responseCache::evictCourse);
+        renderingCourses.forEach(responseCache::evictCourse);
+        return ServiceResponse.success(shardRouter.onShard(shard, () -> initialized(studentRepository.findById(id))).orElse(null));
+    }
+
+    /**
+     * Validates and writes the patch, filling in the courses it removed and added, and when the school id or name changed
+     * the courses the student is left in, whose cached responses show them. Returns the rejection, or null once written.
+     */
+    private ServiceResponse<Student> patchOnShard(Integer id, StudentPatch patch, List<Integer> removedCourses, List<Integer> addedCourses,
+                                                  List<Integer> renderingCourses){
+        if(!studentRepository.existsById(id)){
+            return ServiceResponse.notFound(ErrorCode.STUDENT_NOT_FOUND, id);
+        }
+        if(patch.hasSchoolId() && studentRepository.existsBySchoolIdAndIdNot(patch.getSchoolId(), id)){
+            return ServiceResponse.conflict(ErrorCode.STUDENT_SCHOOL_ID_EXISTS, patch.getSchoolId());
+        }
+
+        var leases = new ArrayList<SeatLedger.Lease>();
+        if(patch.hasCourses()){
+            var requestedCourses = new LinkedHashMap<Integer, Course>();
+            for (var course: patch.getCourses()) {
+                var requestedCourse = courseRepository.findByName(course.getName());
+                if(requestedCourse == null){
+                    return ServiceResponse.conflict(ErrorCode.COURSE_NAME_NOT_FOUND, course.getName());
+                }
+                requestedCourses.put(requestedCourse.getId(), requestedCourse);
+            }
+            if(requestedCourses.size() > MAX_COURSES){
+                return ServiceResponse.conflict(ErrorCode.STUDENT_COURSE_LIMIT);
+            }
+            var conflict = scheduleIndex.findConflict(List.of(), requestedCourses.values());
+            if(conflict != null){
+                return ServiceResponse.conflict(ErrorCode.STUDENT_SCHEDULE_CONFLICT, conflict.getName());
+            }
+
+            var currentCourses = new HashSet<>(enrollmentRepository.findCourseIds(id));
+            for (var courseId: currentCourses) {
+                if(!requestedCourses.containsKey(courseId)){
+                    removedCourses.add(courseId);
+                }
+            }
+            for (var courseId: requestedCourses.keySet()) {
+                if(currentCourses.contains(courseId)){
+                    continue;
+                }
+                var lease = seatLedger.reserve(courseId, 1);
+                if(lease == null){
+                    leases.forEach(seatLedger::release);
+                    removedCourses.clear();
+                    addedCourses.clear();
+                    return ServiceResponse.conflict(ErrorCode.COURSE_CAPACITY);
+                }
+                leases.add(lease);
+                addedCourses.add(courseId);
+            }
+        }
+
+        try{
+            patchRepository.updateStudent(id, patch);
+            for (var courseId: removedCourses) {
+                enrollmentRepository.delete(courseId, List.of(id));
+            }
+            for (var courseId: addedCourses) {
+                enrollmentRepository.insert(courseId, List.of(id));
+            }
+            if(patch.hasSchoolId() || patch.hasName()){
+                changeLog.recordWritten(ChangeType.STUDENT, id);
+            }
+            changeLog.recordCoursesOf(id, addedCourses, removedCourses);
+        }catch (RuntimeException ex){
+            leases.forEach(seatLedger::release);
+            throw ex;
+        }
+        leases.forEach(seatLedger::confirm);
+        if(patch.hasSchoolId() || patch.hasName()){
+            renderingCourses.addAll(enrollmentRepository.findCourseIds(id));
+        }
+        return null;
     }
 
     public void delete(Student student){
-        studentRepository.delete(student);
+        // read before deleting, the join rows go without loading the collection and it can't be loaded afterwards
+        var courses = new ArrayList<>(student.getCourses());
+        shardRouter.withinTransaction(shardRouter.shardForStudentId(student.getId()), () -> {
+            studentRepository.delete(student);
+            changeLog.recordDeleted(ChangeType.STUDENT, List.of(student.getId()));
+            return null;
+        });
+        waitlistService.removeStudent(student.getId());
+        for (var course: courses) {
+            seatLedger.free(course.getId(), 1);
+            waitlistService.seatsReleased(course.getId());
+        }
+        enrollmentCountService.deleted(student.getId(), courses.size());
+        enrollmentCountService.refresh(List.of(), courseIds(courses));
+        responseCache.evictStudent(student.getId());
+        responseCache.evictCourses(courses);
     }
 
-    public ServiceResponse register(Integer id, List<Course> courses){
-        var currentStudent = studentRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Student", "id", id));
-        if(currentStudent.getCourses().size() >= 5){
-            return new ServiceResponse(null, "A student cannot register to more than 5 courses");
+    /**
+     * Deletes the students with the given ids and their enrollments and waitlist entries with set-based statements,
+     * without loading them. Each shard deletes its students in one transaction.
+     */
+    public ServiceResponse<BulkDeleteResult> deleteAll(Collection<Integer> ids){
+        var requested = new LinkedHashSet<>(ids);
+        if(requested.size() > MAX_BULK_DELETE){
+            return ServiceResponse.invalid(ErrorCode.BULK_DELETE_TOO_LARGE, MAX_BULK_DELETE);
         }
-        for (var course: courses) {
-            if(!currentStudent.getCourses().stream().anyMatch(x -> x.getName().equals(course.getName()))){
-                var added = addCourse(currentStudent, course);
-                if(!added){
-                    return new ServiceResponse(null, "Cannot find course: " + course.getName());
+        var byShard = new TreeMap<Integer, List<Integer>>();
+        for (var id: requested) {
+            byShard.computeIfAbsent(shardRouter.shardForStudentId(id), shard -> new ArrayList<>()).add(id);
+        }
+        // ids of no shard are reported missing
+        byShard.remove(ShardRouter.NO_SHARD);
+
+        var deleted = new HashSet<Integer>();
+        var freedSeats = new HashMap<Integer, Integer>();
+        for (var shard: byShard.entrySet()) {
+            shardRouter.inTransaction(shard.getKey(), () -> {
+                var courseCounts = bulkDeleteRepository.lockStudents(shard.getValue());
+                if(courseCounts.isEmpty()){
+                    return null;
+                }
+                bulkDeleteRepository.countSeatsOfStudents(courseCounts.keySet())
+                        .forEach((courseId, seats) -> freedSeats.merge(courseId, seats, Integer::sum));
+                bulkDeleteRepository.deleteStudents(courseCounts.keySet());
+                waitlistService.removeStudents(courseCounts.keySet());
+                changeLog.recordDeleted(ChangeType.STUDENT, courseCounts.keySet());
+
+                var studentsByCourseCount = new HashMap<Integer, Integer>();
+                for (var courseCount: courseCounts.values()) {
+                    studentsByCourseCount.merge(courseCount, 1, Integer::sum);
                 }
+                enrollmentCountService.deleted(shard.getKey(), studentsByCourseCount);
+                deleted.addAll(courseCounts.keySet());
+                return null;
+            });
+        }
+
+        for (var freed: freedSeats.entrySet()) {
+            seatLedger.free(freed.getKey(), freed.getValue());
+            waitlistService.seatsReleased(freed.getKey());
+        }
+        enrollmentCountService.refresh(List.of(), freedSeats.keySet());
+        for (var id: deleted) {
+            responseCache.evictStudent(id);
+        }
+        for (var courseId: freedSeats.keySet()) {
+            responseCache.evictCourse(courseId);
+        }
+
+        var result = new BulkDeleteResult();
+        for (var id: requested) {
+            (deleted.contains(id) ? result.getDeleted() : result.getMissing()).add(id);
+        }
+        return ServiceResponse.success(result);
+    }
+
+    /**
+     * Deletes every student matching the filter, refusing an empty filter and more than {@link #MAX_BULK_DELETE} matches.
+     */
+    public ServiceResponse<BulkDeleteResult> deleteAll(StudentFilter filter){
+        if(filter.isEmpty()){
+            return ServiceResponse.invalid(ErrorCode.BULK_DELETE_UNFILTERED, null);
+        }
+        var ids = shardRouter.scatter(() -> bulkDeleteRepository.findStudentIds(filter, MAX_BULK_DELETE + 1));
+        if(ids.size() > MAX_BULK_DELETE){
+            return ServiceResponse.invalid(ErrorCode.BULK_DELETE_TOO_LARGE, MAX_BULK_DELETE);
+        }
+        return deleteAll(ids);
+    }
+
+    public ServiceResponse<Student> register(Integer id, List<Course> courses){
+        var shard = shardRouter.shardForStudentId(id);
+        if(shard == ShardRouter.NO_SHARD){
+            return ServiceResponse.notFound(ErrorCode.STUDENT_NOT_FOUND, id);
+        }
+        return shardRouter.onShard(shard, () -> registerOnShard(id, courses));
+    }
+
+    /**
+     * Enrolls the student in the given courses. Full courses put the student on their waitlist instead, in which case
+     * the response is accepted rather than successful and the enrollment happens once a seat frees up.
+     */
+    private ServiceResponse<Student> registerOnShard(Integer id, List<Course> courses){
+        var currentStudent = studentRepository.findById(id).orElse(null);
+        if(currentStudent == null){
+            return ServiceResponse.notFound(ErrorCode.STUDENT_NOT_FOUND, id);
+        }
+        if(currentStudent.getCourses().size() >= MAX_COURSES){
+            return ServiceResponse.conflict(ErrorCode.STUDENT_COURSE_LIMIT);
+        }
+        // resolve everything before touching the managed student so a rejected request leaves nothing to flush
+        var requestedCourses = new ArrayList<Course>();
+        for (var course: courses) {
+            if(currentStudent.getCourses().stream().anyMatch(x -> x.getName().equals(course.getName()))){
+                return ServiceResponse.conflict(ErrorCode.STUDENT_ALREADY_REGISTERED, course.getName());
+            }
+            var newCourse = courseRepository.findByName(course.getName());
+            if(newCourse == null){
+                return ServiceResponse.conflict(ErrorCode.COURSE_NAME_NOT_FOUND, course.getName());
+            }
+            requestedCourses.add(newCourse);
+        }
+        // waitlisted courses count too, the student would take them once a seat frees up
+        var conflict = scheduleIndex.findConflict(currentStudent.getCourses(), requestedCourses);
+        if(conflict != null){
+            return ServiceResponse.conflict(ErrorCode.STUDENT_SCHEDULE_CONFLICT, conflict.getName());
+        }
+
+        var addedCourses = new ArrayList<Course>();
+        var waitlistedCourses = new ArrayList<Course>();
+        var leases = new ArrayList<SeatLedger.Lease>();
+        for (var course: requestedCourses) {
+            var lease = seatLedger.reserve(course.getId(), 1);
+            if(lease == null){
+                waitlistedCourses.add(course);
             }else{
-                return new ServiceResponse(null, "Student was already registered to course: " + course.getName());
+                leases.add(lease);
+                addedCourses.add(course);
             }
         }
+        currentStudent.getCourses().addAll(addedCourses);
 
-        return new ServiceResponse(studentRepository.save(currentStudent), "");
+        Student savedStudent;
+        try{
+            savedStudent = shardRouter.withinTransaction(shardRouter.shardForStudentId(id), () -> {
+                var saved = studentRepository.save(currentStudent);
+                changeLog.recordCoursesOf(id, courseIds(addedCourses), List.of());
+                return saved;
+            });
+        }catch (RuntimeException ex){
+            leases.forEach(seatLedger::release);
+            throw ex;
+        }
+        leases.forEach(seatLedger::confirm);
+        enrollmentCountService.refresh(List.of(id), courseIds(addedCourses));
+        for (var course: waitlistedCourses) {
+            waitlistService.enqueue(course.getId(), id);
+        }
+        responseCache.evictStudent(id);
+        responseCache.evictCourses(addedCourses);
+        if(!waitlistedCourses.isEmpty()){
+            return ServiceResponse.accepted(savedStudent);
+        }
+        return ServiceResponse.success(savedStudent);
+    }
+
+    private static List<Integer> courseIds(Collection<Course> courses){
+        var ids = new ArrayList<Integer>();
+        for (var course: courses) {
+            ids.add(course.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * With sharding the connection goes back to the pool when the routed transaction ends, so courses are loaded
+     * before that instead of lazily while rendering the response.
+     */
+    private List<Student> initialized(List<Student> students){
+        if(shardRouter.isEnabled()){
+            students.forEach(student -> Hibernate.initialize(student.getCourses()));
+        }
+        return students;
     }
 
-    private boolean addCourse(Student student, Course course){
-        var newCourse = courseRepository.findByName(course.getName());
-        if(newCourse != null){
-            student.getCourses().add(newCourse);
-            return true;
+    private Optional<Student> initialized(Optional<Student> student){
+        if(shardRouter.isEnabled() && student != null){
+            student.ifPresent(found -> Hibernate.initialize(found.getCourses()));
         }
-        return false;
+        return student;
     }
 }
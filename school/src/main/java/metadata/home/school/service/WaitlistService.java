@@ -0,0 +1,224 @@
+package metadata.home.school.service;
+
+import metadata.home.school.cache.EntityResponseCache;
+import metadata.home.school.model.WaitlistEntry;
+import metadata.home.school.repository.CourseRepository;
+import metadata.home.school.repository.EnrollmentRepository;
+import metadata.home.school.repository.EnrollmentRepository.EnrollmentCandidate;
+import metadata.home.school.repository.WaitlistRepository;
+import metadata.home.school.sharding.ShardRouter;
+import metadata.home.school.tenancy.TenantContext;
+import metadata.home.school.tenancy.TenantKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FIFO waitlists for full courses. Writes that may free a seat only mark the course, a scheduled promoter then enrolls
+ * the first eligible students of each marked course in one transaction holding the course lock, taking the seats
+ * from the {@link SeatLedger}. Students whose courses overlap the course's schedule are passed over and keep waiting.
+ * With sharding the waitlists live on the default shard and enrollments are written on each student's shard. Marked
+ * courses remember their tenant and are promoted as it.
+ */
+@Service
+public class WaitlistService {
+    private static final Logger log = LoggerFactory.getLogger(WaitlistService.class);
+
+    private WaitlistRepository waitlistRepository;
+    private EnrollmentRepository enrollmentRepository;
+    private EntityResponseCache responseCache;
+    private ShardRouter shardRouter;
+    private SeatLedger seatLedger;
+    private EnrollmentCountService enrollmentCountService;
+    private ChangeLog changeLog;
+    private ScheduleIndex scheduleIndex;
+    private CourseRepository courseRepository;
+
+    private final Set<TenantKey> pendingCourses = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public WaitlistService(WaitlistRepository waitlistRepository, EnrollmentRepository enrollmentRepository,
+                           EntityResponseCache responseCache, ShardRouter shardRouter, SeatLedger seatLedger,
+                           EnrollmentCountService enrollmentCountService, ChangeLog changeLog, ScheduleIndex scheduleIndex,
+                           CourseRepository courseRepository){
+        this.waitlistRepository = waitlistRepository;
+        this.enrollmentRepository = enrollmentRepository;
+        this.responseCache = responseCache;
+        this.shardRouter = shardRouter;
+        this.seatLedger = seatLedger;
+        this.enrollmentCountService = enrollmentCountService;
+        this.changeLog = changeLog;
+        this.scheduleIndex = scheduleIndex;
+        this.courseRepository = courseRepository;
+    }
+
+    /**
+     * Adds the student at the end of the course's waitlist unless it is already waiting for it.
+     */
+    public void enqueue(Integer courseId, Integer studentId){
+        shardRouter.onShard(0, () -> {
+            if(!waitlistRepository.existsByCourseIdAndStudentId(courseId, studentId)){
+                waitlistRepository.save(new WaitlistEntry(courseId, studentId));
+            }
+        });
+    }
+
+    public List<Integer> findWaitlist(Integer courseId){
+        var studentIds = new ArrayList<Integer>();
+        for (var entry: shardRouter.onShard(0, () -> waitlistRepository.findByCourseIdOrderByIdAsc(courseId))) {
+            studentIds.add(entry.getStudentId());
+        }
+        return studentIds;
+    }
+
+    public void seatsReleased(Integer courseId){
+        if(courseId != null){
+            pendingCourses.add(TenantKey.of(courseId));
+        }
+    }
+
+    public void removeStudent(Integer studentId){
+        shardRouter.onShard(0, () -> waitlistRepository.deleteByStudentId(studentId));
+    }
+
+    public void removeCourse(Integer courseId){
+        pendingCourses.remove(TenantKey.of(courseId));
+        shardRouter.onShard(0, () -> waitlistRepository.deleteByCourseId(courseId));
+    }
+
+    public void removeStudents(Collection<Integer> studentIds){
+        if(!studentIds.isEmpty()){
+            shardRouter.onShard(0, () -> waitlistRepository.deleteByStudentIdIn(studentIds));
+        }
+    }
+
+    public void removeCourses(Collection<Integer> courseIds){
+        if(!courseIds.isEmpty()){
+            for (var courseId: courseIds) {
+                pendingCourses.remove(TenantKey.of(courseId));
+            }
+            shardRouter.onShard(0, () -> waitlistRepository.deleteByCourseIdIn(courseIds));
+        }
+    }
+
+    /**
+     * Promotes waitlisted students on every course marked since the last run. Returns how many were enrolled; a course
+     * whose promotion fails stays marked for the next run.
+     */
+    @Scheduled(fixedDelayString = "${school.waitlist.promotion-interval:PT1S}")
+    public int promotePending(){
+        var promoted = 0;
+        for (var course: new ArrayList<>(pendingCourses)) {
+            pendingCourses.remove(course);
+            try{
+                promoted += TenantContext.callAs(course.getTenant(), () -> promote(course.getId()));
+            }catch (RuntimeException ex){
+                // tried again on the next run, the other courses still get their students
+                log.warn("Promoting the waitlist of course {} failed", course.getId(), ex);
+                pendingCourses.add(course);
+            }
+        }
+        return promoted;
+    }
+
+    public int promote(Integer courseId){
+        return shardRouter.inTransaction(0, () -> promoteLocked(courseId));
+    }
+
+    private int promoteLocked(Integer courseId){
+        if(!enrollmentRepository.lockCourse(courseId)){
+            waitlistRepository.deleteByCourseId(courseId);
+            return 0;
+        }
+        var entries = waitlistRepository.findByCourseIdOrderByIdAsc(courseId);
+        if(entries.isEmpty()){
+            return 0;
+        }
+
+        var candidates = findCandidates(courseId, entries);
+        var conflicts = findScheduleConflicts(courseId, candidates.values());
+        var eligible = new ArrayList<WaitlistEntry>();
+        var done = new ArrayList<WaitlistEntry>();
+        for (var entry: entries) {
+            var candidate = candidates.get(entry.getStudentId());
+            // students that were deleted, enrolled meanwhile or reached their course limit leave the waitlist
+            if(candidate == null || candidate.isEnrolled() || candidate.getCourseCount() >= StudentService.MAX_COURSES){
+                done.add(entry);
+            }else if(!conflicts.contains(entry.getStudentId())){
+                eligible.add(entry);
+            }
+            // students whose courses overlap this one keep their place until they drop the other course
+        }
+
+        var lease = seatLedger.reserveUpTo(courseId, eligible.size());
+        var promoted = eligible.subList(0, lease.getSeats());
+        done.addAll(promoted);
+        var toInsert = new TreeMap<Integer, List<Integer>>();
+        for (var entry: promoted) {
+            toInsert.computeIfAbsent(shardRouter.shardForStudentId(entry.getStudentId()), shard -> new ArrayList<>())
+                    .add(entry.getStudentId());
+        }
+        try{
+            for (var shard: toInsert.entrySet()) {
+                shardRouter.onShard(shard.getKey(), () -> {
+                    enrollmentRepository.insert(courseId, shard.getValue());
+                    changeLog.recordStudentsOf(courseId, shard.getValue(), List.of());
+                });
+            }
+            waitlistRepository.deleteAllInBatch(done);
+        }catch (RuntimeException ex){
+            seatLedger.release(lease);
+            throw ex;
+        }
+        seatLedger.confirm(lease);
+
+        var promotedIds = new ArrayList<Integer>();
+        toInsert.values().forEach(promotedIds::addAll);
+        enrollmentCountService.refresh(promotedIds, List.of(courseId));
+        responseCache.evictCourse(courseId);
+        for (var studentIds: toInsert.values()) {
+            studentIds.forEach(responseCache::evictStudent);
+        }
+        return promoted.size();
+    }
+
+    /**
+     * Ids of the candidates otherwise able to enroll whose courses overlap the course's schedule, checked on each
+     * student's shard.
+     */
+    private Set<Integer> findScheduleConflicts(Integer courseId, Collection<EnrollmentCandidate> candidates){
+        var byShard = new TreeMap<Integer, List<Integer>>();
+        for (var candidate: candidates) {
+            if(!candidate.isEnrolled() && candidate.getCourseCount() < StudentService.MAX_COURSES){
+                byShard.computeIfAbsent(shardRouter.shardForStudentId(candidate.getStudentId()), shard -> new ArrayList<>())
+                        .add(candidate.getStudentId());
+            }
+        }
+        var conflicts = new HashSet<Integer>();
+        for (var shard: byShard.entrySet()) {
+            conflicts.addAll(shardRouter.onShard(shard.getKey(), () -> scheduleIndex.findConflicts(courseId,
+                    () -> enrollmentRepository.findCourseIds(shard.getValue()), courseRepository::findByIdIn)));
+        }
+        return conflicts;
+    }
+
+    private Map<Integer, EnrollmentCandidate> findCandidates(Integer courseId, List<WaitlistEntry> entries){
+        var byShard = new TreeMap<Integer, List<Integer>>();
+        for (var entry: entries) {
+            byShard.computeIfAbsent(shardRouter.shardForStudentId(entry.getStudentId()), shard -> new ArrayList<>())
+                    .add(entry.getStudentId());
+        }
+        var candidates = new HashMap<Integer, EnrollmentCandidate>();
+        for (var shard: byShard.entrySet()) {
+            for (var candidate: shardRouter.onShard(shard.getKey(), () -> enrollmentRepository.findCandidatesById(courseId, shard.getValue()))) {
+                candidates.put(candidate.getStudentId(), candidate);
+            }
+        }
+        return candidates;
+    }
+}
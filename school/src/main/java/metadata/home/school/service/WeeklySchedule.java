@@ -0,0 +1,37 @@
+package metadata.home.school.service;
+
+import java.util.TreeMap;
+
+/**
+ * The weekly busy time of one student as half-open [start, end) minute-of-week intervals. Intervals kept here never
+ * overlap, so a tree keyed by start is all the interval tree needs to be: only the floor and ceiling neighbours of a
+ * new interval can overlap it, which makes each check logarithmic in the number of slots.
+ */
+public final class WeeklySchedule {
+    private final TreeMap<Integer, Integer> busy = new TreeMap<>();
+
+    /**
+     * Adds all the intervals, given as start, end pairs sorted by start, or none of them if any overlaps the schedule
+     * or another one of them.
+     */
+    public boolean add(int[] intervals){
+        for(var i = 0; i < intervals.length; i += 2){
+            if(overlaps(intervals[i], intervals[i + 1]) || (i > 0 && intervals[i] < intervals[i - 1])){
+                return false;
+            }
+        }
+        for(var i = 0; i < intervals.length; i += 2){
+            busy.put(intervals[i], intervals[i + 1]);
+        }
+        return true;
+    }
+
+    public boolean overlaps(int start, int end){
+        var before = busy.floorEntry(start);
+        if(before != null && before.getValue() > start){
+            return true;
+        }
+        var after = busy.ceilingKey(start);
+        return after != null && after < end;
+    }
+}
@@ -0,0 +1,35 @@
+package metadata.home.school.sharding;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerationException;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.io.Serializable;
+
+/**
+ * Student id generator. Without sharding it behaves like the default sequence generator; with sharding the shard's own
+ * sequence value is shifted and tagged with the shard number so ids stay unique across shards and route back to them.
+ * Ids are ints, so a shard can hand out {@link #MAX_SEQUENCE_VALUE} of them; past that generating fails rather than
+ * wrapping around to negative ids of another shard.
+ */
+public class ShardAwareIdGenerator extends SequenceStyleGenerator {
+    static final long MAX_SEQUENCE_VALUE = (Integer.MAX_VALUE - (ShardRouter.MAX_SHARDS - 1)) / ShardRouter.MAX_SHARDS;
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object){
+        var id = super.generate(session, object);
+        var shard = ShardContext.current();
+        if(shard == null){
+            return id;
+        }
+        return tag(((Number) id).longValue(), shard);
+    }
+
+    static int tag(long value, int shard){
+        if(value > MAX_SEQUENCE_VALUE){
+            throw new IdentifierGenerationException("Student id sequence of shard " + shard + " is at " + value
+                    + ", past the last value " + MAX_SEQUENCE_VALUE + " that fits an id");
+        }
+        return (int) value * ShardRouter.MAX_SHARDS + shard;
+    }
+}
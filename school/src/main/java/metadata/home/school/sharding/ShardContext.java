@@ -0,0 +1,24 @@
+package metadata.home.school.sharding;
+
+/**
+ * Holds the shard the current thread is routed to. Unset means the default shard,
+ * which is also where the replicated course catalogue is written first.
+ */
+public final class ShardContext {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext(){
+    }
+
+    public static Integer current(){
+        return CURRENT.get();
+    }
+
+    static void set(Integer shard){
+        if(shard == null){
+            CURRENT.remove();
+        }else{
+            CURRENT.set(shard);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package metadata.home.school.sharding;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard owns a student and runs work against it.
+ * Students live on the shard picked by a hash of their school id, and their generated ids carry the shard number
+ * in the low bits so lookups by id can be routed without a directory. When sharding is disabled every method
+ * just runs the work in place, so the services keep their single database behaviour.
+ */
+@Component
+public class ShardRouter {
+    public static final int MAX_SHARDS = 16;
+    public static final int NO_SHARD = -1;
+
+    private final boolean enabled;
+    private final int shardCount;
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ShardRouter(ShardingProperties properties, ObjectProvider<PlatformTransactionManager> transactionManager){
+        this.enabled = properties.isEnabled();
+        this.shardCount = enabled ? properties.getShards().size() : 1;
+        this.transactionManager = transactionManager;
+        if(enabled && (shardCount == 0 || shardCount > MAX_SHARDS)){
+            throw new IllegalStateException("Sharding needs between 1 and " + MAX_SHARDS + " shards, got " + shardCount);
+        }
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public int getShardCount(){
+        return shardCount;
+    }
+
+    public int shardFor(String schoolId){
+        if(!enabled || schoolId == null){
+            return 0;
+        }
+        return Math.floorMod(schoolId.hashCode(), shardCount);
+    }
+
+    /**
+     * The shard the id was generated on, or {@link #NO_SHARD} when its low bits name a shard this deployment doesn't
+     * have: no student has such an id, and asking any other shard for it would be asking the wrong one.
+     */
+    public int shardForStudentId(Integer id){
+        if(!enabled || id == null){
+            return 0;
+        }
+        var shard = Math.floorMod(id, MAX_SHARDS);
+        return shard < shardCount ? shard : NO_SHARD;
+    }
+
+    /**
+     * Runs the work inside one transaction on the given shard. The transaction matters: the connection is bound when it
+     * starts and released when it ends, so anything lazy the caller needs must be initialized inside the work.
+     */
+    public <T> T onShard(int shard, Supplier<T> work){
+        if(!enabled){
+            return work.get();
+        }
+        return inTransaction(shard, work);
+    }
+
+    /**
+     * Like {@link #onShard(int, Supplier)} but opens a transaction even when sharding is disabled,
+     * for work that has to be atomic on its own.
+     */
+    public <T> T inTransaction(int shard, Supplier<T> work){
+        var previous = ShardContext.current();
+        EntityManagerFactory entityManagerFactory = null;
+        EntityManagerHolder requestEntityManager = null;
+        if(enabled){
+            ShardContext.set(shard);
+            entityManagerFactory = requestEntityManagerFactory();
+            if(entityManagerFactory != null){
+                requestEntityManager = (EntityManagerHolder) TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+            }
+        }
+        try{
+            return transactionTemplate().execute(status -> work.get());
+        }finally {
+            if(enabled){
+                if(requestEntityManager != null){
+                    TransactionSynchronizationManager.bindResource(entityManagerFactory, requestEntityManager);
+                }
+                ShardContext.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Runs the work in the caller's transaction when it has one on the given shard, or else in a new one there. For
+     * writes that have to commit together with what the caller already wrote, like the change log entry of a write.
+     */
+    public <T> T withinTransaction(int shard, Supplier<T> work){
+        if(TransactionSynchronizationManager.isActualTransactionActive() && (!enabled || Integer.valueOf(shard).equals(ShardContext.current()))){
+            return work.get();
+        }
+        return inTransaction(shard, work);
+    }
+
+    /**
+     * Open-in-view binds one entity manager to the whole request, and a transaction started outside another one would
+     * use it: entities it loaded from one shard, and changed since, would then be flushed into whichever shard commits
+     * next. The entity manager is unbound while the transaction runs so it gets one of its own, closed when it ends.
+     * Inside another transaction nothing needs doing, a new one suspends the outer entity manager already.
+     */
+    private EntityManagerFactory requestEntityManagerFactory(){
+        var manager = transactionManager.getObject();
+        if(!(manager instanceof JpaTransactionManager) || TransactionSynchronizationManager.isActualTransactionActive()){
+            return null;
+        }
+        return ((JpaTransactionManager) manager).getEntityManagerFactory();
+    }
+
+    public void onShard(int shard, Runnable work){
+        onShard(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the query on every shard and concatenates the results in shard order.
+     */
+    public <T> List<T> scatter(Supplier<? extends Collection<T>> query){
+        if(!enabled){
+            return new ArrayList<>(query.get());
+        }
+        var results = new ArrayList<T>();
+        for(var shard = 0; shard < shardCount; shard++){
+            results.addAll(onShard(shard, query));
+        }
+        return results;
+    }
+
+    /**
+     * Runs the work on every shard but the default one, used to copy replicated rows after the default shard accepted them.
+     */
+    public void replicate(Runnable work){
+        for(var shard = 1; shard < shardCount; shard++){
+            onShard(shard, work);
+        }
+    }
+
+    private TransactionTemplate transactionTemplate(){
+        if(transactionTemplate == null){
+            // a new transaction even inside another one, joining it would keep the outer shard's connection
+            transactionTemplate = new TransactionTemplate(transactionManager.getObject());
+            transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+        return transactionTemplate;
+    }
+}
@@ -0,0 +1,10 @@
+package metadata.home.school.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    @Override
+    protected Object determineCurrentLookupKey(){
+        return ShardContext.current();
+    }
+}
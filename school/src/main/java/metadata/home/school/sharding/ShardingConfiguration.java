@@ -0,0 +1,94 @@
+package metadata.home.school.sharding;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.schema.TargetType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.*;
+
+/**
+ * Replaces the single datasource with one routing over the configured shards.
+ * Hibernate only builds the schema on the default shard, so the other shards get the same schema applied with
+ * SchemaUpdate while the session factory starts.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "school.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfiguration {
+    private final List<DataSource> shards = new ArrayList<>();
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardingProperties properties){
+        var targets = new HashMap<Object, Object>();
+        for (var shard: properties.getShards()) {
+            var dataSource = DataSourceBuilder.create()
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build();
+            targets.put(shards.size(), dataSource);
+            shards.add(dataSource);
+        }
+
+        var routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(shards.get(0));
+        return routing;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardingHibernateProperties(@Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto){
+        return properties -> {
+            // connections must go back to the pool after every transaction so the next one is routed again
+            properties.put(AvailableSettings.CONNECTION_HANDLING, "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+            if(!"none".equals(ddlAuto) && !"validate".equals(ddlAuto)){
+                // tenancy may register its own integrator, both are kept
+                var previous = (IntegratorProvider) properties.get("hibernate.integrator_provider");
+                properties.put("hibernate.integrator_provider", (IntegratorProvider) () -> {
+                    var integrators = new ArrayList<Integrator>();
+                    if(previous != null){
+                        integrators.addAll(previous.getIntegrators());
+                    }
+                    integrators.add(new ShardSchemaIntegrator());
+                    return integrators;
+                });
+            }
+        };
+    }
+
+    private class ShardSchemaIntegrator implements Integrator {
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry){
+            var dialect = sessionFactory.getJdbcServices().getDialect().getClass().getName();
+            for (var shard: shards.subList(1, shards.size())) {
+                var registry = new StandardServiceRegistryBuilder()
+                        .applySetting(AvailableSettings.DATASOURCE, shard)
+                        .applySetting(AvailableSettings.DIALECT, dialect)
+                        .build();
+                try{
+                    new SchemaUpdate().execute(EnumSet.of(TargetType.DATABASE), metadata, registry);
+                }finally {
+                    StandardServiceRegistryBuilder.destroy(registry);
+                }
+            }
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry){
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package metadata.home.school.sharding;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "school.sharding")
+public class ShardingProperties {
+    private boolean enabled;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled){
+        this.enabled = enabled;
+    }
+
+    public List<Shard> getShards(){
+        return shards;
+    }
+
+    public void setShards(List<Shard> shards){
+        this.shards = shards;
+    }
+
+    public static class Shard {
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        public String getUrl(){
+            return url;
+        }
+
+        public void setUrl(String url){
+            this.url = url;
+        }
+
+        public String getUsername(){
+            return username;
+        }
+
+        public void setUsername(String username){
+            this.username = username;
+        }
+
+        public String getPassword(){
+            return password;
+        }
+
+        public void setPassword(String password){
+            this.password = password;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package metadata.home.school.tenancy;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.hbm2ddl.SchemaExport;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.schema.TargetType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.EnumSet;
+
+/**
+ * Multi-tenant mode: every school gets its own schema on the same database and connection pool. Connections are
+ * switched to the requesting tenant's schema as they are handed out, so the entities, queries and indexes stay as they
+ * are and each tenant's tables, indexes and sequences are simply its own. With {@code school.tenancy.create-schemas}
+ * missing schemas are created with the full schema, and existing ones brought up to date with SchemaUpdate, while the
+ * session factory starts.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "school.tenancy", name = "enabled", havingValue = "true")
+public class TenancyConfiguration {
+    @Bean
+    public static BeanPostProcessor tenantSchemaDataSource(ObjectProvider<Tenants> tenants){
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName){
+                if(bean instanceof DataSource && !(bean instanceof TenantSchemaDataSource)){
+                    return new TenantSchemaDataSource((DataSource) bean, tenants.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<TenantFilter> tenantFilter(Tenants tenants, TenancyProperties properties){
+        return new FilterRegistrationBean<>(new TenantFilter(tenants, properties.getHeader()));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer tenancyHibernateProperties(Tenants tenants, TenancyProperties properties){
+        return hibernateProperties -> {
+            if(!properties.isCreateSchemas()){
+                return;
+            }
+            // sharding registers its own integrator, both are kept
+            var previous = (IntegratorProvider) hibernateProperties.get("hibernate.integrator_provider");
+            hibernateProperties.put("hibernate.integrator_provider", (IntegratorProvider) () -> {
+                var integrators = new ArrayList<Integrator>();
+                if(previous != null){
+                    integrators.addAll(previous.getIntegrators());
+                }
+                integrators.add(new TenantSchemaIntegrator(tenants));
+                return integrators;
+            });
+        };
+    }
+
+    private static class TenantSchemaIntegrator implements Integrator {
+        private final Tenants tenants;
+
+        TenantSchemaIntegrator(Tenants tenants){
+            this.tenants = tenants;
+        }
+
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry){
+            var dataSource = serviceRegistry.getService(ConnectionProvider.class).unwrap(DataSource.class);
+            var dialect = sessionFactory.getJdbcServices().getDialect().getClass().getName();
+            var jdbcTemplate = new JdbcTemplate(dataSource);
+            for (var tenant: tenants.all()) {
+                jdbcTemplate.execute("create schema if not exists " + tenants.schemaOf(tenant));
+                // the registry reads its default schema from a connection, which is already switched to the tenant's
+                TenantContext.runAs(tenant, () -> {
+                    var registry = new StandardServiceRegistryBuilder()
+                            .applySetting(AvailableSettings.DATASOURCE, dataSource)
+                            .applySetting(AvailableSettings.DIALECT, dialect)
+                            .build();
+                    try{
+                        // sequence lookups aren't limited to one schema, so an update would take the default schema's
+                        // sequences for the new tenant's; a new schema gets everything created instead
+                        if(hasTables(jdbcTemplate)){
+                            new SchemaUpdate().execute(EnumSet.of(TargetType.DATABASE), metadata, registry);
+                        }else{
+                            new SchemaExport().execute(EnumSet.of(TargetType.DATABASE), SchemaExport.Action.CREATE, metadata, registry);
+                        }
+                    }finally {
+                        StandardServiceRegistryBuilder.destroy(registry);
+                    }
+                });
+            }
+        }
+
+        private static boolean hasTables(JdbcTemplate jdbcTemplate){
+            try{
+                jdbcTemplate.queryForObject("select count(*) from student where 1 = 0", Integer.class);
+                return true;
+            }catch (DataAccessException e){
+                return false;
+            }
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry){
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package metadata.home.school.tenancy;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "school.tenancy")
+public class TenancyProperties {
+    private boolean enabled;
+
+    private String header = "X-Tenant-Id";
+
+    private boolean createSchemas;
+
+    private Map<String, String> schemas = new LinkedHashMap<>();
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled){
+        this.enabled = enabled;
+    }
+
+    public String getHeader(){
+        return header;
+    }
+
+    public void setHeader(String header){
+        this.header = header;
+    }
+
+    public boolean isCreateSchemas(){
+        return createSchemas;
+    }
+
+    public void setCreateSchemas(boolean createSchemas){
+        this.createSchemas = createSchemas;
+    }
+
+    public Map<String, String> getSchemas(){
+        return schemas;
+    }
+
+    public void setSchemas(Map<String, String> schemas){
+        this.schemas = schemas;
+    }
+}
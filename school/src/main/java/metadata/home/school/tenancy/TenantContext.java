@@ -0,0 +1,49 @@
+package metadata.home.school.tenancy;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the tenant the current thread works for. Unset means no tenant, which is how everything runs when tenancy is
+ * disabled: connections stay on the datasource's own schema and in-memory state is keyed under {@link #NONE}.
+ */
+public final class TenantContext {
+    public static final String NONE = "";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext(){
+    }
+
+    public static String current(){
+        var tenant = CURRENT.get();
+        return tenant == null ? NONE : tenant;
+    }
+
+    /**
+     * Runs the work as the given tenant and puts the previous one back afterwards.
+     */
+    public static <T> T callAs(String tenant, Supplier<T> work){
+        var previous = CURRENT.get();
+        set(tenant);
+        try{
+            return work.get();
+        }finally {
+            set(previous);
+        }
+    }
+
+    public static void runAs(String tenant, Runnable work){
+        callAs(tenant, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    static void set(String tenant){
+        if(tenant == null || tenant.equals(NONE)){
+            CURRENT.remove();
+        }else{
+            CURRENT.set(tenant);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package metadata.home.school.tenancy;
+
+import metadata.home.school.model.ErrorCode;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Runs every API request as the tenant named in the tenant header. Requests without one, or naming a tenant that isn't
+ * configured, are answered here the same way the controllers answer errors. Admin endpoints aren't tenant scoped.
+ */
+public class TenantFilter extends OncePerRequestFilter {
+    static final String ERROR_CODE_HEADER = "X-Error-Code";
+
+    private final Tenants tenants;
+    private final String header;
+
+    public TenantFilter(Tenants tenants, String header){
+        this.tenants = tenants;
+        this.header = header;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request){
+        var path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith("/api/") || path.startsWith("/api/admin/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var tenant = request.getHeader(header);
+        if(tenant == null || tenant.isBlank()){
+            error(response, ErrorCode.TENANT_REQUIRED, header, HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        if(!tenants.exists(tenant)){
+            error(response, ErrorCode.TENANT_NOT_FOUND, tenant, HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        var previous = TenantContext.current();
+        TenantContext.set(tenant);
+        try{
+            chain.doFilter(request, response);
+        }finally {
+            TenantContext.set(previous);
+        }
+    }
+
+    private static void error(HttpServletResponse response, ErrorCode errorCode, Object argument, int status) throws IOException {
+        response.setStatus(status);
+        response.setHeader(ERROR_CODE_HEADER, errorCode.name());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(errorCode.message(argument));
+    }
+}
@@ -0,0 +1,54 @@
+package metadata.home.school.tenancy;
+
+import java.util.Objects;
+
+/**
+ * An entity id together with the tenant it belongs to. Ids are only unique within a tenant's schema, so anything kept
+ * in memory by id is keyed by this instead.
+ */
+public final class TenantKey {
+    private final String tenant;
+    private final Integer id;
+
+    public TenantKey(String tenant, Integer id){
+        this.tenant = tenant;
+        this.id = id;
+    }
+
+    /**
+     * The id under the current thread's tenant.
+     */
+    public static TenantKey of(Integer id){
+        return new TenantKey(TenantContext.current(), id);
+    }
+
+    public String getTenant(){
+        return tenant;
+    }
+
+    public Integer getId(){
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if(this == o){
+            return true;
+        }
+        if(!(o instanceof TenantKey)){
+            return false;
+        }
+        var other = (TenantKey) o;
+        return tenant.equals(other.tenant) && Objects.equals(id, other.id);
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * tenant.hashCode() + Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString(){
+        return tenant + ":" + id;
+    }
+}
@@ -0,0 +1,67 @@
+package metadata.home.school.tenancy;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Points every connection it hands out at the current tenant's schema, or back at the datasource's own one when there
+ * is no tenant, since the pool gives connections back in whatever schema they were left. Both the catalog and the
+ * schema are set because MySQL switches databases with the former and H2 with the latter; each ignores the other.
+ */
+public class TenantSchemaDataSource extends DelegatingDataSource {
+    private final Tenants tenants;
+    private volatile String defaultCatalog;
+    private volatile String defaultSchema;
+    private volatile boolean defaultsKnown;
+
+    public TenantSchemaDataSource(DataSource target, Tenants tenants){
+        super(target);
+        this.tenants = tenants;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return switchSchema(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return switchSchema(super.getConnection(username, password));
+    }
+
+    private Connection switchSchema(Connection connection) throws SQLException {
+        try{
+            if(!defaultsKnown){
+                // nothing has been switched before the defaults are read, so the first connection still has them
+                readDefaults(connection);
+            }
+            var schema = tenants.schemaOf(TenantContext.current());
+            var catalog = schema;
+            if(schema == null){
+                catalog = defaultCatalog;
+                schema = defaultSchema;
+            }
+            if(catalog != null){
+                connection.setCatalog(catalog);
+            }
+            if(schema != null){
+                connection.setSchema(schema);
+            }
+            return connection;
+        }catch (SQLException | RuntimeException e){
+            connection.close();
+            throw e;
+        }
+    }
+
+    private synchronized void readDefaults(Connection connection) throws SQLException {
+        if(!defaultsKnown){
+            defaultCatalog = connection.getCatalog();
+            defaultSchema = connection.getSchema();
+            defaultsKnown = true;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package metadata.home.school.tenancy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The configured tenants, each a school with its own schema. Background jobs use {@link #forEach(Runnable)} to do
+ * their work once per tenant; when tenancy is disabled it runs the work once, as before.
+ */
+@Component
+public class Tenants {
+    private static final Pattern SCHEMA_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private final boolean enabled;
+    private final Map<String, String> schemas;
+
+    @Autowired
+    public Tenants(TenancyProperties properties){
+        this.enabled = properties.isEnabled();
+        this.schemas = new LinkedHashMap<>(properties.getSchemas());
+        if(enabled && schemas.isEmpty()){
+            throw new IllegalStateException("Tenancy needs at least one entry in school.tenancy.schemas");
+        }
+        for (var schema: schemas.values()) {
+            // schema names end up in DDL, so only plain identifiers are accepted
+            if(!SCHEMA_NAME.matcher(schema).matches()){
+                throw new IllegalStateException("Invalid tenant schema name: " + schema);
+            }
+        }
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public Set<String> all(){
+        return enabled ? schemas.keySet() : Set.of(TenantContext.NONE);
+    }
+
+    public boolean exists(String tenant){
+        return enabled && tenant != null && schemas.containsKey(tenant);
+    }
+
+    /**
+     * The schema holding the tenant's tables, null for no tenant.
+     */
+    public String schemaOf(String tenant){
+        return schemas.get(tenant);
+    }
+
+    public void forEach(Runnable work){
+        for (var tenant: all()) {
+            TenantContext.runAs(tenant, work);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package metadata.home.school.tracing;
+
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import metadata.home.school.model.TraceSpan;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the last spans exported in memory, oldest dropped first, so traces can be looked at without a collector.
+ */
+public class RecentSpans implements SpanExporter {
+    private final int capacity;
+    private final Deque<TraceSpan> spans = new ArrayDeque<>();
+
+    public RecentSpans(int capacity){
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> exported){
+        for (var span: exported) {
+            if(spans.size() == capacity){
+                spans.removeFirst();
+            }
+            spans.addLast(toTraceSpan(span));
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * The spans of one trace in the order they ended.
+     */
+    public synchronized List<TraceSpan> findTrace(String traceId){
+        var trace = new ArrayList<TraceSpan>();
+        for (var span: spans) {
+            if(span.getTraceId().equals(traceId)){
+                trace.add(span);
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * The root spans of the latest traces, newest first.
+     */
+    public synchronized List<TraceSpan> findRecentTraces(int limit){
+        var roots = new ArrayList<TraceSpan>();
+        for(Iterator<TraceSpan> spans = this.spans.descendingIterator(); spans.hasNext() && roots.size() < limit; ){
+            var span = spans.next();
+            if(span.getParentSpanId() == null){
+                roots.add(span);
+            }
+        }
+        return roots;
+    }
+
+    @Override
+    public CompletableResultCode flush(){
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown(){
+        return CompletableResultCode.ofSuccess();
+    }
+
+    static TraceSpan toTraceSpan(SpanData span){
+        var attributes = new LinkedHashMap<String, Object>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+        var parent = span.getParentSpanContext();
+        return new TraceSpan(span.getTraceId(), span.getSpanId(), parent.isValid() && !parent.isRemote() ? parent.getSpanId() : null,
+                span.getName(), span.getKind().name(),
+                Instant.ofEpochSecond(0, span.getStartEpochNanos()),
+                TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()),
+                span.getStatus().getStatusCode() == StatusCode.ERROR, attributes);
+    }
+}
@@ -0,0 +1,64 @@
+package metadata.home.school.tracing;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A client span for every JDBC statement run inside a sampled trace, named after the SQL operation and carrying the
+ * statement text. Statements outside a sampled trace are left alone.
+ */
+class StatementSpanListener implements QueryExecutionListener {
+    static final String SPAN = StatementSpanListener.class.getName();
+
+    private final Tracer tracer;
+
+    StatementSpanListener(Tracer tracer){
+        this.tracer = tracer;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList){
+        if(!Span.current().getSpanContext().isSampled() || queryInfoList.isEmpty()){
+            return;
+        }
+        var sql = queryInfoList.get(0).getQuery();
+        var span = tracer.spanBuilder(operation(sql))
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute("db.statement", sql)
+                .startSpan();
+        execInfo.addCustomValue(SPAN, span);
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList){
+        var span = execInfo.getCustomValue(SPAN, Span.class);
+        if(span == null){
+            return;
+        }
+        if(execInfo.isBatch()){
+            span.setAttribute("db.batch_size", execInfo.getBatchSize());
+        }
+        if(!execInfo.isSuccess()){
+            span.recordException(execInfo.getThrowable());
+            span.setStatus(StatusCode.ERROR);
+        }
+        span.end();
+    }
+
+    static String operation(String sql){
+        var trimmed = sql.stripLeading();
+        var end = 0;
+        while(end < trimmed.length() && Character.isLetter(trimmed.charAt(end))){
+            end++;
+        }
+        return end == 0 ? "sql" : trimmed.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,47 @@
+package metadata.home.school.tracing;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+/**
+ * A span for every service call made inside a sampled trace, so its statements group under the service method that
+ * ran them. Like the flight recorder events it wraps the transaction, so the commit is part of the span.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class TracingAspect {
+    private Tracer tracer;
+
+    @Autowired
+    public TracingAspect(Tracer tracer){
+        this.tracer = tracer;
+    }
+
+    @Around("within(metadata.home.school.service..*)")
+    public Object traceService(ProceedingJoinPoint call) throws Throwable {
+        if(!Span.current().getSpanContext().isSampled()){
+            return call.proceed();
+        }
+        var span = tracer.spanBuilder(ClassUtils.getUserClass(call.getThis()).getSimpleName() + "." + call.getSignature().getName())
+                .startSpan();
+        try(var scope = span.makeCurrent()){
+            return call.proceed();
+        }catch (Throwable e){
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        }finally{
+            span.end();
+        }
+    }
+}
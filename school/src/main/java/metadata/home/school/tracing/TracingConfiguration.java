@@ -0,0 +1,80 @@
+package metadata.home.school.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.TracerProvider;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * OpenTelemetry tracing of requests, service calls and JDBC statements. Off unless school.tracing.enabled is true; when
+ * off the tracer is a no-op and the datasource isn't wrapped. A request is sampled with probability
+ * school.tracing.sample-ratio (or when the caller's traceparent says so) and everything below it follows that decision,
+ * so unsampled requests and background jobs create no spans at all.
+ */
+@Configuration
+public class TracingConfiguration {
+    public static final String INSTRUMENTATION_NAME = "metadata.home.school";
+    static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    @Bean
+    @ConditionalOnProperty(name = "school.tracing.enabled", havingValue = "true")
+    public RecentSpans recentSpans(@Value("${school.tracing.memory-spans:10000}") int capacity){
+        return new RecentSpans(capacity);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "school.tracing.enabled", havingValue = "true")
+    public SdkTracerProvider tracerProvider(RecentSpans recentSpans,
+                                            @Value("${school.tracing.sample-ratio:0.1}") double sampleRatio,
+                                            @Value("${school.tracing.file:}") String file){
+        var exporters = new ArrayList<SpanExporter>();
+        exporters.add(recentSpans);
+        if(!file.isEmpty()){
+            exporters.add(new JsonFileSpanExporter(Path.of(file)));
+        }
+        return SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(Resource.create(Attributes.of(SERVICE_NAME, "school"))))
+                .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(sampleRatio)))
+                .addSpanProcessor(BatchSpanProcessor.builder(SpanExporter.composite(exporters)).build())
+                .build();
+    }
+
+    @Bean
+    public Tracer tracer(ObjectProvider<SdkTracerProvider> tracerProvider){
+        var provider = tracerProvider.getIfAvailable();
+        return provider == null ? TracerProvider.noop().get(INSTRUMENTATION_NAME) : provider.get(INSTRUMENTATION_NAME);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "school.tracing.enabled", havingValue = "true")
+    public static BeanPostProcessor tracingDataSource(ObjectProvider<Tracer> tracer){
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName){
+                if(!(bean instanceof DataSource) || bean instanceof ProxyDataSource){
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                        .listener(new StatementSpanListener(tracer.getObject()))
+                        .build();
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package metadata.home.school.tracing;
+
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Opens the server span of every request, joining the caller's trace when it sends a traceparent header. The span is
+ * named after the matched route once the request was handled, and a sampled request answers with its trace id.
+ */
+@Component
+public class TracingFilter extends OncePerRequestFilter {
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    private static final TextMapGetter<HttpServletRequest> HEADERS = new TextMapGetter<HttpServletRequest>() {
+        @Override
+        public Iterable<String> keys(HttpServletRequest request){
+            return Collections.list(request.getHeaderNames());
+        }
+
+        @Override
+        public String get(HttpServletRequest request, String key){
+            return request == null ? null : request.getHeader(key);
+        }
+    };
+
+    private Tracer tracer;
+
+    @Autowired
+    public TracingFilter(Tracer tracer){
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var parent = W3CTraceContextPropagator.getInstance().extract(Context.root(), request, HEADERS);
+        var span = tracer.spanBuilder(request.getMethod())
+                .setParent(parent)
+                .setSpanKind(SpanKind.SERVER)
+                .setAttribute("http.method", request.getMethod())
+                .setAttribute("http.target", request.getRequestURI())
+                .startSpan();
+        if(!span.getSpanContext().isSampled()){
+            span.end();
+            chain.doFilter(request, response);
+            return;
+        }
+
+        response.setHeader(TRACE_ID_HEADER, span.getSpanContext().getTraceId());
+        try(var scope = span.makeCurrent()){
+            chain.doFilter(request, response);
+        }catch (IOException | ServletException | RuntimeException e){
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        }finally{
+            var route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if(route != null){
+                span.updateName(request.getMethod() + " " + route);
+                span.setAttribute("http.route", route.toString());
+            }
+            span.setAttribute("http.status_code", response.getStatus());
+            if(response.getStatus() >= 500){
+                span.setStatus(StatusCode.ERROR);
+            }
+            span.end();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package metadata.home.school.warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import metadata.home.school.cache.EntityResponseCache;
+import metadata.home.school.controller.CourseController;
+import metadata.home.school.controller.StudentController;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.CourseFilter;
+import metadata.home.school.model.StudentFilter;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import metadata.home.school.tenancy.TenantContext;
+import metadata.home.school.tenancy.Tenants;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Warms a new instance up before it reports ready for traffic. The rendered course catalogue and the most enrolled
+ * students are loaded into the response cache, then a read-only mix of requests for those students and the most
+ * enrolled courses is replayed through the controllers until the time of a round stops improving, so the request path and the Jackson serializers are compiled by the
+ * time real requests arrive. Registrations are replayed with a course that doesn't exist, which runs the checks
+ * but never writes.
+ * Boot only marks the application ready once every ApplicationReadyEvent listener has returned, so the readiness
+ * probe keeps failing while this runs.
+ */
+@Component
+public class StartupWarmUp {
+    static final String MISSING_COURSE = "warm-up course that does not exist";
+    static final int WINDOW = 5;
+    private static final int PRELOAD_BATCH = 500;
+
+    private StudentController studentController;
+    private CourseController courseController;
+    private StudentService studentService;
+    private CourseService courseService;
+    private EntityResponseCache responseCache;
+    private ObjectMapper objectMapper;
+    private ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private Tenants tenants;
+    private ApplicationEventPublisher eventPublisher;
+    private boolean enabled;
+    private int hotStudents;
+    private int hotCourses;
+    private int minRounds;
+    private double tolerance;
+    private Duration maxDuration;
+
+    private volatile int rounds;
+    private volatile boolean stable;
+    private volatile Duration duration;
+
+    @Autowired
+    public StartupWarmUp(StudentController studentController, CourseController courseController, StudentService studentService,
+                         CourseService courseService, EntityResponseCache responseCache, ObjectMapper objectMapper,
+                         ObjectProvider<EntityManagerFactory> entityManagerFactory, Tenants tenants, ApplicationEventPublisher eventPublisher,
+                         @Value("${school.warmup.enabled:false}") boolean enabled,
+                         @Value("${school.warmup.hot-students:100}") int hotStudents,
+                         @Value("${school.warmup.hot-courses:100}") int hotCourses,
+                         @Value("${school.warmup.min-rounds:20}") int minRounds,
+                         @Value("${school.warmup.tolerance:0.1}") double tolerance,
+                         @Value("${school.warmup.max-duration:PT1M}") Duration maxDuration){
+        this.studentController = studentController;
+        this.courseController = courseController;
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
+        this.entityManagerFactory = entityManagerFactory;
+        this.tenants = tenants;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.hotStudents = hotStudents;
+        this.hotCourses = hotCourses;
+        this.minRounds = minRounds;
+        this.tolerance = tolerance;
+        this.maxDuration = maxDuration;
+    }
+
+    public int getRounds(){
+        return rounds;
+    }
+
+    /**
+     * Whether the rounds stopped improving before the maximum duration ran out.
+     */
+    public boolean isStable(){
+        return stable;
+    }
+
+    /**
+     * How long the last warm-up took, null if none ran.
+     */
+    public Duration getDuration(){
+        return duration;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onReady(){
+        if(enabled){
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+            warmUp();
+        }
+    }
+
+    /**
+     * Preloads every tenant's caches and replays requests until a round is no more than the tolerance faster than the
+     * ones before it, after at least the minimum number of rounds.
+     */
+    public void warmUp(){
+        var started = System.nanoTime();
+        var deadline = started + maxDuration.toNanos();
+        var targets = new ArrayList<Target>();
+        tenants.forEach(() -> asRequest(() -> targets.add(preload())));
+
+        var times = new ArrayList<Long>();
+        var isStable = false;
+        if(targets.stream().anyMatch(Target::hasRequests)){
+            while(!isStable && System.nanoTime() - deadline < 0){
+                var roundStarted = System.nanoTime();
+                for (var target: targets) {
+                    TenantContext.runAs(target.tenant, () -> replay(target));
+                }
+                times.add(System.nanoTime() - roundStarted);
+                isStable = times.size() >= Math.max(minRounds, 2 * WINDOW) && isStable(times);
+            }
+        }
+        rounds = times.size();
+        stable = isStable;
+        duration = Duration.ofNanos(System.nanoTime() - started);
+    }
+
+    private boolean isStable(List<Long> times){
+        var recent = mean(times, times.size() - WINDOW);
+        var before = mean(times, times.size() - 2 * WINDOW);
+        return recent >= before * (1 - tolerance);
+    }
+
+    private static double mean(List<Long> times, int from){
+        var sum = 0L;
+        for(var i = from; i < from + WINDOW; i++){
+            sum += times.get(i);
+        }
+        return (double) sum / WINDOW;
+    }
+
+    private Target preload(){
+        var courses = courseService.findAll();
+        var courseIds = new ArrayList<Integer>();
+        var canRegister = true;
+        for (var course: courses) {
+            courseIds.add(course.getId());
+            canRegister &= !MISSING_COURSE.equals(course.getName());
+        }
+        for(var from = 0; from < courseIds.size(); from += PRELOAD_BATCH){
+            responseCache.getCourses(courseIds.subList(from, Math.min(from + PRELOAD_BATCH, courseIds.size())), courseService::findAllById);
+        }
+
+        var studentIds = new ArrayList<Integer>();
+        if(hotStudents > 0){
+            var hottest = PageRequest.of(0, hotStudents, Sort.by(Sort.Direction.DESC, "courseCount"));
+            for (var student: studentService.find(new StudentFilter(), hottest)) {
+                studentIds.add(student.getId());
+            }
+            responseCache.getStudents(studentIds, studentService::findAllById);
+        }
+
+        var hottestCourses = new ArrayList<>(courses);
+        hottestCourses.sort(Comparator.comparingInt(Course::getStudentCount).reversed());
+        var hotCourseIds = new ArrayList<Integer>();
+        for (var course: hottestCourses.subList(0, Math.min(hottestCourses.size(), hotCourses))) {
+            hotCourseIds.add(course.getId());
+        }
+        return new Target(TenantContext.current(), studentIds, hotCourseIds, canRegister);
+    }
+
+    /**
+     * One round of requests, each with its own entity manager open for the whole call as in a real request, when the
+     * store is JPA.
+     */
+    private void replay(Target target){
+        var missing = new Course();
+        missing.setName(MISSING_COURSE);
+        for (var id: target.studentIds) {
+            asRequest(() -> render(studentController.getStudentById(id).getBody()));
+            asRequest(() -> render(studentController.getCoursesFromStudent(id).getBody()));
+            if(target.canRegister){
+                asRequest(() -> render(studentController.register(id, List.of(missing)).getBody()));
+            }
+        }
+        for (var id: target.courseIds) {
+            asRequest(() -> render(courseController.getCourseById(id).getBody()));
+            asRequest(() -> render(courseController.getRelatedCourses(id, null).getBody()));
+        }
+        asRequest(() -> render(studentController.getAllStudents(new StudentFilter(), 0, 20).getBody()));
+        asRequest(() -> render(courseController.getAllCourses(new CourseFilter(), 0, 20).getBody()));
+    }
+
+    private void asRequest(Runnable request){
+        var factory = entityManagerFactory.getIfAvailable();
+        var entityManager = factory == null ? null : factory.createEntityManager();
+        if(entityManager != null){
+            TransactionSynchronizationManager.bindResource(factory, new EntityManagerHolder(entityManager));
+        }
+        try{
+            request.run();
+        }finally {
+            if(entityManager != null){
+                TransactionSynchronizationManager.unbindResource(factory);
+                EntityManagerFactoryUtils.closeEntityManager(entityManager);
+            }
+        }
+    }
+
+    private void render(Object body){
+        if(body instanceof byte[] || body instanceof String){
+            return;
+        }
+        try{
+            objectMapper.writeValueAsBytes(body);
+        }catch (JsonProcessingException ex){
+            throw new IllegalStateException("Cannot serialize " + body.getClass().getSimpleName(), ex);
+        }
+    }
+
+    private static final class Target {
+        private final String tenant;
+        private final List<Integer> studentIds;
+        private final List<Integer> courseIds;
+        private final boolean canRegister;
+
+        Target(String tenant, List<Integer> studentIds, List<Integer> courseIds, boolean canRegister){
+            this.tenant = tenant;
+            this.studentIds = studentIds;
+            this.courseIds = courseIds;
+            this.canRegister = canRegister;
+        }
+
+        boolean hasRequests(){
+            return !studentIds.isEmpty() || !courseIds.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package metadata.home.school;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+
+/**
+ * Courses and students the tests create through the services. Students are named after their school id unless a name
+ * is given.
+ */
+public final class TestFixtures {
+    private TestFixtures(){
+    }
+
+    public static Course course(CourseService courseService, String name){
+        var course = new Course();
+        course.setName(name);
+        return courseService.save(course).getResult();
+    }
+
+    public static Student student(StudentService studentService, String schoolId){
+        return student(studentService, schoolId, "Student " + schoolId);
+    }
+
+    public static Student student(StudentService studentService, String schoolId, String name){
+        return studentService.save(newStudent(schoolId, name)).getResult();
+    }
+
+    public static Student newStudent(String schoolId){
+        return newStudent(schoolId, "Student " + schoolId);
+    }
+
+    private static Student newStudent(String schoolId, String name){
+        var student = new Student();
+        student.setSchoolId(schoolId);
+        student.setName(name);
+        return student;
+    }
+}
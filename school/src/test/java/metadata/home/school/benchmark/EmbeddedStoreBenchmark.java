@@ -0,0 +1,138 @@
+package metadata.home.school.benchmark;
+
+import metadata.home.school.SchoolApplication;
+import metadata.home.school.embedded.EmbeddedCourseRepository;
+import metadata.home.school.embedded.EmbeddedStore;
+import metadata.home.school.embedded.EmbeddedStudentRepository;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import metadata.home.school.repository.CourseRepository;
+import metadata.home.school.repository.StudentRepository;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The embedded store against the JPA repositories on the in-memory H2 the tests use, for the repository calls the
+ * services make most: a student by school id, a course with its 50 students, and renaming a student. Both sides
+ * return detached entities; the embedded one logs every rename to its memory-mapped file without forcing it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbeddedStoreBenchmark {
+    static final int STUDENTS = 50;
+
+    @Param({"jpa", "embedded"})
+    String store;
+
+    ConfigurableApplicationContext context;
+    StudentRepository studentRepository;
+    CourseRepository courseRepository;
+    Path directory;
+    EmbeddedStore embeddedStore;
+    EmbeddedStudentRepository embeddedStudentRepository;
+    EmbeddedCourseRepository embeddedCourseRepository;
+    Integer courseId;
+    int renames;
+
+    @Setup
+    public void setup() throws Exception {
+        if(store.equals("jpa")){
+            context = new SpringApplicationBuilder(SchoolApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .properties("spring.main.banner-mode=off", "logging.level.root=warn", "school.waitlist.promotion-interval=PT1H",
+                            "school.seats.reconcile-interval=PT1H", "school.related.refresh-interval=PT1H")
+                    .run();
+            studentRepository = context.getBean(StudentRepository.class);
+            courseRepository = context.getBean(CourseRepository.class);
+            var courseService = context.getBean(CourseService.class);
+            var studentService = context.getBean(StudentService.class);
+            var course = new Course();
+            course.setName("Bench");
+            courseId = courseService.save(course).getResult().getId();
+            var schoolIds = new ArrayList<String>();
+            for(var i = 0; i < STUDENTS; i++){
+                var student = new Student();
+                student.setSchoolId("bench-" + i);
+                student.setName("Bench " + i);
+                schoolIds.add(studentService.save(student).getResult().getSchoolId());
+            }
+            courseService.batchAdd(courseId, schoolIds);
+        }else{
+            directory = Files.createTempDirectory("embedded-bench");
+            embeddedStore = EmbeddedStore.open(directory, 16 * 1024 * 1024, false);
+            embeddedStudentRepository = new EmbeddedStudentRepository(embeddedStore);
+            embeddedCourseRepository = new EmbeddedCourseRepository(embeddedStore);
+            var course = new Course();
+            course.setName("Bench");
+            course = embeddedCourseRepository.save(course);
+            courseId = course.getId();
+            for(var i = 0; i < STUDENTS; i++){
+                var student = new Student();
+                student.setSchoolId("bench-" + i);
+                student.setName("Bench " + i);
+                student.setCourses(Set.of(course));
+                embeddedStudentRepository.save(student);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if(context != null){
+            context.close();
+        }
+        if(embeddedStore != null){
+            embeddedStore.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public Student findStudent(){
+        var schoolId = "bench-" + (renames++ % STUDENTS);
+        return store.equals("jpa") ? studentRepository.findBySchoolId(schoolId) : embeddedStudentRepository.findBySchoolId(schoolId);
+    }
+
+    @Benchmark
+    public int findCourseWithStudents(){
+        List<Course> courses = store.equals("jpa") ? courseRepository.findByIdIn(List.of(courseId)) : embeddedCourseRepository.findByIdIn(List.of(courseId));
+        return courses.get(0).getStudents().size();
+    }
+
+    @Benchmark
+    public Student renameStudent(){
+        var schoolId = "bench-" + (renames % STUDENTS);
+        var name = "Bench " + renames++;
+        if(store.equals("jpa")){
+            var student = studentRepository.findBySchoolId(schoolId);
+            student.setName(name);
+            return studentRepository.save(student);
+        }
+        var student = embeddedStudentRepository.findBySchoolId(schoolId);
+        student.setName(name);
+        return embeddedStudentRepository.save(student);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EmbeddedStoreBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,71 @@
+package metadata.home.school.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import metadata.home.school.cache.EntityResponseCache;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares GET /api/students/{id} rendering with and without the response cache.
+ * The loader parks for {@code dbLatencyMicros} to stand in for the MySQL round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityResponseCacheBenchmark {
+    @Param({"0", "200"})
+    long dbLatencyMicros;
+
+    ObjectMapper objectMapper;
+    EntityResponseCache cache;
+    Student student;
+
+    @Setup
+    public void setup(){
+        objectMapper = new ObjectMapper();
+        cache = new EntityResponseCache(objectMapper, 10_000, Duration.ofMinutes(10));
+        student = new Student();
+        student.setId(1);
+        student.setSchoolId("A");
+        student.setName("StudentA");
+        for(var i = 0; i < 5; i++){
+            var course = new Course();
+            course.setId(i);
+            course.setName("Course" + i);
+            student.getCourses().add(course);
+        }
+    }
+
+    @Benchmark
+    public byte[] uncached() throws Exception {
+        return objectMapper.writeValueAsBytes(load(1).get());
+    }
+
+    @Benchmark
+    public byte[] cached(){
+        return cache.getStudent(1, this::load);
+    }
+
+    private Optional<Student> load(Integer id){
+        if(dbLatencyMicros > 0){
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(dbLatencyMicros));
+        }
+        return Optional.of(student);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EntityResponseCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,91 @@
+package metadata.home.school.benchmark;
+
+import metadata.home.school.model.ErrorCode;
+import metadata.home.school.model.ServiceResponse;
+import metadata.home.school.model.Student;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the 404 and 409 paths: the old flow (formatted exception with a stack trace caught by the controller,
+ * eagerly concatenated conflict messages) against typed results. Run it to get gc.alloc.rate.norm per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorPathBenchmark {
+    Integer id = 4242;
+    String schoolId = "A-4242";
+    Optional<Student> missing = Optional.empty();
+
+    @Benchmark
+    public String notFoundException(){
+        try{
+            missing.orElseThrow(() -> new LegacyNotFoundException("Student", "id", id));
+            return null;
+        }catch (LegacyNotFoundException ex){
+            return "Student with id: " + id +  " was not found";
+        }
+    }
+
+    @Benchmark
+    public String notFoundResult(){
+        var student = missing.orElse(null);
+        if(student == null){
+            return ServiceResponse.notFound(ErrorCode.STUDENT_NOT_FOUND, id).getMessage();
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Object conflictConcatenated(){
+        return new LegacyResponse(null, "A student with school id: " + schoolId + " already exists");
+    }
+
+    @Benchmark
+    public Object conflictResult(){
+        return ServiceResponse.conflict(ErrorCode.STUDENT_SCHOOL_ID_EXISTS, schoolId);
+    }
+
+    @Benchmark
+    public Object conflictConstantConcatenated(){
+        return new LegacyResponse(null, "A student cannot register to more than 5 courses");
+    }
+
+    @Benchmark
+    public Object conflictConstantResult(){
+        return ServiceResponse.conflict(ErrorCode.STUDENT_COURSE_LIMIT);
+    }
+
+    static class LegacyNotFoundException extends RuntimeException {
+        LegacyNotFoundException(String resourceName, String fieldName, Object fieldValue){
+            super(String.format("%s not found with %s : '%s'", resourceName, fieldName, fieldValue));
+        }
+    }
+
+    static class LegacyResponse {
+        final Object result;
+        final String message;
+
+        LegacyResponse(Object result, String message){
+            this.result = result;
+            this.message = message;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ErrorPathBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
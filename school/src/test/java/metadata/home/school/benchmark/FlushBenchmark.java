@@ -0,0 +1,107 @@
+package metadata.home.school.benchmark;
+
+import metadata.home.school.SchoolApplication;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.hibernate.engine.spi.ManagedEntity;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a flush with a course and its 50 students (and their courses) managed, as in CourseService.update.
+ * Without bytecode enhancement every flush compares each managed entity and collection with its loaded state; with it
+ * the entities report their own changes. Compare a normal build with one made with
+ * {@code mvn clean test-compile -DskipEnhance}, run with {@code -jvmArgsAppend -DskipEnhance}; the setup fails when
+ * the classes on the classpath aren't the build it was told to measure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlushBenchmark {
+    static final int STUDENTS = 50;
+
+    ConfigurableApplicationContext context;
+    EntityManager entityManager;
+    Integer courseId;
+    Course course;
+    int renames;
+
+    @Setup
+    public void setup(){
+        var enhanced = ManagedEntity.class.isAssignableFrom(Course.class);
+        if(enhanced == (System.getProperty("skipEnhance") != null)){
+            throw new IllegalStateException(enhanced ? "Entities are enhanced but -DskipEnhance was given"
+                    : "Entities are not enhanced, rebuild without -DskipEnhance or run with -jvmArgsAppend -DskipEnhance");
+        }
+        context = new SpringApplicationBuilder(SchoolApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.main.banner-mode=off", "logging.level.root=warn", "school.waitlist.promotion-interval=PT1H",
+                        "school.seats.reconcile-interval=PT1H", "school.related.refresh-interval=PT1H")
+                .run();
+
+        var courseService = context.getBean(CourseService.class);
+        var studentService = context.getBean(StudentService.class);
+        var course = new Course();
+        course.setName("Flush");
+        courseId = courseService.save(course).getResult().getId();
+        var schoolIds = new ArrayList<String>();
+        for(var i = 0; i < STUDENTS; i++){
+            var student = new Student();
+            student.setSchoolId("flush-" + i);
+            student.setName("Flush " + i);
+            schoolIds.add(studentService.save(student).getResult().getSchoolId());
+        }
+        courseService.batchAdd(courseId, schoolIds);
+    }
+
+    @Setup(Level.Iteration)
+    public void load(){
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+        entityManager.getTransaction().begin();
+        course = entityManager.find(Course.class, courseId);
+        for (var student: course.getStudents()) {
+            student.getCourses().size();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void rollback(){
+        entityManager.getTransaction().rollback();
+        entityManager.close();
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public void flushUnchanged(){
+        entityManager.flush();
+    }
+
+    @Benchmark
+    public void flushRename(){
+        course.setName("Flush " + (renames++ & 1));
+        entityManager.flush();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FlushBenchmark.class.getSimpleName()).build()).run();
+    }
+}
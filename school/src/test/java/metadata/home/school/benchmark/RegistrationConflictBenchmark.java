@@ -0,0 +1,115 @@
+package metadata.home.school.benchmark;
+
+import metadata.home.school.SchoolApplication;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.ServiceResponse;
+import metadata.home.school.model.Student;
+import metadata.home.school.model.TimeSlot;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.SeatLedger;
+import metadata.home.school.service.StudentService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the whole registration a student taking four courses makes for a fifth, from loading the student to flushing
+ * the enrollment, so the conflict check is weighed against the rest of the request rather than on its own as in
+ * {@link ScheduleConflictBenchmark}. {@code none}: the courses have no schedule, the check has nothing to compare;
+ * {@code free}: they have one and the fifth fits; {@code conflicting}: the fifth overlaps a taken course and the
+ * registration is rejected. Every registration is rolled back so each invocation starts from the same state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistrationConflictBenchmark {
+    @Param({"none", "free", "conflicting"})
+    String schedule;
+
+    ConfigurableApplicationContext context;
+    StudentService studentService;
+    SeatLedger seatLedger;
+    EntityManagerFactory entityManagerFactory;
+    TransactionTemplate transactionTemplate;
+    Integer studentId;
+    Course requested;
+
+    @Setup
+    public void setup(){
+        context = new SpringApplicationBuilder(SchoolApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.main.banner-mode=off", "logging.level.root=warn", "school.waitlist.promotion-interval=PT1H",
+                        "school.seats.reconcile-interval=PT1H", "school.related.refresh-interval=PT1H")
+                .run();
+        studentService = context.getBean(StudentService.class);
+        seatLedger = context.getBean(SeatLedger.class);
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        var courseService = context.getBean(CourseService.class);
+        var student = new Student();
+        student.setSchoolId("registration");
+        student.setName("Registration");
+        studentId = studentService.save(student).getResult().getId();
+        for(var i = 0; i < 4; i++){
+            var taken = courseService.save(course("Taken " + i, 8 + 2 * i)).getResult();
+            courseService.batchAdd(taken.getId(), List.of("registration"));
+        }
+        // after every taken course so a fitting one is compared with all of them, or on top of the first one
+        requested = courseService.save(course("Requested", "conflicting".equals(schedule) ? 8 : 16)).getResult();
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public ServiceResponse<Student> register(){
+        var response = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            var registered = studentService.register(studentId, List.of(requested));
+            EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory).flush();
+            return registered;
+        });
+        if(response.getStatus() == ServiceResponse.Status.SUCCESS){
+            // the enrollment was rolled back, its seat wasn't
+            seatLedger.free(requested.getId(), 1);
+        }
+        return response;
+    }
+
+    private Course course(String name, int hour){
+        var course = new Course();
+        course.setName(name);
+        if(!"none".equals(schedule)){
+            var slots = new ArrayList<TimeSlot>();
+            for(var day = 1; day <= 3; day++){
+                slots.add(new TimeSlot(DayOfWeek.of(day), LocalTime.of(hour, 0), LocalTime.of(hour + 1, 30)));
+            }
+            course.setSchedule(slots);
+        }
+        return course;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RegistrationConflictBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package metadata.home.school.benchmark;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.TimeSlot;
+import metadata.home.school.service.ScheduleIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the schedule conflict check a registration pays: a student taking four courses asks for a fifth.
+ * {@code indexed} is the check as registrations run it, on the cached intervals; {@code uncached} rebuilds the
+ * intervals from the time slots on every call; {@code pairwise} compares every slot with every other one.
+ * {@link RegistrationConflictBenchmark} weighs the check against the rest of the registration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleConflictBenchmark {
+    @Param({"2", "6"})
+    int slotsPerCourse;
+
+    ScheduleIndex index;
+    List<Course> taken;
+    List<Course> requested;
+
+    @Setup
+    public void setup(){
+        index = new ScheduleIndex(Duration.ofMinutes(10), 10_000);
+        taken = new ArrayList<>();
+        for(var i = 0; i < 4; i++){
+            taken.add(course(i, 8 + 2 * i));
+        }
+        // starts after every taken course, so each check walks all of them
+        requested = List.of(course(4, 16));
+        index.findConflict(taken, requested);
+    }
+
+    @Benchmark
+    public Course indexed(){
+        return index.findConflict(taken, requested);
+    }
+
+    @Benchmark
+    public Course uncached(){
+        return new ScheduleIndex(Duration.ofMinutes(10), 10_000).findConflict(taken, requested);
+    }
+
+    @Benchmark
+    public Course pairwise(){
+        for (var course: requested) {
+            for (var slot: course.getSchedule()) {
+                for (var other: taken) {
+                    for (var otherSlot: other.getSchedule()) {
+                        if(slot.getDay() == otherSlot.getDay() && slot.getStart().isBefore(otherSlot.getEnd())
+                                && otherSlot.getStart().isBefore(slot.getEnd())){
+                            return course;
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private Course course(int id, int hour){
+        var course = new Course();
+        course.setId(id);
+        course.setName("Course" + id);
+        var slots = new ArrayList<TimeSlot>();
+        for(var i = 0; i < slotsPerCourse; i++){
+            slots.add(new TimeSlot(DayOfWeek.of(i + 1), LocalTime.of(hour, 0), LocalTime.of(hour + 1, 30)));
+        }
+        course.setSchedule(slots);
+        return course;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ScheduleConflictBenchmark.class.getSimpleName()).build()).run();
+    }
+}
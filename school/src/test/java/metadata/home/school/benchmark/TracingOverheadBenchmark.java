@@ -0,0 +1,103 @@
+package metadata.home.school.benchmark;
+
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.TracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import metadata.home.school.model.EnrollmentStats;
+import metadata.home.school.repository.JdbcStatsRepository;
+import metadata.home.school.service.StatsService;
+import metadata.home.school.sharding.ShardRouter;
+import metadata.home.school.sharding.ShardingProperties;
+import metadata.home.school.tracing.RecentSpans;
+import metadata.home.school.tracing.TracingAspect;
+import metadata.home.school.tracing.TracingConfiguration;
+import metadata.home.school.tracing.TracingFilter;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of tracing a GET /api/stats request (filter, service span and its two statements against an in-memory H2)
+ * for each sample ratio, against tracing turned off. The difference is what a request pays for being traced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingOverheadBenchmark {
+    @Param({"off", "0", "0.1", "1"})
+    String sampleRatio;
+
+    SdkTracerProvider tracerProvider;
+    TracingFilter filter;
+    StatsService statsService;
+    EnrollmentStats stats;
+
+    @Setup
+    public void setup(){
+        var h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:tracing;DB_CLOSE_DELAY=-1");
+        var jdbcTemplate = new JdbcTemplate(h2);
+        jdbcTemplate.execute("create table if not exists enrollment_bucket (course_count integer, students integer)");
+        jdbcTemplate.execute("create table if not exists course (id integer, name varchar(255), student_count integer)");
+        jdbcTemplate.update("delete from course");
+        for(var i = 0; i < 20; i++){
+            jdbcTemplate.update("insert into course (id, name, student_count) values (?, ?, ?)", i, "Course" + i, i);
+        }
+
+        Tracer tracer;
+        DataSource dataSource = h2;
+        if(sampleRatio.equals("off")){
+            tracer = TracerProvider.noop().get(TracingConfiguration.INSTRUMENTATION_NAME);
+        }else{
+            tracerProvider = SdkTracerProvider.builder()
+                    .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(Double.parseDouble(sampleRatio))))
+                    .addSpanProcessor(BatchSpanProcessor.builder(new RecentSpans(10_000)).build())
+                    .build();
+            tracer = tracerProvider.get(TracingConfiguration.INSTRUMENTATION_NAME);
+            var beans = new DefaultListableBeanFactory();
+            beans.registerSingleton("tracer", tracer);
+            dataSource = (DataSource) TracingConfiguration.tracingDataSource(beans.getBeanProvider(Tracer.class))
+                    .postProcessAfterInitialization(h2, "dataSource");
+        }
+
+        var proxy = new AspectJProxyFactory(new StatsService(new JdbcStatsRepository(new JdbcTemplate(dataSource)),
+                new ShardRouter(new ShardingProperties(), null)));
+        proxy.setProxyTargetClass(true);
+        proxy.addAspect(new TracingAspect(tracer));
+        statsService = proxy.getProxy();
+        filter = new TracingFilter(tracer);
+    }
+
+    @TearDown
+    public void tearDown(){
+        if(tracerProvider != null){
+            tracerProvider.close();
+        }
+    }
+
+    @Benchmark
+    public EnrollmentStats request() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/stats"), new MockHttpServletResponse(),
+                (request, response) -> stats = statsService.getStats());
+        return stats;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TracingOverheadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
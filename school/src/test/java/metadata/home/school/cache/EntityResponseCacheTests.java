@@ -0,0 +1,138 @@
+package metadata.home.school.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import metadata.home.school.tenancy.TenantContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class EntityResponseCacheTests {
+    ObjectMapper objectMapper = new ObjectMapper();
+    EntityResponseCache cache = new EntityResponseCache(objectMapper, 100, Duration.ofMinutes(1));
+
+    @Test
+    void getStudentRendersOnceUntilEvicted() throws Exception {
+        var loads = new AtomicInteger();
+        var student = new Student();
+        student.setId(1);
+        student.setSchoolId("A");
+        student.setName("StudentA");
+
+        var first = cache.getStudent(1, id -> { loads.incrementAndGet(); return Optional.of(student); });
+        var second = cache.getStudent(1, id -> { loads.incrementAndGet(); return Optional.of(student); });
+
+        assertEquals(loads.get(), 1);
+        assertSame(first, second);
+        assertEquals(objectMapper.readValue(first, Student.class).getSchoolId(), "A");
+        assertEquals(cache.studentStats().hitCount(), 1);
+
+        cache.evictStudent(1);
+        cache.getStudent(1, id -> { loads.incrementAndGet(); return Optional.of(student); });
+
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    void getStudentsLoadsOnlyMissesInOneCall() {
+        var requested = new ArrayList<Collection<Integer>>();
+        cache.getStudent(1, id -> Optional.of(student(1)));
+
+        var found = cache.getStudents(List.of(1, 2, 3), ids -> {
+            requested.add(ids);
+            return List.of(student(2));
+        });
+
+        assertEquals(requested.size(), 1);
+        assertEquals(new HashSet<>(requested.get(0)), Set.of(2, 3));
+        assertEquals(found.keySet(), Set.of(1, 2));
+    }
+
+    @Test
+    void anEvictionDuringABulkLoadIsNotOverwritten() throws Exception {
+        var renamed = student(2);
+        renamed.setName("Renamed");
+
+        // a write to student 2 commits and evicts it after the bulk load read the old rows
+        cache.getStudents(List.of(2, 3), ids -> {
+            var read = List.of(student(2), student(3));
+            cache.evictStudent(2);
+            return read;
+        });
+        var requested = new ArrayList<Collection<Integer>>();
+        var found = cache.getStudents(List.of(2, 3), ids -> {
+            requested.add(ids);
+            return List.of(renamed);
+        });
+
+        assertEquals(requested.size(), 1);
+        assertEquals(new HashSet<>(requested.get(0)), Set.of(2));
+        assertEquals(objectMapper.readValue(found.get(2), Student.class).getName(), "Renamed");
+        assertEquals(objectMapper.readValue(found.get(3), Student.class).getName(), "Student3");
+    }
+
+    @Test
+    void getCourseMissIsNotCached() {
+        var loads = new AtomicInteger();
+
+        assertNull(cache.getCourse(1, id -> { loads.incrementAndGet(); return Optional.empty(); }));
+        assertNull(cache.getCourse(1, id -> { loads.incrementAndGet(); return null; }));
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    void evictCoursesOnlyTouchesGivenIds() {
+        var course1 = new Course();
+        course1.setId(1);
+        course1.setName("Course1");
+
+        var course2 = new Course();
+        course2.setId(2);
+        course2.setName("Course2");
+
+        cache.getCourse(1, id -> Optional.of(course1));
+        cache.getCourse(2, id -> Optional.of(course2));
+        cache.evictCourses(new HashSet<>(){{add(course1);}});
+
+        var loads = new AtomicInteger();
+        cache.getCourse(1, id -> { loads.incrementAndGet(); return Optional.of(course1); });
+        cache.getCourse(2, id -> { loads.incrementAndGet(); return Optional.of(course2); });
+
+        assertEquals(loads.get(), 1);
+    }
+
+    @Test
+    void aTenantFillingItsCacheKeepsTheOthers() {
+        var loads = new AtomicInteger();
+        TenantContext.runAs("north", () -> cache.getStudent(1, id -> { loads.incrementAndGet(); return Optional.of(student(1)); }));
+        TenantContext.runAs("south", () -> {
+            for(var id = 1; id <= 1000; id++){
+                cache.getStudent(id, key -> Optional.of(student(key)));
+            }
+        });
+
+        TenantContext.runAs("north", () -> cache.getStudent(1, id -> { loads.incrementAndGet(); return Optional.of(student(1)); }));
+
+        assertEquals(loads.get(), 1);
+    }
+
+    private Student student(Integer id){
+        var student = new Student();
+        student.setId(id);
+        student.setSchoolId("school-" + id);
+        student.setName("Student" + id);
+        return student;
+    }
+}
@@ -0,0 +1,139 @@
+package metadata.home.school.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class StaleResponseCacheTests {
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void freshResponsesAreServedFromCacheWithTheirAge(){
+        var cache = cache(Duration.ofMinutes(1), Duration.ofMinutes(10));
+        var loads = new AtomicInteger();
+
+        cache.get("fresh", () -> ResponseEntity.ok().header("X-Total-Count", "2").body(List.of(loads.incrementAndGet())));
+        var second = cache.get("fresh", () -> ResponseEntity.ok(List.of(loads.incrementAndGet())));
+
+        assertEquals(loads.get(), 1);
+        assertEquals(new String((byte[]) second.getBody()), "[1]");
+        assertEquals(second.getHeaders().getFirst(HttpHeaders.AGE), "0");
+        assertEquals(second.getHeaders().getFirst("X-Total-Count"), "2");
+        assertNull(second.getHeaders().getFirst(HttpHeaders.WARNING));
+    }
+
+    @Test
+    void staleResponseIsServedWhileASlowReloadRuns() throws Exception {
+        var cache = cache(Duration.ZERO, Duration.ofMinutes(10));
+        var reloading = new CountDownLatch(1);
+        var databaseBack = new CountDownLatch(1);
+        cache.get("slow", () -> ResponseEntity.ok(List.of("old")));
+
+        var stale = cache.get("slow", () -> {
+            reloading.countDown();
+            await(databaseBack);
+            return ResponseEntity.ok(List.of("new"));
+        });
+        assertEquals(new String((byte[]) stale.getBody()), "[\"old\"]");
+        assertEquals(stale.getHeaders().getFirst(HttpHeaders.WARNING), StaleResponseCache.STALE_WARNING);
+        assertTrue(reloading.await(5, TimeUnit.SECONDS));
+
+        // a reload is already running, later requests neither wait for it nor start another one
+        var duringReload = cache.get("slow", () -> { throw new AssertionError("reloaded twice"); });
+        assertEquals(new String((byte[]) duringReload.getBody()), "[\"old\"]");
+
+        databaseBack.countDown();
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        var body = "";
+        while(!body.equals("[\"new\"]") && System.nanoTime() < deadline){
+            Thread.sleep(10);
+            body = new String((byte[]) cache.get("slow", () -> ResponseEntity.ok(List.of("new"))).getBody());
+        }
+        assertEquals(body, "[\"new\"]");
+    }
+
+    @Test
+    void errorsAreNotCachedAndMaxStalenessIsHard() throws Exception {
+        var cache = cache(Duration.ZERO, Duration.ofMillis(50));
+        var missing = cache.get("hard", () -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("not found"));
+        assertEquals(missing.getStatusCode(), HttpStatus.NOT_FOUND);
+
+        cache.get("hard", () -> ResponseEntity.ok(List.of("old")));
+        Thread.sleep(100);
+        var loads = new AtomicInteger();
+        var reloaded = cache.get("hard", () -> ResponseEntity.ok(List.of(loads.incrementAndGet())));
+
+        assertEquals(loads.get(), 1);
+        assertEquals(new String((byte[]) reloaded.getBody()), "[1]");
+    }
+
+    @Test
+    void concurrentLoadsShareOneRenderedBody() throws Exception {
+        var beans = new DefaultListableBeanFactory();
+        var cache = new StaleResponseCache(objectMapper, beans.getBeanProvider(EntityManagerFactory.class), false, 100,
+                Duration.ofSeconds(5), Duration.ofMinutes(10), 1, true);
+        var loads = new AtomicInteger();
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(4);
+        try{
+            var responses = new ArrayList<Future<ResponseEntity<?>>>();
+            responses.add(executor.submit(() -> cache.get("popular", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return ResponseEntity.ok(List.of("roster"));
+            })));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for(var i = 0; i < 3; i++){
+                responses.add(executor.submit(() -> cache.get("popular", () -> {
+                    loads.incrementAndGet();
+                    return ResponseEntity.ok(List.of("roster"));
+                })));
+            }
+            // the waiters are blocked on the running load before it is let go
+            Thread.sleep(200);
+            release.countDown();
+
+            var first = (byte[]) responses.get(0).get(5, TimeUnit.SECONDS).getBody();
+            for (var response: responses) {
+                assertSame(response.get(5, TimeUnit.SECONDS).getBody(), first);
+            }
+            assertEquals(loads.get(), 1);
+            assertEquals(cache.loadsInFlight(), 0);
+        }finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private StaleResponseCache cache(Duration refreshAfter, Duration maxStaleness){
+        var beans = new DefaultListableBeanFactory();
+        return new StaleResponseCache(objectMapper, beans.getBeanProvider(EntityManagerFactory.class), true, 100,
+                refreshAfter, maxStaleness, 1, false);
+    }
+
+    private static void await(CountDownLatch latch){
+        try{
+            latch.await(5, TimeUnit.SECONDS);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
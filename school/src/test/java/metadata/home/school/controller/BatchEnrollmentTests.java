@@ -0,0 +1,131 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static metadata.home.school.TestFixtures.course;
+import static metadata.home.school.TestFixtures.student;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BatchEnrollmentTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void batchAddEnrollsFoundStudentsAndReportsTheRest() throws Exception {
+        var course = course(courseService, "Batch add");
+        student(studentService, "batch-add-1");
+        student(studentService, "batch-add-2");
+
+        mockMvc.perform(post("/api/courses/" + course.getId() + "/students:batchAdd")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"batch-add-1\", \"batch-add-2\", \"batch-add-unknown\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied.length()").value(2))
+                .andExpect(jsonPath("$.missing[0]").value("batch-add-unknown"));
+
+        mockMvc.perform(post("/api/courses/" + course.getId() + "/students:batchAdd")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"batch-add-1\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.skipped[0]").value("batch-add-1"));
+
+        assertEquals(enrollments(course), 2);
+    }
+
+    @Test
+    void batchAddLeavesOutStudentsWithFiveCourses() throws Exception {
+        student(studentService, "batch-limit");
+        for(var i = 0; i < StudentService.MAX_COURSES; i++){
+            courseService.batchAdd(course(courseService, "Limit " + i).getId(), List.of("batch-limit"));
+        }
+        var course = course(courseService, "Limit extra");
+
+        mockMvc.perform(post("/api/courses/" + course.getId() + "/students:batchAdd")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"batch-limit\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.overLimit[0]").value("batch-limit"));
+
+        assertEquals(enrollments(course), 0);
+    }
+
+    @Test
+    void batchAddRejectsWholeBatchOverCapacity() throws Exception {
+        var course = course(courseService, "Batch capacity");
+        var schoolIds = new ArrayList<String>();
+        for(var i = 0; i < CourseService.MAX_STUDENTS + 1; i++){
+            schoolIds.add(student(studentService, "batch-capacity-" + i).getSchoolId());
+        }
+
+        mockMvc.perform(post("/api/courses/" + course.getId() + "/students:batchAdd")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(schoolIds)))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("X-Error-Code", "COURSE_CAPACITY"));
+
+        assertEquals(enrollments(course), 0);
+    }
+
+    @Test
+    void batchRemoveDeletesOnlyEnrolledStudents() throws Exception {
+        var course = course(courseService, "Batch remove");
+        student(studentService, "batch-remove-1");
+        student(studentService, "batch-remove-2");
+        courseService.batchAdd(course.getId(), List.of("batch-remove-1"));
+
+        mockMvc.perform(post("/api/courses/" + course.getId() + "/students:batchRemove")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"batch-remove-1\", \"batch-remove-2\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied[0]").value("batch-remove-1"))
+                .andExpect(jsonPath("$.skipped[0]").value("batch-remove-2"));
+
+        assertEquals(enrollments(course), 0);
+    }
+
+    @Test
+    void batchOnUnknownCourseIsNotFound() throws Exception {
+        mockMvc.perform(post("/api/courses/999999/students:batchAdd")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"anyone\"]"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string("X-Error-Code", "COURSE_NOT_FOUND"));
+    }
+
+    private int enrollments(Course course){
+        return jdbcTemplate.queryForObject("select count(*) from student_course where course_id = ?", Integer.class, course.getId());
+    }
+
+    private String json(List<String> values){
+        var json = new StringBuilder("[");
+        for (var value: values) {
+            json.append(json.length() > 1 ? "," : "").append('"').append(value).append('"');
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,104 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static metadata.home.school.TestFixtures.course;
+import static metadata.home.school.TestFixtures.student;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BulkDeleteTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Test
+    void deleteStudentsByIds() throws Exception {
+        var course = course(courseService, "Bulk ids course");
+        var leaving = student(studentService, "bulk-ids-1", "Bulk ids 1");
+        var staying = student(studentService, "bulk-ids-2", "Bulk ids 2");
+        courseService.batchAdd(course.getId(), List.of("bulk-ids-1", "bulk-ids-2"));
+
+        mockMvc.perform(delete("/api/students").param("ids", leaving.getId() + ",999999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted[0]").value(leaving.getId()))
+                .andExpect(jsonPath("$.missing[0]").value(999999));
+
+        mockMvc.perform(get("/api/students/" + leaving.getId())).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/courses/" + course.getId() + "/students"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(staying.getId()));
+        mockMvc.perform(get("/api/courses").param("name", "Bulk ids").param("maxStudents", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "1"));
+    }
+
+    @Test
+    void deleteStudentsByFilter() throws Exception {
+        student(studentService, "bulk-filter-1", "Bulk filtered 1");
+        student(studentService, "bulk-filter-2", "Bulk filtered 2");
+        student(studentService, "bulk-filter-3", "Bulk filter kept");
+
+        mockMvc.perform(delete("/api/students").param("name", "Bulk filtered"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted.length()").value(2));
+
+        mockMvc.perform(get("/api/students").param("name", "Bulk filter"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].schoolId").value("bulk-filter-3"));
+    }
+
+    @Test
+    void deleteWithoutFilterIsRejected() throws Exception {
+        mockMvc.perform(delete("/api/students"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("X-Error-Code", "BULK_DELETE_UNFILTERED"));
+        mockMvc.perform(delete("/api/courses"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("X-Error-Code", "BULK_DELETE_UNFILTERED"));
+    }
+
+    @Test
+    void deleteCoursesRefreshesTheirStudents() throws Exception {
+        var algebra = course(courseService, "Bulk drop algebra");
+        var biology = course(courseService, "Bulk drop biology");
+        course(courseService, "Bulk keep");
+        student(studentService, "bulk-course-1", "Bulk course student");
+        courseService.batchAdd(algebra.getId(), List.of("bulk-course-1"));
+        courseService.batchAdd(biology.getId(), List.of("bulk-course-1"));
+
+        mockMvc.perform(delete("/api/courses").param("name", "Bulk drop"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted.length()").value(2));
+
+        mockMvc.perform(get("/api/courses/" + algebra.getId())).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/courses").param("name", "Bulk drop"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/api/courses").param("name", "Bulk keep"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+        mockMvc.perform(get("/api/students").param("name", "Bulk course student").param("maxCourses", "0"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(jsonPath("$[0].courses.length()").value(0));
+    }
+}
@@ -0,0 +1,172 @@
+package metadata.home.school.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import metadata.home.school.model.ChangeType;
+import metadata.home.school.repository.ChangeLogRepository;
+import metadata.home.school.service.ChangeLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// a database of its own, so creating this context doesn't drop the tables the other contexts are using
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:changes;DB_CLOSE_DELAY=-1;MODE=MySQL", "school.changes.enabled=true" })
+@AutoConfigureMockMvc
+public class ChangeFeedTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void mirrorsGetOnlyWhatChangedSinceTheirCursor() throws Exception {
+        var cursor = cursor();
+        var courseId = create("/api/courses", "{\"name\": \"Changes course\"}");
+        var studentId = create("/api/students", "{\"schoolId\": \"changes-1\", \"name\": \"Changes\"}");
+        mockMvc.perform(post("/api/students/" + studentId + "/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\": \"Changes course\"}]"))
+                .andExpect(status().isOk());
+
+        var page = changes(cursor, 100);
+        var changes = page.get("changes");
+        assertEquals(changes.size(), 3);
+        assertEquals(changes.get(0).get("type").asText(), "COURSE");
+        assertEquals(changes.get(0).get("entity").get("name").asText(), "Changes course");
+        assertEquals(changes.get(1).get("type").asText(), "STUDENT");
+        assertEquals(changes.get(1).get("entity").get("schoolId").asText(), "changes-1");
+        assertEquals(changes.get(2).get("type").asText(), "ENROLLMENT");
+        assertEquals(changes.get(2).get("id").asInt(), studentId);
+        assertEquals(changes.get(2).get("courseId").asInt(), courseId);
+        assertEquals(page.get("hasMore").asBoolean(), false);
+
+        // a rename is one student entry, the enrollment isn't touched
+        cursor = page.get("cursor").asLong();
+        mockMvc.perform(patch("/api/students/" + studentId).contentType("application/merge-patch+json").content("{\"name\": \"Renamed\"}"))
+                .andExpect(status().isOk());
+        changes = changes(cursor, 100).get("changes");
+        assertEquals(changes.size(), 1);
+        assertEquals(changes.get(0).get("entity").get("name").asText(), "Renamed");
+
+        cursor = changes.get(0).get("seq").asLong();
+        mockMvc.perform(delete("/api/students/" + studentId)).andExpect(status().isOk());
+        changes = changes(cursor, 100).get("changes");
+        assertEquals(changes.size(), 1);
+        assertEquals(changes.get(0).get("deleted").asBoolean(), true);
+        assertEquals(changes.get(0).has("entity"), false);
+    }
+
+    @Test
+    void courseWritesRecordOnlyTheEnrollmentsStored() throws Exception {
+        create("/api/students", "{\"schoolId\": \"changes-roster\", \"name\": \"Roster\"}");
+        var cursor = cursor();
+        var courseId = create("/api/courses", "{\"name\": \"Changes roster\", \"students\": [{\"schoolId\": \"changes-roster\"}]}");
+        mockMvc.perform(put("/api/courses/" + courseId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Changes roster\", \"students\": [{\"schoolId\": \"changes-roster\"}]}"))
+                .andExpect(status().isOk());
+
+        // the create and the update are one course entry, and no enrollment
+        var changes = changes(cursor, 100).get("changes");
+        assertEquals(changes.size(), 1);
+        assertEquals(changes.get(0).get("type").asText(), "COURSE");
+        mockMvc.perform(get("/api/courses/" + courseId + "/students")).andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void pagesFollowTheCursor() throws Exception {
+        var cursor = cursor();
+        for(var i = 0; i < 3; i++){
+            create("/api/courses", "{\"name\": \"Changes page " + i + "\"}");
+        }
+
+        var first = changes(cursor, 2);
+        assertEquals(first.get("changes").size(), 2);
+        assertEquals(first.get("hasMore").asBoolean(), true);
+        var second = changes(first.get("cursor").asLong(), 2);
+        assertEquals(second.get("changes").size(), 1);
+        assertEquals(second.get("changes").get(0).get("entity").get("name").asText(), "Changes page 2");
+        assertEquals(second.get("hasMore").asBoolean(), false);
+    }
+
+    @Test
+    void prunedCursorsMustStartOver() throws Exception {
+        var cursor = cursor();
+        create("/api/courses", "{\"name\": \"Changes pruned 1\"}");
+        create("/api/courses", "{\"name\": \"Changes pruned 2\"}");
+        changeLogRepository.deleteBefore(Instant.now().plusSeconds(60));
+
+        mockMvc.perform(get("/api/changes").param("since", String.valueOf(cursor)))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("X-Error-Code", "CHANGES_CURSOR_EXPIRED"));
+        assertEquals(changes(cursor() - 1, 100).get("changes").size(), 1);
+    }
+
+    @Test
+    void rolledBackWritesHoldBackTheNextEntriesUntilTheLagPasses() throws Exception {
+        // an entry before the gap, or the cursor would be older than the whole log and look pruned
+        create("/api/courses", "{\"name\": \"Changes before rollback\"}");
+        var cursor = cursor();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            changeLog.recordWritten(ChangeType.COURSE, -1);
+            status.setRollbackOnly();
+        });
+        var courseId = create("/api/courses", "{\"name\": \"Changes after rollback\"}");
+
+        // the rolled back entry left a gap before the course's, which for a while looks like a write still committing
+        var page = changes(cursor, 100);
+        assertEquals(page.get("changes").size(), 0);
+        assertEquals(page.get("cursor").asLong(), cursor);
+        assertEquals(cursor(), cursor);
+
+        jdbcTemplate.update("update change_log set recorded_at = ? where seq > ?", Timestamp.from(Instant.now().minusSeconds(60)), cursor);
+        var changes = changes(cursor, 100).get("changes");
+        assertEquals(changes.size(), 1);
+        assertEquals(changes.get(0).get("id").asInt(), courseId);
+    }
+
+    private long cursor() throws Exception {
+        var body = mockMvc.perform(get("/api/changes")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("cursor").asLong();
+    }
+
+    private JsonNode changes(long since, int limit) throws Exception {
+        var body = mockMvc.perform(get("/api/changes").param("since", String.valueOf(since)).param("limit", String.valueOf(limit)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private int create(String path, String json) throws Exception {
+        var body = mockMvc.perform(post(path).contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asInt();
+    }
+}
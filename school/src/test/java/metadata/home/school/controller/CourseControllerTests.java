@@ -1,37 +1,68 @@
 package metadata.home.school.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import metadata.home.school.cache.EntityResponseCache;
+import metadata.home.school.cache.StaleResponseCache;
 import metadata.home.school.model.Course;
+import metadata.home.school.model.CourseFilter;
+import metadata.home.school.model.ErrorCode;
 import metadata.home.school.model.ServiceResponse;
 import metadata.home.school.model.Student;
 import metadata.home.school.service.CourseService;
+import metadata.home.school.service.RelatedCoursesService;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
 public class CourseControllerTests {
     CourseService courseService = mock(CourseService.class);
-    CourseController controller = new CourseController(courseService);
+    ObjectMapper objectMapper = new ObjectMapper();
+    RelatedCoursesService relatedCoursesService = mock(RelatedCoursesService.class);
+    CourseController controller = new CourseController(courseService, new EntityResponseCache(objectMapper, 100, Duration.ofMinutes(1)),
+            relatedCoursesService, new StaleResponseCache(objectMapper, new DefaultListableBeanFactory().getBeanProvider(EntityManagerFactory.class),
+            false, 100, Duration.ofSeconds(5), Duration.ofMinutes(10), 1, false));
 
     @Test
-    void findByIdGetResult() {
+    void findByIdGetResult() throws Exception {
         var course = new Course();
         course.setId(1);
         course.setName("Course1");
-        when(courseService.findById(1)).thenReturn(java.util.Optional.of(course));
+        when(courseService.findWithStudents(1)).thenReturn(java.util.Optional.of(course));
         var result = controller.getCourseById(1);
+        var body = objectMapper.readValue((byte[])result.getBody(), Course.class);
 
         assertEquals(result.getStatusCode(), HttpStatus.OK);
-        assertEquals(((Course)result.getBody()).getId(), 1);
-        assertEquals(((Course)result.getBody()).getName(), "Course1");
+        assertEquals(body.getId(), 1);
+        assertEquals(body.getName(), "Course1");
+    }
+
+    @Test
+    void findByIdServedFromCache() {
+        var course = new Course();
+        course.setId(1);
+        course.setName("Course1");
+        when(courseService.findWithStudents(1)).thenReturn(java.util.Optional.of(course));
+        var first = controller.getCourseById(1);
+        var second = controller.getCourseById(1);
+
+        assertEquals(second.getStatusCode(), HttpStatus.OK);
+        assertArrayEquals((byte[])first.getBody(), (byte[])second.getBody());
+        verify(courseService, times(1)).findWithStudents(1);
     }
 
     @Test
@@ -39,7 +70,7 @@ public class CourseControllerTests {
         var course = new Course();
         course.setId(1);
         course.setName("Course1");
-        when(courseService.findById(1)).thenReturn(null);
+        when(courseService.findWithStudents(1)).thenReturn(null);
         var result = controller.getCourseById(1);
 
         assertEquals(result.getStatusCode(), HttpStatus.NOT_FOUND);
@@ -57,7 +88,7 @@ public class CourseControllerTests {
         course2.setName("Course2");
 
         when(courseService.findAll()).thenReturn(new ArrayList<>(){{add(course1); add(course2);}});
-        var result = controller.getAllCourses();
+        var result = (List<Course>) controller.getAllCourses(new CourseFilter(), null, null).getBody();
 
         assertEquals(result.size(), 2);
         assertEquals(result.get(0).getId(), 1);
@@ -67,7 +98,7 @@ public class CourseControllerTests {
     @Test
     void findAllEmpty() {
         when(courseService.findAll()).thenReturn(new ArrayList<>());
-        var result = controller.getAllCourses();
+        var result = (List<Course>) controller.getAllCourses(new CourseFilter(), null, null).getBody();
 
         assertEquals(result.size(), 0);
     }
@@ -85,6 +116,7 @@ public class CourseControllerTests {
         course1.setStudents(new HashSet<>(){{add(student);}});
 
         when(courseService.findById(1)).thenReturn(java.util.Optional.of(course1));
+        when(courseService.findStudents(course1)).thenReturn(course1.getStudents());
         var result = controller.getStudentsFromCourse(1);
 
         assertEquals(result.getStatusCode(), HttpStatus.OK);
@@ -99,6 +131,7 @@ public class CourseControllerTests {
         course1.setName("Course1");
 
         when(courseService.findById(1)).thenReturn(java.util.Optional.of(course1));
+        when(courseService.findStudents(course1)).thenReturn(course1.getStudents());
         var result = controller.getStudentsFromCourse(1);
 
         assertEquals(result.getStatusCode(), HttpStatus.OK);
@@ -110,7 +143,7 @@ public class CourseControllerTests {
         var course = new Course();
         course.setId(1);
         course.setName("StudentA");
-        when(courseService.findById(1)).thenReturn(null);
+        when(courseService.findWithStudents(1)).thenReturn(null);
         var result = controller.getCourseById(1);
 
         assertEquals(result.getStatusCode(), HttpStatus.NOT_FOUND);
@@ -123,7 +156,7 @@ public class CourseControllerTests {
         course1.setId(1);
         course1.setName("Course1");
 
-        when(courseService.save(course1)).thenReturn(new ServiceResponse(course1, ""));
+        when(courseService.save(course1)).thenReturn(ServiceResponse.success(course1));
         var result = controller.createCourse(course1);
 
         assertEquals(result.getStatusCode(), HttpStatus.CREATED);
@@ -137,7 +170,7 @@ public class CourseControllerTests {
         course1.setId(1);
         course1.setName("Course1");
 
-        when(courseService.save(course1)).thenReturn(new ServiceResponse(null, "A course with name: Course1 already exists"));
+        when(courseService.save(course1)).thenReturn(ServiceResponse.conflict(ErrorCode.COURSE_NAME_EXISTS, "Course1"));
         var result = controller.createCourse(course1);
 
         assertEquals(result.getStatusCode(), HttpStatus.CONFLICT);
@@ -160,7 +193,7 @@ public class CourseControllerTests {
         course1.setName("Course1");
         course1.setStudents(students);
 
-        when(courseService.save(course1)).thenReturn(new ServiceResponse(null, "A course cannot have to more than 50 students"));
+        when(courseService.save(course1)).thenReturn(ServiceResponse.conflict(ErrorCode.COURSE_CAPACITY));
         var result = controller.createCourse(course1);
 
         assertEquals(result.getStatusCode(), HttpStatus.CONFLICT);
@@ -173,7 +206,7 @@ public class CourseControllerTests {
         course1.setId(1);
         course1.setName("Course1");
 
-        when(courseService.update(1, course1)).thenReturn(new ServiceResponse(course1, ""));
+        when(courseService.update(1, course1)).thenReturn(ServiceResponse.success(course1));
         var result = controller.updateCourse(1, course1);
 
         assertEquals(result.getStatusCode(), HttpStatus.OK);
@@ -187,7 +220,7 @@ public class CourseControllerTests {
         course1.setId(1);
         course1.setName("Course1");
 
-        when(courseService.update(1, course1)).thenReturn(new ServiceResponse(null, "A course with name: Course1 already exists"));
+        when(courseService.update(1, course1)).thenReturn(ServiceResponse.conflict(ErrorCode.COURSE_NAME_EXISTS, "Course1"));
         var result = controller.updateCourse(1, course1);
 
         assertEquals(result.getStatusCode(), HttpStatus.CONFLICT);
@@ -210,7 +243,7 @@ public class CourseControllerTests {
         course1.setName("Course1");
         course1.setStudents(students);
 
-        when(courseService.update(1, course1)).thenReturn(new ServiceResponse(null, "A course cannot have to more than 50 students"));
+        when(courseService.update(1, course1)).thenReturn(ServiceResponse.conflict(ErrorCode.COURSE_CAPACITY));
         var result = controller.updateCourse(1, course1);
 
         assertEquals(result.getStatusCode(), HttpStatus.CONFLICT);
@@ -229,4 +262,17 @@ public class CourseControllerTests {
         assertEquals(result.getStatusCode(), HttpStatus.OK);
     }
 
+
+    @Test
+    void updateNotFound() {
+        var course1 = new Course();
+        course1.setName("Course1");
+
+        when(courseService.update(1, course1)).thenReturn(ServiceResponse.notFound(ErrorCode.COURSE_NOT_FOUND, 1));
+        var result = controller.updateCourse(1, course1);
+
+        assertEquals(result.getStatusCode(), HttpStatus.NOT_FOUND);
+        assertEquals(result.getBody(), "Course with id: 1 was not found");
+        assertEquals(result.getHeaders().getFirst("X-Error-Code"), "COURSE_NOT_FOUND");
+    }
 }
@@ -0,0 +1,89 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static metadata.home.school.TestFixtures.course;
+import static metadata.home.school.TestFixtures.student;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class FilterTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Test
+    void studentsFilteredByNameCourseAndCourseCount() throws Exception {
+        var algebra = course(courseService, "Filter algebra");
+        var biology = course(courseService, "Filter biology");
+        student(studentService, "filter-1", "Filtered Ann");
+        student(studentService, "filter-2", "Filtered Andy");
+        student(studentService, "filter-3", "Filtered Bob");
+        courseService.batchAdd(algebra.getId(), List.of("filter-1", "filter-2"));
+        courseService.batchAdd(biology.getId(), List.of("filter-1"));
+
+        mockMvc.perform(get("/api/students").param("name", "Filtered An"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"))
+                .andExpect(jsonPath("$[0].schoolId").value("filter-1"))
+                .andExpect(jsonPath("$[1].schoolId").value("filter-2"));
+
+        mockMvc.perform(get("/api/students").param("course", "Filter biology"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].schoolId").value("filter-1"));
+
+        mockMvc.perform(get("/api/students").param("name", "Filtered").param("minCourses", "1").param("maxCourses", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].schoolId").value("filter-2"));
+    }
+
+    @Test
+    void studentsArePaged() throws Exception {
+        for(var i = 0; i < 5; i++){
+            student(studentService, "paged-" + i, "Paged " + i);
+        }
+
+        mockMvc.perform(get("/api/students").param("name", "Paged").param("page", "1").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "5"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].schoolId").value("paged-2"));
+    }
+
+    @Test
+    void coursesFilteredByNameAndEnrollmentCount() throws Exception {
+        var full = course(courseService, "Counted full");
+        course(courseService, "Counted empty");
+        student(studentService, "counted-1", "Counted 1");
+        student(studentService, "counted-2", "Counted 2");
+        courseService.batchAdd(full.getId(), List.of("counted-1", "counted-2"));
+
+        mockMvc.perform(get("/api/courses").param("name", "Counted").param("minStudents", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(jsonPath("$[0].name").value("Counted full"));
+
+        courseService.batchRemove(full.getId(), List.of("counted-1"));
+
+        mockMvc.perform(get("/api/courses").param("name", "Counted").param("maxStudents", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"));
+    }
+}
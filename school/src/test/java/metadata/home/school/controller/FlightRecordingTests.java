@@ -0,0 +1,98 @@
+package metadata.home.school.controller;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "school.profiling.endpoint-enabled=true")
+@AutoConfigureMockMvc
+public class FlightRecordingTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Test
+    void recordingCapturesApplicationEvents() throws Exception {
+        var course = new Course();
+        course.setName("Recorded course");
+        courseService.save(course);
+        var student = new Student();
+        student.setSchoolId("recorded-1");
+        student.setName("Recorded student");
+        var saved = studentService.save(student).getResult();
+
+        mockMvc.perform(post("/api/admin/recording").param("duration", "PT1M"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+        mockMvc.perform(post("/api/admin/recording"))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("X-Error-Code", "RECORDING_IN_PROGRESS"));
+
+        mockMvc.perform(post("/api/students/" + saved.getId() + "/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\": \"Recorded course\"}]"))
+                .andExpect(status().isOk());
+
+        var bytes = mockMvc.perform(get("/api/admin/recording/file"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        var file = Files.createTempFile("recording-test-", ".jfr");
+        List<RecordedEvent> events;
+        try{
+            Files.write(file, bytes);
+            events = RecordingFile.readAllEvents(file);
+        }finally{
+            Files.delete(file);
+        }
+
+        var register = find(events, "metadata.school.ServiceCall", "StudentService.register");
+        assertEquals(register.getString("entityId"), saved.getId().toString());
+        assertEquals(register.getInt("rows"), 1);
+        find(events, "metadata.school.RepositoryCall", "CourseRepository.findByName");
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("metadata.school.Flush")
+                && event.getInt("entities") > 0));
+
+        mockMvc.perform(delete("/api/admin/recording")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/admin/recording"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string("X-Error-Code", "RECORDING_NOT_FOUND"));
+    }
+
+    @Test
+    void recordingLengthIsBounded() throws Exception {
+        mockMvc.perform(post("/api/admin/recording").param("duration", "PT1H"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("X-Error-Code", "RECORDING_TOO_LONG"));
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String type, String operation){
+        for (var event: events) {
+            if(event.getEventType().getName().equals(type) && operation.equals(event.getString("operation"))){
+                return event;
+            }
+        }
+        throw new AssertionError("No " + type + " event for " + operation);
+    }
+}
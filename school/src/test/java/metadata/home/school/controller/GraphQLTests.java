@@ -0,0 +1,129 @@
+package metadata.home.school.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Map;
+
+import static metadata.home.school.TestFixtures.course;
+import static metadata.home.school.TestFixtures.student;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+public class GraphQLTests {
+    private static final String NESTED = "{ students(name: \"GraphQL\") { schoolId courses { name studentCount " +
+            "students { schoolId courses { name } } } } }";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void nestedQueryResolvesRelations() throws Exception {
+        var course = course(courseService, "GraphQL nested");
+        var student = student(studentService, "graphql-nested-1", "Nested GraphQL");
+        courseService.batchAdd(course.getId(), List.of("graphql-nested-1", "graphql-nested-2"));
+
+        query("{ student(id: \"" + student.getId() + "\") { name courseCount courses { name students { schoolId } } } }")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errors").doesNotExist())
+                .andExpect(jsonPath("$.data.student.name").value("Nested GraphQL"))
+                .andExpect(jsonPath("$.data.student.courseCount").value(1))
+                .andExpect(jsonPath("$.data.student.courses[0].name").value("GraphQL nested"))
+                .andExpect(jsonPath("$.data.student.courses[0].students.length()").value(1));
+    }
+
+    @Test
+    void statementsDontGrowWithResults() throws Exception {
+        var algebra = course(courseService, "GraphQL algebra");
+        var biology = course(courseService, "GraphQL biology");
+        student(studentService, "graphql-1", "GraphQL 1");
+        student(studentService, "graphql-2", "GraphQL 2");
+        courseService.batchAdd(algebra.getId(), List.of("graphql-1", "graphql-2"));
+        courseService.batchAdd(biology.getId(), List.of("graphql-1"));
+
+        var few = countStatements(() -> query(NESTED).andExpect(jsonPath("$.data.students.length()").value(2)));
+
+        var chemistry = course(courseService, "GraphQL chemistry");
+        for(var i = 3; i <= 8; i++){
+            student(studentService, "graphql-" + i, "GraphQL " + i);
+        }
+        courseService.batchAdd(chemistry.getId(), List.of("graphql-3", "graphql-4", "graphql-5", "graphql-6", "graphql-7", "graphql-8"));
+        courseService.batchAdd(algebra.getId(), List.of("graphql-5", "graphql-6"));
+
+        var many = countStatements(() -> query(NESTED)
+                .andExpect(jsonPath("$.errors").doesNotExist())
+                .andExpect(jsonPath("$.data.students.length()").value(8))
+                .andExpect(jsonPath("$.data.students[0].courses[0].students.length()").value(4)));
+
+        // the page, its courses and their students; the deepest courses were already loaded for the page
+        assertEquals(few, 3L);
+        assertEquals(many, few);
+    }
+
+    @Test
+    void nonNumericIdIsNotFound() throws Exception {
+        query("{ student(id: \"abc\") { name } course(id: \"\") { name } }")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errors").doesNotExist())
+                .andExpect(jsonPath("$.data.student").doesNotExist())
+                .andExpect(jsonPath("$.data.course").doesNotExist());
+    }
+
+    @Test
+    void tooDeepQueryIsRejected() throws Exception {
+        var query = new StringBuilder("{ courses { ");
+        for(var i = 0; i < SchoolGraphQL.MAX_DEPTH; i++){
+            query.append(i % 2 == 0 ? "students { " : "courses { ");
+        }
+        query.append("id");
+        query.append(" }".repeat(SchoolGraphQL.MAX_DEPTH + 1));
+
+        query(query.toString())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errors").isNotEmpty())
+                .andExpect(jsonPath("$.data").doesNotExist());
+    }
+
+    private ResultActions query(String query) throws Exception {
+        return mockMvc.perform(post("/api/graphql")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("query", query))));
+    }
+
+    private long countStatements(Query query) throws Exception {
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        query.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private interface Query {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,124 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+
+import static metadata.home.school.TestFixtures.course;
+import static metadata.home.school.TestFixtures.student;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MergePatchTests {
+    static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Test
+    void renameKeepsTheStudentsCourses() throws Exception {
+        var course = course(courseService, "Patch rename");
+        var student = student(studentService, "patch-rename");
+        courseService.batchAdd(course.getId(), List.of("patch-rename"));
+        mockMvc.perform(get("/api/courses/" + course.getId()))
+                .andExpect(jsonPath("$.students[0].name").value("Student patch-rename"));
+
+        patchStudent(student, "{\"name\": \"Renamed\"}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Renamed"))
+                .andExpect(jsonPath("$.schoolId").value("patch-rename"))
+                .andExpect(jsonPath("$.courses.length()").value(1));
+
+        mockMvc.perform(get("/api/students/" + student.getId()))
+                .andExpect(jsonPath("$.name").value("Renamed"))
+                .andExpect(jsonPath("$.courses[0].name").value("Patch rename"));
+        mockMvc.perform(get("/api/courses/" + course.getId()))
+                .andExpect(jsonPath("$.students[0].name").value("Renamed"));
+    }
+
+    @Test
+    void coursesAreReplacedAsAWhole() throws Exception {
+        var kept = course(courseService, "Patch kept");
+        var dropped = course(courseService, "Patch dropped");
+        var added = course(courseService, "Patch added");
+        var student = student(studentService, "patch-courses");
+        courseService.batchAdd(kept.getId(), List.of("patch-courses"));
+        courseService.batchAdd(dropped.getId(), List.of("patch-courses"));
+
+        patchStudent(student, "{\"courses\": [{\"name\": \"Patch kept\"}, {\"name\": \"Patch added\"}]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Student patch-courses"))
+                .andExpect(jsonPath("$.courses.length()").value(2));
+
+        mockMvc.perform(get("/api/courses/" + added.getId() + "/students"))
+                .andExpect(jsonPath("$[0].schoolId").value("patch-courses"));
+        patchStudent(student, "{\"courses\": null}").andExpect(jsonPath("$.courses.length()").value(0));
+    }
+
+    @Test
+    void patchesAreValidatedLikeUpdates() throws Exception {
+        var student = student(studentService, "patch-invalid");
+        student(studentService, "patch-taken");
+
+        patchStudent(student, "{\"schoolId\": \"patch-taken\"}")
+                .andExpect(status().isConflict())
+                .andExpect(header().string("X-Error-Code", "STUDENT_SCHOOL_ID_EXISTS"));
+        patchStudent(student, "{\"courses\": [{\"name\": \"Patch nowhere\"}]}")
+                .andExpect(status().isConflict())
+                .andExpect(header().string("X-Error-Code", "COURSE_NAME_NOT_FOUND"));
+        mockMvc.perform(patch("/api/students/0").contentType(MERGE_PATCH_JSON).content("{\"name\": \"Nobody\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void courseScheduleAndStudentsArePatchedSeparately() throws Exception {
+        var course = course(courseService, "Patch course");
+        var kept = student(studentService, "patch-course-kept");
+        student(studentService, "patch-course-dropped");
+        student(studentService, "patch-course-added");
+        courseService.batchAdd(course.getId(), List.of("patch-course-kept", "patch-course-dropped"));
+
+        patchCourse(course, "{\"schedule\": [{\"day\": \"TUESDAY\", \"start\": \"14:00\", \"end\": \"15:00\"}]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Patch course"))
+                .andExpect(jsonPath("$.schedule[0].day").value("TUESDAY"));
+        mockMvc.perform(get("/api/students/" + kept.getId()))
+                .andExpect(jsonPath("$.courses[0].schedule[0].day").value("TUESDAY"));
+
+        patchCourse(course, "{\"students\": [{\"schoolId\": \"patch-course-kept\"}, {\"schoolId\": \"patch-course-added\"}]}")
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/courses/" + course.getId() + "/students"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[?(@.schoolId == 'patch-course-dropped')]").isEmpty());
+
+        patchCourse(course, "{\"schedule\": [{\"day\": \"TUESDAY\", \"start\": \"15:00\", \"end\": \"14:00\"}]}")
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("X-Error-Code", "COURSE_SCHEDULE_INVALID"));
+    }
+
+    private ResultActions patchStudent(Student student, String patch) throws Exception {
+        return mockMvc.perform(patch("/api/students/" + student.getId()).contentType(MERGE_PATCH_JSON).content(patch));
+    }
+
+    private ResultActions patchCourse(Course course, String patch) throws Exception {
+        return mockMvc.perform(patch("/api/courses/" + course.getId()).contentType(MERGE_PATCH_JSON).content(patch));
+    }
+}
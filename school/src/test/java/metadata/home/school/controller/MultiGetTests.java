@@ -0,0 +1,68 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static metadata.home.school.TestFixtures.course;
+import static metadata.home.school.TestFixtures.student;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MultiGetTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Test
+    void studentsComeBackInRequestOrder() throws Exception {
+        var course = course(courseService, "Multi get course");
+        var first = student(studentService, "multi-1");
+        var second = student(studentService, "multi-2");
+        courseService.batchAdd(course.getId(), List.of("multi-1"));
+
+        mockMvc.perform(get("/api/students").param("ids", second.getId() + "," + first.getId() + ",999999," + second.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(MultiGet.MISSING_IDS_HEADER, "999999"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].schoolId").value("multi-2"))
+                .andExpect(jsonPath("$[1].schoolId").value("multi-1"))
+                .andExpect(jsonPath("$[1].courses[0].name").value("Multi get course"));
+    }
+
+    @Test
+    void coursesComeBackInRequestOrder() throws Exception {
+        var first = course(courseService, "Multi get first");
+        var second = course(courseService, "Multi get second");
+
+        mockMvc.perform(get("/api/courses").param("ids", second.getId() + "," + first.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(MultiGet.MISSING_IDS_HEADER))
+                .andExpect(jsonPath("$[0].name").value("Multi get second"))
+                .andExpect(jsonPath("$[1].name").value("Multi get first"));
+    }
+
+    @Test
+    void tooManyIdsIsRejected() throws Exception {
+        var ids = IntStream.rangeClosed(1, MultiGet.MAX_IDS + 1).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+        mockMvc.perform(get("/api/students").param("ids", ids))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("X-Error-Code", "TOO_MANY_IDS"));
+    }
+}
@@ -0,0 +1,266 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import metadata.home.school.repository.StatsRepository;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.QueryCountHolder;
+import net.ttddyy.dsproxy.listener.DataSourceQueryCountListener;
+import net.ttddyy.dsproxy.listener.logging.SLF4JSlowQueryListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static metadata.home.school.TestFixtures.course;
+import static metadata.home.school.TestFixtures.student;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins how many statements the hot endpoints send to the database. The datasource is wrapped in a proxy counting the
+ * statements run on the test thread (background jobs aren't counted) and logging any slower than {@link #SLOW_QUERY_MS}.
+ * The features application.properties turns on in production are on here too, so every write includes its change log
+ * insert. A change that makes an endpoint load relations one by one again fails here; when a count changes on purpose,
+ * update it.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(QueryCountTests.CountingDataSourceConfiguration.class)
+@TestPropertySource(properties = { "school.changes.enabled=true", "school.tracing.enabled=true",
+        "school.load-shedding.enabled=true", "school.cache.coalesce.enabled=true", "school.warmup.enabled=true" })
+public class QueryCountTests {
+    static final long SLOW_QUERY_MS = 200;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Autowired
+    StatsRepository statsRepository;
+
+    @BeforeEach
+    void seedBuckets() {
+        // the first student reaching a course count inserts its bucket row, make every row exist so counts don't depend on test order
+        var buckets = new HashMap<Integer, Integer>();
+        for(var courses = 0; courses <= StudentService.MAX_COURSES; courses++){
+            buckets.put(courses, 0);
+        }
+        statsRepository.adjustBuckets(buckets);
+    }
+
+    @Test
+    void getStudentsFromCourse() throws Exception {
+        var course = course(courseService, "Counted students");
+        enroll(course, "count-students-", 5);
+
+        var count = count(() -> mockMvc.perform(get("/api/courses/" + course.getId() + "/students")).andExpect(status().isOk()));
+
+        assertStatements(count, 2, 0, 0, 0);
+    }
+
+    @Test
+    void updateStudent() throws Exception {
+        var course = course(courseService, "Counted update");
+        enroll(course, "count-update-", 1);
+        var student = studentService.findAllById(List.of(firstId(course))).get(0);
+
+        var count = count(() -> mockMvc.perform(put("/api/students/" + student.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"schoolId\": \"count-update-0\", \"name\": \"Renamed\", \"courses\": [{\"name\": \"Counted update\"}]}"))
+                .andExpect(status().isOk()));
+
+        assertStatements(count, 6, 2, 3, 1);
+    }
+
+    @Test
+    void patchStudentName() throws Exception {
+        var course = course(courseService, "Counted patch");
+        enroll(course, "count-patch-", 1);
+
+        var count = count(() -> mockMvc.perform(patch("/api/students/" + firstId(course))
+                        .contentType("application/merge-patch+json")
+                        .content("{\"name\": \"Renamed\"}"))
+                .andExpect(status().isOk()));
+
+        // one update of the student row, the join table is only read for the courses to evict and to render the response
+        assertStatements(count, 5, 1, 1, 0);
+    }
+
+    @Test
+    void patchCourseName() throws Exception {
+        var course = course(courseService, "Counted course patch");
+        enroll(course, "count-course-patch-", 5);
+
+        var count = count(() -> mockMvc.perform(patch("/api/courses/" + course.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"name\": \"Counted course patched\"}"))
+                .andExpect(status().isOk()));
+
+        assertStatements(count, 5, 1, 1, 0);
+    }
+
+    @Test
+    void registerStudent() throws Exception {
+        course(courseService, "Counted register 1");
+        course(courseService, "Counted register 2");
+        var student = student(studentService, "count-register");
+
+        var count = count(() -> mockMvc.perform(post("/api/students/" + student.getId() + "/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\": \"Counted register 1\"}, {\"name\": \"Counted register 2\"}]"))
+                .andExpect(status().isOk()));
+
+        assertStatements(count, 8, 3, 4, 0);
+    }
+
+    @Test
+    void deleteStudent() throws Exception {
+        var course = course(courseService, "Counted delete");
+        enroll(course, "count-delete-", 1);
+
+        var count = count(() -> mockMvc.perform(delete("/api/students/" + firstId(course))).andExpect(status().isOk()));
+
+        assertStatements(count, 3, 1, 2, 3);
+    }
+
+    @Test
+    void batchAddStudents() throws Exception {
+        var course = course(courseService, "Counted batch");
+        for(var i = 0; i < 20; i++){
+            student(studentService, "count-batch-" + i);
+        }
+
+        var count = count(() -> mockMvc.perform(post("/api/courses/" + course.getId() + "/students:batchAdd")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(schoolIds("count-batch-", 20)))
+                .andExpect(status().isOk()));
+
+        // one select loads the course's schedule for the conflict check, it has no slots so the students' courses aren't read
+        assertStatements(count, 7, 2, 4, 0);
+    }
+
+    @Test
+    void bulkDeleteStudents() throws Exception {
+        var course = course(courseService, "Counted bulk delete");
+        enroll(course, "count-bulk-", 20);
+
+        var count = count(() -> mockMvc.perform(delete("/api/students").param("name", "Student count-bulk-"))
+                .andExpect(status().isOk()));
+
+        assertStatements(count, 3, 1, 2, 3);
+    }
+
+    @Test
+    void getStudentByIdIsCached() throws Exception {
+        var student = student(studentService, "count-cached");
+        mockMvc.perform(get("/api/students/" + student.getId())).andExpect(status().isOk());
+
+        var count = count(() -> mockMvc.perform(get("/api/students/" + student.getId())).andExpect(status().isOk()));
+
+        assertStatements(count, 0, 0, 0, 0);
+    }
+
+    @Test
+    void multiGetStudents() throws Exception {
+        var course = course(courseService, "Counted multi get");
+        enroll(course, "count-multi-", 10);
+        var ids = new StringBuilder();
+        for (var student: courseService.findStudents(List.of(course.getId())).get(course.getId())) {
+            ids.append(student.getId()).append(',');
+        }
+
+        var count = count(() -> mockMvc.perform(get("/api/students").param("ids", ids.toString())).andExpect(status().isOk()));
+
+        assertStatements(count, 1, 0, 0, 0);
+    }
+
+    private void assertStatements(QueryCount count, int selects, int inserts, int updates, int deletes){
+        assertEquals(count.getSelect(), selects, "selects");
+        assertEquals(count.getInsert(), inserts, "inserts");
+        assertEquals(count.getUpdate(), updates, "updates");
+        assertEquals(count.getDelete(), deletes, "deletes");
+    }
+
+    private QueryCount count(Request request) throws Exception {
+        QueryCountHolder.clear();
+        request.run();
+        var count = QueryCountHolder.getGrandTotal();
+        QueryCountHolder.clear();
+        return count;
+    }
+
+    private Integer firstId(Course course){
+        return courseService.findStudents(List.of(course.getId())).get(course.getId()).get(0).getId();
+    }
+
+    private void enroll(Course course, String prefix, int students){
+        var schoolIds = new ArrayList<String>();
+        for(var i = 0; i < students; i++){
+            schoolIds.add(student(studentService, prefix + i).getSchoolId());
+        }
+        courseService.batchAdd(course.getId(), schoolIds);
+    }
+
+    private String schoolIds(String prefix, int students){
+        var json = new StringBuilder("[");
+        for(var i = 0; i < students; i++){
+            json.append(i == 0 ? "" : ",").append('"').append(prefix).append(i).append('"');
+        }
+        return json.append(']').toString();
+    }
+
+    private interface Request {
+        void run() throws Exception;
+    }
+
+    @TestConfiguration
+    static class CountingDataSourceConfiguration {
+        @Bean
+        static BeanPostProcessor countingDataSource(){
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName){
+                    if(!(bean instanceof DataSource)){
+                        return bean;
+                    }
+                    if(bean instanceof ProxyDataSource){
+                        // already wrapped for tracing, count on the same proxy
+                        var listeners = ((ProxyDataSource) bean).getProxyConfig().getQueryListener();
+                        listeners.addListener(new DataSourceQueryCountListener());
+                        listeners.addListener(new SLF4JSlowQueryListener(SLOW_QUERY_MS, TimeUnit.MILLISECONDS));
+                        return bean;
+                    }
+                    return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                            .countQuery()
+                            .logSlowQueryBySlf4j(SLOW_QUERY_MS, TimeUnit.MILLISECONDS)
+                            .build();
+                }
+            };
+        }
+    }
+}
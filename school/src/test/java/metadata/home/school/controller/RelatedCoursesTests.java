@@ -0,0 +1,69 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.RelatedCoursesService;
+import metadata.home.school.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static metadata.home.school.TestFixtures.course;
+import static metadata.home.school.TestFixtures.student;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class RelatedCoursesTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Autowired
+    RelatedCoursesService relatedCoursesService;
+
+    @Test
+    void relatedCoursesAreRankedBySharedStudents() throws Exception {
+        var algebra = course(courseService, "Related algebra");
+        var biology = course(courseService, "Related biology");
+        var chemistry = course(courseService, "Related chemistry");
+        for(var i = 1; i <= 3; i++){
+            student(studentService, "related-" + i);
+        }
+        courseService.batchAdd(algebra.getId(), List.of("related-1", "related-2", "related-3"));
+        courseService.batchAdd(biology.getId(), List.of("related-1", "related-2"));
+        courseService.batchAdd(chemistry.getId(), List.of("related-3"));
+        relatedCoursesService.refresh();
+
+        mockMvc.perform(get("/api/courses/" + algebra.getId() + "/related"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Related biology"))
+                .andExpect(jsonPath("$[0].sharedStudents").value(2))
+                .andExpect(jsonPath("$[1].name").value("Related chemistry"));
+        mockMvc.perform(get("/api/courses/" + algebra.getId() + "/related").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void courseNotRankedYet() throws Exception {
+        var course = course(courseService, "Related unranked");
+
+        mockMvc.perform(get("/api/courses/" + course.getId() + "/related"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/api/courses/999999/related"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string("X-Error-Code", "COURSE_NOT_FOUND"));
+    }
+}
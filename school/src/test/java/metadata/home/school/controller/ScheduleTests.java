@@ -0,0 +1,146 @@
+package metadata.home.school.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import metadata.home.school.model.Student;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import metadata.home.school.service.WaitlistService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static metadata.home.school.TestFixtures.student;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ScheduleTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Autowired
+    WaitlistService waitlistService;
+
+    @Test
+    void registrationRejectsOverlappingCourses() throws Exception {
+        createCourse("Schedule morning", "[{\"day\": \"MONDAY\", \"start\": \"09:00\", \"end\": \"10:30\"}]")
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.schedule[0].day").value("MONDAY"))
+                .andExpect(jsonPath("$.schedule[0].end").value("10:30:00"));
+        createCourse("Schedule late morning", "[{\"day\": \"MONDAY\", \"start\": \"10:00\", \"end\": \"11:00\"}]")
+                .andExpect(status().isCreated());
+        createCourse("Schedule after", "[{\"day\": \"MONDAY\", \"start\": \"10:30\", \"end\": \"12:00\"}]")
+                .andExpect(status().isCreated());
+        var student = student(studentService, "schedule-1");
+
+        register(student, "Schedule morning").andExpect(status().isOk());
+        register(student, "Schedule late morning")
+                .andExpect(status().isConflict())
+                .andExpect(header().string("X-Error-Code", "STUDENT_SCHEDULE_CONFLICT"));
+        register(student, "Schedule after").andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/students/" + student.getId() + "/courses"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void batchAddLeavesOutStudentsWithOverlappingCourses() throws Exception {
+        createCourse("Schedule batch first", "[{\"day\": \"TUESDAY\", \"start\": \"09:00\", \"end\": \"10:30\"}]")
+                .andExpect(status().isCreated());
+        var overlapping = courseId(createCourse("Schedule batch overlap", "[{\"day\": \"TUESDAY\", \"start\": \"10:00\", \"end\": \"11:00\"}]"));
+        var busy = student(studentService, "schedule-batch-busy");
+        student(studentService, "schedule-batch-free");
+        register(busy, "Schedule batch first").andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/courses/" + overlapping + "/students:batchAdd")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"schedule-batch-busy\", \"schedule-batch-free\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value("schedule-batch-free"))
+                .andExpect(jsonPath("$.conflicting").value("schedule-batch-busy"));
+        mockMvc.perform(get("/api/students/" + busy.getId() + "/courses"))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void promotionPassesOverStudentsWithOverlappingCourses() throws Exception {
+        var full = courseId(createCourse("Schedule waitlist", "[{\"day\": \"WEDNESDAY\", \"start\": \"09:00\", \"end\": \"10:00\"}]"));
+        createCourse("Schedule waitlist clash", "[{\"day\": \"WEDNESDAY\", \"start\": \"09:30\", \"end\": \"10:30\"}]")
+                .andExpect(status().isCreated());
+        var schoolIds = new ArrayList<String>();
+        for(var i = 0; i < CourseService.MAX_STUDENTS; i++){
+            schoolIds.add(student(studentService, "schedule-waitlist-" + i).getSchoolId());
+        }
+        courseService.batchAdd(full, schoolIds);
+        var clashing = student(studentService, "schedule-waitlist-clashing");
+        var next = student(studentService, "schedule-waitlist-next");
+        register(clashing, "Schedule waitlist").andExpect(status().isAccepted());
+        register(next, "Schedule waitlist").andExpect(status().isAccepted());
+        // taken while waiting, so the waitlisted course no longer fits
+        register(clashing, "Schedule waitlist clash").andExpect(status().isOk());
+
+        courseService.batchRemove(full, List.of("schedule-waitlist-0"));
+        assertEquals(waitlistService.promote(full), 1);
+
+        assertEquals(waitlistService.findWaitlist(full), List.of(clashing.getId()));
+        mockMvc.perform(get("/api/students/" + next.getId() + "/courses"))
+                .andExpect(jsonPath("$[0].name").value("Schedule waitlist"));
+    }
+
+    @Test
+    void overlappingSlotsInACourseAreRejected() throws Exception {
+        createCourse("Schedule invalid", "[{\"day\": \"FRIDAY\", \"start\": \"09:00\", \"end\": \"11:00\"}, " +
+                "{\"day\": \"FRIDAY\", \"start\": \"10:00\", \"end\": \"12:00\"}]")
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("X-Error-Code", "COURSE_SCHEDULE_INVALID"));
+    }
+
+    @Test
+    void scheduleLongerThanItsColumnIsRejected() throws Exception {
+        var slots = new StringBuilder("[");
+        for(var hour = 0; hour < 24; hour++){
+            for(var minute = 0; minute < 60; minute += 10){
+                slots.append(slots.length() > 1 ? ", " : "").append(String.format("{\"day\": \"SATURDAY\", \"start\": \"%02d:%02d\", \"end\": \"%02d:%02d\"}",
+                        hour, minute, hour, minute + 5));
+            }
+        }
+        slots.append("]");
+
+        createCourse("Schedule too long", slots.toString())
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("X-Error-Code", "COURSE_SCHEDULE_TOO_LONG"));
+    }
+
+    private ResultActions createCourse(String name, String schedule) throws Exception {
+        return mockMvc.perform(post("/api/courses")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"" + name + "\", \"schedule\": " + schedule + "}"));
+    }
+
+    private Integer courseId(ResultActions created) throws Exception {
+        return JsonPath.read(created.andExpect(status().isCreated()).andReturn().getResponse().getContentAsString(), "$.id");
+    }
+
+    private ResultActions register(Student student, String course) throws Exception {
+        return mockMvc.perform(post("/api/students/" + student.getId() + "/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"name\": \"" + course + "\"}]"));
+    }
+}
@@ -0,0 +1,100 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.model.EnrollmentStats;
+import metadata.home.school.model.Student;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.EnrollmentCountService;
+import metadata.home.school.service.StatsService;
+import metadata.home.school.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static metadata.home.school.TestFixtures.course;
+import static metadata.home.school.TestFixtures.student;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StatsTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Autowired
+    StatsService statsService;
+
+    @Autowired
+    EnrollmentCountService enrollmentCountService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void statsFollowEnrollmentChanges() throws Exception {
+        var before = statsService.getStats();
+        var course = course(courseService, "Stats course");
+        var other = course(courseService, "Stats other");
+        student(studentService, "stats-1");
+        var leaving = student(studentService, "stats-2");
+        courseService.batchAdd(course.getId(), List.of("stats-1", "stats-2"));
+        courseService.batchAdd(other.getId(), List.of("stats-1"));
+
+        var after = statsService.getStats();
+        assertEquals(after.getTotalEnrollments() - before.getTotalEnrollments(), 3);
+        assertEquals(after.getTotalStudents() - before.getTotalStudents(), 2);
+        assertEquals(bucketDelta(before, after, 1), 1);
+        assertEquals(bucketDelta(before, after, 2), 1);
+        mockMvc.perform(get("/api/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.courses[?(@.name == 'Stats course')].students").value(2))
+                .andExpect(jsonPath("$.courses[?(@.name == 'Stats course')].fillRate").value(2.0 / CourseService.MAX_STUDENTS));
+
+        mockMvc.perform(delete("/api/students/" + leaving.getId())).andExpect(status().isOk());
+
+        var afterDelete = statsService.getStats();
+        assertEquals(afterDelete.getTotalEnrollments() - before.getTotalEnrollments(), 2);
+        assertEquals(afterDelete.getTotalStudents() - before.getTotalStudents(), 1);
+        assertEquals(bucketDelta(before, afterDelete, 1), 0);
+
+        // the deltas must agree with a full rebuild of the summary
+        enrollmentCountService.reconcile();
+        assertEquals(statsService.getStats().getStudentsByCourseCount(), afterDelete.getStudentsByCourseCount());
+    }
+
+    @Test
+    void reconcileRepairsCountsALostRefreshLeftBehind() throws Exception {
+        var course = course(courseService, "Stats drift");
+        var student = student(studentService, "stats-drift");
+        courseService.batchAdd(course.getId(), List.of("stats-drift"));
+        // as if the refresh after the enrollment's commit had failed
+        jdbcTemplate.update("update student set course_count = 0 where id = ?", student.getId());
+        jdbcTemplate.update("update course set student_count = 0 where id = ?", course.getId());
+
+        enrollmentCountService.reconcile();
+
+        mockMvc.perform(get("/api/students").param("name", "Student stats-drift").param("minCourses", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(student.getId()));
+        mockMvc.perform(get("/api/courses").param("name", "Stats drift").param("minStudents", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(course.getId()));
+    }
+
+    private int bucketDelta(EnrollmentStats before, EnrollmentStats after, int courses){
+        return after.getStudentsByCourseCount().get(courses) - before.getStudentsByCourseCount().get(courses);
+    }
+}
@@ -1,38 +1,62 @@
 package metadata.home.school.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import metadata.home.school.cache.EntityResponseCache;
 import metadata.home.school.model.Course;
+import metadata.home.school.model.ErrorCode;
 import metadata.home.school.model.ServiceResponse;
 import metadata.home.school.model.Student;
+import metadata.home.school.model.StudentFilter;
 import metadata.home.school.service.StudentService;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
 public class StudentControllerTests {
     StudentService studentService = mock(StudentService.class);
-    StudentController controller = new StudentController(studentService);
+    ObjectMapper objectMapper = new ObjectMapper();
+    StudentController controller = new StudentController(studentService, new EntityResponseCache(objectMapper, 100, Duration.ofMinutes(1)));
 
     @Test
-    void findByIdGetResult() {
+    void findByIdGetResult() throws Exception {
         var student = new Student();
         student.setId(1);
         student.setSchoolId("A");
         student.setName("StudentA");
         when(studentService.findById(1)).thenReturn(java.util.Optional.of(student));
         var result = controller.getStudentById(1);
+        var body = objectMapper.readValue((byte[])result.getBody(), Student.class);
 
         assertEquals(result.getStatusCode(), HttpStatus.OK);
-        assertEquals(((Student)result.getBody()).getId(), 1);
-        assertEquals(((Student)result.getBody()).getName(), "StudentA");
+        assertEquals(body.getId(), 1);
+        assertEquals(body.getName(), "StudentA");
+    }
+
+    @Test
+    void findByIdServedFromCache() {
+        var student = new Student();
+        student.setId(1);
+        student.setName("Student1");
+        when(studentService.findById(1)).thenReturn(java.util.Optional.of(student));
+        var first = controller.getStudentById(1);
+        var second = controller.getStudentById(1);
+
+        assertEquals(second.getStatusCode(), HttpStatus.OK);
+        assertArrayEquals((byte[])first.getBody(), (byte[])second.getBody());
+        verify(studentService, times(1)).findById(1);
     }
 
     @Test
@@ -61,7 +85,7 @@ public class StudentControllerTests {
         student2.setName("StudentB");
 
         when(studentService.findAll()).thenReturn(new ArrayList<>(){{add(student1); add(student2);}});
-        var result = controller.getAllStudents();
+        var result = controller.getAllStudents(new StudentFilter(), null, null).getBody();
 
         assertEquals(result.size(), 2);
         assertEquals(result.get(0).getId(), 1);
@@ -71,7 +95,7 @@ public class StudentControllerTests {
     @Test
     void findAllEmpty() {
         when(studentService.findAll()).thenReturn(new ArrayList<>());
-        var result = controller.getAllStudents();
+        var result = controller.getAllStudents(new StudentFilter(), null, null).getBody();
 
         assertEquals(result.size(), 0);
     }
@@ -130,7 +154,7 @@ public class StudentControllerTests {
         student1.setSchoolId("A");
         student1.setName("StudentA");
 
-        when(studentService.save(student1)).thenReturn(new ServiceResponse(student1, ""));
+        when(studentService.save(student1)).thenReturn(ServiceResponse.success(student1));
         var result = controller.createStudent(student1);
 
         assertEquals(result.getStatusCode(), HttpStatus.CREATED);
@@ -145,7 +169,7 @@ public class StudentControllerTests {
         student1.setSchoolId("A");
         student1.setName("StudentA");
 
-        when(studentService.save(student1)).thenReturn(new ServiceResponse(null, "A student with school id: A already exists"));
+        when(studentService.save(student1)).thenReturn(ServiceResponse.conflict(ErrorCode.STUDENT_SCHOOL_ID_EXISTS, "A"));
         var result = controller.createStudent(student1);
 
         assertEquals(result.getStatusCode(), HttpStatus.CONFLICT);
@@ -168,7 +192,7 @@ public class StudentControllerTests {
         student1.setName("StudentA");
         student1.setCourses(courses);
 
-        when(studentService.save(student1)).thenReturn(new ServiceResponse(null, "A student cannot register to more than 5 courses"));
+        when(studentService.save(student1)).thenReturn(ServiceResponse.conflict(ErrorCode.STUDENT_COURSE_LIMIT));
         var result = controller.createStudent(student1);
 
         assertEquals(result.getStatusCode(), HttpStatus.CONFLICT);
@@ -182,7 +206,7 @@ public class StudentControllerTests {
         student1.setSchoolId("A");
         student1.setName("StudentA");
 
-        when(studentService.update(1, student1)).thenReturn(new ServiceResponse(student1, ""));
+        when(studentService.update(1, student1)).thenReturn(ServiceResponse.success(student1));
         var result = controller.updateStudent(1, student1);
 
         assertEquals(result.getStatusCode(), HttpStatus.OK);
@@ -197,7 +221,7 @@ public class StudentControllerTests {
         student1.setSchoolId("A");
         student1.setName("StudentA");
 
-        when(studentService.update(1, student1)).thenReturn(new ServiceResponse(null, "A student with school id: A already exists"));
+        when(studentService.update(1, student1)).thenReturn(ServiceResponse.conflict(ErrorCode.STUDENT_SCHOOL_ID_EXISTS, "A"));
         var result = controller.updateStudent(1, student1);
 
         assertEquals(result.getStatusCode(), HttpStatus.CONFLICT);
@@ -220,7 +244,7 @@ public class StudentControllerTests {
         student1.setName("StudentA");
         student1.setCourses(courses);
 
-        when(studentService.update(1, student1)).thenReturn(new ServiceResponse(null, "A student with school id: B already exists"));
+        when(studentService.update(1, student1)).thenReturn(ServiceResponse.conflict(ErrorCode.STUDENT_SCHOOL_ID_EXISTS, "B"));
         var result = controller.updateStudent(1, student1);
 
         assertEquals(result.getStatusCode(), HttpStatus.CONFLICT);
@@ -252,7 +276,7 @@ public class StudentControllerTests {
         student1.setName("StudentA");
         student1.setCourses(new HashSet<>(){{add(course);}});
 
-        when(studentService.register(1, new ArrayList<>(){{add(course);}})).thenReturn(new ServiceResponse(student1, ""));
+        when(studentService.register(1, new ArrayList<>(){{add(course);}})).thenReturn(ServiceResponse.success(student1));
         var result = controller.register(1, new ArrayList<>(){{add(course);}});
 
         assertEquals(result.getStatusCode(), HttpStatus.OK);
@@ -266,7 +290,7 @@ public class StudentControllerTests {
         course.setId(1);
         course.setName("Course1");
 
-        when(studentService.register(1, new ArrayList<>(){{add(course);}})).thenReturn(new ServiceResponse(null, "A student cannot register to more than 5 courses"));
+        when(studentService.register(1, new ArrayList<>(){{add(course);}})).thenReturn(ServiceResponse.conflict(ErrorCode.STUDENT_COURSE_LIMIT));
         var result = controller.register(1, new ArrayList<>(){{add(course);}});
 
         assertEquals(result.getStatusCode(), HttpStatus.CONFLICT);
@@ -279,7 +303,7 @@ public class StudentControllerTests {
         course.setId(1);
         course.setName("Course1");
 
-        when(studentService.register(1, new ArrayList<>(){{add(course);}})).thenReturn(new ServiceResponse(null, "Student was already registered to course: Course1"));
+        when(studentService.register(1, new ArrayList<>(){{add(course);}})).thenReturn(ServiceResponse.conflict(ErrorCode.STUDENT_ALREADY_REGISTERED, "Course1"));
         var result = controller.register(1, new ArrayList<>(){{add(course);}});
 
         assertEquals(result.getStatusCode(), HttpStatus.CONFLICT);
@@ -292,7 +316,7 @@ public class StudentControllerTests {
         course.setId(1);
         course.setName("Course1");
 
-        when(studentService.register(1, new ArrayList<>(){{add(course);}})).thenReturn(new ServiceResponse(null, "Cannot find course: Course1"));
+        when(studentService.register(1, new ArrayList<>(){{add(course);}})).thenReturn(ServiceResponse.conflict(ErrorCode.COURSE_NAME_NOT_FOUND, "Course1"));
         var result = controller.register(1, new ArrayList<>(){{add(course);}});
 
         assertEquals(result.getStatusCode(), HttpStatus.CONFLICT);
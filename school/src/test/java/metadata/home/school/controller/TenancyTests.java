@@ -0,0 +1,66 @@
+package metadata.home.school.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// a database of its own, so creating this context doesn't drop the tables the other contexts are using
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:tenancy;DB_CLOSE_DELAY=-1;MODE=MySQL", "school.tenancy.enabled=true", "school.tenancy.create-schemas=true",
+        "school.tenancy.schemas.north=TENANT_NORTH", "school.tenancy.schemas.south=TENANT_SOUTH" })
+@AutoConfigureMockMvc
+public class TenancyTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    void tenantsSeeOnlyTheirOwnData() throws Exception {
+        var northId = createCourse("north", "Tenant course");
+        var southId = createCourse("south", "Tenant course");
+        createCourse("south", "Tenant course only south");
+
+        // the same ids exist in both schemas, each tenant gets its own row and its own cached copy
+        mockMvc.perform(get("/api/courses/" + northId).header("X-Tenant-Id", "north"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Tenant course"));
+        mockMvc.perform(get("/api/courses/" + southId).header("X-Tenant-Id", "south"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Tenant course"));
+        mockMvc.perform(get("/api/courses").param("name", "Tenant course only south").header("X-Tenant-Id", "north"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "0"));
+        mockMvc.perform(get("/api/courses").param("name", "Tenant course only south").header("X-Tenant-Id", "south"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "1"));
+    }
+
+    @Test
+    void requestsNeedAKnownTenant() throws Exception {
+        mockMvc.perform(get("/api/courses"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("X-Error-Code", "TENANT_REQUIRED"));
+        mockMvc.perform(get("/api/courses").header("X-Tenant-Id", "west"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string("X-Error-Code", "TENANT_NOT_FOUND"));
+    }
+
+    private int createCourse(String tenant, String name) throws Exception {
+        var body = mockMvc.perform(post("/api/courses").header("X-Tenant-Id", tenant)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"" + name + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asInt();
+    }
+}
@@ -0,0 +1,95 @@
+package metadata.home.school.controller;
+
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import metadata.home.school.model.TraceSpan;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import metadata.home.school.tracing.RecentSpans;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = { "school.tracing.enabled=true", "school.tracing.sample-ratio=1", "school.profiling.endpoint-enabled=true" })
+@AutoConfigureMockMvc
+public class TracingTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Autowired
+    SdkTracerProvider tracerProvider;
+
+    @Autowired
+    RecentSpans recentSpans;
+
+    @Test
+    void registrationIsTracedDownToStatements() throws Exception {
+        var course = new Course();
+        course.setName("Traced course");
+        courseService.save(course);
+        var student = new Student();
+        student.setSchoolId("traced-1");
+        student.setName("Traced student");
+        var saved = studentService.save(student).getResult();
+
+        var traceId = mockMvc.perform(post("/api/students/" + saved.getId() + "/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\": \"Traced course\"}]"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("X-Trace-Id");
+        assertNotNull(traceId);
+        tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+
+        var trace = recentSpans.findTrace(traceId);
+        var request = find(trace, "POST /api/students/{id}/register");
+        var register = find(trace, "StudentService.register");
+        assertEquals(request.getParentSpanId(), null);
+        assertEquals(register.getParentSpanId(), request.getSpanId());
+        assertTrue(trace.stream().anyMatch(span -> span.getName().equals("select") && span.getParentSpanId().equals(register.getSpanId())
+                && span.getAttributes().get("db.statement").toString().contains("from course")));
+        assertTrue(trace.stream().anyMatch(span -> span.getName().equals("insert")));
+
+        mockMvc.perform(get("/api/admin/traces/" + traceId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(trace.size()));
+    }
+
+    @Test
+    void callerSamplingDecisionIsFollowed() throws Exception {
+        var traceId = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+        mockMvc.perform(get("/api/stats").header("traceparent", "00-" + traceId + "-00f067aa0ba902b7-01"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Trace-Id", traceId));
+        mockMvc.perform(get("/api/stats").header("traceparent", "00-" + traceId + "-00f067aa0ba902b7-00"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Trace-Id"));
+    }
+
+    private static TraceSpan find(List<TraceSpan> trace, String name){
+        for (var span: trace) {
+            if(span.getName().equals(name)){
+                return span;
+            }
+        }
+        throw new AssertionError("No span " + name + " in " + trace.size() + " spans");
+    }
+}
@@ -0,0 +1,139 @@
+package metadata.home.school.controller;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import metadata.home.school.repository.EnrollmentRepository;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import metadata.home.school.service.WaitlistService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static metadata.home.school.TestFixtures.student;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "school.waitlist.promotion-interval=PT1H")
+@AutoConfigureMockMvc
+public class WaitlistTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Autowired
+    WaitlistService waitlistService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    EnrollmentRepository enrollmentRepository;
+
+    @Test
+    void registerOnFullCourseIsWaitlistedAndPromotedWhenASeatFrees() throws Exception {
+        var course = fullCourse("Waitlist promote");
+        var first = student(studentService, "waitlist-first");
+        var second = student(studentService, "waitlist-second");
+
+        register(first, course);
+        register(second, course);
+        mockMvc.perform(get("/api/courses/" + course.getId() + "/waitlist"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value(first.getId()))
+                .andExpect(jsonPath("$[1]").value(second.getId()));
+
+        courseService.batchRemove(course.getId(), List.of("waitlist-promote-0"));
+        waitlistService.promote(course.getId());
+
+        assertEquals(enrollments(course), CourseService.MAX_STUDENTS);
+        assertEquals(jdbcTemplate.queryForObject("select count(*) from student_course where course_id = ? and student_id = ?",
+                Integer.class, course.getId(), first.getId()), 1);
+        assertEquals(waitlistService.findWaitlist(course.getId()), List.of(second.getId()));
+    }
+
+    @Test
+    void promotionSkipsStudentsThatReachedTheCourseLimit() throws Exception {
+        var course = fullCourse("Waitlist limit");
+        var busy = student(studentService, "waitlist-busy");
+        var next = student(studentService, "waitlist-next");
+
+        register(busy, course);
+        register(next, course);
+        for(var i = 0; i < StudentService.MAX_COURSES; i++){
+            var other = new Course();
+            other.setName("Waitlist other " + i);
+            courseService.batchAdd(courseService.save(other).getResult().getId(), List.of("waitlist-busy"));
+        }
+
+        courseService.batchRemove(course.getId(), List.of("waitlist-limit-0"));
+        waitlistService.promote(course.getId());
+
+        assertEquals(jdbcTemplate.queryForObject("select count(*) from student_course where course_id = ? and student_id = ?",
+                Integer.class, course.getId(), next.getId()), 1);
+        assertEquals(waitlistService.findWaitlist(course.getId()).size(), 0);
+    }
+
+    @Test
+    void aFailingCourseDoesNotHoldBackTheOthers() throws Exception {
+        var failing = fullCourse("Waitlist failing");
+        var healthy = fullCourse("Waitlist healthy");
+        var blocked = student(studentService, "waitlist-blocked");
+        var promoted = student(studentService, "waitlist-promoted");
+        register(blocked, failing);
+        register(promoted, healthy);
+        courseService.batchRemove(failing.getId(), List.of("waitlist-failing-0"));
+        courseService.batchRemove(healthy.getId(), List.of("waitlist-healthy-0"));
+        doThrow(new QueryTimeoutException("lock wait timeout")).when(enrollmentRepository).lockCourse(failing.getId());
+
+        assertEquals(waitlistService.promotePending(), 1);
+        assertEquals(enrollments(healthy), CourseService.MAX_STUDENTS);
+        assertEquals(waitlistService.findWaitlist(failing.getId()), List.of(blocked.getId()));
+
+        // the failed course is still pending and goes through once the cause is gone
+        doCallRealMethod().when(enrollmentRepository).lockCourse(failing.getId());
+        assertEquals(waitlistService.promotePending(), 1);
+        assertEquals(enrollments(failing), CourseService.MAX_STUDENTS);
+    }
+
+    private Course fullCourse(String name){
+        var course = new Course();
+        course.setName(name);
+        course = courseService.save(course).getResult();
+        var schoolIds = new ArrayList<String>();
+        for(var i = 0; i < CourseService.MAX_STUDENTS; i++){
+            schoolIds.add(student(studentService, name.toLowerCase().replace(' ', '-') + "-" + i).getSchoolId());
+        }
+        courseService.batchAdd(course.getId(), schoolIds);
+        return course;
+    }
+
+    private void register(Student student, Course course) throws Exception {
+        mockMvc.perform(post("/api/students/" + student.getId() + "/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\": \"" + course.getName() + "\"}]"))
+                .andExpect(status().isAccepted());
+    }
+
+    private int enrollments(Course course){
+        return jdbcTemplate.queryForObject("select count(*) from student_course where course_id = ?", Integer.class, course.getId());
+    }
+}
@@ -0,0 +1,121 @@
+package metadata.home.school.embedded;
+
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static metadata.home.school.TestFixtures.course;
+import static metadata.home.school.TestFixtures.student;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The API served from the embedded store, with no datasource in the context.
+ */
+@SpringBootTest(properties = "school.embedded.directory=target/embedded-profile-tests")
+@AutoConfigureMockMvc
+@ActiveProfiles("embedded")
+public class EmbeddedProfileTests {
+    static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ApplicationContext context;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    // the store outlives the test run, so every run uses names of its own
+    private final String run = UUID.randomUUID().toString();
+
+    @Test
+    void runsWithoutADataSource(){
+        assertEquals(context.getBeanNamesForType(DataSource.class).length, 0);
+    }
+
+    @Test
+    void studentsAreCreatedEnrolledAndListed() throws Exception {
+        var math = course(courseService, "Math " + run);
+        mockMvc.perform(post("/api/students")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"schoolId\": \"m-1-" + run + "\", \"name\": \"Listed " + run + " Ann\", \"courses\": [{\"name\": \"Math " + run + "\"}]}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.courses[0].name").value("Math " + run));
+        student(studentService, "m-2-" + run, "Listed " + run + " Bob");
+        student(studentService, "m-3-" + run, "Other " + run);
+
+        mockMvc.perform(post("/api/courses/" + math.getId() + "/students:batchAdd")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"m-1-" + run + "\", \"m-2-" + run + "\", \"missing-" + run + "\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied[0]").value("m-2-" + run))
+                .andExpect(jsonPath("$.skipped[0]").value("m-1-" + run))
+                .andExpect(jsonPath("$.missing[0]").value("missing-" + run));
+
+        mockMvc.perform(get("/api/courses/" + math.getId() + "/students"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/api/students").param("name", "Listed " + run).param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"))
+                .andExpect(jsonPath("$[0].schoolId").value("m-1-" + run));
+        mockMvc.perform(get("/api/students").param("course", "Math " + run).param("minCourses", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/api/courses").param("name", "Math " + run).param("minStudents", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void studentsArePatchedRegisteredAndDeleted() throws Exception {
+        var art = course(courseService, "Art " + run);
+        var music = course(courseService, "Music " + run);
+        var student = student(studentService, "p-1-" + run, "Patched");
+
+        mockMvc.perform(patch("/api/students/" + student.getId())
+                        .contentType(MERGE_PATCH_JSON)
+                        .content("{\"name\": \"Patched again\", \"courses\": [{\"name\": \"Art " + run + "\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Patched again"))
+                .andExpect(jsonPath("$.courses[0].name").value("Art " + run));
+
+        mockMvc.perform(post("/api/students/" + student.getId() + "/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\": \"Music " + run + "\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.courses.length()").value(2));
+        mockMvc.perform(get("/api/stats"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/courses").param("ids", art.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted[0]").value(art.getId()));
+        mockMvc.perform(get("/api/students/" + student.getId() + "/courses"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Music " + run));
+
+        mockMvc.perform(delete("/api/students").param("ids", student.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted[0]").value(student.getId()));
+        mockMvc.perform(get("/api/students/" + student.getId()))
+                .andExpect(status().isNotFound());
+        assertEquals(courseService.findStudents(music).size(), 0);
+    }
+}
@@ -0,0 +1,76 @@
+package metadata.home.school.embedded;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import metadata.home.school.model.TimeSlot;
+import metadata.home.school.repository.CourseRepository;
+import metadata.home.school.repository.StudentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "school.embedded.directory=target/embedded-tests")
+@ActiveProfiles("embedded")
+public class EmbeddedRepositoryTests {
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    // the store outlives the test run, so every run uses names of its own
+    private final String run = UUID.randomUUID().toString();
+
+    @Test
+    void studentsAreSavedWithTheirCourses(){
+        var course = new Course();
+        course.setName("Math " + run);
+        course.setSchedule(List.of(new TimeSlot(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 30))));
+        course = courseRepository.save(course);
+
+        var student = new Student();
+        student.setSchoolId("s-" + run);
+        student.setName("Ana");
+        student.setCourses(Set.of(course));
+        var saved = studentRepository.save(student);
+
+        var found = studentRepository.findBySchoolId("s-" + run);
+        assertEquals(found.getId(), saved.getId());
+        assertEquals(found.getCourses().iterator().next().getName(), "Math " + run);
+        assertEquals(found.getCourses().iterator().next().getSchedule().get(0).getDay(), DayOfWeek.MONDAY);
+        assertEquals(courseRepository.findByName("Math " + run).getStudents().iterator().next().getSchoolId(), "s-" + run);
+        assertEquals(studentRepository.findDistinctByCoursesId(course.getId()).size(), 1);
+        assertTrue(studentRepository.existsBySchoolIdAndIdNot("s-" + run, saved.getId() + 1));
+        assertFalse(studentRepository.existsBySchoolIdAndIdNot("s-" + run, saved.getId()));
+    }
+
+    @Test
+    void deletingACourseDropsItFromItsStudents(){
+        var course = new Course();
+        course.setName("Art " + run);
+        course = courseRepository.save(course);
+        var student = new Student();
+        student.setSchoolId("a-" + run);
+        student.setName("Bob");
+        student.setCourses(Set.of(course));
+        student = studentRepository.save(student);
+        var studentId = student.getId();
+
+        courseRepository.delete(course);
+
+        assertFalse(courseRepository.existsById(course.getId()));
+        assertTrue(studentRepository.findById(studentId).get().getCourses().isEmpty());
+        assertTrue(studentRepository.findByCoursesIsEmpty().stream().anyMatch(s -> s.getId().equals(studentId)));
+    }
+}
@@ -0,0 +1,250 @@
+package metadata.home.school.embedded;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A crash is a store that is never closed: what it wrote is in the page cache, as after the process is killed, and the
+ * next store opened on the directory has to recover it from the snapshot and the log.
+ */
+@SpringBootTest
+public class EmbeddedStoreTests {
+    static final int LOG_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void logIsReplayedAfterACrash() throws Exception {
+        var crashed = EmbeddedStore.open(directory, LOG_SIZE, false);
+        var math = crashed.putCourse(null, "Math", "MONDAY 09:00-10:30");
+        var art = crashed.putCourse(null, "Art", null);
+        var ana = crashed.putStudent(null, "s-1", "Ana", new int[] { art.getId(), math.getId() });
+        var bob = crashed.putStudent(null, "s-2", "Bob", new int[] { math.getId() });
+        crashed.putStudent(ana.getId(), "s-1", "Ana Maria", new int[] { math.getId() });
+        crashed.deleteStudent(bob.getId());
+
+        var store = EmbeddedStore.open(directory, LOG_SIZE, false);
+        assertEquals(store.getLsn(), crashed.getLsn());
+        assertEquals(store.countStudents(), 1);
+        assertEquals(store.findStudentBySchoolId("s-1").getName(), "Ana Maria");
+        assertArrayEquals(store.findStudent(ana.getId()).getCourseIds(), new int[] { math.getId() });
+        assertArrayEquals(store.findStudentIds(math.getId()), new int[] { ana.getId() });
+        assertArrayEquals(store.findStudentIds(art.getId()), new int[0]);
+        assertEquals(store.findCourseByName("Math").getSchedule(), "MONDAY 09:00-10:30");
+        assertNull(store.findStudent(bob.getId()));
+
+        // ids aren't handed out twice
+        assertEquals(store.putStudent(null, "s-3", "Carl", new int[0]).getId(), bob.getId() + 1);
+    }
+
+    @Test
+    void logIsReplayedOnTopOfTheSnapshot() throws Exception {
+        var crashed = EmbeddedStore.open(directory, LOG_SIZE, false);
+        var math = crashed.putCourse(null, "Math", null);
+        var art = crashed.putCourse(null, "Art", null);
+        var ana = crashed.putStudent(null, "s-1", "Ana", new int[] { math.getId(), art.getId() });
+        crashed.snapshot();
+        crashed.deleteCourse(art.getId());
+        crashed.putStudent(null, "s-2", "Bob", new int[] { math.getId() });
+
+        var store = EmbeddedStore.open(directory, LOG_SIZE, false);
+        assertEquals(store.getLsn(), 5L);
+        assertEquals(store.countCourses(), 1);
+        assertEquals(store.countStudents(), 2);
+        assertArrayEquals(store.findStudent(ana.getId()).getCourseIds(), new int[] { math.getId() });
+        assertEquals(store.findStudentIds(math.getId()).length, 2);
+    }
+
+    @Test
+    void enrollmentsAndWaitlistsAreRecovered() throws Exception {
+        var crashed = EmbeddedStore.open(directory, LOG_SIZE, false);
+        var math = crashed.putCourse(null, "Math", null);
+        var ana = crashed.putStudent(null, "s-1", "Ana", new int[0]);
+        var bob = crashed.putStudent(null, "s-2", "Bob", new int[0]);
+        assertEquals(crashed.enroll(math.getId(), new int[] { ana.getId(), bob.getId(), ana.getId() }), 2);
+        crashed.putWaitlistEntry(math.getId(), ana.getId());
+        crashed.snapshot();
+        assertEquals(crashed.unenroll(math.getId(), new int[] { ana.getId() }), 1);
+        crashed.updateStudent(bob.getId(), student -> new EmbeddedStore.StudentRow(student.getId(), student.getSchoolId(), "Bobby", student.getCourseIds()));
+        crashed.putWaitlistEntry(math.getId(), bob.getId());
+        crashed.deleteWaitlistEntries(entry -> entry.getStudentId() == ana.getId());
+
+        var store = EmbeddedStore.open(directory, LOG_SIZE, false);
+        assertArrayEquals(store.findStudentIds(math.getId()), new int[] { bob.getId() });
+        assertArrayEquals(store.findStudent(ana.getId()).getCourseIds(), new int[0]);
+        assertEquals(store.findStudent(bob.getId()).getName(), "Bobby");
+        assertArrayEquals(store.findStudent(bob.getId()).getCourseIds(), new int[] { math.getId() });
+        assertEquals(store.findWaitlistEntries().size(), 1);
+        assertEquals(store.findWaitlistEntries().get(0).getStudentId(), bob.getId());
+        assertThrows(DataIntegrityViolationException.class, () -> store.putWaitlistEntry(math.getId(), bob.getId()));
+        assertThrows(DataIntegrityViolationException.class, () -> store.enroll(math.getId(), new int[] { bob.getId() + 1 }));
+    }
+
+    @Test
+    void rollbackUndoesEveryChangeOfTheTransaction() throws Exception {
+        var crashed = EmbeddedStore.open(directory, LOG_SIZE, false);
+        var math = crashed.putCourse(null, "Math", null);
+        var art = crashed.putCourse(null, "Art", "FRIDAY 14:00-15:00");
+        var ana = crashed.putStudent(null, "s-1", "Ana", new int[] { math.getId() });
+        var bob = crashed.putStudent(null, "s-2", "Bob", new int[] { math.getId(), art.getId() });
+        var waiting = crashed.putWaitlistEntry(art.getId(), ana.getId());
+        var transactions = new TransactionTemplate(new EmbeddedTransactionManager(crashed));
+
+        assertThrows(IllegalStateException.class, () -> transactions.executeWithoutResult(status -> {
+            crashed.putStudent(ana.getId(), "s-1", "Ana Maria", new int[0]);
+            crashed.deleteStudent(bob.getId());
+            crashed.putCourse(art.getId(), "Drawing", null);
+            crashed.deleteCourse(math.getId());
+            crashed.putStudent(null, "s-3", "Carl", new int[] { art.getId() });
+            crashed.enroll(art.getId(), new int[] { ana.getId() });
+            crashed.deleteWaitlistEntries(entry -> true);
+            crashed.putWaitlistEntry(art.getId(), ana.getId());
+            throw new IllegalStateException("failed after writing");
+        }));
+
+        for (var store: List.of(crashed, EmbeddedStore.open(directory, LOG_SIZE, false))) {
+            assertEquals(store.countStudents(), 2);
+            assertEquals(store.findStudent(ana.getId()).getName(), "Ana");
+            assertArrayEquals(store.findStudent(ana.getId()).getCourseIds(), new int[] { math.getId() });
+            assertArrayEquals(store.findStudent(bob.getId()).getCourseIds(), new int[] { math.getId(), art.getId() });
+            assertNull(store.findStudentBySchoolId("s-3"));
+            assertEquals(store.findCourse(art.getId()).getName(), "Art");
+            assertEquals(store.findCourse(art.getId()).getSchedule(), "FRIDAY 14:00-15:00");
+            assertArrayEquals(store.findStudentIds(math.getId()), new int[] { ana.getId(), bob.getId() });
+            assertArrayEquals(store.findStudentIds(art.getId()), new int[] { bob.getId() });
+            assertEquals(store.findWaitlistEntries().size(), 1);
+            assertEquals(store.findWaitlistEntries().get(0).getId(), waiting.getId());
+        }
+    }
+
+    @Test
+    void aNewTransactionInsideARolledBackOneIsKept() throws Exception {
+        var store = EmbeddedStore.open(directory, LOG_SIZE, false);
+        var transactions = new TransactionTemplate(new EmbeddedTransactionManager(store));
+        var inner = new TransactionTemplate(transactions.getTransactionManager());
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        assertThrows(IllegalStateException.class, () -> transactions.executeWithoutResult(status -> {
+            store.putCourse(null, "Math", null);
+            inner.executeWithoutResult(innerStatus -> store.putCourse(null, "Art", null));
+            store.putCourse(null, "Music", null);
+            throw new IllegalStateException("failed after writing");
+        }));
+
+        assertEquals(store.countCourses(), 1);
+        assertEquals(store.findCourses().get(0).getName(), "Art");
+    }
+
+    @Test
+    void crashBetweenTheSnapshotAndTheLogResetLosesNothing() throws Exception {
+        var crashed = EmbeddedStore.open(directory, LOG_SIZE, false);
+        var math = crashed.putCourse(null, "Math", null);
+        var ana = crashed.putStudent(null, "s-1", "Ana", new int[] { math.getId() });
+        // the snapshot is on disk but the log still holds the changes it covers
+        crashed.writeSnapshot();
+        crashed.putStudent(ana.getId(), "s-1", "Ana Maria", new int[0]);
+        crashed.putStudent(null, "s-2", "Bob", new int[] { math.getId() });
+
+        try(var store = EmbeddedStore.open(directory, LOG_SIZE, false)){
+            assertEquals(store.getLsn(), crashed.getLsn());
+            assertEquals(store.findStudent(ana.getId()).getName(), "Ana Maria");
+            assertArrayEquals(store.findStudent(ana.getId()).getCourseIds(), new int[0]);
+            assertEquals(store.findStudentIds(math.getId()).length, 1);
+            assertEquals(store.countStudents(), 2);
+        }
+    }
+
+    @Test
+    void tornRecordAtTheEndIsDropped() throws Exception {
+        var crashed = EmbeddedStore.open(directory, LOG_SIZE, false);
+        crashed.putStudent(null, "s-1", "Ana", new int[0]);
+        crashed.putStudent(null, "s-2", "Bob", new int[0]);
+        corruptLastRecord(directory.resolve(EmbeddedStore.LOG_FILE));
+
+        var recovered = EmbeddedStore.open(directory, LOG_SIZE, false);
+        assertEquals(recovered.getLsn(), 1L);
+        assertNull(recovered.findStudentBySchoolId("s-2"));
+        recovered.putStudent(null, "s-3", "Carl", new int[0]);
+
+        var store = EmbeddedStore.open(directory, LOG_SIZE, false);
+        assertEquals(store.getLsn(), 2L);
+        assertEquals(store.countStudents(), 2);
+        assertEquals(store.findStudentBySchoolId("s-3").getName(), "Carl");
+    }
+
+    @Test
+    void fullLogIsFoldedIntoASnapshot() throws Exception {
+        var crashed = EmbeddedStore.open(directory, 4096, false);
+        for(var i = 0; i < 500; i++){
+            crashed.putStudent(null, "s-" + i, "Student " + i, new int[0]);
+        }
+        assertTrue(Files.exists(directory.resolve(EmbeddedStore.SNAPSHOT_FILE)));
+
+        var store = EmbeddedStore.open(directory, 4096, false);
+        assertEquals(store.countStudents(), 500);
+        assertEquals(store.findStudentBySchoolId("s-499").getName(), "Student 499");
+    }
+
+    @Test
+    void closedStoreStartsFromItsSnapshot() throws Exception {
+        var closed = EmbeddedStore.open(directory, LOG_SIZE, false);
+        closed.putStudent(null, "s-1", "Ana", new int[0]);
+        closed.close();
+
+        var store = EmbeddedStore.open(directory, LOG_SIZE, false);
+        assertEquals(store.getLsn(), 1L);
+        assertEquals(store.findStudentBySchoolId("s-1").getName(), "Ana");
+        assertEquals(Files.readAllBytes(directory.resolve(EmbeddedStore.LOG_FILE))[0], (byte) 0);
+    }
+
+    @Test
+    void constraintsAreCheckedBeforeLogging() throws Exception {
+        var store = EmbeddedStore.open(directory, LOG_SIZE, false);
+        var math = store.putCourse(null, "Math", null);
+        store.putStudent(null, "s-1", "Ana", new int[0]);
+
+        assertThrows(DataIntegrityViolationException.class, () -> store.putStudent(null, "s-1", "Bob", new int[0]));
+        assertThrows(DataIntegrityViolationException.class, () -> store.putStudent(null, "s-2", "Bob", new int[] { math.getId() + 1 }));
+        assertThrows(DataIntegrityViolationException.class, () -> store.putCourse(null, "Math", null));
+        assertEquals(store.getLsn(), 2L);
+    }
+
+    /**
+     * Flips a payload byte of the last record, as if the crash had cut it short.
+     */
+    private static void corruptLastRecord(Path log) throws Exception {
+        try(var file = new RandomAccessFile(log.toFile(), "rw")){
+            var position = 0L;
+            var last = -1L;
+            while(true){
+                file.seek(position);
+                var length = file.readInt();
+                if(length == 0){
+                    break;
+                }
+                last = position;
+                position += WriteAheadLog.HEADER + length;
+            }
+            file.seek(last + WriteAheadLog.HEADER);
+            var first = file.readByte();
+            file.seek(last + WriteAheadLog.HEADER);
+            file.writeByte(first ^ 0xff);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package metadata.home.school.loadshedding;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class AdaptiveLimiterTests {
+    static final long MS = 1_000_000;
+
+    @Test
+    void requestsOverTheLimitAreRejected(){
+        var limiter = new AdaptiveLimiter(2, 1, 10);
+        var first = limiter.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(limiter.tryAcquire());
+
+        assertNull(limiter.tryAcquire());
+        assertEquals(limiter.getRejected(), 1L);
+        limiter.release(first, false);
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    void limitGrowsWhileLatencyStaysFlat(){
+        var limiter = new AdaptiveLimiter(10, 1, 50);
+        for(var i = 0; i < 100; i++){
+            limiter.onSample(10 * MS, limiter.getLimit(), false);
+        }
+        assertEquals(limiter.getLimit(), 50);
+    }
+
+    @Test
+    void limitShrinksOnceRequestsQueue(){
+        var limiter = new AdaptiveLimiter(40, 4, 50);
+        limiter.onSample(10 * MS, 40, false);
+        for(var i = 0; i < 100; i++){
+            // latency grows with the requests in flight, as it does when they wait for the same connections
+            var inFlight = limiter.getLimit();
+            limiter.onSample(inFlight * MS, inFlight, false);
+        }
+        assertTrue(limiter.getLimit() < 20, "limit " + limiter.getLimit());
+        assertTrue(limiter.getLimit() >= 4, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    void failuresCutTheLimit(){
+        var limiter = new AdaptiveLimiter(20, 2, 50);
+        limiter.onSample(10 * MS, 20, true);
+        assertEquals(limiter.getLimit(), 18);
+    }
+
+    @Test
+    void idleTrafficLeavesTheLimitAlone(){
+        var limiter = new AdaptiveLimiter(20, 2, 50);
+        for(var i = 0; i < 100; i++){
+            limiter.onSample(10 * MS, 1, false);
+        }
+        assertEquals(limiter.getLimit(), 20);
+    }
+}
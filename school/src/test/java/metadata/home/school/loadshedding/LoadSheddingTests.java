@@ -0,0 +1,92 @@
+package metadata.home.school.loadshedding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// a database of its own, so creating this context doesn't drop the tables the other contexts are using
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:loadshedding;DB_CLOSE_DELAY=-1;MODE=MySQL", "school.load-shedding.enabled=true",
+        "school.load-shedding.export.initial-limit=1", "school.load-shedding.export.min-limit=1", "school.load-shedding.export.max-limit=1",
+        "school.load-shedding.retry-after=PT2S" })
+@AutoConfigureMockMvc
+public class LoadSheddingTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    Bulkheads bulkheads;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    void fullExportIsShedWhileEnrollmentsGoThrough() throws Exception {
+        mockMvc.perform(post("/api/courses").contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Shedding course\"}"))
+                .andExpect(status().isCreated());
+        var body = mockMvc.perform(post("/api/students").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"schoolId\": \"shedding-1\", \"name\": \"Shedding\"}"))
+                .andReturn().getResponse().getContentAsString();
+        var studentId = objectMapper.readTree(body).get("id").asInt();
+
+        // a slow export holds the only export slot
+        var export = bulkheads.limiterOf(EndpointGroup.EXPORT);
+        var permit = export.tryAcquire();
+        assertNotNull(permit);
+        try{
+            mockMvc.perform(get("/api/students"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "2"))
+                    .andExpect(header().string("X-Error-Code", "OVERLOADED"));
+            mockMvc.perform(get("/api/students").param("page", "0")).andExpect(status().isOk());
+            mockMvc.perform(post("/api/students/" + studentId + "/register")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[{\"name\": \"Shedding course\"}]"))
+                    .andExpect(status().isOk());
+        }finally {
+            export.release(permit, false);
+        }
+        mockMvc.perform(get("/api/students")).andExpect(status().isOk());
+
+        var rejected = meterRegistry.get("school.requests.rejected").tag("group", "export").functionCounter().count();
+        assertEquals(rejected, 1.0);
+    }
+
+    @Test
+    void requestsAreSortedIntoGroups(){
+        assertEquals(group("GET", "/api/students", null), EndpointGroup.EXPORT);
+        assertEquals(group("GET", "/api/students", "page"), EndpointGroup.READ);
+        // parameters the controller ignores, like a cache buster, still get the full list
+        assertEquals(group("GET", "/api/students", "_"), EndpointGroup.EXPORT);
+        assertEquals(group("GET", "/api/courses", "_"), EndpointGroup.EXPORT);
+        assertEquals(group("GET", "/api/courses", "minStudents"), EndpointGroup.READ);
+        assertEquals(group("GET", "/api/students", "ids"), EndpointGroup.READ);
+        assertEquals(group("GET", "/api/courses/noStudents", null), EndpointGroup.EXPORT);
+        assertEquals(group("POST", "/api/students/3/register", null), EndpointGroup.ENROLLMENT);
+        assertEquals(group("POST", "/api/courses/3/students:batchAdd", null), EndpointGroup.ENROLLMENT);
+        assertEquals(group("PATCH", "/api/students/3", null), EndpointGroup.WRITE);
+        assertEquals(group("POST", "/api/graphql", null), EndpointGroup.READ);
+    }
+
+    private EndpointGroup group(String method, String path, String parameter){
+        var request = new MockHttpServletRequest(method, path);
+        if(parameter != null){
+            request.addParameter(parameter, "0");
+        }
+        return EndpointGroup.of(request);
+    }
+}
@@ -0,0 +1,126 @@
+package metadata.home.school.repository;
+
+import metadata.home.school.model.CourseFilter;
+import metadata.home.school.model.StudentFilter;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every list filter, then asks H2 for the plan of each statement Hibernate sent. A filter whose plan doesn't go
+ * through its index, or scans a whole table, fails here before it ships.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "metadata.home.school.repository.FilterQueryPlanTests$RecordingInspector")
+public class FilterQueryPlanTests {
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    CourseRepository courseRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void studentNameUsesIndex() {
+        assertStudentsUseIndex(filter -> filter.setName("Ann"), "IDX_STUDENT_NAME");
+    }
+
+    @Test
+    void studentCourseUsesIndex() {
+        assertStudentsUseIndex(filter -> filter.setCourse("Math"), "IDX_STUDENT_COURSE_COURSE");
+    }
+
+    @Test
+    void studentCourseCountRangeUsesIndex() {
+        assertStudentsUseIndex(filter -> {
+            filter.setMinCourses(1);
+            filter.setMaxCourses(3);
+        }, "IDX_STUDENT_COURSE_COUNT");
+        assertStudentsUseIndex(filter -> filter.setMinCourses(2), "IDX_STUDENT_COURSE_COUNT");
+        assertStudentsUseIndex(filter -> filter.setMaxCourses(2), "IDX_STUDENT_COURSE_COUNT");
+    }
+
+    @Test
+    void courseNameUsesIndex() {
+        var filter = new CourseFilter();
+        filter.setName("Ma");
+        assertUsesIndex(() -> courseRepository.findAll(filter, page()), "UK_");
+    }
+
+    @Test
+    void courseStudentCountRangeUsesIndex() {
+        var filter = new CourseFilter();
+        filter.setMinStudents(10);
+        filter.setMaxStudents(40);
+        assertUsesIndex(() -> courseRepository.findAll(filter, page()), "IDX_COURSE_STUDENT_COUNT");
+    }
+
+    private void assertStudentsUseIndex(Consumer<StudentFilter> configure, String index){
+        var filter = new StudentFilter();
+        configure.accept(filter);
+        assertUsesIndex(() -> studentRepository.findAll(filter, page()), index);
+    }
+
+    private void assertUsesIndex(Runnable query, String index){
+        RecordingInspector.clear();
+        query.run();
+        var statements = RecordingInspector.selects();
+        assertFalse(statements.isEmpty());
+        for (var sql: statements) {
+            var plan = explain(sql);
+            assertFalse(plan.contains("tableScan"), plan);
+            assertTrue(plan.contains(index), plan);
+        }
+    }
+
+    private String explain(String sql){
+        var parameters = sql.chars().filter(c -> c == '?').count();
+        var arguments = new Object[(int) parameters];
+        // the plan doesn't depend on the values, strings convert to whatever the column needs
+        java.util.Arrays.fill(arguments, "1");
+        return jdbcTemplate.queryForObject("explain " + sql, String.class, arguments);
+    }
+
+    private static PageRequest page(){
+        return PageRequest.of(1, 10, Sort.by("id"));
+    }
+
+    public static class RecordingInspector implements StatementInspector {
+        private static final List<String> statements = new ArrayList<>();
+
+        static synchronized void clear(){
+            statements.clear();
+        }
+
+        static synchronized List<String> selects(){
+            var selects = new ArrayList<String>();
+            for (var sql: statements) {
+                if(sql.startsWith("select") && sql.contains(" where ")){
+                    selects.add(sql);
+                }
+            }
+            return selects;
+        }
+
+        @Override
+        public String inspect(String sql){
+            synchronized (RecordingInspector.class){
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package metadata.home.school.service;
+
+import metadata.home.school.model.RelatedCourse;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+public class CoEnrollmentTableTests {
+    @Test
+    void ranksBySharedStudents(){
+        var courses = new TreeMap<Integer, String>();
+        courses.put(1, "Algebra");
+        courses.put(2, "Biology");
+        courses.put(3, "Chemistry");
+        courses.put(4, "Drawing");
+        courses.put(5, "Empty");
+        var students = new HashMap<Integer, BitSet>();
+        students.put(1, bits(0, 1, 2, 3));
+        students.put(2, bits(0, 1, 2));
+        students.put(3, bits(3, 100));
+        students.put(4, bits(4));
+
+        var table = CoEnrollmentTable.build(courses, students, 2, ForkJoinPool.commonPool());
+
+        assertEquals(ids(table.findRelated(1, 10)), List.of(2, 3));
+        assertEquals(table.findRelated(1, 10).get(0).getSharedStudents(), 3);
+        assertEquals(ids(table.findRelated(1, 1)), List.of(2));
+        assertEquals(ids(table.findRelated(3, 10)), List.of(1));
+        assertEquals(ids(table.findRelated(4, 10)), List.of());
+        assertEquals(ids(table.findRelated(5, 10)), List.of());
+        assertFalse(table.contains(6));
+    }
+
+    @Test
+    void parallelRankingMatchesPairwiseCounts(){
+        var courses = new TreeMap<Integer, String>();
+        var students = new HashMap<Integer, BitSet>();
+        var courseCount = CoEnrollmentTable.ROWS_PER_TASK * 5;
+        for(var course = 0; course < courseCount; course++){
+            courses.put(course, "Course" + course);
+            var bits = new BitSet();
+            for(var student = 0; student < 500; student++){
+                if((student * 31 + course * 17) % (course % 7 + 2) == 0){
+                    bits.set(student);
+                }
+            }
+            students.put(course, bits);
+        }
+
+        var table = CoEnrollmentTable.build(courses, students, 5, ForkJoinPool.commonPool());
+
+        for(var course = 0; course < courseCount; course++){
+            var expected = new ArrayList<RelatedCourse>();
+            for(var other = 0; other < courseCount; other++){
+                var shared = (BitSet) students.get(course).clone();
+                shared.and(students.get(other));
+                if(other != course && shared.cardinality() > 0){
+                    expected.add(new RelatedCourse(other, "Course" + other, shared.cardinality()));
+                }
+            }
+            expected.sort((a, b) -> a.getSharedStudents() != b.getSharedStudents()
+                    ? Integer.compare(b.getSharedStudents(), a.getSharedStudents()) : Integer.compare(a.getId(), b.getId()));
+            assertEquals(ids(table.findRelated(course, 5)), ids(expected.subList(0, Math.min(5, expected.size()))));
+        }
+    }
+
+    private static List<Integer> ids(List<RelatedCourse> courses){
+        var ids = new ArrayList<Integer>();
+        for (var course: courses) {
+            ids.add(course.getId());
+        }
+        return ids;
+    }
+
+    private static BitSet bits(int... indexes){
+        var bits = new BitSet();
+        for (var index: indexes) {
+            bits.set(index);
+        }
+        return bits;
+    }
+}
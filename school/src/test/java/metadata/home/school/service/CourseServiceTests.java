@@ -1,12 +1,24 @@
 package metadata.home.school.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import metadata.home.school.cache.EntityResponseCache;
 import metadata.home.school.model.Course;
 import metadata.home.school.model.Student;
+import metadata.home.school.repository.BulkDeleteRepository;
+import metadata.home.school.repository.CourseReplicaRepository;
 import metadata.home.school.repository.CourseRepository;
+import metadata.home.school.repository.EnrollmentRepository;
+import metadata.home.school.repository.PatchRepository;
 import metadata.home.school.repository.StudentRepository;
+import metadata.home.school.sharding.ShardRouter;
+import metadata.home.school.sharding.ShardingProperties;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 
@@ -20,7 +32,13 @@ import static org.mockito.Mockito.when;
 public class CourseServiceTests {
     StudentRepository studentRepository = mock(StudentRepository.class);
     CourseRepository courseRepository = mock(CourseRepository.class);
-    CourseService service = new CourseService(courseRepository, studentRepository);
+    EnrollmentRepository enrollmentRepository = mock(EnrollmentRepository.class);
+    ShardRouter shardRouter = new ShardRouter(new ShardingProperties(), transactionManager());
+    CourseService service = new CourseService(courseRepository, studentRepository, new EntityResponseCache(new ObjectMapper(), 100, Duration.ofMinutes(1)),
+            shardRouter, mock(CourseReplicaRepository.class), enrollmentRepository,
+            mock(WaitlistService.class), new SeatLedger(enrollmentRepository, shardRouter, Duration.ofSeconds(30)),
+            mock(EnrollmentCountService.class), mock(BulkDeleteRepository.class), new ScheduleIndex(Duration.ofMinutes(10), 10_000),
+            mock(PatchRepository.class), mock(ChangeLog.class));
 
     @Test
     void findByIdGetResult() {
@@ -224,4 +242,11 @@ public class CourseServiceTests {
 
         assertDoesNotThrow(() -> service.delete(course1));
     }
+
+    // writes run in a transaction with their change log entries, one that does nothing here
+    private static ObjectProvider<PlatformTransactionManager> transactionManager(){
+        var beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("transactionManager", mock(PlatformTransactionManager.class));
+        return beans.getBeanProvider(PlatformTransactionManager.class);
+    }
 }
@@ -0,0 +1,72 @@
+package metadata.home.school.service;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.TimeSlot;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ScheduleIndexTests {
+    ScheduleIndex scheduleIndex = new ScheduleIndex(Duration.ofMinutes(10), 10_000);
+
+    @Test
+    void backToBackSlotsDontConflict() {
+        var first = course(1, slot(DayOfWeek.MONDAY, 9, 10), slot(DayOfWeek.WEDNESDAY, 9, 10));
+        var second = course(2, slot(DayOfWeek.MONDAY, 10, 11));
+        var third = course(3, slot(DayOfWeek.TUESDAY, 9, 10));
+
+        assertNull(scheduleIndex.findConflict(List.of(first), List.of(second, third)));
+    }
+
+    @Test
+    void overlapIsFoundAgainstTakenAndRequestedCourses() {
+        var taken = course(1, slot(DayOfWeek.MONDAY, 9, 11));
+        var free = course(2, slot(DayOfWeek.FRIDAY, 14, 16));
+        var againstTaken = course(3, slot(DayOfWeek.MONDAY, 8, 10));
+        var againstRequested = course(4, slot(DayOfWeek.FRIDAY, 15, 17));
+
+        assertSame(scheduleIndex.findConflict(List.of(taken), List.of(free, againstTaken)), againstTaken);
+        assertSame(scheduleIndex.findConflict(List.of(taken), List.of(free, againstRequested)), againstRequested);
+    }
+
+    @Test
+    void invalidSchedules() {
+        assertTrue(ScheduleIndex.isValid(List.of()));
+        assertTrue(ScheduleIndex.isValid(List.of(slot(DayOfWeek.MONDAY, 9, 10), slot(DayOfWeek.MONDAY, 10, 11))));
+        assertFalse(ScheduleIndex.isValid(List.of(slot(DayOfWeek.MONDAY, 10, 9))));
+        assertFalse(ScheduleIndex.isValid(List.of(slot(DayOfWeek.MONDAY, 9, 11), slot(DayOfWeek.MONDAY, 10, 12))));
+        assertFalse(ScheduleIndex.isValid(List.of(new TimeSlot(null, LocalTime.of(9, 0), LocalTime.of(10, 0)))));
+    }
+
+    @Test
+    void changedScheduleIsPickedUpAfterInvalidate() {
+        var course = course(1, slot(DayOfWeek.MONDAY, 9, 10));
+        var other = course(2, slot(DayOfWeek.MONDAY, 12, 13));
+        assertNull(scheduleIndex.findConflict(List.of(course), List.of(other)));
+
+        course.setSchedule(List.of(slot(DayOfWeek.MONDAY, 12, 14)));
+        assertNull(scheduleIndex.findConflict(List.of(course), List.of(other)));
+        scheduleIndex.invalidate(1);
+
+        assertSame(scheduleIndex.findConflict(List.of(course), List.of(other)), other);
+    }
+
+    private static Course course(Integer id, TimeSlot... slots){
+        var course = new Course();
+        course.setId(id);
+        course.setName("Course" + id);
+        course.setSchedule(List.of(slots));
+        return course;
+    }
+
+    private static TimeSlot slot(DayOfWeek day, int startHour, int endHour){
+        return new TimeSlot(day, LocalTime.of(startHour, 0), LocalTime.of(endHour, 0));
+    }
+}
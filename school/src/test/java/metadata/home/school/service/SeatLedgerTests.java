@@ -0,0 +1,125 @@
+package metadata.home.school.service;
+
+import metadata.home.school.repository.EnrollmentRepository;
+import metadata.home.school.sharding.ShardRouter;
+import metadata.home.school.sharding.ShardingProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+public class SeatLedgerTests {
+    EnrollmentRepository enrollmentRepository = mock(EnrollmentRepository.class);
+    ShardRouter shardRouter = new ShardRouter(new ShardingProperties(), null);
+
+    @Test
+    void reserveIsSeededFromDatabase() {
+        when(enrollmentRepository.countStudents(1)).thenReturn(CourseService.MAX_STUDENTS - 1);
+        var ledger = new SeatLedger(enrollmentRepository, shardRouter, Duration.ofSeconds(30));
+
+        assertNotNull(ledger.reserve(1, 1));
+        assertNull(ledger.reserve(1, 1));
+        assertEquals(ledger.available(1), 0);
+    }
+
+    @Test
+    void releaseGivesSeatsBackOnce() {
+        var ledger = new SeatLedger(enrollmentRepository, shardRouter, Duration.ofSeconds(30));
+
+        var lease = ledger.reserve(1, 10);
+        ledger.release(lease);
+        ledger.release(lease);
+        ledger.confirm(lease);
+
+        assertEquals(ledger.available(1), CourseService.MAX_STUDENTS);
+    }
+
+    @Test
+    void reserveUpToGrantsWhatIsLeft() {
+        when(enrollmentRepository.countStudents(1)).thenReturn(CourseService.MAX_STUDENTS - 2);
+        var ledger = new SeatLedger(enrollmentRepository, shardRouter, Duration.ofSeconds(30));
+
+        assertEquals(ledger.reserveUpTo(1, 5).getSeats(), 2);
+        assertEquals(ledger.reserveUpTo(1, 5).getSeats(), 0);
+    }
+
+    @Test
+    void reconcileExpiresLeasesAndCorrectsDrift() {
+        var ledger = new SeatLedger(enrollmentRepository, shardRouter, Duration.ZERO);
+        ledger.reserve(1, 5);
+        ledger.free(1, 20);
+        when(enrollmentRepository.countStudents(1)).thenReturn(3);
+
+        ledger.reconcile();
+
+        assertEquals(ledger.available(1), CourseService.MAX_STUDENTS - 3);
+    }
+
+    @Test
+    void concurrentReservationsNeverExceedCapacity() throws Exception {
+        var ledger = new SeatLedger(enrollmentRepository, shardRouter, Duration.ofSeconds(30));
+        var executor = Executors.newFixedThreadPool(8);
+        var tasks = new ArrayList<Callable<Boolean>>();
+        for(var i = 0; i < CourseService.MAX_STUDENTS * 4; i++){
+            tasks.add(() -> ledger.reserve(1, 1) != null);
+        }
+
+        var granted = 0;
+        for (var result: executor.invokeAll(tasks)) {
+            granted += result.get() ? 1 : 0;
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(granted, CourseService.MAX_STUDENTS);
+    }
+
+    @Test
+    void reconcileKeepsLeasesSettledWhileCounting() {
+        var ledger = new SeatLedger(enrollmentRepository, shardRouter, Duration.ofSeconds(30));
+        var lease = ledger.reserve(1, 5);
+        // confirmed after the leases were read, its enrollments not yet visible to the count
+        when(enrollmentRepository.countStudents(1)).thenAnswer(invocation -> {
+            ledger.confirm(lease);
+            return 0;
+        });
+
+        ledger.reconcile();
+
+        assertEquals(ledger.available(1), CourseService.MAX_STUDENTS - 5);
+    }
+
+    @Test
+    void reconcileKeepsReservationsMadeWhileCounting() {
+        var ledger = new SeatLedger(enrollmentRepository, shardRouter, Duration.ofSeconds(30));
+        ledger.available(1);
+        when(enrollmentRepository.countStudents(1)).thenAnswer(invocation -> {
+            ledger.reserve(1, 4);
+            return 10;
+        });
+
+        ledger.reconcile();
+
+        assertEquals(ledger.available(1), CourseService.MAX_STUDENTS - 14);
+    }
+
+    @Test
+    void invalidateKeepsOpenLeases() {
+        var ledger = new SeatLedger(enrollmentRepository, shardRouter, Duration.ofSeconds(30));
+        ledger.reserve(1, 5);
+        when(enrollmentRepository.countStudents(1)).thenReturn(2);
+
+        ledger.invalidate(1);
+
+        assertEquals(ledger.available(1), CourseService.MAX_STUDENTS - 7);
+    }
+}
@@ -1,25 +1,50 @@
 package metadata.home.school.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import metadata.home.school.cache.EntityResponseCache;
 import metadata.home.school.model.Course;
+import metadata.home.school.model.ErrorCode;
+import metadata.home.school.model.ServiceResponse;
+import metadata.home.school.repository.BulkDeleteRepository;
 import metadata.home.school.repository.CourseRepository;
+import metadata.home.school.repository.EnrollmentRepository;
+import metadata.home.school.repository.PatchRepository;
 import metadata.home.school.repository.StudentRepository;
+import metadata.home.school.sharding.ShardRouter;
+import metadata.home.school.sharding.ShardingProperties;
 import metadata.home.school.model.Student;
+import metadata.home.school.model.TimeSlot;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
 public class StudentServiceTests {
     StudentRepository studentRepository = mock(StudentRepository.class);
     CourseRepository courseRepository = mock(CourseRepository.class);
-    StudentService service = new StudentService(studentRepository, courseRepository);
+    EntityResponseCache responseCache = new EntityResponseCache(new ObjectMapper(), 100, Duration.ofMinutes(1));
+    EnrollmentRepository enrollmentRepository = mock(EnrollmentRepository.class);
+    WaitlistService waitlistService = mock(WaitlistService.class);
+    ShardRouter shardRouter = new ShardRouter(new ShardingProperties(), transactionManager());
+    StudentService service = new StudentService(studentRepository, courseRepository, responseCache, shardRouter,
+            waitlistService, new SeatLedger(enrollmentRepository, shardRouter, Duration.ofSeconds(30)), mock(EnrollmentCountService.class),
+            mock(BulkDeleteRepository.class), new ScheduleIndex(Duration.ofMinutes(10), 10_000), enrollmentRepository, mock(PatchRepository.class),
+            mock(ChangeLog.class));
 
     @Test
     void findByIdGetResult() {
@@ -268,6 +293,57 @@ public class StudentServiceTests {
         assertEquals(result.getMessage(), "");
     }
 
+    @Test
+    void registerOverlappingCourseIsRejected() {
+        var taken = new Course();
+        taken.setId(1);
+        taken.setName("Course1");
+        taken.setSchedule(List.of(new TimeSlot(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 30))));
+
+        var overlapping = new Course();
+        overlapping.setId(2);
+        overlapping.setName("Course2");
+        overlapping.setSchedule(List.of(new TimeSlot(DayOfWeek.MONDAY, LocalTime.of(10, 0), LocalTime.of(11, 0))));
+
+        var student = new Student();
+        student.setId(1);
+        student.setSchoolId("A");
+        student.setName("StudentA");
+        student.getCourses().add(taken);
+
+        when(studentRepository.findById(1)).thenReturn(java.util.Optional.of(student));
+        when(courseRepository.findByName("Course2")).thenReturn(overlapping);
+
+        var result = service.register(1, List.of(overlapping));
+
+        assertNull(result.getResult());
+        assertEquals(result.getErrorCode(), ErrorCode.STUDENT_SCHEDULE_CONFLICT);
+        assertEquals(student.getCourses().size(), 1);
+    }
+
+    @Test
+    void registerFullCourseIsWaitlisted() {
+        var course = new Course();
+        course.setId(1);
+        course.setName("Course1");
+
+        var student = new Student();
+        student.setId(1);
+        student.setSchoolId("A");
+        student.setName("StudentA");
+
+        when(studentRepository.findById(1)).thenReturn(java.util.Optional.of(student));
+        when(courseRepository.findByName("Course1")).thenReturn(course);
+        when(enrollmentRepository.countStudents(1)).thenReturn(CourseService.MAX_STUDENTS);
+        when(studentRepository.save(any())).thenReturn(student);
+
+        var result = service.register(1, new ArrayList<>(){{add(course);}});
+
+        assertEquals(result.getStatus(), ServiceResponse.Status.ACCEPTED);
+        assertEquals(result.getResult().getCourses().size(), 0);
+        verify(waitlistService).enqueue(1, 1);
+    }
+
     @Test
     void registerErrorMoreThanFiveCourses() {
         var courses = new HashSet<Course>();
@@ -339,4 +415,65 @@ public class StudentServiceTests {
         assertEquals(result.getResult(), null);
         assertEquals(result.getMessage(), "Cannot find course: Course1");
     }
+
+    @Test
+    void registerEvictsStudentAndCourse(){
+        var course = new Course();
+        course.setId(1);
+        course.setName("Course1");
+
+        var student1 = new Student();
+        student1.setId(1);
+        student1.setSchoolId("A");
+        student1.setName("StudentA");
+
+        responseCache.getStudent(1, id -> java.util.Optional.of(student1));
+        responseCache.getCourse(1, id -> java.util.Optional.of(course));
+
+        when(studentRepository.findById(1)).thenReturn(java.util.Optional.of(student1));
+        when(courseRepository.findByName("Course1")).thenReturn(course);
+        when(studentRepository.save(any())).thenReturn(student1);
+        service.register(1, new ArrayList<>(){{add(course);}});
+
+        var studentMisses = responseCache.studentStats().missCount();
+        var courseMisses = responseCache.courseStats().missCount();
+        responseCache.getStudent(1, id -> java.util.Optional.of(student1));
+        responseCache.getCourse(1, id -> java.util.Optional.of(course));
+
+        assertEquals(responseCache.studentStats().missCount(), studentMisses + 1);
+        assertEquals(responseCache.courseStats().missCount(), courseMisses + 1);
+    }
+
+    @Test
+    void updateErrorNotFound() {
+        var student1 = new Student();
+        student1.setSchoolId("A");
+        student1.setName("StudentA");
+
+        when(studentRepository.findById(1)).thenReturn(java.util.Optional.empty());
+        var result = service.update(1, student1);
+
+        assertEquals(result.getStatus(), ServiceResponse.Status.NOT_FOUND);
+        assertEquals(result.getErrorCode(), ErrorCode.STUDENT_NOT_FOUND);
+        assertEquals(result.getMessage(), "Student with id: 1 was not found");
+    }
+
+    @Test
+    void registerErrorNotFound() {
+        var course = new Course();
+        course.setName("Course1");
+
+        when(studentRepository.findById(1)).thenReturn(java.util.Optional.empty());
+        var result = service.register(1, new ArrayList<>(){{add(course);}});
+
+        assertEquals(result.getStatus(), ServiceResponse.Status.NOT_FOUND);
+        assertEquals(result.getMessage(), "Student with id: 1 was not found");
+    }
+
+    // writes run in a transaction with their change log entries, one that does nothing here
+    private static ObjectProvider<PlatformTransactionManager> transactionManager(){
+        var beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("transactionManager", mock(PlatformTransactionManager.class));
+        return beans.getBeanProvider(PlatformTransactionManager.class);
+    }
 }
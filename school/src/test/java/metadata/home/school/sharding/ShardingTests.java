@@ -0,0 +1,301 @@
+package metadata.home.school.sharding;
+
+import metadata.home.school.model.Course;
+import metadata.home.school.model.ServiceResponse;
+import metadata.home.school.model.Student;
+import metadata.home.school.model.StudentFilter;
+import metadata.home.school.service.ChangeLog;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.SeatLedger;
+import metadata.home.school.service.StudentService;
+import org.hibernate.id.IdentifierGenerationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static metadata.home.school.TestFixtures.newStudent;
+import static metadata.home.school.TestFixtures.student;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "school.sharding.enabled = true",
+        "school.sharding.shards[0].url = jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "school.sharding.shards[0].username = sa",
+        "school.sharding.shards[1].url = jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "school.sharding.shards[1].username = sa",
+        "school.sharding.shards[2].url = jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "school.sharding.shards[2].username = sa",
+        "school.changes.enabled = true"
+})
+@AutoConfigureMockMvc
+public class ShardingTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Autowired
+    ShardRouter shardRouter;
+
+    @Autowired
+    SeatLedger seatLedger;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Test
+    void studentsAreStoredOnTheirShard() throws Exception {
+        var saved = new ArrayList<Student>();
+        for(var i = 0; i < 12; i++){
+            saved.add(student(studentService, "placement-" + i));
+        }
+
+        for (var student: saved) {
+            var shard = shardRouter.shardFor(student.getSchoolId());
+            assertEquals(shardRouter.shardForStudentId(student.getId()), shard);
+            assertEquals(countRows(shard, "select count(*) from student where school_id = '" + student.getSchoolId() + "'"), 1);
+        }
+        assertTrue(saved.stream().map(x -> shardRouter.shardFor(x.getSchoolId())).distinct().count() > 1);
+    }
+
+    @Test
+    void findAllGathersEveryShard() {
+        for(var i = 0; i < 9; i++){
+            studentService.save(newStudent("gather-" + i));
+        }
+
+        var schoolIds = studentService.findAll().stream().map(Student::getSchoolId).collect(Collectors.toSet());
+        for(var i = 0; i < 9; i++){
+            assertTrue(schoolIds.contains("gather-" + i));
+        }
+    }
+
+    @Test
+    void coursesAreReplicatedAndRegistrationWorksOnAnyShard() throws Exception {
+        var course = new Course();
+        course.setName("Replicated");
+        var savedCourse = (Course) courseService.save(course).getResult();
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            assertEquals(countRows(shard, "select count(*) from course where id = " + savedCourse.getId()), 1);
+        }
+
+        var registered = new ArrayList<Integer>();
+        for(var i = 0; i < 6; i++){
+            var student = student(studentService, "register-" + i);
+            var result = studentService.register(student.getId(), new ArrayList<>(){{add(course);}});
+            assertEquals(result.getMessage(), "");
+            registered.add(student.getId());
+        }
+
+        for (var id: registered) {
+            var student = studentService.findById(id).get();
+            assertEquals(student.getCourses().iterator().next().getName(), "Replicated");
+        }
+        assertEquals(courseService.findStudents(savedCourse).size(), registered.size());
+        assertTrue(studentService.findWithNoCourse().stream().noneMatch(x -> registered.contains(x.getId())));
+        assertTrue(courseService.findWithNoStudents().stream().noneMatch(x -> x.getId().equals(savedCourse.getId())));
+    }
+
+    @Test
+    void filtersMergeShardsAndCountEnrollmentsOnAllOfThem() throws Exception {
+        var course = new Course();
+        course.setName("Sharded filter");
+        var savedCourse = (Course) courseService.save(course).getResult();
+        var schoolIds = new ArrayList<String>();
+        for(var i = 0; i < 7; i++){
+            schoolIds.add(student(studentService, "sharded-filter-" + i).getSchoolId());
+        }
+        courseService.batchAdd(savedCourse.getId(), schoolIds);
+
+        var filter = new StudentFilter();
+        filter.setName("Student sharded-filter");
+        filter.setCourse("Sharded filter");
+        var page = studentService.find(filter, PageRequest.of(1, 3, Sort.by("id")));
+        assertEquals(page.getTotalElements(), 7);
+        assertEquals(page.getContent().size(), 3);
+        assertTrue(page.getContent().get(0).getId() < page.getContent().get(1).getId());
+
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            assertEquals(countRows(shard, "select student_count from course where id = " + savedCourse.getId()), 7);
+        }
+    }
+
+    @Test
+    void bulkDeletesReachEveryShard() throws Exception {
+        var course = new Course();
+        course.setName("Sharded bulk");
+        var savedCourse = (Course) courseService.save(course).getResult();
+        var schoolIds = new ArrayList<String>();
+        for(var i = 0; i < 7; i++){
+            schoolIds.add(student(studentService, "sharded-bulk-" + i).getSchoolId());
+        }
+        courseService.batchAdd(savedCourse.getId(), schoolIds.subList(0, 5));
+
+        var filter = new StudentFilter();
+        filter.setName("Student sharded-bulk");
+        filter.setCourse("Sharded bulk");
+        assertEquals(studentService.deleteAll(filter).getResult().getDeleted().size(), 5);
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            assertEquals(countRows(shard, "select student_count from course where id = " + savedCourse.getId()), 0);
+        }
+
+        assertEquals(courseService.deleteAll(List.of(savedCourse.getId())).getResult().getDeleted().size(), 1);
+        var remaining = 0;
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            assertEquals(countRows(shard, "select count(*) from course where id = " + savedCourse.getId()), 0);
+            remaining += countRows(shard, "select count(*) from student where school_id like 'sharded-bulk-%'");
+        }
+        assertEquals(remaining, 2);
+    }
+
+    @Test
+    void updateCannotMoveStudentToAnotherShard() {
+        var student = student(studentService, "mover-0");
+        var other = "mover-1";
+        for(var i = 2; shardRouter.shardFor(other) == shardRouter.shardFor(student.getSchoolId()); i++){
+            other = "mover-" + i;
+        }
+
+        var result = studentService.update(student.getId(), newStudent(other));
+
+        assertNull(result.getResult());
+        assertEquals(result.getMessage(), "A student cannot change to school id: " + other + " because it belongs to another shard");
+    }
+
+    @Test
+    void updatingACourseKeepsEveryShardsOwnState() throws Exception {
+        var course = new Course();
+        course.setName("Sharded update");
+        var savedCourse = (Course) courseService.save(course).getResult();
+        var schoolIds = new ArrayList<String>();
+        for(var i = 0; i < 7; i++){
+            schoolIds.add(student(studentService, "sharded-update-" + i).getSchoolId());
+        }
+        courseService.batchAdd(savedCourse.getId(), schoolIds);
+        var enrolledByShard = new ArrayList<Integer>();
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            enrolledByShard.add(countRows(shard, "select count(*) from student_course where course_id = " + savedCourse.getId()));
+        }
+
+        mockMvc.perform(put("/api/courses/" + savedCourse.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Sharded update renamed\", \"schedule\": [{\"day\": \"TUESDAY\", \"start\": \"10:00\", \"end\": \"11:00\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Sharded update renamed"));
+
+        for(var shard = 0; shard < shardRouter.getShardCount(); shard++){
+            assertEquals(countRows(shard, "select count(*) from course where id = " + savedCourse.getId()
+                    + " and name = 'Sharded update renamed' and schedule = 'TUESDAY 10:00-11:00'"), 1);
+            assertEquals(countRows(shard, "select count(*) from student_course where course_id = " + savedCourse.getId()),
+                    (int) enrolledByShard.get(shard));
+            assertEquals(countRows(shard, "select student_count from course where id = " + savedCourse.getId()), 7);
+        }
+    }
+
+    @Test
+    void courseRostersGatherEveryShard() throws Exception {
+        var course = new Course();
+        course.setName("Sharded roster");
+        var savedCourse = (Course) courseService.save(course).getResult();
+        var schoolIds = new ArrayList<String>();
+        for(var i = 0; i < 7; i++){
+            schoolIds.add(student(studentService, "sharded-roster-" + i).getSchoolId());
+        }
+        courseService.batchAdd(savedCourse.getId(), schoolIds);
+
+        mockMvc.perform(get("/api/courses/" + savedCourse.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students.length()").value(7));
+        mockMvc.perform(get("/api/courses").param("ids", String.valueOf(savedCourse.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].students.length()").value(7));
+        mockMvc.perform(get("/api/courses").param("name", "Sharded roster").param("page", "0").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].students.length()").value(7));
+    }
+
+    @Test
+    void shardedBatchesTakeTheirSeatsFromTheLedger() {
+        var course = new Course();
+        course.setName("Sharded seats");
+        var savedCourse = (Course) courseService.save(course).getResult();
+        var schoolIds = new ArrayList<String>();
+        for(var i = 0; i < 12; i++){
+            schoolIds.add(student(studentService, "sharded-seats-" + i).getSchoolId());
+        }
+        var held = seatLedger.reserve(savedCourse.getId(), CourseService.MAX_STUDENTS - 10);
+
+        var rejected = courseService.batchAdd(savedCourse.getId(), schoolIds);
+        seatLedger.release(held);
+        var accepted = courseService.batchAdd(savedCourse.getId(), schoolIds);
+
+        assertEquals(rejected.getStatus(), ServiceResponse.Status.CONFLICT);
+        assertEquals(accepted.getResult().getApplied().size(), 12);
+        assertEquals(seatLedger.available(savedCourse.getId()), CourseService.MAX_STUDENTS - 12);
+    }
+
+    @Test
+    void idsOfShardsThatDontExistAreNotFound() throws Exception {
+        var saved = student(studentService, "unrouted-0");
+        // the same sequence value tagged with a shard past the three configured
+        var id = saved.getId() - shardRouter.shardForStudentId(saved.getId()) + shardRouter.getShardCount();
+
+        assertEquals(shardRouter.shardForStudentId(id), ShardRouter.NO_SHARD);
+        mockMvc.perform(get("/api/students/" + id)).andExpect(status().isNotFound());
+        mockMvc.perform(put("/api/students/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"schoolId\": \"unrouted-0\", \"name\": \"Renamed\"}"))
+                .andExpect(status().isNotFound());
+        assertEquals(studentService.register(id, List.of()).getResult(), null);
+        assertEquals(studentService.findAllById(List.of(id, saved.getId())).size(), 1);
+        assertEquals(studentService.deleteAll(List.of(id)).getResult().getMissing(), List.of(id));
+    }
+
+    @Test
+    void shardedIdsStopAtTheLastOneFittingAnInt() {
+        assertEquals(ShardAwareIdGenerator.tag(ShardAwareIdGenerator.MAX_SEQUENCE_VALUE, ShardRouter.MAX_SHARDS - 1), Integer.MAX_VALUE);
+        assertThrows(IdentifierGenerationException.class, () -> ShardAwareIdGenerator.tag(ShardAwareIdGenerator.MAX_SEQUENCE_VALUE + 1, 0));
+    }
+
+    @Test
+    void changesWrittenOnOtherShardsAreRelayedToTheDefaultOne() throws Exception {
+        Student saved;
+        var i = 0;
+        do{
+            saved = student(studentService, "relayed-" + i++);
+        }while(shardRouter.shardForStudentId(saved.getId()) == 0);
+        var shard = shardRouter.shardForStudentId(saved.getId());
+        var entries = "select count(*) from change_log where type = 'STUDENT' and entity_id = " + saved.getId();
+
+        changeLog.relay();
+
+        assertEquals(countRows(shard, "select count(*) from change_log"), 0);
+        assertEquals(countRows(0, entries), 1);
+    }
+
+    private int countRows(int shard, String sql) throws Exception {
+        try(var connection = DriverManager.getConnection("jdbc:h2:mem:shard" + shard, "sa", "");
+            var resultSet = connection.createStatement().executeQuery(sql)){
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package metadata.home.school.warmup;
+
+import metadata.home.school.cache.EntityResponseCache;
+import metadata.home.school.model.Course;
+import metadata.home.school.model.Student;
+import metadata.home.school.service.CourseService;
+import metadata.home.school.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// a database of its own, so creating this context doesn't drop the tables the other contexts are using
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:warmup;DB_CLOSE_DELAY=-1;MODE=MySQL", "school.warmup.enabled=true",
+        "school.warmup.min-rounds=10", "school.warmup.max-duration=PT20S" })
+public class StartupWarmUpTests {
+    @Autowired
+    StartupWarmUp warmUp;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    CourseService courseService;
+
+    @Autowired
+    EntityResponseCache responseCache;
+
+    @Autowired
+    ApplicationAvailability availability;
+
+    @Test
+    void readyAfterWarmingUp(){
+        assertEquals(availability.getReadinessState(), ReadinessState.ACCEPTING_TRAFFIC);
+        assertNotNull(warmUp.getDuration());
+    }
+
+    @Test
+    void cachesAreLoadedAndNothingIsWritten(){
+        var course = new Course();
+        course.setName("Warm course");
+        var courseId = courseService.save(course).getResult().getId();
+        var student = new Student();
+        student.setSchoolId("warm-1");
+        student.setName("Warm student");
+        var studentId = studentService.save(student).getResult().getId();
+        courseService.batchAdd(courseId, List.of("warm-1"));
+
+        warmUp.warmUp();
+
+        assertTrue(warmUp.getRounds() >= 10);
+        assertNotNull(responseCache.getCourse(courseId, id -> { throw new AssertionError("course was not preloaded"); }));
+        assertNotNull(responseCache.getStudent(studentId, id -> { throw new AssertionError("student was not preloaded"); }));
+        assertEquals(studentService.findCourses(List.of(studentId)).get(studentId).size(), 1);
+    }
+
+    @Test
+    void coursesAreReplayedWithoutHotStudents(){
+        var course = new Course();
+        course.setName("Warm course without students");
+        courseService.save(course);
+
+        ReflectionTestUtils.setField(warmUp, "hotStudents", 0);
+        try{
+            warmUp.warmUp();
+        }finally {
+            ReflectionTestUtils.setField(warmUp, "hotStudents", 100);
+        }
+
+        assertTrue(warmUp.getRounds() >= 10);
+    }
+}